@@ -0,0 +1,74 @@
+package io.github.isoteriktech.xgdx.benchmarks;
+
+import io.github.isoteriktech.xgdx.Component;
+import io.github.isoteriktech.xgdx.GameObject;
+import io.github.isoteriktech.xgdx.Layer;
+import io.github.isoteriktech.xgdx.Transform;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures component lookups on a game object and tag lookups in a layer.
+ *
+ * @author isoteriksoftware
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GameObjectBenchmark {
+    @Param({ "1000", "10000" })
+    public int layerSize;
+
+    private GameObject gameObject;
+    private Layer layer;
+    private String lastTag;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        HeadlessEnvironment.init();
+
+        gameObject = GameObject.newInstance("player");
+        gameObject.addComponent(new First());
+        gameObject.addComponent(new Second());
+        gameObject.addComponent(new Third());
+        gameObject.addComponent(new Fourth());
+        gameObject.addComponent(new Fifth());
+
+        layer = new Layer("benchmark");
+        for (int i = 0; i < layerSize; i++)
+            layer.addGameObject(GameObject.newInstance("object" + i));
+        lastTag = "object" + (layerSize - 1);
+    }
+
+    @Benchmark
+    public Transform getFirstComponent()
+    { return gameObject.getComponent(Transform.class); }
+
+    @Benchmark
+    public Fifth getLastComponent()
+    { return gameObject.getComponent(Fifth.class); }
+
+    @Benchmark
+    public Component getMissingComponent()
+    { return gameObject.getComponent(Missing.class); }
+
+    @Benchmark
+    public GameObject findGameObject()
+    { return layer.findGameObject(lastTag); }
+
+    public static class First extends Component {}
+    public static class Second extends Component {}
+    public static class Third extends Component {}
+    public static class Fourth extends Component {}
+    public static class Fifth extends Component {}
+    public static class Missing extends Component {}
+}
@@ -0,0 +1,88 @@
+package io.github.isoteriktech.xgdx.benchmarks;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import io.github.isoteriktech.xgdx.XGdx;
+
+import java.lang.reflect.Proxy;
+import java.nio.IntBuffer;
+
+/**
+ * Boots the libGDX headless backend and xgdx once per benchmark process.
+ * <p>
+ * The headless backend has no OpenGL context, so a stub {@link GL20} that does nothing is installed. Its shaders always compile so that
+ * sprite batches, stages and shape renderers can be created; rendering benchmarks therefore measure the CPU side of a frame only.
+ *
+ * @author isoteriksoftware
+ */
+public final class HeadlessEnvironment {
+    private static boolean initialized;
+    private static Texture texture;
+
+    private HeadlessEnvironment() {}
+
+    /**
+     * Starts the headless application and initializes xgdx if that was not done yet.
+     */
+    public static synchronized void init() {
+        if (initialized)
+            return;
+
+        HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+        // The benchmarks drive the frames themselves; the application loop must not render
+        config.renderInterval = -1;
+        new HeadlessApplication(new ApplicationAdapter() {}, config);
+
+        Gdx.gl = Gdx.gl20 = stubGL();
+        ShaderProgram.pedantic = false;
+
+        XGdx.__init();
+        initialized = true;
+    }
+
+    /**
+     *
+     * @return a shared 1x1 texture for sprites
+     */
+    public static synchronized Texture getTexture() {
+        if (texture == null) {
+            Pixmap pixmap = new Pixmap(1, 1, Pixmap.Format.RGBA8888);
+            pixmap.drawPixel(0, 0, 0xffffffff);
+            texture = new Texture(pixmap);
+            pixmap.dispose();
+        }
+
+        return texture;
+    }
+
+    private static GL20 stubGL() {
+        return (GL20) Proxy.newProxyInstance(GL20.class.getClassLoader(), new Class[]{ GL20.class }, (proxy, method, args) -> {
+            String name = method.getName();
+
+            // Report every shader as compiled and linked, with no active attributes or uniforms to fetch
+            if (name.equals("glGetShaderiv") || name.equals("glGetProgramiv")) {
+                int pname = (Integer) args[1];
+                IntBuffer params = (IntBuffer) args[2];
+                params.put(params.position(), pname == GL20.GL_COMPILE_STATUS || pname == GL20.GL_LINK_STATUS ? 1 : 0);
+                return null;
+            }
+
+            Class<?> type = method.getReturnType();
+            if (type == String.class)
+                return "";
+            if (type == boolean.class)
+                return false;
+            if (type == int.class)
+                return 1;
+            if (type == float.class)
+                return 0f;
+            return null;
+        });
+    }
+}
@@ -0,0 +1,82 @@
+package io.github.isoteriktech.xgdx.benchmarks;
+
+import com.badlogic.gdx.Input;
+import io.github.isoteriktech.xgdx.Scene;
+import io.github.isoteriktech.xgdx.input.IKeyListener;
+import io.github.isoteriktech.xgdx.input.ITouchListener;
+import io.github.isoteriktech.xgdx.input.InputManager;
+import io.github.isoteriktech.xgdx.input.KeyTrigger;
+import io.github.isoteriktech.xgdx.input.TouchTrigger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long the {@link InputManager} takes to dispatch an event to its listeners and mapped listeners.
+ * Every key listens to its own key, so most of the registered triggers do not match the dispatched events.
+ *
+ * @author isoteriksoftware
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class InputBenchmark {
+    @Param({ "10", "100" })
+    public int listeners;
+
+    private Scene scene;
+    private InputManager input;
+    private Blackhole blackhole;
+
+    @Setup(Level.Trial)
+    public void setup(Blackhole blackhole) {
+        HeadlessEnvironment.init();
+
+        this.blackhole = blackhole;
+        scene = new Scene();
+        input = scene.getInput();
+
+        IKeyListener keyListener = (mappingName, keyEventData) -> this.blackhole.consume(keyEventData);
+        ITouchListener touchListener = (mappingName, touchEventData) -> this.blackhole.consume(touchEventData);
+
+        for (int i = 0; i < listeners; i++) {
+            int keyCode = Input.Keys.A + i % 26;
+            input.addKeyListener(KeyTrigger.keyDownTrigger(keyCode), keyListener);
+            input.addKeyListener(KeyTrigger.keyUpTrigger(keyCode), keyListener);
+
+            String mappingName = "action" + i;
+            input.addMapping(mappingName, KeyTrigger.keyDownTrigger(keyCode), TouchTrigger.touchDownTrigger());
+            input.mapKeyListener(mappingName, keyListener);
+            input.mapTouchListener(mappingName, touchListener);
+        }
+
+        input.addTouchListener(TouchTrigger.touchDraggedTrigger(), touchListener);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    { scene.__destroy(); }
+
+    @Benchmark
+    public void keyDownAndUp() {
+        input.keyDown(Input.Keys.A);
+        input.keyUp(Input.Keys.A);
+    }
+
+    @Benchmark
+    public void touchDownDragAndUp() {
+        input.touchDown(100, 100, 0, Input.Buttons.LEFT);
+        input.touchDragged(110, 105, 0);
+        input.touchUp(110, 105, 0, Input.Buttons.LEFT);
+    }
+}
@@ -0,0 +1,83 @@
+package io.github.isoteriktech.xgdx.benchmarks;
+
+import com.badlogic.gdx.graphics.Texture;
+import io.github.isoteriktech.xgdx.Component;
+import io.github.isoteriktech.xgdx.GameObject;
+import io.github.isoteriktech.xgdx.Scene;
+import io.github.isoteriktech.xgdx.utils.GameWorldUnits;
+import io.github.isoteriktech.xgdx.x2d.components.renderer.SpriteRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a frame of a scene where every game object renders a sprite and moves every update.
+ *
+ * @author isoteriksoftware
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SceneBenchmark {
+    @Param({ "1000", "10000", "100000" })
+    public int objects;
+
+    private Scene scene;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        HeadlessEnvironment.init();
+
+        scene = new Scene();
+        Texture texture = HeadlessEnvironment.getTexture();
+        GameWorldUnits gameWorldUnits = scene.getGameWorldUnits();
+        Random random = new Random(42);
+
+        for (int i = 0; i < objects; i++) {
+            GameObject gameObject = GameObject.newInstance("object" + i);
+            gameObject.transform.setPosition(random.nextFloat() * 100, random.nextFloat() * 100);
+            gameObject.addComponent(new SpriteRenderer(texture, gameWorldUnits));
+            gameObject.addComponent(new Mover(random.nextFloat() - .5f, random.nextFloat() - .5f));
+            scene.addGameObject(gameObject);
+        }
+
+        // Let every component start and the registries be built before measuring
+        scene.__update(0);
+        scene.__render();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    { scene.__destroy(); }
+
+    @Benchmark
+    public void update()
+    { scene.__update(1 / 60f); }
+
+    @Benchmark
+    public void render()
+    { scene.__render(); }
+
+    private static class Mover extends Component {
+        private final float velocityX, velocityY;
+
+        Mover(float velocityX, float velocityY) {
+            this.velocityX = velocityX;
+            this.velocityY = velocityY;
+        }
+
+        @Override
+        public void update(float deltaTime)
+        { gameObject.transform.translate(velocityX * deltaTime, velocityY * deltaTime); }
+    }
+}
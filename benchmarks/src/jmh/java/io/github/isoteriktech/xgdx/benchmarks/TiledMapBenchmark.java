@@ -0,0 +1,90 @@
+package io.github.isoteriktech.xgdx.benchmarks;
+
+import com.badlogic.gdx.maps.MapLayer;
+import com.badlogic.gdx.maps.MapObject;
+import com.badlogic.gdx.maps.objects.EllipseMapObject;
+import com.badlogic.gdx.maps.objects.RectangleMapObject;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.utils.Array;
+import io.github.isoteriktech.xgdx.x2d.components.renderer.TiledMapRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the object queries of a {@link TiledMapRenderer} on a generated map whose objects are spread over two layers.
+ *
+ * @author isoteriksoftware
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TiledMapBenchmark {
+    private static final float UNIT_SCALE = 1 / 32f;
+
+    @Param({ "1000", "10000" })
+    public int objects;
+
+    private TiledMapRenderer mapRenderer;
+    private MapLayer enemiesLayer;
+
+    private final Array<RectangleMapObject> rectangles = new Array<>();
+    private final Array<MapObject> mapObjects = new Array<>();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        HeadlessEnvironment.init();
+
+        TiledMap map = new TiledMap();
+        MapLayer pickupsLayer = new MapLayer();
+        pickupsLayer.setName("pickups");
+        enemiesLayer = new MapLayer();
+        enemiesLayer.setName("enemies");
+        map.getLayers().add(pickupsLayer);
+        map.getLayers().add(enemiesLayer);
+
+        // A 320x320 tiles world
+        Random random = new Random(42);
+        for (int i = 0; i < objects; i++) {
+            float x = random.nextFloat() * 320 * 32;
+            float y = random.nextFloat() * 320 * 32;
+
+            MapObject object = i % 2 == 0 ? new RectangleMapObject(x, y, 32, 32) : new EllipseMapObject(x, y, 32, 32);
+            object.getProperties().put("type", i % 10 == 0 ? "boss" : "minion");
+            (i % 3 == 0 ? pickupsLayer : enemiesLayer).getObjects().add(object);
+        }
+
+        mapRenderer = new TiledMapRenderer(map, UNIT_SCALE);
+    }
+
+    @Benchmark
+    public Array<RectangleMapObject> getObjectsByProperty() {
+        rectangles.clear();
+        return mapRenderer.getObjects(RectangleMapObject.class, null, "type", "boss", rectangles);
+    }
+
+    @Benchmark
+    public Array<RectangleMapObject> getObjectsOfLayerByProperty() {
+        rectangles.clear();
+        return mapRenderer.getObjects(RectangleMapObject.class, enemiesLayer, "type", "boss", rectangles);
+    }
+
+    @Benchmark
+    public Array<MapObject> getObjectsInRect() {
+        mapObjects.clear();
+        return mapRenderer.getObjectsInRect(MapObject.class, 100, 100, 20, 12, mapObjects);
+    }
+
+    @Benchmark
+    public Array<RectangleMapObject> getRectangleObjects()
+    { return mapRenderer.getRectangleObjects("type", "boss"); }
+}
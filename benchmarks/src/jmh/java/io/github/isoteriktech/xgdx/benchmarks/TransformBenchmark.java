@@ -0,0 +1,56 @@
+package io.github.isoteriktech.xgdx.benchmarks;
+
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import io.github.isoteriktech.xgdx.GameObject;
+import io.github.isoteriktech.xgdx.Transform;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Transform#isInCameraFrustum(com.badlogic.gdx.graphics.Camera)} for a root transform and for a transform with a parent.
+ *
+ * @author isoteriksoftware
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TransformBenchmark {
+    private OrthographicCamera camera;
+    private Transform root, child;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        HeadlessEnvironment.init();
+
+        camera = new OrthographicCamera(20, 12);
+        camera.position.set(10, 6, 0);
+        camera.update();
+
+        GameObject parent = GameObject.newInstance("parent");
+        parent.transform.setPosition(4, 3);
+        parent.transform.setSize(2, 2);
+        root = parent.transform;
+
+        GameObject gameObject = GameObject.newInstance("child");
+        gameObject.transform.setParent(parent.transform);
+        gameObject.transform.setPosition(1, 1);
+        gameObject.transform.setSize(1, 1);
+        child = gameObject.transform;
+    }
+
+    @Benchmark
+    public boolean rootInCameraFrustum()
+    { return root.isInCameraFrustum(camera); }
+
+    @Benchmark
+    public boolean childInCameraFrustum()
+    { return child.isInCameraFrustum(camera); }
+}
@@ -23,9 +23,12 @@ public class ActorGameObject extends GameObject {
         super(tag);
 
         components.removeValue(transform, true);
+        unindexComponent(transform);
+
         transform = new ActorTransform(actor);
         transform.__setGameObject(this);
         components.add(transform);
+        indexComponent(transform);
 
         actorTransform = (ActorTransform) transform;
     }
@@ -22,6 +22,13 @@ public class Component {
 
     protected boolean enabled = true;
 
+    /* Assigned by the ComponentRegistry: the registry this component is in, the arrays of the registry it belongs to, its order among the
+       components of its game object and whether it is culled by the spatial grid */
+    ComponentRegistry registry;
+    int registryLists;
+    int registryOrder;
+    boolean spatiallyCulled;
+
     /**
      * Called when the component is attached to a {@link GameObject}.
      * <strong>Note:</strong> At this point it is guaranteed that a game object exists for this component but it
@@ -48,6 +55,14 @@ public class Component {
      */
     public void preUpdate(float deltaTime) {}
 
+    /**
+     * Called at a fixed rate when the scene uses a fixed time step (see {@link Scene#setFixedTimeStep(float)}). It may be called several times in a frame
+     * or not at all. Do simulation work that must not depend on the frame rate here.
+     * Fixed updates run after {@link #preUpdate(float)} and before {@link #update(float)}.
+     * @param fixedDeltaTime the fixed time step
+     */
+    public void fixedUpdate(float fixedDeltaTime) {}
+
     /**
      * Called when the component should update.
      * @param deltaTime the time difference between the current frame and the previous frame.
@@ -220,6 +235,20 @@ public class Component {
         return null;
     }
 
+    /**
+     * Gets components of a particular type that is attached to the host game object. The components are added to the given array
+     * so no allocation is made.
+     * @param componentClass the class of the component
+     * @param out the array to add the found components to
+     * @param <T> the type of component
+     * @return the given array
+     */
+    public <T extends Component> Array<T> getComponents(Class<T> componentClass, Array<T> out) {
+        if (gameObject != null)
+            return gameObject.getComponents(componentClass, out);
+        return out;
+    }
+
     /**
      *
      * @return all the components attached to the host game object including this one.
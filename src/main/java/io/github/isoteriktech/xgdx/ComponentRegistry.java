@@ -0,0 +1,524 @@
+package io.github.isoteriktech.xgdx;
+
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.badlogic.gdx.utils.reflect.ClassReflection;
+import com.badlogic.gdx.utils.reflect.Method;
+
+import java.util.Comparator;
+
+/**
+ * A ComponentRegistry keeps one dense array of {@link Component}s per lifecycle phase so that a {@link Scene} only visits the components
+ * that actually override a phase. A component is registered for a phase only if its class (or one of its superclasses below {@link Component})
+ * declares the matching lifecycle method; for example, {@link Transform} does not override any update or render method and is never visited.
+ * <p>
+ * The phases a class overrides are detected once per class using reflection and cached. If the methods of a class cannot be reflected
+ * (for example on platforms where reflection data is not available for that class), the component is registered for every phase.
+ * <p>
+ * Components are kept in the order the scene processes them: layer by layer, game object by game object, then in the order the
+ * components were attached. The game objects and components added to or removed from the scene are applied in one batch the next time the
+ * registry is refreshed: removed components are compacted out and added ones are merged in at their place, so spawning and destroying
+ * game objects every frame does not rebuild the registry. It is rebuilt from scratch only when it is {@link #invalidate() invalidated},
+ * for example when the layers of the scene change.
+ *
+ * @author isoteriksoftware
+ */
+public final class ComponentRegistry {
+    public static final int PRE_UPDATE   = 0;
+    public static final int UPDATE       = 1;
+    public static final int POST_UPDATE  = 2;
+    public static final int PRE_RENDER   = 3;
+    public static final int RENDER       = 4;
+    public static final int POST_RENDER  = 5;
+    public static final int DEBUG_LINE   = 6;
+    public static final int DEBUG_FILLED = 7;
+    public static final int DEBUG_POINT  = 8;
+    public static final int FIXED_UPDATE = 9;
+
+    /** The number of phases tracked by a registry. */
+    public static final int PHASES_COUNT = 10;
+
+    private static final int ALL_PHASES = (1 << PHASES_COUNT) - 1;
+
+    // The arrays that are not phases, indexed after them
+    private static final int ALWAYS_RENDERED    = PHASES_COUNT;
+    private static final int SERIAL_UPDATE      = PHASES_COUNT + 1;
+    private static final int THREAD_SAFE_UPDATE = PHASES_COUNT + 2;
+    private static final int LISTS_COUNT        = PHASES_COUNT + 2;
+
+    // The registry is rebuilt before the order counter overflows
+    private static final int MAX_ORDER = Integer.MAX_VALUE - 1024;
+
+    private static final Comparator<Component> orderComparator = ComponentRegistry::compareOrder;
+
+    private static final String[] PHASE_METHODS = {
+            "preUpdate", "update", "postUpdate",
+            "preRender", "render", "postRender",
+            "drawDebugLine", "drawDebugFilled", "drawDebugPoint",
+            "fixedUpdate"
+    };
+
+    private static final Class<?>[] PHASE_PARAMETERS = {
+            float.class, float.class, float.class,
+            Array.class, Array.class, Array.class,
+            ShapeRenderer.class, ShapeRenderer.class, ShapeRenderer.class,
+            float.class
+    };
+
+    // Cache of the overridden phases of every component class seen so far
+    private static final ObjectIntMap<Class<?>> phasesCache = new ObjectIntMap<>();
+
+    // The components of every phase followed by the always rendered and the serial update components, all in processing order
+    private final Array<Component>[] lists;
+    private final Array<Component>[] phaseComponents;
+
+    // The render components that are never culled by a spatial index
+    private final Array<Component> alwaysRenderedComponents;
+
+    // The update components split by whether they can be updated on worker threads. The thread-safe ones are grouped by hierarchy instead
+    private final Array<Component> threadSafeUpdateComponents = new Array<>(Component.class);
+    private final Array<Component> serialUpdateComponents;
+
+    // The index of the first thread-safe update component of every transform hierarchy
+    private final IntArray threadSafeUpdateGroups = new IntArray();
+
+    // For grouping the thread-safe update components by the root of their transform hierarchy
+    private final Array<Component> unsortedThreadSafeComponents = new Array<>(Component.class);
+    private final IntArray unsortedThreadSafeGroups = new IntArray();
+    private final IntArray groupCursors = new IntArray();
+    private final ObjectIntMap<Transform> hierarchyGroups = new ObjectIntMap<>();
+
+    // The components added since the last refresh and the lists the removed ones must be compacted out of
+    private final Array<Component> addedComponents = new Array<>(Component.class);
+    private int removedLists;
+
+    // Orders game objects and components that are added; see compareOrder()
+    private int nextOrder;
+
+    private boolean dirty = true;
+    private boolean hierarchiesDirty;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    ComponentRegistry() {
+        lists = new Array[LISTS_COUNT];
+        for (int i = 0; i < LISTS_COUNT; i++)
+            lists[i] = new Array<>(Component.class);
+
+        phaseComponents = new Array[PHASES_COUNT];
+        System.arraycopy(lists, 0, phaseComponents, 0, PHASES_COUNT);
+        alwaysRenderedComponents = lists[ALWAYS_RENDERED];
+        serialUpdateComponents = lists[SERIAL_UPDATE];
+    }
+
+    /**
+     * Returns the components registered for a phase. The array is owned by the registry and must not be modified.
+     * @param phase one of the phase constants, for example {@link #UPDATE}
+     * @return the components that override the given phase
+     */
+    public Array<Component> getComponents(int phase)
+    { return phaseComponents[phase]; }
+
+    /**
+     * Returns the components registered for the {@link #RENDER} phase that are not {@link ICullable} or do not want to be culled.
+     * A scene that uses an {@link ISpatialIndex} renders these components every frame and the cullable ones only when they are visible.
+     * The array is owned by the registry and must not be modified.
+     * @return the render components that are never culled
+     */
+    public Array<Component> getAlwaysRenderedComponents()
+    { return alwaysRenderedComponents; }
+
+    /**
+     * Returns the components registered for the {@link #UPDATE} phase that implement {@link IThreadSafeComponent}.
+     * The array is owned by the registry and must not be modified.
+     * @return the update components that can be updated on worker threads
+     * @see #getThreadSafeUpdateGroups()
+     */
+    public Array<Component> getThreadSafeUpdateComponents()
+    { return threadSafeUpdateComponents; }
+
+    /**
+     * Returns where the components of every transform hierarchy start in {@link #getThreadSafeUpdateComponents()}.
+     * The components of the game objects that share the same root {@link Transform} are contiguous, so a range of components that starts and ends
+     * at these indices never splits a hierarchy: reading the world transformation of a transform, which updates the caches of its ancestors and
+     * descendants, never races with another range.
+     * The array is owned by the registry and must not be modified.
+     * @return the index of the first thread-safe update component of every transform hierarchy
+     */
+    public IntArray getThreadSafeUpdateGroups()
+    { return threadSafeUpdateGroups; }
+
+    /**
+     * Returns the components registered for the {@link #UPDATE} phase that do not implement {@link IThreadSafeComponent}.
+     * The array is owned by the registry and must not be modified.
+     * @return the update components that must be updated on the render thread
+     */
+    public Array<Component> getSerialUpdateComponents()
+    { return serialUpdateComponents; }
+
+    /**
+     * Marks this registry as outdated. It will be rebuilt from scratch the next time {@link #__refresh(Array)} is called.
+     */
+    public void invalidate()
+    { dirty = true; }
+
+    /**
+     * Marks the transform hierarchies as changed. The thread-safe update components will be grouped again the next time {@link #__refresh(Array)} is called.
+     */
+    public void invalidateHierarchies()
+    { hierarchiesDirty = true; }
+
+    /**
+     *
+     * @return whether this registry needs to be rebuilt
+     */
+    public boolean isDirty()
+    { return dirty; }
+
+    /**
+     * Registers the components of a game object that was just added to a layer of the scene.
+     * This method is called internally by the system. DO NOT CALL THIS METHOD!
+     * @param gameObject the game object, the last one of its layer
+     */
+    void gameObjectAdded(GameObject gameObject) {
+        if (dirty)
+            return;
+
+        // Game objects are added at the end of their layer
+        gameObject.registryOrder = ((long) gameObject.hostLayer.getIndex() << 32) | nextOrder();
+
+        Array<Component> components = gameObject.getComponents();
+        for (int i = 0; i < components.size; i++)
+            componentAdded(components.get(i));
+    }
+
+    /**
+     * Unregisters the components of a game object that was just removed from the scene.
+     * This method is called internally by the system. DO NOT CALL THIS METHOD!
+     * @param gameObject the game object
+     */
+    void gameObjectRemoved(GameObject gameObject) {
+        if (dirty)
+            return;
+
+        Array<Component> components = gameObject.getComponents();
+        for (int i = 0; i < components.size; i++)
+            componentRemoved(components.get(i));
+    }
+
+    /**
+     * Registers a component that was just attached to a game object of the scene.
+     * This method is called internally by the system. DO NOT CALL THIS METHOD!
+     * @param component the component, the last one of its game object
+     */
+    void componentAdded(Component component) {
+        if (dirty)
+            return;
+
+        // Components are attached at the end of their game object. The component may still reference this registry if it was removed while it was outdated
+        component.registry = null;
+        component.registryOrder = nextOrder();
+        addedComponents.add(component);
+    }
+
+    /**
+     * Unregisters a component that was just detached from a game object of the scene, or whose game object was removed.
+     * This method is called internally by the system. DO NOT CALL THIS METHOD!
+     * @param component the component
+     */
+    void componentRemoved(Component component) {
+        if (dirty)
+            return;
+
+        if (component.registry == this) {
+            component.registry = null;
+            removedLists |= component.registryLists;
+        }
+        else
+            addedComponents.removeValue(component, true);
+    }
+
+    private int nextOrder() {
+        if (nextOrder == MAX_ORDER)
+            dirty = true;
+
+        return nextOrder++;
+    }
+
+    /**
+     * Applies the changes made since the last call, or rebuilds the per-phase arrays if they are outdated.
+     * This method is called internally by the system. DO NOT CALL THIS METHOD!
+     * @param gameObjects the game objects of the scene in processing order
+     */
+    public void __refresh(Array<GameObject> gameObjects) {
+        if (dirty)
+            rebuild(gameObjects);
+        else if (removedLists != 0 || addedComponents.size > 0) {
+            // Compact first: a component removed and added again since the last refresh is merged in at its new place
+            if (removedLists != 0) {
+                for (int list = 0; list < LISTS_COUNT; list++) {
+                    if ((removedLists & (1 << list)) != 0)
+                        compact(lists[list]);
+                }
+
+                if ((removedLists & (1 << THREAD_SAFE_UPDATE)) != 0)
+                    compactThreadSafeComponents();
+
+                removedLists = 0;
+            }
+
+            if (addedComponents.size > 0) {
+                addedComponents.sort(orderComparator);
+
+                int addedLists = 0;
+                for (int i = 0; i < addedComponents.size; i++) {
+                    Component component = addedComponents.get(i);
+                    register(component);
+                    addedLists |= component.registryLists;
+
+                    // The order of the thread-safe components does not matter; they are grouped again below
+                    if ((component.registryLists & (1 << THREAD_SAFE_UPDATE)) != 0)
+                        threadSafeUpdateComponents.add(component);
+                }
+
+                for (int list = 0; list < LISTS_COUNT; list++) {
+                    if ((addedLists & (1 << list)) != 0)
+                        merge(lists[list], addedComponents, 1 << list);
+                }
+
+                if ((addedLists & (1 << THREAD_SAFE_UPDATE)) != 0)
+                    hierarchiesDirty = true;
+
+                addedComponents.clear();
+            }
+        }
+
+        if (hierarchiesDirty) {
+            groupThreadSafeComponents();
+            hierarchiesDirty = false;
+        }
+    }
+
+    private void rebuild(Array<GameObject> gameObjects) {
+        for (int i = 0; i < LISTS_COUNT; i++)
+            lists[i].clear();
+        threadSafeUpdateComponents.clear();
+        addedComponents.clear();
+        removedLists = 0;
+        nextOrder = 0;
+
+        int layer = 0;
+        for (int i = 0, n = gameObjects.size; i < n; i++) {
+            GameObject gameObject = gameObjects.get(i);
+
+            // Game objects put in a layer directly have no host layer; they are ordered with the previous ones
+            if (gameObject.hostLayer != null)
+                layer = gameObject.hostLayer.getIndex();
+            gameObject.registryOrder = ((long) layer << 32) | nextOrder++;
+
+            Array<Component> components = gameObject.getComponents();
+            for (int j = 0, m = components.size; j < m; j++) {
+                Component component = components.get(j);
+                component.registryOrder = nextOrder++;
+                register(component);
+
+                int registryLists = component.registryLists;
+                for (int list = 0; list < LISTS_COUNT; list++) {
+                    if ((registryLists & (1 << list)) != 0)
+                        lists[list].add(component);
+                }
+
+                if ((registryLists & (1 << THREAD_SAFE_UPDATE)) != 0)
+                    threadSafeUpdateComponents.add(component);
+            }
+        }
+
+        hierarchiesDirty = true;
+        dirty = false;
+    }
+
+    /* Finds the arrays a component belongs to */
+    private void register(Component component) {
+        int phases = getPhases(component.getClass());
+        int registryLists = phases;
+
+        if ((phases & (1 << RENDER)) != 0) {
+            component.spatiallyCulled = component instanceof ICullable && ((ICullable) component).isSpatiallyCullable();
+            if (!component.spatiallyCulled)
+                registryLists |= 1 << ALWAYS_RENDERED;
+        }
+
+        if ((phases & (1 << UPDATE)) != 0)
+            registryLists |= 1 << (component instanceof IThreadSafeComponent ? THREAD_SAFE_UPDATE : SERIAL_UPDATE);
+
+        component.registry = this;
+        component.registryLists = registryLists;
+    }
+
+    /* Removes the components that are no longer registered, keeping the order of the others */
+    private void compact(Array<Component> list) {
+        Component[] items = list.items;
+        int size = 0;
+        for (int i = 0, n = list.size; i < n; i++) {
+            if (items[i].registry == this)
+                items[size++] = items[i];
+        }
+
+        list.truncate(size);
+    }
+
+    /* Merges the added components that belong to a list into it. Both are sorted in processing order */
+    private static void merge(Array<Component> list, Array<Component> added, int listBit) {
+        int count = 0;
+        for (int i = 0; i < added.size; i++) {
+            if ((added.get(i).registryLists & listBit) != 0)
+                count++;
+        }
+
+        // Merge from the end so that only the components placed after the first added one move
+        int i = list.size - 1, j = added.size - 1, k = list.size + count - 1;
+        Component[] items = list.setSize(list.size + count);
+        while (count > 0) {
+            Component component = added.get(j);
+            if ((component.registryLists & listBit) == 0)
+                j--;
+            else if (i >= 0 && compareOrder(items[i], component) > 0)
+                items[k--] = items[i--];
+            else {
+                items[k--] = component;
+                j--;
+                count--;
+            }
+        }
+    }
+
+    /* Removes the thread-safe components that are no longer registered and the hierarchies left empty, keeping the others grouped */
+    private void compactThreadSafeComponents() {
+        Component[] items = threadSafeUpdateComponents.items;
+        int[] starts = threadSafeUpdateGroups.items;
+        int total = threadSafeUpdateComponents.size;
+        int groups = threadSafeUpdateGroups.size;
+
+        int size = 0, keptGroups = 0;
+        for (int group = 0; group < groups; group++) {
+            int start = starts[group];
+            int end = group + 1 < groups ? starts[group + 1] : total;
+
+            int groupStart = size;
+            for (int i = start; i < end; i++) {
+                if (items[i].registry == this)
+                    items[size++] = items[i];
+            }
+
+            if (size > groupStart)
+                starts[keptGroups++] = groupStart;
+        }
+
+        threadSafeUpdateComponents.truncate(size);
+        threadSafeUpdateGroups.size = keptGroups;
+    }
+
+    /**
+     * Compares two registered components by processing order: by layer, then by game object in the order they were added to the layer,
+     * then in the order they were attached to their game object.
+     * @param c1 a component
+     * @param c2 another component
+     * @return a negative integer, zero, or a positive integer as the first component is processed before, with, or after the second
+     */
+    static int compareOrder(Component c1, Component c2) {
+        long order1 = c1.gameObject.registryOrder, order2 = c2.gameObject.registryOrder;
+        if (order1 != order2)
+            return order1 < order2 ? -1 : 1;
+
+        return Integer.compare(c1.registryOrder, c2.registryOrder);
+    }
+
+    /* Returns the group of the hierarchy a transform belongs to. Groups are numbered in the order their hierarchies are first seen */
+    private int getHierarchyGroup(Transform transform) {
+        Transform root = transform;
+        while (root.getParent() != null)
+            root = root.getParent();
+
+        int group = hierarchyGroups.get(root, -1);
+        if (group == -1) {
+            group = hierarchyGroups.size;
+            hierarchyGroups.put(root, group);
+        }
+
+        return group;
+    }
+
+    /* Makes the thread-safe update components of every hierarchy contiguous with a stable counting sort on their groups */
+    private void groupThreadSafeComponents() {
+        for (int i = 0, n = threadSafeUpdateComponents.size; i < n; i++) {
+            Component component = threadSafeUpdateComponents.get(i);
+            unsortedThreadSafeComponents.add(component);
+            unsortedThreadSafeGroups.add(getHierarchyGroup(component.gameObject.transform));
+        }
+
+        int groups = hierarchyGroups.size;
+        int[] starts = threadSafeUpdateGroups.setSize(groups);
+        int[] cursors = groupCursors.setSize(groups);
+        for (int group = 0; group < groups; group++)
+            cursors[group] = 0;
+
+        int total = unsortedThreadSafeComponents.size;
+        for (int i = 0; i < total; i++)
+            cursors[unsortedThreadSafeGroups.get(i)]++;
+
+        for (int group = 0, start = 0; group < groups; group++) {
+            int count = cursors[group];
+            starts[group] = start;
+            cursors[group] = start;
+            start += count;
+        }
+
+        Component[] sorted = threadSafeUpdateComponents.setSize(total);
+        for (int i = 0; i < total; i++)
+            sorted[cursors[unsortedThreadSafeGroups.get(i)]++] = unsortedThreadSafeComponents.get(i);
+
+        unsortedThreadSafeComponents.clear();
+        unsortedThreadSafeGroups.clear();
+        hierarchyGroups.clear();
+    }
+
+    /**
+     * Determines the lifecycle phases a component class overrides.
+     * @param componentClass the component class
+     * @return a bit mask where bit {@code n} is set if the class overrides the phase {@code n}
+     */
+    public static int getPhases(Class<? extends Component> componentClass) {
+        int phases = phasesCache.get(componentClass, -1);
+        if (phases != -1)
+            return phases;
+
+        phases = 0;
+        try {
+            for (Class<?> c = componentClass; c != null && c != Component.class; c = c.getSuperclass()) {
+                for (Method method : ClassReflection.getDeclaredMethods(c))
+                    phases |= phaseOf(method);
+            }
+        } catch (RuntimeException e) {
+            // Reflection data is not available for this class; visit it in every phase to be safe
+            phases = ALL_PHASES;
+        }
+
+        phasesCache.put(componentClass, phases);
+        return phases;
+    }
+
+    private static int phaseOf(Method method) {
+        Class<?>[] parameters = method.getParameterTypes();
+        if (parameters.length != 1)
+            return 0;
+
+        String name = method.getName();
+        for (int phase = 0; phase < PHASES_COUNT; phase++) {
+            if (PHASE_METHODS[phase].equals(name) && parameters[0] == PHASE_PARAMETERS[phase])
+                return 1 << phase;
+        }
+
+        return 0;
+    }
+}
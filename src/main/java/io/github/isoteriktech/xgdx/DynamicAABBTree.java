@@ -0,0 +1,727 @@
+package io.github.isoteriktech.xgdx;
+
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.math.Frustum;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IdentityMap;
+import com.badlogic.gdx.utils.Pool;
+
+/**
+ * A DynamicAABBTree is a bounding volume hierarchy of the {@link GameObject}s of a {@link Scene}. Unlike a {@link SpatialGrid}, it adapts to
+ * game objects of very different sizes, so it suits levels that mix huge static game objects with tiny fast ones.
+ * <p>
+ * Every game object is stored in a leaf whose box is its bounds (see {@link Transform#getBounds(Rectangle)}) enlarged by a margin (a fat AABB).
+ * A game object that moves within its fat AABB costs nothing; only when it leaves it is the leaf removed and re-inserted. The tree is kept balanced
+ * with rotations, so queries are logarithmic in the number of game objects.
+ * <p>
+ * Set a tree on a scene with {@link Scene#setSpatialIndex(ISpatialIndex)}. The scene updates the tree once per frame after all components have been updated
+ * and renders {@link ICullable} components only when the camera frustum overlaps their game objects. This bulk cull replaces the per-sprite frustum test.
+ * <p>
+ * The tree is two-dimensional: frustum queries treat every game object as infinitely deep on the z-axis.
+ * Queries add their results to caller-supplied arrays and do not allocate. Results are not in any particular order.
+ *
+ * @author isoteriksoftware
+ */
+public class DynamicAABBTree implements ISpatialIndex {
+    private static final int NULL = -1;
+
+    // The depth used for frustum tests since the tree only stores the x and y axes
+    private static final float Z_EXTENT = 1e9f;
+
+    private final float margin;
+
+    // The nodes. Leaves store fat boxes and have no children; free nodes are linked through the parent array
+    private float[] minX, minY, maxX, maxY;
+    private int[] parent, child1, child2, height;
+    private Entry[] leafEntries;
+
+    private int root = NULL;
+    private int nodeCount;
+    private int freeList = NULL;
+
+    private int[] stack = new int[64];
+
+    private final IdentityMap<GameObject, Entry> entries = new IdentityMap<>();
+    private final Array<Entry> entryList = new Array<>(false, 16, Entry.class);
+
+    private final Pool<Entry> entryPool = new Pool<Entry>() {
+        @Override
+        protected Entry newObject() {
+            return new Entry();
+        }
+    };
+
+    private final Rectangle bounds = new Rectangle();
+
+    private int reconcileStamp;
+    private boolean dirty = true;
+
+    /**
+     * Creates a new instance.
+     * @param margin how much the box of each game object is enlarged on every side, in world units.
+     *               Larger margins make moving game objects cheaper to update but queries less precise at the tree level.
+     */
+    public DynamicAABBTree(float margin) {
+        if (margin < 0)
+            throw new IllegalArgumentException("The margin cannot be negative!");
+
+        this.margin = margin;
+        allocate(16);
+    }
+
+    /**
+     * Creates a new instance with a margin of 0.1 world units.
+     */
+    public DynamicAABBTree()
+    { this(.1f); }
+
+    private void allocate(int capacity) {
+        int oldCapacity = minX == null ? 0 : minX.length;
+
+        minX = copyOf(minX, capacity);
+        minY = copyOf(minY, capacity);
+        maxX = copyOf(maxX, capacity);
+        maxY = copyOf(maxY, capacity);
+        parent = copyOf(parent, capacity);
+        child1 = copyOf(child1, capacity);
+        child2 = copyOf(child2, capacity);
+        height = copyOf(height, capacity);
+
+        Entry[] newEntries = new Entry[capacity];
+        if (leafEntries != null)
+            System.arraycopy(leafEntries, 0, newEntries, 0, oldCapacity);
+        leafEntries = newEntries;
+
+        // Link the new nodes into the free list
+        for (int i = oldCapacity; i < capacity - 1; i++) {
+            parent[i] = i + 1;
+            height[i] = -1;
+        }
+        parent[capacity - 1] = freeList;
+        height[capacity - 1] = -1;
+        freeList = oldCapacity;
+    }
+
+    private static float[] copyOf(float[] array, int capacity) {
+        float[] copy = new float[capacity];
+        if (array != null)
+            System.arraycopy(array, 0, copy, 0, array.length);
+        return copy;
+    }
+
+    private static int[] copyOf(int[] array, int capacity) {
+        int[] copy = new int[capacity];
+        if (array != null)
+            System.arraycopy(array, 0, copy, 0, array.length);
+        return copy;
+    }
+
+    /**
+     *
+     * @return the margin used to enlarge the box of each game object
+     */
+    public float getMargin()
+    { return margin; }
+
+    @Override
+    public int size()
+    { return entryList.size; }
+
+    /**
+     *
+     * @return the height of the tree. A balanced tree has a height close to log2 of the number of game objects
+     */
+    public int getHeight()
+    { return root == NULL ? 0 : height[root]; }
+
+    /**
+     *
+     * @return the number of nodes (leaves and internal nodes) in the tree
+     */
+    public int getNodeCount()
+    { return nodeCount; }
+
+    @Override
+    public void invalidate()
+    { dirty = true; }
+
+    @Override
+    public boolean isDirty()
+    { return dirty; }
+
+    @Override
+    public void __update(Array<GameObject> gameObjects) {
+        if (dirty)
+            reconcile(gameObjects);
+
+        for (int i = 0, n = entryList.size; i < n; i++)
+            updateEntry(entryList.get(i));
+    }
+
+    @Override
+    public void __clear() {
+        for (int i = 0, n = entryList.size; i < n; i++) {
+            Entry entry = entryList.get(i);
+            if (entry.leaf != NULL)
+                leafEntries[entry.leaf] = null;
+        }
+
+        entryPool.freeAll(entryList);
+        entryList.clear();
+        entries.clear();
+
+        // Release every node
+        root = NULL;
+        nodeCount = 0;
+        int capacity = minX.length;
+        for (int i = 0; i < capacity; i++) {
+            parent[i] = i + 1 < capacity ? i + 1 : NULL;
+            height[i] = -1;
+        }
+        freeList = 0;
+
+        dirty = true;
+    }
+
+    private void reconcile(Array<GameObject> gameObjects) {
+        int stamp = ++reconcileStamp;
+
+        entryList.clear();
+        for (int i = 0, n = gameObjects.size; i < n; i++) {
+            GameObject gameObject = gameObjects.get(i);
+
+            Entry entry = entries.get(gameObject);
+            if (entry == null) {
+                entry = entryPool.obtain();
+                entry.gameObject = gameObject;
+                entries.put(gameObject, entry);
+            }
+
+            entry.stamp = stamp;
+            entry.order = i;
+            entryList.add(entry);
+        }
+
+        // Remove the leaves of game objects that left the scene
+        if (entries.size > entryList.size) {
+            for (IdentityMap.Entry<GameObject, Entry> e : entries) {
+                Entry entry = e.value;
+                if (entry.stamp != stamp) {
+                    if (entry.leaf != NULL) {
+                        removeLeaf(entry.leaf);
+                        freeNode(entry.leaf);
+                    }
+                    entryPool.free(entry);
+                }
+            }
+
+            entries.clear();
+            for (int i = 0, n = entryList.size; i < n; i++) {
+                Entry entry = entryList.get(i);
+                entries.put(entry.gameObject, entry);
+            }
+        }
+
+        dirty = false;
+    }
+
+    private void updateEntry(Entry entry) {
+        entry.gameObject.transform.getBounds(bounds);
+        entry.minX = bounds.x;
+        entry.minY = bounds.y;
+        entry.maxX = bounds.x + bounds.width;
+        entry.maxY = bounds.y + bounds.height;
+
+        int leaf = entry.leaf;
+        if (leaf == NULL) {
+            leaf = allocateNode();
+            leafEntries[leaf] = entry;
+            entry.leaf = leaf;
+        }
+        else {
+            // Still within the fat box; nothing to do
+            if (minX[leaf] <= entry.minX && minY[leaf] <= entry.minY && maxX[leaf] >= entry.maxX && maxY[leaf] >= entry.maxY)
+                return;
+
+            removeLeaf(leaf);
+        }
+
+        minX[leaf] = entry.minX - margin;
+        minY[leaf] = entry.minY - margin;
+        maxX[leaf] = entry.maxX + margin;
+        maxY[leaf] = entry.maxY + margin;
+        insertLeaf(leaf);
+    }
+
+    private int allocateNode() {
+        if (freeList == NULL)
+            allocate(minX.length * 2);
+
+        int node = freeList;
+        freeList = parent[node];
+        parent[node] = NULL;
+        child1[node] = NULL;
+        child2[node] = NULL;
+        height[node] = 0;
+        leafEntries[node] = null;
+        nodeCount++;
+        return node;
+    }
+
+    private void freeNode(int node) {
+        leafEntries[node] = null;
+        parent[node] = freeList;
+        height[node] = -1;
+        freeList = node;
+        nodeCount--;
+    }
+
+    private boolean isLeaf(int node)
+    { return child1[node] == NULL; }
+
+    private float perimeter(int node)
+    { return 2f * ((maxX[node] - minX[node]) + (maxY[node] - minY[node])); }
+
+    private float unionPerimeter(int a, int b) {
+        float w = Math.max(maxX[a], maxX[b]) - Math.min(minX[a], minX[b]);
+        float h = Math.max(maxY[a], maxY[b]) - Math.min(minY[a], minY[b]);
+        return 2f * (w + h);
+    }
+
+    private void setUnion(int node, int a, int b) {
+        minX[node] = Math.min(minX[a], minX[b]);
+        minY[node] = Math.min(minY[a], minY[b]);
+        maxX[node] = Math.max(maxX[a], maxX[b]);
+        maxY[node] = Math.max(maxY[a], maxY[b]);
+    }
+
+    private void insertLeaf(int leaf) {
+        if (root == NULL) {
+            root = leaf;
+            parent[root] = NULL;
+            return;
+        }
+
+        // Find the best sibling using the surface area heuristic
+        int index = root;
+        while (!isLeaf(index)) {
+            int c1 = child1[index];
+            int c2 = child2[index];
+
+            float area = perimeter(index);
+            float combinedArea = unionPerimeter(index, leaf);
+
+            // Cost of creating a new parent for this node and the new leaf
+            float cost = 2f * combinedArea;
+
+            // Minimum cost of pushing the leaf further down the tree
+            float inheritanceCost = 2f * (combinedArea - area);
+
+            float cost1 = unionPerimeter(c1, leaf) + inheritanceCost;
+            if (!isLeaf(c1))
+                cost1 -= perimeter(c1);
+
+            float cost2 = unionPerimeter(c2, leaf) + inheritanceCost;
+            if (!isLeaf(c2))
+                cost2 -= perimeter(c2);
+
+            if (cost < cost1 && cost < cost2)
+                break;
+
+            index = cost1 < cost2 ? c1 : c2;
+        }
+
+        int sibling = index;
+
+        // Create a new parent
+        int oldParent = parent[sibling];
+        int newParent = allocateNode();
+        parent[newParent] = oldParent;
+        setUnion(newParent, leaf, sibling);
+        height[newParent] = height[sibling] + 1;
+
+        if (oldParent != NULL) {
+            if (child1[oldParent] == sibling)
+                child1[oldParent] = newParent;
+            else
+                child2[oldParent] = newParent;
+        }
+        else
+            root = newParent;
+
+        child1[newParent] = sibling;
+        child2[newParent] = leaf;
+        parent[sibling] = newParent;
+        parent[leaf] = newParent;
+
+        refitAncestors(parent[leaf]);
+    }
+
+    private void removeLeaf(int leaf) {
+        if (leaf == root) {
+            root = NULL;
+            return;
+        }
+
+        int p = parent[leaf];
+        int grandParent = parent[p];
+        int sibling = child1[p] == leaf ? child2[p] : child1[p];
+
+        if (grandParent != NULL) {
+            // Destroy the parent and connect the sibling to the grand parent
+            if (child1[grandParent] == p)
+                child1[grandParent] = sibling;
+            else
+                child2[grandParent] = sibling;
+
+            parent[sibling] = grandParent;
+            freeNode(p);
+            refitAncestors(grandParent);
+        }
+        else {
+            root = sibling;
+            parent[sibling] = NULL;
+            freeNode(p);
+        }
+
+        parent[leaf] = NULL;
+    }
+
+    /* Walks back up the tree fixing heights and boxes */
+    private void refitAncestors(int index) {
+        while (index != NULL) {
+            index = balance(index);
+
+            int c1 = child1[index];
+            int c2 = child2[index];
+            height[index] = 1 + Math.max(height[c1], height[c2]);
+            setUnion(index, c1, c2);
+
+            index = parent[index];
+        }
+    }
+
+    /* Performs a left or right rotation if node a is imbalanced. Returns the new root of the subtree */
+    private int balance(int a) {
+        if (isLeaf(a) || height[a] < 2)
+            return a;
+
+        int b = child1[a];
+        int c = child2[a];
+        int balance = height[c] - height[b];
+
+        // Rotate c up
+        if (balance > 1) {
+            int f = child1[c];
+            int g = child2[c];
+
+            child1[c] = a;
+            parent[c] = parent[a];
+            parent[a] = c;
+            replaceChild(parent[c], a, c);
+
+            if (height[f] > height[g]) {
+                child2[c] = f;
+                child2[a] = g;
+                parent[g] = a;
+                setUnion(a, b, g);
+                setUnion(c, a, f);
+                height[a] = 1 + Math.max(height[b], height[g]);
+                height[c] = 1 + Math.max(height[a], height[f]);
+            }
+            else {
+                child2[c] = g;
+                child2[a] = f;
+                parent[f] = a;
+                setUnion(a, b, f);
+                setUnion(c, a, g);
+                height[a] = 1 + Math.max(height[b], height[f]);
+                height[c] = 1 + Math.max(height[a], height[g]);
+            }
+
+            return c;
+        }
+
+        // Rotate b up
+        if (balance < -1) {
+            int d = child1[b];
+            int e = child2[b];
+
+            child1[b] = a;
+            parent[b] = parent[a];
+            parent[a] = b;
+            replaceChild(parent[b], a, b);
+
+            if (height[d] > height[e]) {
+                child2[b] = d;
+                child1[a] = e;
+                parent[e] = a;
+                setUnion(a, c, e);
+                setUnion(b, a, d);
+                height[a] = 1 + Math.max(height[c], height[e]);
+                height[b] = 1 + Math.max(height[a], height[d]);
+            }
+            else {
+                child2[b] = e;
+                child1[a] = d;
+                parent[d] = a;
+                setUnion(a, c, d);
+                setUnion(b, a, e);
+                height[a] = 1 + Math.max(height[c], height[d]);
+                height[b] = 1 + Math.max(height[a], height[e]);
+            }
+
+            return b;
+        }
+
+        return a;
+    }
+
+    private void replaceChild(int node, int oldChild, int newChild) {
+        if (node == NULL) {
+            root = newChild;
+            return;
+        }
+
+        if (child1[node] == oldChild)
+            child1[node] = newChild;
+        else
+            child2[node] = newChild;
+    }
+
+    private int push(int top, int node) {
+        if (top == stack.length) {
+            int[] newStack = new int[stack.length * 2];
+            System.arraycopy(stack, 0, newStack, 0, stack.length);
+            stack = newStack;
+        }
+
+        stack[top] = node;
+        return top + 1;
+    }
+
+    @Override
+    public Array<GameObject> queryRect(float x, float y, float width, float height, Array<GameObject> out) {
+        if (root == NULL)
+            return out;
+
+        float qMaxX = x + width;
+        float qMaxY = y + height;
+
+        int top = push(0, root);
+        while (top > 0) {
+            int node = stack[--top];
+            if (minX[node] > qMaxX || maxX[node] < x || minY[node] > qMaxY || maxY[node] < y)
+                continue;
+
+            if (isLeaf(node)) {
+                Entry entry = leafEntries[node];
+                if (entry.minX <= qMaxX && entry.maxX >= x && entry.minY <= qMaxY && entry.maxY >= y)
+                    out.add(entry.gameObject);
+            }
+            else {
+                top = push(top, child1[node]);
+                top = push(top, child2[node]);
+            }
+        }
+
+        return out;
+    }
+
+    /**
+     * Finds the game objects whose bounds overlap a rectangle.
+     * @param rectangle the rectangle
+     * @param out the array to add the game objects to
+     * @return the given array
+     */
+    public Array<GameObject> queryRect(Rectangle rectangle, Array<GameObject> out)
+    { return queryRect(rectangle.x, rectangle.y, rectangle.width, rectangle.height, out); }
+
+    @Override
+    public Array<GameObject> queryRadius(float x, float y, float radius, Array<GameObject> out) {
+        int start = out.size;
+        queryRect(x - radius, y - radius, radius * 2, radius * 2, out);
+
+        // Keep only the game objects whose bounds are within the radius
+        float radius2 = radius * radius;
+        for (int i = out.size - 1; i >= start; i--) {
+            Entry entry = entries.get(out.get(i));
+            float dx = x - Math.max(entry.minX, Math.min(x, entry.maxX));
+            float dy = y - Math.max(entry.minY, Math.min(y, entry.maxY));
+
+            if (dx * dx + dy * dy > radius2)
+                out.removeIndex(i);
+        }
+
+        return out;
+    }
+
+    @Override
+    public Array<GameObject> queryCameraView(Camera camera, Array<GameObject> out)
+    { return queryFrustum(camera.frustum, out); }
+
+    /**
+     * Finds the game objects whose bounds are inside or intersect a frustum. Subtrees outside the frustum are skipped entirely.
+     * @param frustum the frustum
+     * @param out the array to add the game objects to
+     * @return the given array
+     */
+    public Array<GameObject> queryFrustum(Frustum frustum, Array<GameObject> out) {
+        if (root == NULL)
+            return out;
+
+        int top = push(0, root);
+        while (top > 0) {
+            int node = stack[--top];
+            if (!boxInFrustum(frustum, minX[node], minY[node], maxX[node], maxY[node]))
+                continue;
+
+            if (isLeaf(node)) {
+                Entry entry = leafEntries[node];
+                if (boxInFrustum(frustum, entry.minX, entry.minY, entry.maxX, entry.maxY))
+                    out.add(entry.gameObject);
+            }
+            else {
+                top = push(top, child1[node]);
+                top = push(top, child2[node]);
+            }
+        }
+
+        return out;
+    }
+
+    private static boolean boxInFrustum(Frustum frustum, float minX, float minY, float maxX, float maxY) {
+        float halfWidth = (maxX - minX) * .5f;
+        float halfHeight = (maxY - minY) * .5f;
+        return frustum.boundsInFrustum(minX + halfWidth, minY + halfHeight, 0, halfWidth, halfHeight, Z_EXTENT);
+    }
+
+    /**
+     * Finds the game objects whose bounds are crossed by a line segment.
+     * @param x1 the x coordinate of the start of the segment
+     * @param y1 the y coordinate of the start of the segment
+     * @param x2 the x coordinate of the end of the segment
+     * @param y2 the y coordinate of the end of the segment
+     * @param out the array to add the game objects to
+     * @return the given array
+     */
+    public Array<GameObject> raycast(float x1, float y1, float x2, float y2, Array<GameObject> out) {
+        if (root == NULL)
+            return out;
+
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+
+        int top = push(0, root);
+        while (top > 0) {
+            int node = stack[--top];
+            if (!segmentIntersects(x1, y1, dx, dy, minX[node], minY[node], maxX[node], maxY[node]))
+                continue;
+
+            if (isLeaf(node)) {
+                Entry entry = leafEntries[node];
+                if (segmentIntersects(x1, y1, dx, dy, entry.minX, entry.minY, entry.maxX, entry.maxY))
+                    out.add(entry.gameObject);
+            }
+            else {
+                top = push(top, child1[node]);
+                top = push(top, child2[node]);
+            }
+        }
+
+        return out;
+    }
+
+    /* Slab test of the segment (x, y) + t * (dx, dy), t in [0, 1] against a box */
+    private static boolean segmentIntersects(float x, float y, float dx, float dy, float minX, float minY, float maxX, float maxY) {
+        float tMin = 0, tMax = 1;
+
+        if (dx == 0) {
+            if (x < minX || x > maxX)
+                return false;
+        }
+        else {
+            float inv = 1f / dx;
+            float t1 = (minX - x) * inv;
+            float t2 = (maxX - x) * inv;
+            tMin = Math.max(tMin, Math.min(t1, t2));
+            tMax = Math.min(tMax, Math.max(t1, t2));
+            if (tMin > tMax)
+                return false;
+        }
+
+        if (dy == 0)
+            return y >= minY && y <= maxY;
+
+        float inv = 1f / dy;
+        float t1 = (minY - y) * inv;
+        float t2 = (maxY - y) * inv;
+        tMin = Math.max(tMin, Math.min(t1, t2));
+        tMax = Math.min(tMax, Math.max(t1, t2));
+        return tMin <= tMax;
+    }
+
+    /**
+     * Finds every pair of game objects whose bounds overlap. Each pair is reported once: the game objects of a pair are added to the array one after the other,
+     * so pair {@code i} is made of the game objects at {@code 2 * i} and {@code 2 * i + 1}.
+     * @param out the array to add the pairs to
+     * @return the given array
+     */
+    public Array<GameObject> queryOverlapPairs(Array<GameObject> out) {
+        if (root == NULL)
+            return out;
+
+        for (int i = 0, n = entryList.size; i < n; i++) {
+            Entry entry = entryList.get(i);
+            if (entry.leaf == NULL)
+                continue;
+
+            float qMinX = entry.minX, qMinY = entry.minY, qMaxX = entry.maxX, qMaxY = entry.maxY;
+
+            int top = push(0, root);
+            while (top > 0) {
+                int node = stack[--top];
+                if (minX[node] > qMaxX || maxX[node] < qMinX || minY[node] > qMaxY || maxY[node] < qMinY)
+                    continue;
+
+                if (isLeaf(node)) {
+                    Entry other = leafEntries[node];
+
+                    // Report each pair once
+                    if (other.order <= entry.order)
+                        continue;
+
+                    if (other.minX <= qMaxX && other.maxX >= qMinX && other.minY <= qMaxY && other.maxY >= qMinY) {
+                        out.add(entry.gameObject);
+                        out.add(other.gameObject);
+                    }
+                }
+                else {
+                    top = push(top, child1[node]);
+                    top = push(top, child2[node]);
+                }
+            }
+        }
+
+        return out;
+    }
+
+    private static class Entry implements Pool.Poolable {
+        GameObject gameObject;
+
+        // The tight bounds of the game object
+        float minX, minY, maxX, maxY;
+
+        int leaf = NULL;
+        int order;
+        int stamp;
+
+        @Override
+        public void reset() {
+            gameObject = null;
+            leaf = NULL;
+            stamp = 0;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package io.github.isoteriktech.xgdx;
 
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IdentityMap;
 import com.badlogic.gdx.utils.Pool;
 import com.badlogic.gdx.utils.reflect.ClassReflection;
 import io.github.isoteriktech.xgdx.utils.PoolableArrayIterator;
@@ -25,22 +26,33 @@ public class GameObject {
     protected final Array<Component> components;
     protected final ComponentIteratorPool componentIteratorPool;
 
+    /* Maps every component class and its superclasses to the attached components of that type, in attach order */
+    private final IdentityMap<Class<?>, Array<Component>> componentsByType;
+
     public Transform transform;
 
     protected String tag;
 
     protected Scene hostScene;
 
+    /* The layer of the host scene this game object belongs to */
+    Layer hostLayer;
+
+    /* Assigned by the ComponentRegistry: the order of this game object in the scene, its layer index in the high bits */
+    long registryOrder;
+
     protected GameObject()
     { this("Untagged"); }
 
     protected GameObject(String tag) {
         components = new Array<>();
         componentIteratorPool = new ComponentIteratorPool(components);
+        componentsByType = new IdentityMap<>();
 
         transform = new Transform();
         transform.__setGameObject(this);
         components.add(transform);
+        indexComponent(transform);
 
         this.tag = tag;
     }
@@ -63,6 +75,13 @@ public class GameObject {
     public Scene getHostScene()
     { return hostScene; }
 
+    /**
+     *
+     * @return the layer of the host scene this game object belongs to or null if it is not in a scene
+     */
+    public Layer getHostLayer()
+    { return hostLayer; }
+
     /**
      * Sets the tag for this game object. It is not required to be unique.
      * @param tag the tag
@@ -88,9 +107,18 @@ public class GameObject {
 
     /**
      * Adds a component to this game object.
+     * If the host scene is currently iterating its game objects (during an update, render or other lifecycle pass), the component is
+     * attached once the pass completes. See {@link SceneCommandBuffer}.
      * @param component the component
      */
     public void addComponent(Component component) {
+        if (hostScene != null && hostScene.getCommandBuffer().isDeferring())
+            hostScene.getCommandBuffer().addComponent(this, component);
+        else
+            addComponentImmediately(component);
+    }
+
+    void addComponentImmediately(Component component) {
         if (components.contains(component, true))
             return;
 
@@ -107,17 +135,31 @@ public class GameObject {
         }
 
         components.add(component);
+        indexComponent(component);
+
+        if (hostScene != null)
+            hostScene.componentAdded(component);
     }
 
     /**
      * Removes a component attached to this game object.
+     * If the host scene is currently iterating its game objects, the component is detached once the pass completes.
      * <strong>Note:</strong> a component can remove itself.
      * @param component the component to remove.
-     * @return true if the component was removed. false otherwise
+     * @return true if the component was removed (or will be removed once the current pass completes). false otherwise
      */
     public boolean removeComponent(Component component) {
+        if (hostScene != null && hostScene.getCommandBuffer().isDeferring())
+            return hostScene.getCommandBuffer().removeComponent(this, component);
+
+        return removeComponentImmediately(component);
+    }
+
+    boolean removeComponentImmediately(Component component) {
         if (components.contains(component, true) &&
                 components.removeValue(component, true)) {
+            unindexComponent(component);
+
             for (Component comp : components)
                 comp.componentRemoved(component);
 
@@ -125,6 +167,9 @@ public class GameObject {
             component.detach();
 
             component.__setGameObject(null);
+
+            if (hostScene != null)
+                hostScene.componentRemoved(component);
             return true;
         }
 
@@ -141,24 +186,53 @@ public class GameObject {
     public <T extends Component> boolean removeComponent(Class<T> componentClass)
     { return removeComponent(getComponent(componentClass)); }
 
+    /**
+     * Removes all components of a particular type that are attached to this game object.
+     * @param componentClass the class of the components
+     * @param <T> the type of component
+     */
     public <T extends Component> void removeComponents(Class<T> componentClass) {
-        for (Component c : components) {
-            if (ClassReflection.isAssignableFrom(componentClass, c.getClass()))
-                removeComponent(c);
+        Array<Component> typed = componentsByType.get(componentClass);
+        if (typed == null) {
+            if (componentClass.isInterface())
+                removeComponentsByScan(componentClass);
+            return;
+        }
+
+        // Removing a component updates the typed array, so walk it backwards
+        for (int i = typed.size - 1; i >= 0; i--) {
+            if (i < typed.size)
+                removeComponent(typed.get(i));
+        }
+    }
+
+    private void removeComponentsByScan(Class<?> componentClass) {
+        for (int i = components.size - 1; i >= 0; i--) {
+            if (i < components.size && ClassReflection.isAssignableFrom(componentClass, components.get(i).getClass()))
+                removeComponent(components.get(i));
         }
     }
 
     /**
      * Gets a component of a particular type that is attached to this game object.
+     * Lookups are indexed by type so this is a constant time operation.
      * <strong>Note:</strong> a component can remove itself.
      * @param componentClass the class of the component
      * @param <T> the type of component
      * @return the component. null if not found
      */
+    @SuppressWarnings("unchecked")
     public <T extends Component> T getComponent(Class<T> componentClass) {
-        for (Component c : components) {
-            if (ClassReflection.isAssignableFrom(componentClass, c.getClass()))
-                return (T)c;
+        Array<Component> typed = componentsByType.get(componentClass);
+        if (typed != null)
+            return typed.size > 0 ? (T)typed.first() : null;
+
+        // Only classes are indexed; interfaces fall back to a scan
+        if (componentClass.isInterface()) {
+            for (Component c : components) {
+                if (ClassReflection.isAssignableFrom(componentClass, c.getClass()))
+                    return (T)c;
+            }
         }
 
         return null;
@@ -166,19 +240,37 @@ public class GameObject {
 
     /**
      * Gets components of a particular type that is attached to this game object.
+     * This allocates a new array on every call. Use {@link #getComponents(Class, Array)} in code that runs every frame.
      * @param componentClass the class of the component
      * @param <T> the type of component
      * @return the components found or empty list if none found
      */
-    public <T extends Component> Array<T> getComponents(Class<T> componentClass) {
-        Array<T> comps = new Array<>();
+    public <T extends Component> Array<T> getComponents(Class<T> componentClass)
+    { return getComponents(componentClass, new Array<T>()); }
 
-        for (Component c : components) {
-            if (ClassReflection.isAssignableFrom(componentClass, c.getClass()))
-                comps.add((T)c);
+    /**
+     * Gets components of a particular type that is attached to this game object. The components are added to the given array;
+     * the array is not cleared first.
+     * @param componentClass the class of the component
+     * @param out the array to add the found components to
+     * @param <T> the type of component
+     * @return the given array
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Component> Array<T> getComponents(Class<T> componentClass, Array<T> out) {
+        Array<Component> typed = componentsByType.get(componentClass);
+        if (typed != null) {
+            for (int i = 0; i < typed.size; i++)
+                out.add((T)typed.get(i));
+        }
+        else if (componentClass.isInterface()) {
+            for (Component c : components) {
+                if (ClassReflection.isAssignableFrom(componentClass, c.getClass()))
+                    out.add((T)c);
+            }
         }
 
-        return comps;
+        return out;
     }
 
     /**
@@ -197,6 +289,35 @@ public class GameObject {
     public <T extends Component> boolean hasComponent(Class<T> componentClass)
     { return getComponent(componentClass) != null; }
 
+    /**
+     * Adds a component to the type index under its class and every superclass up to {@link Component}.
+     * Subclasses that modify {@link #components} directly must keep the index in sync.
+     * @param component the component to index
+     */
+    protected void indexComponent(Component component) {
+        for (Class<?> type = component.getClass(); type != null && type != Object.class; type = type.getSuperclass()) {
+            Array<Component> typed = componentsByType.get(type);
+            if (typed == null) {
+                typed = new Array<>(true, 1);
+                componentsByType.put(type, typed);
+            }
+
+            typed.add(component);
+        }
+    }
+
+    /**
+     * Removes a component from the type index.
+     * @param component the component to remove
+     */
+    protected void unindexComponent(Component component) {
+        for (Class<?> type = component.getClass(); type != null && type != Object.class; type = type.getSuperclass()) {
+            Array<Component> typed = componentsByType.get(type);
+            if (typed != null)
+                typed.removeValue(component, true);
+        }
+    }
+
     /**
      * Checks if a component is attached to this game object.
      * @param component the component to check.
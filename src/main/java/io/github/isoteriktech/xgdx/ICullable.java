@@ -0,0 +1,17 @@
+package io.github.isoteriktech.xgdx;
+
+/**
+ * A rendering {@link Component} that implements this interface can be skipped by the {@link Scene} when its game object is outside the view of the main camera.
+ * This only happens when the scene uses an {@link ISpatialIndex}; the scene then renders only the cullable components whose game objects overlap the camera view.
+ * <p>
+ * Implementations must invalidate the {@link ComponentRegistry} of their scene when the value returned by {@link #isSpatiallyCullable()} changes.
+ *
+ * @author isoteriksoftware
+ */
+public interface ICullable {
+    /**
+     *
+     * @return whether this component may be skipped when its game object cannot be seen by the main camera
+     */
+    boolean isSpatiallyCullable();
+}
@@ -0,0 +1,78 @@
+package io.github.isoteriktech.xgdx;
+
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * A spatial index of the {@link GameObject}s of a {@link Scene}. The scene keeps its index in sync with its game objects once per frame and uses it to
+ * render {@link ICullable} components only when their game objects can be seen by the main camera.
+ * <p>
+ * Queries add their results to caller-supplied arrays and do not allocate.
+ *
+ * @see SpatialGrid
+ * @see DynamicAABBTree
+ * @see Scene#setSpatialIndex(ISpatialIndex)
+ *
+ * @author isoteriksoftware
+ */
+public interface ISpatialIndex {
+    /**
+     * Finds the game objects whose bounds overlap a rectangle.
+     * @param x the x coordinate of the bottom-left corner of the rectangle
+     * @param y the y coordinate of the bottom-left corner of the rectangle
+     * @param width the width of the rectangle
+     * @param height the height of the rectangle
+     * @param out the array to add the game objects to
+     * @return the given array
+     */
+    Array<GameObject> queryRect(float x, float y, float width, float height, Array<GameObject> out);
+
+    /**
+     * Finds the game objects whose bounds overlap a circle.
+     * @param x the x coordinate of the center of the circle
+     * @param y the y coordinate of the center of the circle
+     * @param radius the radius of the circle
+     * @param out the array to add the game objects to
+     * @return the given array
+     */
+    Array<GameObject> queryRadius(float x, float y, float radius, Array<GameObject> out);
+
+    /**
+     * Finds the game objects that can be seen by a camera.
+     * <strong>Note:</strong> the camera must be up to date (see {@link Camera#update()}).
+     * @param camera the camera
+     * @param out the array to add the game objects to
+     * @return the given array
+     */
+    Array<GameObject> queryCameraView(Camera camera, Array<GameObject> out);
+
+    /**
+     *
+     * @return the number of game objects in this index
+     */
+    int size();
+
+    /**
+     * Marks the game objects of this index as outdated. The index reconciles its game objects with the scene the next time it is updated.
+     */
+    void invalidate();
+
+    /**
+     *
+     * @return whether the game objects of this index need to be reconciled with the scene
+     */
+    boolean isDirty();
+
+    /**
+     * Adds the game objects that were added to the scene, removes the ones that were removed and updates the ones that moved.
+     * This method is called internally by the system. DO NOT CALL THIS METHOD!
+     * @param gameObjects the game objects of the scene
+     */
+    void __update(Array<GameObject> gameObjects);
+
+    /**
+     * Removes every game object from this index.
+     * This method is called internally by the system. DO NOT CALL THIS METHOD!
+     */
+    void __clear();
+}
@@ -0,0 +1,21 @@
+package io.github.isoteriktech.xgdx;
+
+/**
+ * A marker for {@link Component}s whose {@link Component#update(float)} can run on a worker thread.
+ * When parallel updates are enabled with {@link Scene#setParallelUpdateThreads(int)}, the scene splits these components by transform hierarchy
+ * and updates them on several threads at once. The components of the game objects that share a root {@link Transform} are always updated on the
+ * same thread, and the components of a game object in the order they were attached.
+ * All of them are updated before any {@link Component#postUpdate(float)} is called.
+ * <p>
+ * An implementation may modify the local values of its own {@link Transform}, read the world transformations of its own hierarchy
+ * and add or remove game objects and components since those changes are deferred until the pass completes. It must not change the hierarchy
+ * ({@link Transform#setParent(Transform)}), read the world transformations of other hierarchies, touch OpenGL, the {@link Scene}'s
+ * {@link com.badlogic.gdx.scenes.scene2d.Stage}s or any state shared with other game objects unless that state is synchronized.
+ * Move such work to {@link Component#postUpdate(float)}.
+ * <p>
+ * Only {@link Component#update(float)} is affected; every other lifecycle method is still called on the render thread.
+ *
+ * @author isoteriksoftware
+ */
+public interface IThreadSafeComponent {
+}
@@ -12,6 +12,12 @@ public class Layer {
 
     private String name;
 
+    /* Incremented whenever a game object is added or removed */
+    private int version;
+
+    /* The position of this layer in its scene, kept up to date by the scene */
+    int index = -1;
+
     /**
      * Creates a new layer with a given name.
      * @param name a name for the layer
@@ -26,24 +32,47 @@ public class Layer {
      * Adds a game object to this layer
      * @param gameObject the game object to add
      */
-    public void addGameObject(GameObject gameObject)
-    { gameObjects.add(gameObject); }
+    public void addGameObject(GameObject gameObject) {
+        gameObjects.add(gameObject);
+        version++;
+    }
 
     /**
      * Removes a game object from this layer
      * @param gameObject the game object to remove
      * @return true if the game object was removed. false otherwise
      */
-    public boolean removeGameObject(GameObject gameObject)
-    { return gameObjects.removeValue(gameObject, true); }
+    public boolean removeGameObject(GameObject gameObject) {
+        if (!gameObjects.removeValue(gameObject, true))
+            return false;
+
+        version++;
+        return true;
+    }
 
     /**
-     *
+     * <strong>Note:</strong> the returned array should not be modified directly. Use {@link #addGameObject(GameObject)} and {@link #removeGameObject(GameObject)} instead
+     * so that the {@link Scene} can track the changes.
      * @return the game objects of this layer
      */
     public Array<GameObject> getGameObjects()
     { return gameObjects; }
 
+    /**
+     * The version of a layer changes every time a game object is added to or removed from it. {@link Scene}s use this to know when
+     * their cached list of game objects needs to be rebuilt.
+     * @return the current version of this layer
+     */
+    public int getVersion()
+    { return version; }
+
+    /**
+     * The index of a layer is its position among the layers of its {@link Scene}. Layers with lower indices are rendered first.
+     * @return the index of this layer in its scene or -1 if it is not added to a scene
+     */
+    public int getIndex()
+    { return index; }
+
     /**
      * Finds the first gameObject with the given tag.
      * @param tag the gameObject's tag.
@@ -0,0 +1,202 @@
+package io.github.isoteriktech.xgdx;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncTask;
+
+/**
+ * Updates the {@link IThreadSafeComponent}s of a {@link Scene} on a pool of worker threads.
+ * The components are split into one contiguous partition per thread, plus one for the render thread, without ever splitting the components
+ * of a transform hierarchy. {@link #update(Array, IntArray, float)} returns only when every partition is done.
+ * <p>
+ * Every worker is submitted to the {@link AsyncExecutor} once and then waits for the next frame, so updating a frame does not allocate.
+ * The scene does not create an updater on platforms without threads (GWT).
+ *
+ * @author isoteriksoftware
+ */
+final class ParallelUpdater implements Disposable {
+    private final AsyncExecutor executor;
+    private final Partition[] partitions;
+    private final Worker[] workers;
+
+    // Guarded by this. The workers wake up when the frame changes and the render thread waits until no partition is pending
+    private int frame;
+    private int activeWorkers;
+    private int pendingWorkers;
+    private Throwable error;
+    private boolean disposed;
+
+    ParallelUpdater(int threads) {
+        executor = new AsyncExecutor(threads, "ParallelUpdater");
+
+        // The render thread updates the last partition instead of waiting idle
+        partitions = new Partition[threads + 1];
+        for (int i = 0; i < partitions.length; i++)
+            partitions[i] = new Partition();
+
+        workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(i);
+            executor.submit(workers[i]);
+        }
+    }
+
+    /**
+     *
+     * @return the number of worker threads
+     */
+    int getThreads()
+    { return workers.length; }
+
+    /**
+     * Updates the given components and waits for all of them to finish.
+     * @param components the components to update in processing order
+     * @param groupStarts the index of the first component of every transform hierarchy in {@code components}
+     * @param deltaTime the time elapsed since the last frame
+     */
+    void update(Array<Component> components, IntArray groupStarts, float deltaTime) {
+        int total = components.size;
+        int groups = groupStarts.size;
+        if (groups == 0)
+            return;
+
+        // Cut the components into partitions of nearly equal sizes at hierarchy boundaries
+        int count = Math.min(partitions.length, groups);
+        int used = 0, group = 0;
+        while (group < groups) {
+            int start = groupStarts.get(group);
+            int target = (int) ((long) total * (used + 1) / count);
+            int end;
+            do {
+                group++;
+                end = group < groups ? groupStarts.get(group) : total;
+            } while (end < target && group < groups);
+
+            partitions[used++].set(components.items, start, end, deltaTime);
+        }
+
+        synchronized (this) {
+            activeWorkers = used - 1;
+            pendingWorkers = used - 1;
+            error = null;
+            frame++;
+            notifyAll();
+        }
+
+        Throwable failure = null;
+        try {
+            partitions[used - 1].call();
+        } catch (RuntimeException | Error e) {
+            failure = e;
+        }
+
+        // The barrier. Every partition must be done before an error is rethrown
+        boolean interrupted = false;
+        synchronized (this) {
+            while (pendingWorkers > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+
+            if (failure == null)
+                failure = error;
+            error = null;
+        }
+
+        if (interrupted)
+            Thread.currentThread().interrupt();
+
+        for (int i = 0; i < used; i++)
+            partitions[i].components = null;
+
+        if (failure instanceof Error)
+            throw (Error) failure;
+        if (failure != null)
+            throw (RuntimeException) failure;
+    }
+
+    @Override
+    public void dispose() {
+        synchronized (this) {
+            disposed = true;
+            notifyAll();
+        }
+
+        executor.dispose();
+    }
+
+    private static class Partition implements AsyncTask<Void> {
+        Component[] components;
+        int start, end;
+        float deltaTime;
+
+        void set(Component[] components, int start, int end, float deltaTime) {
+            this.components = components;
+            this.start = start;
+            this.end = end;
+            this.deltaTime = deltaTime;
+        }
+
+        @Override
+        public Void call() {
+            for (int i = start; i < end; i++) {
+                Component component = components[i];
+                if (component.isEnabled())
+                    component.update(deltaTime);
+            }
+
+            return null;
+        }
+    }
+
+    /* Runs its partition once every frame until the updater is disposed */
+    private class Worker implements AsyncTask<Void> {
+        private final Partition partition;
+        private final int index;
+        private int lastFrame;
+
+        Worker(int index) {
+            this.partition = partitions[index];
+            this.index = index;
+        }
+
+        @Override
+        public Void call() throws InterruptedException {
+            while (true) {
+                synchronized (ParallelUpdater.this) {
+                    while (!disposed && lastFrame == frame)
+                        ParallelUpdater.this.wait();
+
+                    if (disposed)
+                        return null;
+
+                    lastFrame = frame;
+
+                    // There may be fewer partitions than workers in this frame
+                    if (index >= activeWorkers)
+                        continue;
+                }
+
+                Throwable failure = null;
+                try {
+                    partition.call();
+                } catch (RuntimeException | Error e) {
+                    failure = e;
+                }
+
+                synchronized (ParallelUpdater.this) {
+                    if (failure != null && error == null)
+                        error = failure;
+
+                    if (--pendingWorkers == 0)
+                        ParallelUpdater.this.notifyAll();
+                }
+            }
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package io.github.isoteriktech.xgdx;
 
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
@@ -14,6 +16,8 @@ import io.github.isoteriktech.xgdx.x2d.components.renderer.SpriteRenderer;
 import io.github.isoteriktech.xgdx.utils.GameWorldUnits;
 import io.github.isoteriktech.xgdx.x3d.GameCamera3d;
 
+import java.util.Comparator;
+
 /**
  * A Scene contains the {@link GameObject}s of your game. Think of each Scene as a unique level of your game.
  * Every scene has its own {@link InputManager} for managing input.
@@ -49,12 +53,44 @@ public class Scene {
     /** The input manager for handling input. */
     protected final InputManager input;
 
+    /* Records structural changes made while game objects are being iterated */
+    private final SceneCommandBuffer commandBuffer;
+
+    /* Per-phase arrays of the components that override each update and render method */
+    private final ComponentRegistry componentRegistry;
+
+    /* Optional structure-of-arrays mirror of the transforms, null when disabled */
+    private TransformStore transformStore;
+
+    /* Optional spatial index of the game objects, null when disabled */
+    private ISpatialIndex spatialIndex;
+
+    /* Whether the cullable components being rendered were already culled by the spatial index */
+    private boolean spatiallyCulling;
+
+    /* For rendering only the cullable components that can be seen when a spatial grid is used */
+    private final Array<GameObject> visibleGameObjects = new Array<>();
+    private final Array<Component> visibleComponents = new Array<>(Component.class);
+    private static final Comparator<Component> renderOrderComparator = ComponentRegistry::compareOrder;
+
     /* For components iteration that needs the current delta time */
     private float deltaTime;
 
+    /* The fixed time step loop; a step of zero disables it */
+    private float fixedTimeStep;
+    private int maxFixedStepsPerFrame = 5;
+    private float fixedTimeAccumulator;
+    private float interpolationAlpha = 1;
+
+    /* Updates the thread-safe components on worker threads, null when parallel updates are disabled */
+    private ParallelUpdater parallelUpdater;
+
+    /* Measures the lifecycle phases; disabled by default */
+    private final SceneProfiler profiler;
+
     // These iteration listeners prevent us from creating new instances every time!
     protected GameObject.__ComponentIterationListener startIter, pauseIter, preRenderIter, postRenderIter,
-            resumeIter, preUpdateIter, updateIter, resizeIter, postUpdateIter, renderIter,
+            resumeIter, preUpdateIter, fixedUpdateIter, updateIter, resizeIter, postUpdateIter, renderIter,
             debugLineIter, debugFilledIter, debugPointIter, destroyIter;
 
     // The state of the Scene
@@ -77,9 +113,22 @@ public class Scene {
 
     private int resizedWidth, resizedHeight;
 
-    // An array of game objects
+    // A cached, flattened view of the game objects of every layer. It is only rebuilt when the layers change.
     Array<GameObject> gameObjects = new Array<>();
 
+    // The cache is double-buffered so that rebuilding it never modifies an array that is being iterated
+    private Array<GameObject> gameObjectsBackBuffer = new Array<>();
+
+    // Incremented whenever a layer is added or removed
+    private int layersVersion;
+
+    // The versions used to build the current cache
+    private int cachedLayersVersion = -1;
+    private int cachedGameObjectsVersion;
+
+    // The sum of the layer versions the component registry knows about; layers modified directly make the registry rebuild
+    private int registeredGameObjectsVersion;
+
     /**
      * Creates a new instance.
      * @param is3dScene determines if this scene is a 3D scene or not.
@@ -95,8 +144,12 @@ public class Scene {
         defaultLayer = new Layer(DEFAULT_LAYER);
         layers = new Array<>();
         layers.add(defaultLayer);
+        defaultLayer.index = 0;
 
         input = new InputManager(this);
+        commandBuffer = new SceneCommandBuffer(this);
+        componentRegistry = new ComponentRegistry();
+        profiler = new SceneProfiler();
 
         startIter = component -> {
             if (component.isEnabled())
@@ -123,6 +176,11 @@ public class Scene {
                 component.preUpdate(deltaTime);
         };
 
+        fixedUpdateIter = component -> {
+            if (component.isEnabled())
+                component.fixedUpdate(fixedTimeStep);
+        };
+
         updateIter = component -> {
             if (component.isEnabled())
                 component.update(deltaTime);
@@ -364,8 +422,10 @@ public class Scene {
      * Adds a new layer to this scene
      * @param layer the layer to add
      */
-    public void addLayer(Layer layer)
-    { layers.add(layer); }
+    public void addLayer(Layer layer) {
+        layers.add(layer);
+        layersChanged();
+    }
 
     /**
      * Removes a given layer from this scene.
@@ -377,7 +437,10 @@ public class Scene {
         if (layer == defaultLayer)
             throw new IllegalArgumentException("You cannot remove the default layer!");
 
-        layers.removeValue(layer, true);
+        if (layers.removeValue(layer, true)) {
+            layer.index = -1;
+            layersChanged();
+        }
     }
 
     /**
@@ -392,11 +455,19 @@ public class Scene {
 
         Layer layer = findLayer(layerName);
         if (layer != null)
-            layers.removeValue(layer, true);
+            removeLayer(layer);
+    }
+
+    private void layersChanged() {
+        for (int i = 0; i < layers.size; i++)
+            layers.get(i).index = i;
+
+        layersVersion++;
     }
 
     /**
-     *
+     * <strong>Note:</strong> the returned array should not be modified directly. Use {@link #addLayer(Layer)} and {@link #removeLayer(Layer)} instead
+     * so that the scene can track the changes and keep the indices of the layers up to date.
      * @return the layers of this scene
      */
     public Array<Layer> getLayers()
@@ -404,6 +475,8 @@ public class Scene {
 
     /**
      * Adds a game object to this scene given a layer to add it to.
+     * If the scene is currently iterating its game objects (during an update, render or other lifecycle pass), the game object is added
+     * once the pass completes. See {@link SceneCommandBuffer}.
      * @param gameObject the game object to add
      * @param layer the layer to add the game object to
      * @throws IllegalArgumentException if the given layer does not exist in this scene
@@ -412,18 +485,15 @@ public class Scene {
         if (!hasLayer(layer))
             throw new IllegalArgumentException("This layer does not exist in this scene");
 
-        // If this game object is an ActorGameObject, add it to the animation canvas
-        if (gameObject instanceof ActorGameObject)
-            worldCanvas.addActor(((ActorGameObject)gameObject).actorTransform.actor);
-
-        gameObject.__setHostScene(this);
-        layer.addGameObject(gameObject);
-
-        gameObject.__forEachComponent(startIter);
+        if (commandBuffer.isDeferring())
+            commandBuffer.addGameObject(gameObject, layer);
+        else
+            addGameObjectImmediately(gameObject, layer);
     }
 
     /**
      * Adds a game object to this scene given the name of a layer to add it to.
+     * If the scene is currently iterating its game objects, the game object is added once the pass completes.
      * @param gameObject the game object to add
      * @param layerName the name of the layer to add the game object to
      * @throws IllegalArgumentException if there is no existing layer with such name
@@ -433,99 +503,228 @@ public class Scene {
         if (layer == null)
             throw new IllegalArgumentException("This layer does not exist in this scene");
 
-        // If this game object is an ActorGameObject, add it to the animation canvas
-        if (gameObject instanceof ActorGameObject)
-            worldCanvas.addActor(((ActorGameObject)gameObject).actorTransform.actor);
-
-        gameObject.__setHostScene(this);
-        layer.addGameObject(gameObject);
-
-        gameObject.__forEachComponent(startIter);
+        addGameObject(gameObject, layer);
     }
 
     /**
      * Adds a game object to this scene. The game object is added to the default layer.
+     * If the scene is currently iterating its game objects, the game object is added once the pass completes.
      * @param gameObject the game object to add.
      */
-    public void addGameObject(GameObject gameObject) {
+    public void addGameObject(GameObject gameObject)
+    { addGameObject(gameObject, defaultLayer); }
+
+    void addGameObjectImmediately(GameObject gameObject, Layer layer) {
+        // The layer may have been removed while the command was pending
+        if (!hasLayer(layer))
+            return;
+
         // If this game object is an ActorGameObject, add it to the animation canvas
         if (gameObject instanceof ActorGameObject)
             worldCanvas.addActor(((ActorGameObject)gameObject).actorTransform.actor);
 
         gameObject.__setHostScene(this);
-        defaultLayer.addGameObject(gameObject);
+        gameObject.hostLayer = layer;
+        layer.addGameObject(gameObject);
+        componentRegistry.gameObjectAdded(gameObject);
+        registeredGameObjectsVersion++;
 
+        commandBuffer.__begin();
         gameObject.__forEachComponent(startIter);
+        commandBuffer.__end();
     }
 
     /**
      * Removes a game object from this scene given the layer where the game object belongs to.
+     * If the scene is currently iterating its game objects, the game object is removed once the pass completes.
      * @param gameObject the game object to remove
      * @param layer the layer
-     * @return true if the game object was removed. false otherwise.
+     * @return true if the game object was removed (or will be removed once the current pass completes). false otherwise.
      */
     public boolean removeGameObject(GameObject gameObject, Layer layer) {
         if (!hasLayer(layer))
             return false;
 
-        // If this game object is an ActorGameObject, remove it to the animation canvas
-        if (gameObject instanceof ActorGameObject)
-            ((ActorGameObject)gameObject).actorTransform.actor.remove();
+        if (commandBuffer.isDeferring())
+            return commandBuffer.removeGameObject(gameObject, layer);
 
-        gameObject.__removeFromScene();
-        gameObject.__setHostScene(null);
-        return layer.removeGameObject(gameObject);
+        return removeGameObjectImmediately(gameObject, layer);
     }
 
     /**
      * Removes a game object from this scene given the name of the name where the game objects belongs to.
+     * If the scene is currently iterating its game objects, the game object is removed once the pass completes.
      * @param gameObject the game object to remove
      * @param layerName the name of the layer
-     * @return true if the game object was removed. false otherwise.
+     * @return true if the game object was removed (or will be removed once the current pass completes). false otherwise.
      */
     public boolean removeGameObject(GameObject gameObject, String layerName) {
         Layer layer = findLayer(layerName);
         if (layer == null)
             return false;
 
-        // If this game object is an ActorGameObject, remove it to the animation canvas
-        if (gameObject instanceof ActorGameObject)
-            ((ActorGameObject)gameObject).actorTransform.actor.remove();
-
-        gameObject.__removeFromScene();
-        gameObject.__setHostScene(null);
-        return layer.removeGameObject(gameObject);
+        return removeGameObject(gameObject, layer);
     }
 
     /**
      * Removes a game object from the default layer.
+     * If the scene is currently iterating its game objects, the game object is removed once the pass completes.
      * @param gameObject the game object to remove.
-     * @return true if the game object was removed. false otherwise.
+     * @return true if the game object was removed (or will be removed once the current pass completes). false otherwise.
      */
-    public boolean removeGameObject(GameObject gameObject) {
+    public boolean removeGameObject(GameObject gameObject)
+    { return removeGameObject(gameObject, defaultLayer); }
+
+    boolean removeGameObjectImmediately(GameObject gameObject, Layer layer) {
+        if (!layer.getGameObjects().contains(gameObject, true))
+            return false;
+
         // If this game object is an ActorGameObject, remove it to the animation canvas
         if (gameObject instanceof ActorGameObject)
             ((ActorGameObject)gameObject).actorTransform.actor.remove();
 
+        commandBuffer.__begin();
         gameObject.__removeFromScene();
+        commandBuffer.__end();
+
         gameObject.__setHostScene(null);
-        return defaultLayer.removeGameObject(gameObject);
+        gameObject.hostLayer = null;
+        if (!layer.removeGameObject(gameObject))
+            return false;
+
+        componentRegistry.gameObjectRemoved(gameObject);
+        registeredGameObjectsVersion++;
+        return true;
     }
 
     /**
      *
+     * @return the buffer used for deferring structural changes made while this scene iterates its game objects
+     */
+    public SceneCommandBuffer getCommandBuffer()
+    { return commandBuffer; }
+
+    /**
+     * Returns a flattened view of the game objects of every layer, in layer order.
+     * The view is cached and only rebuilt when a layer is added or removed or when a game object is added to or removed from a layer,
+     * so calling this every frame does not allocate.
+     * <strong>Note:</strong> the returned array is shared and must not be modified. Copy it if you need a snapshot.
      * @return all the game objects added to this scene
      */
     public Array<GameObject> getGameObjects() {
-        Array<GameObject> gameObjects = new Array<>();
+        int gameObjectsVersion = 0;
+        for (int i = 0; i < layers.size; i++)
+            gameObjectsVersion += layers.get(i).getVersion();
 
-        for (Layer layer : layers) {
-            gameObjects.addAll(layer.getGameObjects());
-        }
+        if (cachedLayersVersion == layersVersion && cachedGameObjectsVersion == gameObjectsVersion)
+            return gameObjects;
+
+        Array<GameObject> rebuilt = gameObjectsBackBuffer;
+        rebuilt.clear();
+        for (int i = 0; i < layers.size; i++)
+            rebuilt.addAll(layers.get(i).getGameObjects());
+
+        gameObjectsBackBuffer = gameObjects;
+        gameObjects = rebuilt;
+
+        // Game objects added and removed through the scene are applied to the registry incrementally
+        if (cachedLayersVersion != layersVersion || gameObjectsVersion != registeredGameObjectsVersion)
+            componentRegistry.invalidate();
+        registeredGameObjectsVersion = gameObjectsVersion;
+
+        cachedLayersVersion = layersVersion;
+        cachedGameObjectsVersion = gameObjectsVersion;
+        if (transformStore != null)
+            transformStore.invalidate();
+        if (spatialIndex != null)
+            spatialIndex.invalidate();
 
         return gameObjects;
     }
 
+    /**
+     * Called by game objects of this scene when a component is attached.
+     */
+    void componentAdded(Component component)
+    { componentRegistry.componentAdded(component); }
+
+    /**
+     * Called by game objects of this scene when a component is detached.
+     */
+    void componentRemoved(Component component)
+    { componentRegistry.componentRemoved(component); }
+
+    /**
+     *
+     * @return the registry that tracks which components are visited in each update and render phase
+     */
+    public ComponentRegistry getComponentRegistry()
+    { return componentRegistry; }
+
+    /**
+     * Enables or disables the {@link TransformStore} of this scene. When enabled, the transforms of every game object are copied into
+     * contiguous arrays once per frame after all components have been updated. It is disabled by default.
+     * @param enabled whether to maintain a transform store
+     */
+    public void setTransformStoreEnabled(boolean enabled) {
+        if (enabled && transformStore == null) {
+            transformStore = new TransformStore();
+            transformStore.__sync(getGameObjects());
+        }
+        else if (!enabled && transformStore != null) {
+            transformStore.__clear();
+            transformStore = null;
+        }
+    }
+
+    /**
+     *
+     * @return whether this scene maintains a {@link TransformStore}
+     */
+    public boolean isTransformStoreEnabled()
+    { return transformStore != null; }
+
+    /**
+     *
+     * @return the transform store of this scene or null if it is disabled
+     * @see #setTransformStoreEnabled(boolean)
+     */
+    public TransformStore getTransformStore()
+    { return transformStore; }
+
+    /**
+     * Sets the spatial index of this scene. The scene keeps the index in sync with its game objects once per frame and
+     * renders {@link ICullable} components only when their game objects can be seen by the main camera.
+     * It is not used by default.
+     * @param spatialIndex the spatial index, for example a {@link SpatialGrid} or a {@link DynamicAABBTree}, or null to stop using one
+     */
+    public void setSpatialIndex(ISpatialIndex spatialIndex) {
+        if (this.spatialIndex != null)
+            this.spatialIndex.__clear();
+
+        this.spatialIndex = spatialIndex;
+        if (spatialIndex != null) {
+            spatialIndex.invalidate();
+            spatialIndex.__update(getGameObjects());
+        }
+    }
+
+    /**
+     *
+     * @return the spatial index of this scene or null if it does not use one
+     * @see #setSpatialIndex(ISpatialIndex)
+     */
+    public ISpatialIndex getSpatialIndex()
+    { return spatialIndex; }
+
+    /**
+     * Returns whether the cullable components currently being rendered were already culled against the main camera by the spatial index.
+     * {@link ICullable} components can skip their own visibility test when this is true.
+     * @return whether the spatial index culled the components being rendered
+     */
+    public boolean isSpatiallyCulling()
+    { return spatiallyCulling; }
+
     /**
      * Finds the first gameObject with the given tag.
      * @param tag the gameObject's tag.
@@ -600,20 +799,158 @@ public class Scene {
             ((GameCamera2d)camera).setBackgroundColor(color);
     }
 
-    private void updateComponents(Array<GameObject> gameObjects, final float deltaTime) {
+    private void updateComponents(final float deltaTime) {
         this.deltaTime = deltaTime;
 
-        for (GameObject go : gameObjects) {
-            go.__forEachComponent(preUpdateIter);
+        forEachComponent(ComponentRegistry.PRE_UPDATE, preUpdateIter);
+
+        if (fixedTimeStep > 0)
+            runFixedSteps(deltaTime);
+
+        if (parallelUpdater != null) {
+            profiler.__begin(SceneProfiler.UPDATE);
+
+            // The hierarchies may have changed since the start of the frame
+            componentRegistry.__refresh(gameObjects);
+
+            // Returns only when every thread-safe component is updated so postUpdate() always runs after update()
+            parallelUpdater.update(componentRegistry.getThreadSafeUpdateComponents(), componentRegistry.getThreadSafeUpdateGroups(), deltaTime);
+
+            Array<Component> components = componentRegistry.getSerialUpdateComponents();
+            for (int i = 0, n = components.size; i < n; i++)
+                profiler.__visitComponent(components.get(i), updateIter);
+
+            profiler.__end(SceneProfiler.UPDATE);
         }
+        else
+            forEachComponent(ComponentRegistry.UPDATE, updateIter);
 
-        for (GameObject go : gameObjects) {
-            go.__forEachComponent(updateIter);
+        forEachComponent(ComponentRegistry.POST_UPDATE, postUpdateIter);
+    }
+
+    /**
+     * Enables parallel updates. The {@link Component#update(float)} of every {@link IThreadSafeComponent} is then called on a pool of worker threads,
+     * with the render thread helping out, while the other components are updated on the render thread once the thread-safe ones are done.
+     * Every {@link Component#postUpdate(float)} is still called on the render thread after all the updates.
+     * <p>
+     * The thread-safe components are split by transform hierarchy, so the game objects that share a root {@link Transform} are updated on the same thread.
+     * Parallel updates are disabled by default. On platforms without threads (GWT), the thread-safe components are updated on the render thread.
+     * @param threads the number of worker threads, for example {@code Runtime.getRuntime().availableProcessors() - 1}. Zero disables parallel updates
+     */
+    public void setParallelUpdateThreads(int threads) {
+        if (threads < 0)
+            throw new IllegalArgumentException("The number of threads cannot be negative!");
+
+        if (parallelUpdater != null) {
+            if (parallelUpdater.getThreads() == threads)
+                return;
+
+            parallelUpdater.dispose();
+            parallelUpdater = null;
         }
 
-        for (GameObject go : gameObjects) {
-            go.__forEachComponent(postUpdateIter);
+        if (threads > 0 && Gdx.app.getType() != Application.ApplicationType.WebGL)
+            parallelUpdater = new ParallelUpdater(threads);
+    }
+
+    /**
+     *
+     * @return the number of worker threads used for parallel updates or zero if parallel updates are disabled
+     */
+    public int getParallelUpdateThreads()
+    { return parallelUpdater != null ? parallelUpdater.getThreads() : 0; }
+
+    private void runFixedSteps(float deltaTime) {
+        // Time that cannot be caught up within the maximum number of steps is dropped so a slow frame cannot cause slower frames
+        fixedTimeAccumulator = Math.min(fixedTimeAccumulator + deltaTime, fixedTimeStep * maxFixedStepsPerFrame);
+
+        while (fixedTimeAccumulator >= fixedTimeStep) {
+            // Record the state the interpolated transforms are rendered from
+            Array<GameObject> gameObjects = getGameObjects();
+            for (int i = 0, n = gameObjects.size; i < n; i++)
+                gameObjects.get(i).transform.__beginFixedStep();
+
+            forEachComponent(ComponentRegistry.FIXED_UPDATE, fixedUpdateIter);
+            fixedTimeAccumulator -= fixedTimeStep;
         }
+
+        interpolationAlpha = fixedTimeAccumulator / fixedTimeStep;
+    }
+
+    /**
+     * Enables a fixed time step loop. Every frame, the time elapsed is accumulated and {@link Component#fixedUpdate(float)} is called once for every whole
+     * step in the accumulator, so simulations advance by the same amount regardless of the frame rate.
+     * The loop is disabled by default.
+     * @param fixedTimeStep the time step in seconds, for example 1/60f. Zero disables the loop
+     */
+    public void setFixedTimeStep(float fixedTimeStep) {
+        if (fixedTimeStep < 0)
+            throw new IllegalArgumentException("The fixed time step cannot be negative!");
+
+        this.fixedTimeStep = fixedTimeStep;
+        fixedTimeAccumulator = 0;
+        interpolationAlpha = 1;
+    }
+
+    /**
+     *
+     * @return the fixed time step in seconds or zero if the fixed time step loop is disabled
+     */
+    public float getFixedTimeStep()
+    { return fixedTimeStep; }
+
+    /**
+     * Sets the maximum number of fixed steps run in a single frame. When a frame takes longer than this many steps, the extra time is dropped and the
+     * simulation slows down instead of falling further behind. The default is 5.
+     * @param maxFixedStepsPerFrame the maximum number of steps
+     */
+    public void setMaxFixedStepsPerFrame(int maxFixedStepsPerFrame) {
+        if (maxFixedStepsPerFrame < 1)
+            throw new IllegalArgumentException("At least one fixed step must be allowed per frame!");
+
+        this.maxFixedStepsPerFrame = maxFixedStepsPerFrame;
+    }
+
+    /**
+     *
+     * @return the maximum number of fixed steps run in a single frame
+     */
+    public int getMaxFixedStepsPerFrame()
+    { return maxFixedStepsPerFrame; }
+
+    /**
+     * The fraction of a fixed step that elapsed since the last fixed update, in the range [0, 1). Renderers can use it to interpolate between the previous
+     * and the current simulated states: {@code previous + (current - previous) * alpha}. {@link SpriteRenderer} does so for transforms that enable
+     * {@link Transform#setInterpolated(boolean)}.
+     * @return the interpolation alpha or 1 if the fixed time step loop is disabled
+     */
+    public float getInterpolationAlpha()
+    { return interpolationAlpha; }
+
+    /**
+     * Returns the profiler of this scene. Enable it with {@link SceneProfiler#setEnabled(boolean)} to measure the lifecycle phases of this scene
+     * and the components of every class.
+     * @return the profiler of this scene
+     */
+    public SceneProfiler getProfiler()
+    { return profiler; }
+
+    /**
+     * Calls the given iteration listener on every component registered for a phase.
+     * Only components that override the lifecycle method of the phase are visited.
+     * @param phase the phase. One of the constants of {@link ComponentRegistry}
+     * @param iterationListener the iteration listener
+     */
+    protected void forEachComponent(int phase, GameObject.__ComponentIterationListener iterationListener) {
+        Array<Component> components = componentRegistry.getComponents(phase);
+
+        if (profiler.isEnabled()) {
+            profiler.__forEachComponent(phase, components, iterationListener);
+            return;
+        }
+
+        for (int i = 0, n = components.size; i < n; i++)
+            iterationListener.onComponent(components.get(i));
     }
 
     /**
@@ -628,9 +965,11 @@ public class Scene {
 
         gameObjects = getGameObjects();
 
+        commandBuffer.__begin();
         for (GameObject go : gameObjects) {
             go.__forEachComponent(resizeIter);
         }
+        commandBuffer.__end();
 
         canvas.getViewport().update(width, height, true);
     }
@@ -644,9 +983,11 @@ public class Scene {
 
         gameObjects = getGameObjects();
 
+        commandBuffer.__begin();
         for (GameObject go : gameObjects) {
             go.__forEachComponent(resumeIter);
         }
+        commandBuffer.__end();
     }
 
     /**
@@ -658,9 +999,11 @@ public class Scene {
 
         gameObjects = getGameObjects();
 
+        commandBuffer.__begin();
         for (GameObject go : gameObjects) {
             go.__forEachComponent(pauseIter);
         }
+        commandBuffer.__end();
     }
 
     /**
@@ -669,16 +1012,34 @@ public class Scene {
      * @param deltaTime the time difference between this frame and the previous frame
      */
     public void __update(final float deltaTime) {
+        profiler.__begin(SceneProfiler.SCENE_UPDATE);
         this.deltaTime = deltaTime;
 
-        input.__update();
+        input.__update(deltaTime);
 
         gameObjects = getGameObjects();
+        componentRegistry.__refresh(gameObjects);
 
-        updateComponents(gameObjects, deltaTime);
+        // Structural changes made by components are applied once every component has been updated
+        commandBuffer.__begin();
+        updateComponents(deltaTime);
+        commandBuffer.__end();
 
+        profiler.__begin(SceneProfiler.WORLD_CANVAS_ACT);
         worldCanvas.act(deltaTime);
+        profiler.__end(SceneProfiler.WORLD_CANVAS_ACT);
+
+        profiler.__begin(SceneProfiler.CANVAS_ACT);
         canvas.act(deltaTime);
+        profiler.__end(SceneProfiler.CANVAS_ACT);
+
+        if (transformStore != null)
+            transformStore.__sync(getGameObjects());
+
+        if (spatialIndex != null)
+            spatialIndex.__update(getGameObjects());
+
+        profiler.__end(SceneProfiler.SCENE_UPDATE);
     }
 
     /**
@@ -686,7 +1047,11 @@ public class Scene {
      * <strong>DO NOT CALL THIS METHOD!</strong>
      */
     public void __render() {
+        profiler.__begin(SceneProfiler.SCENE_RENDER);
         gameObjects = getGameObjects();
+        componentRegistry.__refresh(gameObjects);
+
+        commandBuffer.__begin();
 
         // Render
         render();
@@ -695,28 +1060,77 @@ public class Scene {
         if (renderCustomDebugLines)
             renderDebugDrawings();
 
+        commandBuffer.__end();
+
         // Draw the world canvas
+        profiler.__begin(SceneProfiler.WORLD_CANVAS_DRAW);
         worldCanvas.draw();
+        profiler.__end(SceneProfiler.WORLD_CANVAS_DRAW);
 
         // Draw the UI
+        profiler.__begin(SceneProfiler.CANVAS_DRAW);
         canvas.draw();
+        profiler.__end(SceneProfiler.CANVAS_DRAW);
+
+        profiler.__end(SceneProfiler.SCENE_RENDER);
+        profiler.__endFrame();
     }
 
     protected void render() {
         // Before Render
-        for (GameObject go : gameObjects) {
-            go.__forEachComponent(preRenderIter);
-        }
+        forEachComponent(ComponentRegistry.PRE_RENDER, preRenderIter);
 
         // Render
-        for (GameObject go : gameObjects) {
-            go.__forEachComponent(renderIter);
+        if (spatialIndex != null && !spatialIndex.isDirty()) {
+            profiler.__begin(SceneProfiler.RENDER);
+            renderVisibleComponents();
+            profiler.__end(SceneProfiler.RENDER);
         }
+        else
+            forEachComponent(ComponentRegistry.RENDER, renderIter);
 
         // After Render
-        for (GameObject go : gameObjects) {
-            go.__forEachComponent(postRenderIter);
+        forEachComponent(ComponentRegistry.POST_RENDER, postRenderIter);
+    }
+
+    /**
+     * Renders the components that are never culled and the cullable components whose game objects overlap the view of the main camera.
+     * Components are still rendered in the order of the scene.
+     */
+    protected void renderVisibleComponents() {
+        GameCamera mainCamera = getMainCamera();
+        if (mainCamera == null) {
+            forEachComponent(ComponentRegistry.RENDER, renderIter);
+            return;
+        }
+
+        visibleGameObjects.clear();
+        spatialIndex.queryCameraView(mainCamera.getCamera(), visibleGameObjects);
+        spatiallyCulling = true;
+
+        visibleComponents.clear();
+        for (int i = 0, n = visibleGameObjects.size; i < n; i++) {
+            Array<Component> components = visibleGameObjects.get(i).getComponents();
+            for (int j = 0, m = components.size; j < m; j++) {
+                Component component = components.get(j);
+                if (component.spatiallyCulled)
+                    visibleComponents.add(component);
+            }
         }
+        visibleComponents.sort(renderOrderComparator);
+
+        // Merge both arrays by render order
+        Array<Component> alwaysRendered = componentRegistry.getAlwaysRenderedComponents();
+        int i = 0, j = 0;
+        while (i < alwaysRendered.size || j < visibleComponents.size) {
+            if (j == visibleComponents.size || (i < alwaysRendered.size &&
+                    ComponentRegistry.compareOrder(alwaysRendered.get(i), visibleComponents.get(j)) < 0))
+                profiler.__visitComponent(alwaysRendered.get(i++), renderIter);
+            else
+                profiler.__visitComponent(visibleComponents.get(j++), renderIter);
+        }
+
+        spatiallyCulling = false;
     }
 
     protected void renderDebugDrawings() {
@@ -724,23 +1138,17 @@ public class Scene {
 
         // Filled
         shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
-        for (GameObject go : gameObjects) {
-            go.__forEachComponent(debugFilledIter);
-        }
+        forEachComponent(ComponentRegistry.DEBUG_FILLED, debugFilledIter);
         shapeRenderer.end();
 
         // Line
         shapeRenderer.begin(ShapeRenderer.ShapeType.Line);
-        for (GameObject go : gameObjects) {
-            go.__forEachComponent(debugLineIter);
-        }
+        forEachComponent(ComponentRegistry.DEBUG_LINE, debugLineIter);
         shapeRenderer.end();
 
         // Point
         shapeRenderer.begin(ShapeRenderer.ShapeType.Point);
-        for (GameObject go : gameObjects) {
-            go.__forEachComponent(debugPointIter);
-        }
+        forEachComponent(ComponentRegistry.DEBUG_POINT, debugPointIter);
         shapeRenderer.end();
     }
 
@@ -751,10 +1159,13 @@ public class Scene {
     public void __destroy() {
         gameObjects = getGameObjects();
 
+        commandBuffer.__begin();
         for (GameObject go : gameObjects) {
             go.__forEachComponent(destroyIter);
         }
+        commandBuffer.__end();
 
+        setParallelUpdateThreads(0);
         canvas.dispose();
     }
 
@@ -0,0 +1,178 @@
+package io.github.isoteriktech.xgdx;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+
+/**
+ * A SceneCommandBuffer records structural changes (adding and removing {@link GameObject}s and {@link Component}s) that are made
+ * while a {@link Scene} is iterating its game objects and applies them in one batch once the iteration is over.
+ * This makes it safe to spawn or destroy game objects and to attach or detach components from any lifecycle method.
+ * <p>
+ * Every {@link Scene} owns a command buffer; you don't have to create one yourself. Commands are pooled so recording them does not create garbage.
+ *
+ * @author isoteriksoftware
+ */
+public final class SceneCommandBuffer {
+    private final Scene scene;
+
+    private final Array<Command> commands = new Array<>();
+    private final CommandPool commandPool = new CommandPool();
+
+    private int deferDepth;
+    private boolean flushing;
+
+    // The number of commands already applied by the ongoing flush
+    private int applied;
+
+    SceneCommandBuffer(Scene scene) {
+        this.scene = scene;
+    }
+
+    /**
+     * Starts deferring structural changes. Calls can be nested; changes are applied when the outermost call to {@link #__end()} is made.
+     * This method is called internally by the system. DO NOT CALL THIS METHOD!
+     */
+    public void __begin()
+    { deferDepth++; }
+
+    /**
+     * Stops deferring structural changes and applies the recorded commands once every call to {@link #__begin()} has been matched.
+     * This method is called internally by the system. DO NOT CALL THIS METHOD!
+     */
+    public void __end() {
+        if (deferDepth > 0)
+            deferDepth--;
+
+        if (deferDepth == 0)
+            flush();
+    }
+
+    /**
+     *
+     * @return whether structural changes are currently being deferred
+     */
+    public boolean isDeferring()
+    { return deferDepth > 0; }
+
+    /**
+     *
+     * @return the number of commands waiting to be applied
+     */
+    public int getPendingCommandsCount()
+    { return commands.size; }
+
+    void addGameObject(GameObject gameObject, Layer layer)
+    { record(Command.ADD_GAME_OBJECT, gameObject, layer, null); }
+
+    /* Records the removal if the game object is in the layer once the pending commands are applied, just like an immediate removal would */
+    synchronized boolean removeGameObject(GameObject gameObject, Layer layer) {
+        boolean contained = layer.getGameObjects().contains(gameObject, true);
+        for (int i = applied; i < commands.size; i++) {
+            Command command = commands.get(i);
+            if (command.gameObject == gameObject && command.layer == layer)
+                contained = command.type == Command.ADD_GAME_OBJECT;
+        }
+
+        if (!contained)
+            return false;
+
+        record(Command.REMOVE_GAME_OBJECT, gameObject, layer, null);
+        return true;
+    }
+
+    void addComponent(GameObject gameObject, Component component)
+    { record(Command.ADD_COMPONENT, gameObject, null, component); }
+
+    /* Records the removal if the component is attached once the pending commands are applied, just like an immediate removal would */
+    synchronized boolean removeComponent(GameObject gameObject, Component component) {
+        if (component == null)
+            return false;
+
+        boolean contained = gameObject.getComponents().contains(component, true);
+        for (int i = applied; i < commands.size; i++) {
+            Command command = commands.get(i);
+            if (command.gameObject == gameObject && command.component == component)
+                contained = command.type == Command.ADD_COMPONENT;
+        }
+
+        if (!contained)
+            return false;
+
+        record(Command.REMOVE_COMPONENT, gameObject, null, component);
+        return true;
+    }
+
+    // Synchronized because IThreadSafeComponents may record changes from worker threads
+    private synchronized void record(int type, GameObject gameObject, Layer layer, Component component) {
+        Command command = commandPool.obtain();
+        command.type = type;
+        command.gameObject = gameObject;
+        command.layer = layer;
+        command.component = component;
+        commands.add(command);
+    }
+
+    /**
+     * Applies every recorded command in the order they were recorded.
+     * Commands recorded while applying (for example, a component that spawns a game object in {@link Component#start()}) are applied in the same pass.
+     */
+    void flush() {
+        if (flushing)
+            return;
+
+        flushing = true;
+
+        // The size is re-read on every iteration because applying a command may record new ones
+        for (int i = 0; i < commands.size; i++) {
+            Command command = commands.get(i);
+            applied = i + 1;
+
+            switch (command.type) {
+                case Command.ADD_GAME_OBJECT:
+                    scene.addGameObjectImmediately(command.gameObject, command.layer);
+                    break;
+                case Command.REMOVE_GAME_OBJECT:
+                    scene.removeGameObjectImmediately(command.gameObject, command.layer);
+                    break;
+                case Command.ADD_COMPONENT:
+                    command.gameObject.addComponentImmediately(command.component);
+                    break;
+                case Command.REMOVE_COMPONENT:
+                    command.gameObject.removeComponentImmediately(command.component);
+                    break;
+            }
+        }
+
+        commandPool.freeAll(commands);
+        commands.clear();
+
+        applied = 0;
+        flushing = false;
+    }
+
+    private static class Command implements Pool.Poolable {
+        static final int ADD_GAME_OBJECT = 0;
+        static final int REMOVE_GAME_OBJECT = 1;
+        static final int ADD_COMPONENT = 2;
+        static final int REMOVE_COMPONENT = 3;
+
+        int type;
+        GameObject gameObject;
+        Layer layer;
+        Component component;
+
+        @Override
+        public void reset() {
+            gameObject = null;
+            layer = null;
+            component = null;
+        }
+    }
+
+    private static class CommandPool extends Pool<Command> {
+        @Override
+        protected Command newObject() {
+            return new Command();
+        }
+    }
+}
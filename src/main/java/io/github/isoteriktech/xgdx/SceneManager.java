@@ -102,7 +102,7 @@ public final class SceneManager {
      * <strong>DO NOT CALL THIS METHOD!</strong>
      */
     public void __render() {
-        // get delta time and ensure an upper limit of one 60th second
+        // get delta time, XGdx already capped it
         float deltaTime = XGdx.instance().getDeltaTime();
 
         if (nextScene == null) {    // no ongoing transition
@@ -0,0 +1,443 @@
+package io.github.isoteriktech.xgdx;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.StringBuilder;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.badlogic.gdx.utils.reflect.ClassReflection;
+
+import java.util.Arrays;
+
+/**
+ * A SceneProfiler measures how long the lifecycle phases of a {@link Scene} take and how long the components of every class spend in them.
+ * Every {@link Scene} owns a profiler; get it with {@link Scene#getProfiler()}. Profiling is disabled by default and can be toggled at any time
+ * with {@link #setEnabled(boolean)}.
+ * <p>
+ * The time and the number of calls of every section are accumulated over a frame, then kept for a window of recent frames from which rolling averages
+ * and percentiles are computed. Once every component class has been seen, profiling allocates nothing.
+ * <p>
+ * The components updated on worker threads (see {@link IThreadSafeComponent}) are included in the time of the {@link #UPDATE} section but are not
+ * attributed to their classes.
+ *
+ * @author isoteriksoftware
+ */
+public final class SceneProfiler {
+    public static final int PRE_UPDATE        = ComponentRegistry.PRE_UPDATE;
+    public static final int UPDATE            = ComponentRegistry.UPDATE;
+    public static final int POST_UPDATE       = ComponentRegistry.POST_UPDATE;
+    public static final int PRE_RENDER        = ComponentRegistry.PRE_RENDER;
+    public static final int RENDER            = ComponentRegistry.RENDER;
+    public static final int POST_RENDER       = ComponentRegistry.POST_RENDER;
+    public static final int DEBUG_LINE        = ComponentRegistry.DEBUG_LINE;
+    public static final int DEBUG_FILLED      = ComponentRegistry.DEBUG_FILLED;
+    public static final int DEBUG_POINT       = ComponentRegistry.DEBUG_POINT;
+    public static final int FIXED_UPDATE      = ComponentRegistry.FIXED_UPDATE;
+    public static final int WORLD_CANVAS_ACT  = 10;
+    public static final int CANVAS_ACT        = 11;
+    public static final int WORLD_CANVAS_DRAW = 12;
+    public static final int CANVAS_DRAW       = 13;
+    /** The whole of {@link Scene#__update(float)}, including the sections above it. */
+    public static final int SCENE_UPDATE      = 14;
+    /** The whole of {@link Scene#__render()}, including the sections above it. */
+    public static final int SCENE_RENDER      = 15;
+
+    /** The number of sections measured by a profiler. */
+    public static final int SECTIONS_COUNT = 16;
+
+    private static final String[] SECTION_NAMES = {
+            "preUpdate", "update", "postUpdate",
+            "preRender", "render", "postRender",
+            "drawDebugLine", "drawDebugFilled", "drawDebugPoint",
+            "fixedUpdate",
+            "worldCanvas.act", "canvas.act", "worldCanvas.draw", "canvas.draw",
+            "scene.update", "scene.render"
+    };
+
+    private final Timing[] sections = new Timing[SECTIONS_COUNT];
+    private final long[] sectionStarts = new long[SECTIONS_COUNT];
+
+    private final ObjectMap<Class<?>, Timing> componentTimingsByClass = new ObjectMap<>();
+    private final Array<Timing> componentTimings = new Array<>(Timing.class);
+
+    private int windowSize;
+    private int framesCount;
+    private boolean enabled;
+
+    SceneProfiler() {
+        setWindowSize(120);
+    }
+
+    /**
+     * Enables or disables profiling. The measurements taken so far are kept.
+     * @param enabled whether to profile
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        Arrays.fill(sectionStarts, 0);
+    }
+
+    /**
+     *
+     * @return whether profiling is enabled
+     */
+    public boolean isEnabled()
+    { return enabled; }
+
+    /**
+     * Sets the number of recent frames averages and percentiles are computed from. The default is 120.
+     * This clears the measurements taken so far.
+     * @param windowSize the number of frames
+     */
+    public void setWindowSize(int windowSize) {
+        if (windowSize < 1)
+            throw new IllegalArgumentException("The window must contain at least one frame!");
+
+        this.windowSize = windowSize;
+
+        for (int i = 0; i < SECTIONS_COUNT; i++)
+            sections[i] = new Timing(SECTION_NAMES[i], windowSize);
+
+        componentTimingsByClass.clear();
+        componentTimings.clear();
+        framesCount = 0;
+    }
+
+    /**
+     *
+     * @return the number of recent frames averages and percentiles are computed from
+     */
+    public int getWindowSize()
+    { return windowSize; }
+
+    /**
+     * Clears the measurements taken so far.
+     */
+    public void reset()
+    { setWindowSize(windowSize); }
+
+    /**
+     *
+     * @return the number of frames measured since the profiler was created or reset
+     */
+    public int getFramesCount()
+    { return framesCount; }
+
+    /**
+     * Returns the timing of a section.
+     * @param section one of the section constants, for example {@link #UPDATE}
+     * @return the timing of the section
+     */
+    public Timing getSection(int section)
+    { return sections[section]; }
+
+    /**
+     * Returns the timings of the component classes seen so far, in the order they were first seen.
+     * The array is owned by the profiler and must not be modified.
+     * @return the timings of the component classes
+     */
+    public Array<Timing> getComponentTimings()
+    { return componentTimings; }
+
+    /**
+     * Returns the timing of a component class.
+     * @param componentClass the component class
+     * @return the timing of the class or null if no component of that class has been measured
+     */
+    public Timing getComponentTiming(Class<? extends Component> componentClass)
+    { return componentTimingsByClass.get(componentClass); }
+
+    /**
+     * Starts measuring a section.
+     * This method is called internally by the system. DO NOT CALL THIS METHOD!
+     * @param section the section
+     */
+    public void __begin(int section) {
+        if (enabled)
+            sectionStarts[section] = TimeUtils.nanoTime();
+    }
+
+    /**
+     * Stops measuring a section.
+     * This method is called internally by the system. DO NOT CALL THIS METHOD!
+     * @param section the section
+     */
+    public void __end(int section) {
+        long start = sectionStarts[section];
+        if (!enabled || start == 0)
+            return;
+
+        sections[section].add(TimeUtils.nanoTime() - start);
+        sectionStarts[section] = 0;
+    }
+
+    /**
+     * Calls the given iteration listener on every component and measures each call.
+     * This method is called internally by the system. DO NOT CALL THIS METHOD!
+     * @param section the section the components are visited for
+     * @param components the components
+     * @param iterationListener the iteration listener
+     */
+    public void __forEachComponent(int section, Array<Component> components, GameObject.__ComponentIterationListener iterationListener) {
+        __begin(section);
+
+        for (int i = 0, n = components.size; i < n; i++)
+            __visitComponent(components.get(i), iterationListener);
+
+        __end(section);
+    }
+
+    /**
+     * Calls the given iteration listener on a component and measures the call.
+     * This method is called internally by the system. DO NOT CALL THIS METHOD!
+     * @param component the component
+     * @param iterationListener the iteration listener
+     */
+    public void __visitComponent(Component component, GameObject.__ComponentIterationListener iterationListener) {
+        if (!enabled || !component.isEnabled()) {
+            iterationListener.onComponent(component);
+            return;
+        }
+
+        long start = TimeUtils.nanoTime();
+        iterationListener.onComponent(component);
+        long time = TimeUtils.nanoTime() - start;
+
+        Class<?> componentClass = component.getClass();
+        Timing timing = componentTimingsByClass.get(componentClass);
+        if (timing == null) {
+            timing = new Timing(ClassReflection.getSimpleName(componentClass), windowSize);
+            componentTimingsByClass.put(componentClass, timing);
+            componentTimings.add(timing);
+        }
+
+        timing.add(time);
+    }
+
+    /**
+     * Ends the current frame and stores its measurements.
+     * This method is called internally by the system. DO NOT CALL THIS METHOD!
+     */
+    public void __endFrame() {
+        if (!enabled)
+            return;
+
+        for (int i = 0; i < SECTIONS_COUNT; i++)
+            sections[i].commit();
+
+        for (int i = 0, n = componentTimings.size; i < n; i++)
+            componentTimings.get(i).commit();
+
+        framesCount++;
+    }
+
+    /**
+     * Writes the measurements as CSV, one line per section and per component class.
+     * The columns are: kind, name, average calls per frame, then the last, average, 50th, 95th, 99th percentile and maximum time per frame in nanoseconds.
+     * @param out the builder to write to
+     * @return the given builder
+     */
+    public StringBuilder writeCsv(StringBuilder out) {
+        out.append("kind,name,calls,last,avg,p50,p95,p99,max\n");
+
+        for (int i = 0; i < SECTIONS_COUNT; i++)
+            writeCsv(out, "section", sections[i]);
+
+        for (int i = 0, n = componentTimings.size; i < n; i++)
+            writeCsv(out, "component", componentTimings.get(i));
+
+        return out;
+    }
+
+    private void writeCsv(StringBuilder out, String kind, Timing timing) {
+        out.append(kind).append(',')
+                .append(timing.name).append(',')
+                .append(timing.getAverageCalls()).append(',')
+                .append(timing.getLastNanos()).append(',')
+                .append(timing.getAverageNanos()).append(',')
+                .append(timing.getPercentileNanos(0.5f)).append(',')
+                .append(timing.getPercentileNanos(0.95f)).append(',')
+                .append(timing.getPercentileNanos(0.99f)).append(',')
+                .append(timing.getMaxNanos()).append('\n');
+    }
+
+    /**
+     * Writes the measurements as a JSON object with a "sections" and a "components" array. Every entry has the same fields as the columns of {@link #writeCsv(StringBuilder)}.
+     * @param out the builder to write to
+     * @return the given builder
+     */
+    public StringBuilder writeJson(StringBuilder out) {
+        out.append("{\"frames\":").append(framesCount)
+                .append(",\"window\":").append(windowSize)
+                .append(",\"sections\":[");
+
+        for (int i = 0; i < SECTIONS_COUNT; i++) {
+            if (i > 0)
+                out.append(',');
+            writeJson(out, sections[i]);
+        }
+
+        out.append("],\"components\":[");
+        for (int i = 0, n = componentTimings.size; i < n; i++) {
+            if (i > 0)
+                out.append(',');
+            writeJson(out, componentTimings.get(i));
+        }
+
+        return out.append("]}");
+    }
+
+    private void writeJson(StringBuilder out, Timing timing) {
+        out.append("{\"name\":");
+        appendJsonString(out, timing.name);
+        out.append(",\"calls\":").append(timing.getAverageCalls())
+                .append(",\"last\":").append(timing.getLastNanos())
+                .append(",\"avg\":").append(timing.getAverageNanos())
+                .append(",\"p50\":").append(timing.getPercentileNanos(0.5f))
+                .append(",\"p95\":").append(timing.getPercentileNanos(0.95f))
+                .append(",\"p99\":").append(timing.getPercentileNanos(0.99f))
+                .append(",\"max\":").append(timing.getMaxNanos())
+                .append('}');
+    }
+
+    private static void appendJsonString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0, n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\')
+                out.append('\\').append(c);
+            else if (c < 0x20) {
+                out.append("\\u00");
+                out.append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+            }
+            else
+                out.append(c);
+        }
+        out.append('"');
+    }
+
+    /**
+     * Exports the measurements to a file. The format is chosen from the extension of the file: JSON for ".json" and CSV otherwise.
+     * @param file the file to write
+     */
+    public void export(FileHandle file) {
+        StringBuilder out = new StringBuilder();
+        if ("json".equalsIgnoreCase(file.extension()))
+            writeJson(out);
+        else
+            writeCsv(out);
+
+        file.writeString(out.toString(), false);
+    }
+
+    /**
+     * The measurements of a section or of a component class over the recent frames.
+     */
+    public final class Timing {
+        private final String name;
+
+        private final long[] nanos;
+        private final int[] calls;
+        private int head, count;
+        private long nanosSum, callsSum;
+
+        // The window sorted for percentiles. It is sorted again only when a frame was committed since the last sort
+        private final long[] sortedNanos;
+        private boolean sorted;
+
+        // The measurements of the current frame
+        private long frameNanos;
+        private int frameCalls;
+
+        Timing(String name, int windowSize) {
+            this.name = name;
+            nanos = new long[windowSize];
+            calls = new int[windowSize];
+            sortedNanos = new long[windowSize];
+        }
+
+        void add(long time) {
+            frameNanos += time;
+            frameCalls++;
+        }
+
+        void commit() {
+            if (count == nanos.length) {
+                nanosSum -= nanos[head];
+                callsSum -= calls[head];
+            }
+            else
+                count++;
+
+            nanos[head] = frameNanos;
+            calls[head] = frameCalls;
+            nanosSum += frameNanos;
+            callsSum += frameCalls;
+            head = (head + 1) % nanos.length;
+
+            frameNanos = 0;
+            frameCalls = 0;
+            sorted = false;
+        }
+
+        /**
+         *
+         * @return the name of the section or the simple name of the component class
+         */
+        public String getName()
+        { return name; }
+
+        /**
+         *
+         * @return the time spent in the last frame in nanoseconds
+         */
+        public long getLastNanos()
+        { return count == 0 ? 0 : nanos[(head + nanos.length - 1) % nanos.length]; }
+
+        /**
+         *
+         * @return the average time spent per frame in nanoseconds
+         */
+        public long getAverageNanos()
+        { return count == 0 ? 0 : nanosSum / count; }
+
+        /**
+         *
+         * @return the average number of calls per frame
+         */
+        public float getAverageCalls()
+        { return count == 0 ? 0 : (float) callsSum / count; }
+
+        /**
+         *
+         * @return the longest time spent in a frame in nanoseconds
+         */
+        public long getMaxNanos() {
+            long max = 0;
+            for (int i = 0; i < count; i++)
+                max = Math.max(max, nanos[i]);
+
+            return max;
+        }
+
+        /**
+         * Returns the time per frame below which the given fraction of the frames fall, using the nearest-rank method.
+         * The window is sorted once per committed frame, so reading several percentiles of the same frame costs a single sort.
+         * @param percentile the fraction in the range [0, 1], for example 0.95f
+         * @return the percentile in nanoseconds
+         */
+        public long getPercentileNanos(float percentile) {
+            if (count == 0)
+                return 0;
+
+            if (!sorted) {
+                System.arraycopy(nanos, 0, sortedNanos, 0, count);
+                Arrays.sort(sortedNanos, 0, count);
+                sorted = true;
+            }
+
+            int rank = (int) Math.ceil(percentile * count) - 1;
+            return sortedNanos[Math.max(0, Math.min(count - 1, rank))];
+        }
+    }
+}
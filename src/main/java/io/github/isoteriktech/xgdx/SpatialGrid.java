@@ -0,0 +1,399 @@
+package io.github.isoteriktech.xgdx;
+
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IdentityMap;
+import com.badlogic.gdx.utils.LongMap;
+import com.badlogic.gdx.utils.Pool;
+
+/**
+ * A SpatialGrid is a uniform-grid spatial index of the {@link GameObject}s of a {@link Scene}. Every game object is stored in the cells
+ * its bounds (see {@link Transform#getBounds(Rectangle)}) overlap, so area queries only visit the game objects that are near the queried area.
+ * Cells are hashed, so the grid is unbounded and only occupied cells use memory.
+ * <p>
+ * Set a grid on a scene with {@link Scene#setSpatialIndex(ISpatialIndex)}. The scene keeps the grid in sync with its game objects once per frame,
+ * after all components have been updated. Only game objects whose cells change are moved, so static game objects cost a bounds computation per frame.
+ * While a grid is set, the scene renders {@link ICullable} components only when their game objects overlap the view of the main camera.
+ * <p>
+ * Game objects whose bounds span more than {@link #getMaxCellsPerObject()} cells are not stored in cells; they are tested by every query instead.
+ * <p>
+ * Queries add their results to caller-supplied arrays and do not allocate. Results are not in any particular order.
+ *
+ * @see DynamicAABBTree
+ *
+ * @author isoteriksoftware
+ */
+public class SpatialGrid implements ISpatialIndex {
+    private final float cellSize;
+    private final float invCellSize;
+    private int maxCellsPerObject = 256;
+
+    private final LongMap<Array<Entry>> cells = new LongMap<>();
+    private final IdentityMap<GameObject, Entry> entries = new IdentityMap<>();
+
+    // Entries in scene order and entries too large to be stored in cells
+    private final Array<Entry> entryList = new Array<>(false, 16, Entry.class);
+    private final Array<Entry> oversizedEntries = new Array<>(false, 16, Entry.class);
+
+    private final Pool<Entry> entryPool = new Pool<Entry>() {
+        @Override
+        protected Entry newObject() {
+            return new Entry();
+        }
+    };
+
+    private final Pool<Array<Entry>> cellPool = new Pool<Array<Entry>>() {
+        @Override
+        protected Array<Entry> newObject() {
+            return new Array<>(false, 4, Entry.class);
+        }
+    };
+
+    private final Rectangle bounds = new Rectangle();
+
+    private int queryStamp;
+    private boolean dirty = true;
+
+    /**
+     * Creates a new instance.
+     * @param cellSize the size of each cell in world units. A good value is a few times the size of a typical game object
+     */
+    public SpatialGrid(float cellSize) {
+        if (cellSize <= 0)
+            throw new IllegalArgumentException("The cell size must be greater than zero!");
+
+        this.cellSize = cellSize;
+        this.invCellSize = 1f / cellSize;
+    }
+
+    /**
+     *
+     * @return the size of each cell in world units
+     */
+    public float getCellSize()
+    { return cellSize; }
+
+    /**
+     * Sets the maximum number of cells a game object can occupy before it is treated as an oversized game object that is tested by every query.
+     * @param maxCellsPerObject the maximum number of cells
+     */
+    public void setMaxCellsPerObject(int maxCellsPerObject)
+    { this.maxCellsPerObject = Math.max(1, maxCellsPerObject); }
+
+    /**
+     *
+     * @return the maximum number of cells a game object can occupy
+     */
+    public int getMaxCellsPerObject()
+    { return maxCellsPerObject; }
+
+    /**
+     *
+     * @return the number of game objects in this grid
+     */
+    @Override
+    public int size()
+    { return entryList.size; }
+
+    /**
+     *
+     * @return the number of occupied cells
+     */
+    public int getOccupiedCellsCount()
+    { return cells.size; }
+
+    /**
+     * Marks the game objects of this grid as outdated. The grid reconciles its game objects with the scene the next time it is updated.
+     */
+    @Override
+    public void invalidate()
+    { dirty = true; }
+
+    /**
+     *
+     * @return whether the game objects of this grid need to be reconciled with the scene
+     */
+    @Override
+    public boolean isDirty()
+    { return dirty; }
+
+    /**
+     * Adds the game objects that were added to the scene, removes the ones that were removed and moves the ones whose bounds changed cells.
+     * This method is called internally by the system. DO NOT CALL THIS METHOD!
+     * @param gameObjects the game objects of the scene
+     */
+    @Override
+    public void __update(Array<GameObject> gameObjects) {
+        if (dirty)
+            reconcile(gameObjects);
+
+        for (int i = 0, n = entryList.size; i < n; i++)
+            updateEntry(entryList.get(i));
+    }
+
+    /**
+     * Removes every game object from this grid.
+     * This method is called internally by the system. DO NOT CALL THIS METHOD!
+     */
+    @Override
+    public void __clear() {
+        for (LongMap.Entry<Array<Entry>> cell : cells) {
+            cell.value.clear();
+            cellPool.free(cell.value);
+        }
+        cells.clear();
+
+        entryPool.freeAll(entryList);
+        entryList.clear();
+        oversizedEntries.clear();
+        entries.clear();
+        dirty = true;
+    }
+
+    private void reconcile(Array<GameObject> gameObjects) {
+        int stamp = ++queryStamp;
+
+        entryList.clear();
+        for (int i = 0, n = gameObjects.size; i < n; i++) {
+            GameObject gameObject = gameObjects.get(i);
+
+            Entry entry = entries.get(gameObject);
+            if (entry == null) {
+                entry = entryPool.obtain();
+                entry.gameObject = gameObject;
+                entries.put(gameObject, entry);
+            }
+
+            entry.stamp = stamp;
+            entryList.add(entry);
+        }
+
+        // Remove the entries of game objects that left the scene
+        if (entries.size > entryList.size) {
+            for (IdentityMap.Entry<GameObject, Entry> e : entries) {
+                Entry entry = e.value;
+                if (entry.stamp != stamp) {
+                    removeFromCells(entry);
+                    entryPool.free(entry);
+                }
+            }
+
+            entries.clear();
+            for (int i = 0, n = entryList.size; i < n; i++) {
+                Entry entry = entryList.get(i);
+                entries.put(entry.gameObject, entry);
+            }
+        }
+
+        dirty = false;
+    }
+
+    private void updateEntry(Entry entry) {
+        entry.gameObject.transform.getBounds(bounds);
+        entry.minX = bounds.x;
+        entry.minY = bounds.y;
+        entry.maxX = bounds.x + bounds.width;
+        entry.maxY = bounds.y + bounds.height;
+
+        int cellMinX = cellOf(entry.minX);
+        int cellMinY = cellOf(entry.minY);
+        int cellMaxX = cellOf(entry.maxX);
+        int cellMaxY = cellOf(entry.maxY);
+
+        if (entry.inserted && cellMinX == entry.cellMinX && cellMinY == entry.cellMinY &&
+                cellMaxX == entry.cellMaxX && cellMaxY == entry.cellMaxY)
+            return;
+
+        removeFromCells(entry);
+
+        entry.cellMinX = cellMinX;
+        entry.cellMinY = cellMinY;
+        entry.cellMaxX = cellMaxX;
+        entry.cellMaxY = cellMaxY;
+        entry.inserted = true;
+
+        long cellsCount = (long)(cellMaxX - cellMinX + 1) * (cellMaxY - cellMinY + 1);
+        if (cellsCount > maxCellsPerObject) {
+            entry.oversized = true;
+            oversizedEntries.add(entry);
+            return;
+        }
+
+        for (int cx = cellMinX; cx <= cellMaxX; cx++) {
+            for (int cy = cellMinY; cy <= cellMaxY; cy++) {
+                long key = key(cx, cy);
+                Array<Entry> cell = cells.get(key);
+                if (cell == null) {
+                    cell = cellPool.obtain();
+                    cells.put(key, cell);
+                }
+
+                cell.add(entry);
+            }
+        }
+    }
+
+    private void removeFromCells(Entry entry) {
+        if (!entry.inserted)
+            return;
+
+        if (entry.oversized) {
+            oversizedEntries.removeValue(entry, true);
+            entry.oversized = false;
+        }
+        else {
+            for (int cx = entry.cellMinX; cx <= entry.cellMaxX; cx++) {
+                for (int cy = entry.cellMinY; cy <= entry.cellMaxY; cy++) {
+                    long key = key(cx, cy);
+                    Array<Entry> cell = cells.get(key);
+                    if (cell == null)
+                        continue;
+
+                    cell.removeValue(entry, true);
+                    if (cell.size == 0) {
+                        cells.remove(key);
+                        cellPool.free(cell);
+                    }
+                }
+            }
+        }
+
+        entry.inserted = false;
+    }
+
+    /**
+     * Finds the game objects whose bounds overlap a rectangle.
+     * @param x the x coordinate of the bottom-left corner of the rectangle
+     * @param y the y coordinate of the bottom-left corner of the rectangle
+     * @param width the width of the rectangle
+     * @param height the height of the rectangle
+     * @param out the array to add the game objects to
+     * @return the given array
+     */
+    @Override
+    public Array<GameObject> queryRect(float x, float y, float width, float height, Array<GameObject> out) {
+        float maxX = x + width;
+        float maxY = y + height;
+        int stamp = ++queryStamp;
+
+        int cellMinX = cellOf(x), cellMaxX = cellOf(maxX);
+        int cellMinY = cellOf(y), cellMaxY = cellOf(maxY);
+
+        if ((long)(cellMaxX - cellMinX + 1) * (cellMaxY - cellMinY + 1) > cells.size) {
+            // The area covers more cells than are occupied; visiting the occupied cells is cheaper
+            for (LongMap.Entry<Array<Entry>> cell : cells)
+                collect(cell.value, x, y, maxX, maxY, stamp, out);
+        }
+        else {
+            for (int cx = cellMinX; cx <= cellMaxX; cx++) {
+                for (int cy = cellMinY; cy <= cellMaxY; cy++) {
+                    Array<Entry> cell = cells.get(key(cx, cy));
+                    if (cell != null)
+                        collect(cell, x, y, maxX, maxY, stamp, out);
+                }
+            }
+        }
+
+        collect(oversizedEntries, x, y, maxX, maxY, stamp, out);
+        return out;
+    }
+
+    /**
+     * Finds the game objects whose bounds overlap a rectangle.
+     * @param rectangle the rectangle
+     * @param out the array to add the game objects to
+     * @return the given array
+     */
+    public Array<GameObject> queryRect(Rectangle rectangle, Array<GameObject> out)
+    { return queryRect(rectangle.x, rectangle.y, rectangle.width, rectangle.height, out); }
+
+    /**
+     * Finds the game objects whose bounds overlap a circle.
+     * @param x the x coordinate of the center of the circle
+     * @param y the y coordinate of the center of the circle
+     * @param radius the radius of the circle
+     * @param out the array to add the game objects to
+     * @return the given array
+     */
+    @Override
+    public Array<GameObject> queryRadius(float x, float y, float radius, Array<GameObject> out) {
+        int start = out.size;
+        queryRect(x - radius, y - radius, radius * 2, radius * 2, out);
+
+        // Keep only the game objects whose bounds are within the radius
+        float radius2 = radius * radius;
+        for (int i = out.size - 1; i >= start; i--) {
+            Entry entry = entries.get(out.get(i));
+            float dx = x - Math.max(entry.minX, Math.min(x, entry.maxX));
+            float dy = y - Math.max(entry.minY, Math.min(y, entry.maxY));
+
+            if (dx * dx + dy * dy > radius2)
+                out.removeIndex(i);
+        }
+
+        return out;
+    }
+
+    /**
+     * Finds the game objects whose bounds overlap the area seen by a camera on the x and y axes.
+     * <strong>Note:</strong> the camera must be up to date (see {@link Camera#update()}).
+     * @param camera the camera
+     * @param out the array to add the game objects to
+     * @return the given array
+     */
+    @Override
+    public Array<GameObject> queryCameraView(Camera camera, Array<GameObject> out) {
+        Vector3[] points = camera.frustum.planePoints;
+        float minX = points[0].x, minY = points[0].y;
+        float maxX = minX, maxY = minY;
+
+        for (int i = 1; i < points.length; i++) {
+            Vector3 point = points[i];
+            minX = Math.min(minX, point.x);
+            minY = Math.min(minY, point.y);
+            maxX = Math.max(maxX, point.x);
+            maxY = Math.max(maxY, point.y);
+        }
+
+        return queryRect(minX, minY, maxX - minX, maxY - minY, out);
+    }
+
+    private void collect(Array<Entry> candidates, float minX, float minY, float maxX, float maxY, int stamp, Array<GameObject> out) {
+        Entry[] items = candidates.items;
+        for (int i = 0, n = candidates.size; i < n; i++) {
+            Entry entry = items[i];
+            if (entry.stamp == stamp)
+                continue;
+
+            entry.stamp = stamp;
+            if (entry.minX <= maxX && entry.maxX >= minX && entry.minY <= maxY && entry.maxY >= minY)
+                out.add(entry.gameObject);
+        }
+    }
+
+    private int cellOf(float value)
+    { return (int)Math.floor(value * invCellSize); }
+
+    private static long key(int cellX, int cellY)
+    { return ((long)cellX << 32) | (cellY & 0xffffffffL); }
+
+    private static class Entry implements Pool.Poolable {
+        GameObject gameObject;
+
+        float minX, minY, maxX, maxY;
+        int cellMinX, cellMinY, cellMaxX, cellMaxY;
+
+        boolean inserted, oversized;
+        int stamp;
+
+        @Override
+        public void reset() {
+            gameObject = null;
+            inserted = false;
+            oversized = false;
+            stamp = 0;
+        }
+    }
+}
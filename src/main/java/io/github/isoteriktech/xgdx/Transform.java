@@ -1,10 +1,18 @@
 package io.github.isoteriktech.xgdx;
 
 import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.math.Affine2;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
 
 /**
  * The Transform component determines the position, rotation, scale, size and origin of a {@link GameObject}.
+ * <p>
+ * Transforms can be arranged in a hierarchy with {@link #setParent(Transform)}. The position, rotation and scale of a child are then relative
+ * to its parent and the local-to-world transformation is available through {@link #getWorldAffine()} (2D) and {@link #getWorldMatrix()} (3D).
+ * World transformations are cached and only recomputed when a local value of the transform or of one of its ancestors changes.
  *
  * @author isoteriksoftware
  */
@@ -26,6 +34,33 @@ public class Transform extends Component {
 
     protected final Vector3 temp = new Vector3();
 
+    /* The slot of this transform in the scene's TransformStore or -1 if it is not stored */
+    int storeIndex = -1;
+
+    /** The parent of this transform or null if this is a root transform */
+    protected Transform parent;
+
+    /** The transforms parented to this transform */
+    protected final Array<Transform> children = new Array<>(true, 0, Transform.class);
+
+    private static final int DIRTY_AFFINE = 1, DIRTY_MATRIX = 2, DIRTY_ALL = DIRTY_AFFINE | DIRTY_MATRIX;
+
+    // Cached local and world transformations. They are created the first time they are requested
+    private Affine2 localAffine, worldAffine;
+    private Matrix4 localMatrix, worldMatrix;
+    private int dirty = DIRTY_ALL;
+
+    // The local values the cached transformations were computed from.
+    // The vectors are public so changes are detected by comparing against these values.
+    private float lastX, lastY, lastZ;
+    private float lastScaleX = 1, lastScaleY = 1, lastScaleZ = 1;
+    private float lastOriginX, lastOriginY, lastOriginZ;
+    private float lastRotationX, lastRotationY, lastRotationZ;
+
+    // The state of the previous fixed step, used to interpolate the rendered state when interpolation is enabled
+    private boolean interpolated;
+    private float previousX, previousY, previousZ, previousRotation;
+
     /**
      * Creates a new instance.
      */
@@ -231,6 +266,13 @@ public class Transform extends Component {
         return rotation.z;
     }
 
+    /**
+     *
+     * @return the slot of this transform in the {@link TransformStore} of its scene or -1 if the scene does not use a store
+     */
+    public int getStoreIndex()
+    { return storeIndex; }
+
     /**
      * Translates the host game object.
      * @param x change on the x-axis
@@ -255,6 +297,214 @@ public class Transform extends Component {
     public void rotate(float degAngle)
     { this.rotation.z += degAngle; }
 
+    /**
+     * Enables interpolation of the rendered position and rotation when the scene uses a fixed time step (see {@link Scene#setFixedTimeStep(float)}).
+     * The state is then recorded before every fixed step and renderers draw it between the previous and the current state, using
+     * {@link Scene#getInterpolationAlpha()}, so game objects moved in {@link Component#fixedUpdate(float)} move smoothly at any frame rate.
+     * <p>
+     * Only game objects moved in fixed updates should be interpolated; the rendered state lags behind by up to one step.
+     * Interpolation is disabled by default and only applies to root transforms.
+     * @param interpolated whether the rendered state should be interpolated
+     */
+    public void setInterpolated(boolean interpolated) {
+        this.interpolated = interpolated;
+        resetInterpolation();
+    }
+
+    /**
+     *
+     * @return whether the rendered state is interpolated
+     */
+    public boolean isInterpolated()
+    { return interpolated; }
+
+    /**
+     * Discards the state of the previous fixed step so the next frame is rendered at the current state. Call this after teleporting an interpolated
+     * game object to prevent it from being drawn halfway between the old and the new place.
+     */
+    public void resetInterpolation() {
+        previousX = position.x;
+        previousY = position.y;
+        previousZ = position.z;
+        previousRotation = rotation.z;
+    }
+
+    /* Called by the scene before every fixed step */
+    void __beginFixedStep() {
+        if (interpolated)
+            resetInterpolation();
+    }
+
+    /**
+     * Computes the position to render given the fraction of a fixed step that elapsed since the last fixed update.
+     * If interpolation is disabled, this is the current position.
+     * @param alpha the interpolation alpha (see {@link Scene#getInterpolationAlpha()})
+     * @param out the vector to store the position in
+     * @return the given vector
+     */
+    public Vector3 getInterpolatedPosition(float alpha, Vector3 out) {
+        if (!interpolated)
+            return out.set(position);
+
+        return out.set(previousX + (position.x - previousX) * alpha,
+                previousY + (position.y - previousY) * alpha,
+                previousZ + (position.z - previousZ) * alpha);
+    }
+
+    /**
+     * Computes the rotation around the z-axis to render given the fraction of a fixed step that elapsed since the last fixed update.
+     * If interpolation is disabled, this is the current rotation.
+     * @param alpha the interpolation alpha (see {@link Scene#getInterpolationAlpha()})
+     * @return the rotation around the z-axis
+     */
+    public float getInterpolatedRotation(float alpha) {
+        if (!interpolated)
+            return rotation.z;
+
+        return previousRotation + (rotation.z - previousRotation) * alpha;
+    }
+
+    /**
+     * Parents this transform to another transform. The position, rotation and scale of this transform become relative to the parent.
+     * The local values are kept as they are, so the world transformation of this transform changes.
+     * <p>
+     * <strong>Note:</strong> removing a game object from the scene does not break its hierarchy. Do not call this from the
+     * {@link Component#update(float)} of an {@link IThreadSafeComponent}.
+     * @param parent the new parent or null to make this a root transform
+     * @throws IllegalArgumentException if the parent is this transform or one of its descendants
+     */
+    public void setParent(Transform parent) {
+        if (parent == this.parent)
+            return;
+
+        for (Transform t = parent; t != null; t = t.parent) {
+            if (t == this)
+                throw new IllegalArgumentException("A Transform cannot be parented to itself or to one of its descendants!");
+        }
+
+        if (this.parent != null)
+            this.parent.children.removeValue(this, true);
+
+        this.parent = parent;
+        if (parent != null)
+            parent.children.add(this);
+
+        markDirty();
+
+        // Parallel updates keep every hierarchy on a single thread
+        if (scene != null)
+            scene.getComponentRegistry().invalidateHierarchies();
+    }
+
+    /**
+     *
+     * @return the parent of this transform or null if this is a root transform
+     */
+    public Transform getParent()
+    { return parent; }
+
+    /**
+     * <strong>Note:</strong> the returned array is owned by this transform and must not be modified. Use {@link #setParent(Transform)} instead.
+     * @return the transforms parented to this transform
+     */
+    public Array<Transform> getChildren()
+    { return children; }
+
+    /**
+     * Marks the world transformation of this transform and of all its descendants as outdated.
+     * Changes to the local values are detected automatically, so this is rarely needed.
+     */
+    public void markDirty() {
+        // If this transform is fully dirty then so are its descendants
+        if (dirty == DIRTY_ALL)
+            return;
+
+        dirty = DIRTY_ALL;
+        for (int i = 0; i < children.size; i++)
+            children.get(i).markDirty();
+    }
+
+    /**
+     * Returns the 2D local-to-world transformation of this transform. It maps the local space of the host game object, where the game object spans
+     * from (0, 0) to ({@link #getWidth()}, {@link #getHeight()}), to world space. Rotation and scaling are applied around the origin.
+     * <strong>Note:</strong> the returned instance is cached and must not be modified.
+     * @return the 2D local-to-world transformation
+     */
+    public Affine2 getWorldAffine() {
+        validate();
+        return computeWorldAffine();
+    }
+
+    private Affine2 computeWorldAffine() {
+        if ((dirty & DIRTY_AFFINE) != 0) {
+            if (localAffine == null) {
+                localAffine = new Affine2();
+                worldAffine = new Affine2();
+            }
+
+            localAffine.setToTrnRotScl(position.x + origin.x, position.y + origin.y, getRotation(), scale.x, scale.y)
+                    .translate(-origin.x, -origin.y);
+
+            if (parent != null)
+                worldAffine.set(parent.computeWorldAffine()).mul(localAffine);
+            else
+                worldAffine.set(localAffine);
+
+            dirty &= ~DIRTY_AFFINE;
+        }
+
+        return worldAffine;
+    }
+
+    /**
+     * Returns the 3D local-to-world transformation of this transform.
+     * <strong>Note:</strong> the returned instance is cached and must not be modified.
+     * @return the 3D local-to-world transformation
+     */
+    public Matrix4 getWorldMatrix() {
+        validate();
+        return computeWorldMatrix();
+    }
+
+    private Matrix4 computeWorldMatrix() {
+        if ((dirty & DIRTY_MATRIX) != 0) {
+            if (localMatrix == null) {
+                localMatrix = new Matrix4();
+                worldMatrix = new Matrix4();
+            }
+
+            localMatrix.setFromEulerAngles(getRotationZ(), getRotationY(), getRotationX())
+                    .trn(position).scl(scale);
+
+            if (parent != null)
+                worldMatrix.set(parent.computeWorldMatrix()).mul(localMatrix);
+            else
+                worldMatrix.set(localMatrix);
+
+            dirty &= ~DIRTY_MATRIX;
+        }
+
+        return worldMatrix;
+    }
+
+    /* Detects changes made to the local values of this transform and its ancestors and propagates them down the tree */
+    private void validate() {
+        if (parent != null)
+            parent.validate();
+
+        if (lastX != position.x || lastY != position.y || lastZ != position.z ||
+                lastScaleX != scale.x || lastScaleY != scale.y || lastScaleZ != scale.z ||
+                lastOriginX != origin.x || lastOriginY != origin.y || lastOriginZ != origin.z ||
+                lastRotationX != rotation.x || lastRotationY != rotation.y || lastRotationZ != rotation.z) {
+            lastX = position.x; lastY = position.y; lastZ = position.z;
+            lastScaleX = scale.x; lastScaleY = scale.y; lastScaleZ = scale.z;
+            lastOriginX = origin.x; lastOriginY = origin.y; lastOriginZ = origin.z;
+            lastRotationX = rotation.x; lastRotationY = rotation.y; lastRotationZ = rotation.z;
+
+            markDirty();
+        }
+    }
+
     /**
      *
      * @return the diagonal of the host game object
@@ -271,6 +521,31 @@ public class Transform extends Component {
                 Math.pow(h * scaleY, 2f) + Math.pow(d * scaleZ, 2f));
     }
 
+    /**
+     * Computes the axis-aligned bounds of the host game object in world space on the x and y axes.
+     * Rotation, scale and the transformations of the parents are taken into account.
+     * @param out the rectangle to store the bounds in
+     * @return the given rectangle
+     */
+    public Rectangle getBounds(Rectangle out) {
+        Affine2 world = getWorldAffine();
+        float w = size.x;
+        float h = size.y;
+
+        // Transform the four corners of the local rectangle
+        float x0 = world.m02, y0 = world.m12;
+        float x1 = world.m00 * w + world.m02, y1 = world.m10 * w + world.m12;
+        float x2 = world.m00 * w + world.m01 * h + world.m02, y2 = world.m10 * w + world.m11 * h + world.m12;
+        float x3 = world.m01 * h + world.m02, y3 = world.m11 * h + world.m12;
+
+        float minX = Math.min(Math.min(x0, x1), Math.min(x2, x3));
+        float minY = Math.min(Math.min(y0, y1), Math.min(y2, y3));
+        float maxX = Math.max(Math.max(x0, x1), Math.max(x2, x3));
+        float maxY = Math.max(Math.max(y0, y1), Math.max(y2, y3));
+
+        return out.set(minX, minY, maxX - minX, maxY - minY);
+    }
+
     /**
      * Determines whether the transform is currently within a visible area of a given camera.
      * @param camera the camera
@@ -284,9 +559,22 @@ public class Transform extends Component {
         float h = size.y;
         float d = size.z;
 
-        temp.set(x + w * .5f, y + h *.5f, z + d * .5f);
+        if (parent == null) {
+            temp.set(x + w * .5f, y + h *.5f, z + d * .5f);
+            return camera.frustum.sphereInFrustum(temp,
+                    calcDiagonal() * .5f);
+        }
+
+        // Use the world center and account for the scale of the ancestors
+        Affine2 world = getWorldAffine();
+        Affine2 parentWorld = parent.computeWorldAffine();
+        float parentScale = (float)Math.sqrt(Math.max(parentWorld.m00 * parentWorld.m00 + parentWorld.m10 * parentWorld.m10,
+                parentWorld.m01 * parentWorld.m01 + parentWorld.m11 * parentWorld.m11));
+
+        temp.set(world.m00 * w * .5f + world.m01 * h * .5f + world.m02,
+                world.m10 * w * .5f + world.m11 * h * .5f + world.m12, z + d * .5f);
         return camera.frustum.sphereInFrustum(temp,
-                calcDiagonal() * .5f);
+                calcDiagonal() * .5f * parentScale);
     }
 
     @Override
@@ -0,0 +1,191 @@
+package io.github.isoteriktech.xgdx;
+
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * A TransformStore keeps the position, scale, size, origin and rotation of every {@link Transform} of a {@link Scene} in contiguous
+ * structure-of-arrays {@code float[]} columns. Systems that need to process many transforms (culling, batching, spatial queries) can sweep
+ * these columns linearly instead of chasing five {@link Vector3} references per transform.
+ * <p>
+ * The store is a read-only mirror: the {@link Transform} fields remain the source of truth and keep working exactly as before.
+ * The scene copies every transform into the store once per frame, after all components have been updated. The slot of a transform is given by
+ * {@link Transform#getStoreIndex()}; slots follow the order in which the scene processes its game objects.
+ * <p>
+ * Enable it with {@link Scene#setTransformStoreEnabled(boolean)}.
+ *
+ * @author isoteriksoftware
+ */
+public final class TransformStore {
+    private Transform[] transforms = new Transform[0];
+
+    private float[] positionX, positionY, positionZ;
+    private float[] scaleX, scaleY, scaleZ;
+    private float[] sizeX, sizeY, sizeZ;
+    private float[] originX, originY, originZ;
+    private float[] rotationX, rotationY, rotationZ;
+
+    private int size;
+    private boolean dirty = true;
+
+    TransformStore() {
+        allocate(64);
+    }
+
+    private void allocate(int capacity) {
+        Transform[] newTransforms = new Transform[capacity];
+        System.arraycopy(transforms, 0, newTransforms, 0, Math.min(size, transforms.length));
+        transforms = newTransforms;
+
+        positionX = new float[capacity]; positionY = new float[capacity]; positionZ = new float[capacity];
+        scaleX    = new float[capacity]; scaleY    = new float[capacity]; scaleZ    = new float[capacity];
+        sizeX     = new float[capacity]; sizeY     = new float[capacity]; sizeZ     = new float[capacity];
+        originX   = new float[capacity]; originY   = new float[capacity]; originZ   = new float[capacity];
+        rotationX = new float[capacity]; rotationY = new float[capacity]; rotationZ = new float[capacity];
+    }
+
+    /**
+     * Marks the slots of this store as outdated. They are reassigned the next time the store is synced.
+     */
+    public void invalidate()
+    { dirty = true; }
+
+    /**
+     * Reassigns the slots if needed and copies the current values of every transform into the columns.
+     * This method is called internally by the system. DO NOT CALL THIS METHOD!
+     * @param gameObjects the game objects of the scene in processing order
+     */
+    public void __sync(Array<GameObject> gameObjects) {
+        if (dirty)
+            assignSlots(gameObjects);
+
+        for (int i = 0; i < size; i++) {
+            Transform transform = transforms[i];
+
+            Vector3 v = transform.position;
+            positionX[i] = v.x; positionY[i] = v.y; positionZ[i] = v.z;
+
+            v = transform.scale;
+            scaleX[i] = v.x; scaleY[i] = v.y; scaleZ[i] = v.z;
+
+            v = transform.size;
+            sizeX[i] = v.x; sizeY[i] = v.y; sizeZ[i] = v.z;
+
+            v = transform.origin;
+            originX[i] = v.x; originY[i] = v.y; originZ[i] = v.z;
+
+            v = transform.rotation;
+            rotationX[i] = v.x; rotationY[i] = v.y; rotationZ[i] = v.z;
+        }
+    }
+
+    private void assignSlots(Array<GameObject> gameObjects) {
+        // Release the previous slots
+        for (int i = 0; i < size; i++) {
+            transforms[i].storeIndex = -1;
+            transforms[i] = null;
+        }
+
+        size = 0;
+        if (gameObjects.size > transforms.length)
+            allocate(Math.max(gameObjects.size, (int)(transforms.length * 1.75f)));
+
+        for (int i = 0, n = gameObjects.size; i < n; i++) {
+            Transform transform = gameObjects.get(i).transform;
+            transform.storeIndex = size;
+            transforms[size++] = transform;
+        }
+
+        dirty = false;
+    }
+
+    /**
+     * Detaches every transform from this store.
+     * This method is called internally by the system. DO NOT CALL THIS METHOD!
+     */
+    public void __clear() {
+        for (int i = 0; i < size; i++) {
+            transforms[i].storeIndex = -1;
+            transforms[i] = null;
+        }
+
+        size = 0;
+        dirty = true;
+    }
+
+    /**
+     *
+     * @return the number of transforms in this store
+     */
+    public int size()
+    { return size; }
+
+    /**
+     * @param index the slot
+     * @return the transform stored at the given slot
+     */
+    public Transform getTransform(int index)
+    { return transforms[index]; }
+
+    /* The columns. Only the first size() entries are valid. They must not be modified. */
+
+    /** @return the x positions. Only the first {@link #size()} entries are valid */
+    public float[] getPositionX()
+    { return positionX; }
+
+    /** @return the y positions. Only the first {@link #size()} entries are valid */
+    public float[] getPositionY()
+    { return positionY; }
+
+    /** @return the z positions. Only the first {@link #size()} entries are valid */
+    public float[] getPositionZ()
+    { return positionZ; }
+
+    /** @return the x scales. Only the first {@link #size()} entries are valid */
+    public float[] getScaleX()
+    { return scaleX; }
+
+    /** @return the y scales. Only the first {@link #size()} entries are valid */
+    public float[] getScaleY()
+    { return scaleY; }
+
+    /** @return the z scales. Only the first {@link #size()} entries are valid */
+    public float[] getScaleZ()
+    { return scaleZ; }
+
+    /** @return the widths. Only the first {@link #size()} entries are valid */
+    public float[] getSizeX()
+    { return sizeX; }
+
+    /** @return the heights. Only the first {@link #size()} entries are valid */
+    public float[] getSizeY()
+    { return sizeY; }
+
+    /** @return the depths. Only the first {@link #size()} entries are valid */
+    public float[] getSizeZ()
+    { return sizeZ; }
+
+    /** @return the x origins. Only the first {@link #size()} entries are valid */
+    public float[] getOriginX()
+    { return originX; }
+
+    /** @return the y origins. Only the first {@link #size()} entries are valid */
+    public float[] getOriginY()
+    { return originY; }
+
+    /** @return the z origins. Only the first {@link #size()} entries are valid */
+    public float[] getOriginZ()
+    { return originZ; }
+
+    /** @return the rotations around the x-axis. Only the first {@link #size()} entries are valid */
+    public float[] getRotationX()
+    { return rotationX; }
+
+    /** @return the rotations around the y-axis. Only the first {@link #size()} entries are valid */
+    public float[] getRotationY()
+    { return rotationY; }
+
+    /** @return the rotations around the z-axis. Only the first {@link #size()} entries are valid */
+    public float[] getRotationZ()
+    { return rotationZ; }
+}
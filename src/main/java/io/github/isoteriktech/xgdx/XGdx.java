@@ -5,6 +5,7 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Graphics;
 import io.github.isoteriktech.xgdx.audio.AudioManager;
 import io.github.isoteriktech.xgdx.input.InputManager;
+import io.github.isoteriktech.xgdx.input.InputReplay;
 import io.github.isoteriktech.xgdx.asset.GameAssetsLoader;
 import io.github.isoteriktech.xgdx.x2d.scenes.transition.ISceneTransition;
 
@@ -37,6 +38,7 @@ public final class XGdx {
     public final DefaultSettings defaultSettings;
 
     private float deltaTime;
+    private float fixedDeltaTime;
 
     /**
      * Initializes MinGDX.
@@ -120,10 +122,35 @@ public final class XGdx {
      */
     public void __render()
     {
-        deltaTime = Math.min(Gdx.graphics.getDeltaTime(),   1.0f / 60.0f);
+        InputReplay replay = getCurrentReplay();
+
+        if (fixedDeltaTime > 0)
+            deltaTime = fixedDeltaTime;
+        else if (replay != null && !replay.isFinished())
+            deltaTime = replay.peekDeltaTime();
+        else
+            deltaTime = Math.min(Gdx.graphics.getDeltaTime(), getMaxDeltaTime());
+        assets.__update();
         sceneManager.__render();
     }
 
+    /* The replay attached to the input of the current scene, if any */
+    private InputReplay getCurrentReplay() {
+        Scene scene = sceneManager.getCurrentScene();
+        return scene != null ? scene.getInput().getReplay() : null;
+    }
+
+    /* A scene with a fixed time step catches up on slow frames by itself, up to its maximum number of steps per frame */
+    private float getMaxDeltaTime() {
+        float maxDeltaTime = 1.0f / 60.0f;
+
+        Scene scene = sceneManager.getCurrentScene();
+        if (scene != null && scene.getFixedTimeStep() > 0)
+            maxDeltaTime = Math.max(maxDeltaTime, scene.getFixedTimeStep() * scene.getMaxFixedStepsPerFrame());
+
+        return maxDeltaTime;
+    }
+
     /**
      * Called when the application is getting destroyed.
      * DO NOT CALL THIS METHOD
@@ -140,6 +167,24 @@ public final class XGdx {
     public float getDeltaTime()
     { return deltaTime; }
 
+    /**
+     * Makes every frame use the same delta time instead of the time measured by libGDX. This makes frames reproducible, for example
+     * to benchmark a scene on the headless backend.
+     * <p>
+     * When the input of the current scene replays a recording ({@link InputManager#setReplay(InputReplay)}) and no fixed delta time is set,
+     * every frame uses the delta time recorded for the frame being replayed.
+     * @param fixedDeltaTime the delta time of every frame in seconds, or 0 to measure it again
+     */
+    public void setFixedDeltaTime(float fixedDeltaTime)
+    { this.fixedDeltaTime = fixedDeltaTime; }
+
+    /**
+     *
+     * @return the delta time of every frame or 0 if it is measured
+     */
+    public float getFixedDeltaTime()
+    { return fixedDeltaTime; }
+
     /**
      * This class defines default settings for some features of xgdx. The settings can always be changed.
      *
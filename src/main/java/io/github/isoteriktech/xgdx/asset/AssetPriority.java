@@ -0,0 +1,17 @@
+package io.github.isoteriktech.xgdx.asset;
+
+/**
+ * The priority of an asset streamed with {@link AssetStreamer}. Requests are loaded in order of priority, and in the order they were made within a priority.
+ *
+ * @author isoteriksoftware
+ */
+public enum AssetPriority {
+	/** Needed before the scene can be shown. Critical assets are loaded with the largest frame budget */
+	CRITICAL,
+
+	/** Needed shortly, like the textures of the area around the camera */
+	VISIBLE_SOON,
+
+	/** Needed eventually, like music and the textures of later areas */
+	BACKGROUND
+}
@@ -0,0 +1,135 @@
+package io.github.isoteriktech.xgdx.asset;
+
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * The pending result of an asset streamed with {@link AssetStreamer}. Poll it with {@link #isDone()} or add listeners to be notified when it completes.
+ * @param <T> the type of the asset
+ *
+ * @author isoteriksoftware
+ */
+public class AssetRequest<T> {
+	/** The state of a request */
+	public enum State { QUEUED, LOADING, LOADED, FAILED }
+
+	protected final String path;
+	protected final Class<T> type;
+	protected AssetPriority priority;
+
+	protected State state = State.QUEUED;
+	protected T asset;
+	protected Throwable error;
+
+	private final Array<IAssetListener<T>> listeners = new Array<>(1);
+
+	AssetRequest(String path, Class<T> type, AssetPriority priority) {
+		this.path = path;
+		this.type = type;
+		this.priority = priority;
+	}
+
+	/**
+	 *
+	 * @return the path to the asset file
+	 */
+	public String getPath()
+	{ return path; }
+
+	/**
+	 *
+	 * @return the class of the asset
+	 */
+	public Class<T> getType()
+	{ return type; }
+
+	/**
+	 *
+	 * @return the priority of the request. It is raised when the same asset is requested again with a higher priority
+	 */
+	public AssetPriority getPriority()
+	{ return priority; }
+
+	/**
+	 *
+	 * @return the state of the request
+	 */
+	public State getState()
+	{ return state; }
+
+	/**
+	 *
+	 * @return true if the asset is loaded or failed to load
+	 */
+	public boolean isDone()
+	{ return state == State.LOADED || state == State.FAILED; }
+
+	/**
+	 *
+	 * @return true if the asset is loaded
+	 */
+	public boolean isLoaded()
+	{ return state == State.LOADED; }
+
+	/**
+	 *
+	 * @return true if the asset failed to load
+	 */
+	public boolean isFailed()
+	{ return state == State.FAILED; }
+
+	/**
+	 *
+	 * @return the cause of the failure or null if the asset did not fail to load
+	 */
+	public Throwable getError()
+	{ return error; }
+
+	/**
+	 * Gets the loaded asset. The asset is managed by {@link GameAssetsLoader}; unload it from there when it is no longer needed.
+	 * @return the asset
+	 * @throws IllegalStateException if the asset is not loaded
+	 */
+	public T getAsset() {
+		if (state != State.LOADED)
+			throw new IllegalStateException("The asset " + path + " is not loaded!");
+
+		return asset;
+	}
+
+	/**
+	 * Adds a listener. If the request is already done, the listener is invoked immediately.
+	 * @param listener the listener
+	 * @return this request for chaining
+	 */
+	public AssetRequest<T> addListener(IAssetListener<T> listener) {
+		if (state == State.LOADED)
+			listener.onLoaded(this, asset);
+		else if (state == State.FAILED)
+			listener.onFailed(this, error);
+		else
+			listeners.add(listener);
+
+		return this;
+	}
+
+	boolean hasListeners()
+	{ return listeners.size > 0; }
+
+	void complete(T asset) {
+		this.asset = asset;
+		state = State.LOADED;
+
+		for (IAssetListener<T> listener : listeners)
+			listener.onLoaded(this, asset);
+		listeners.clear();
+	}
+
+	void fail(Throwable error) {
+		this.error = error;
+		state = State.FAILED;
+
+		for (IAssetListener<T> listener : listeners)
+			listener.onFailed(this, error);
+		listeners.clear();
+	}
+}
@@ -0,0 +1,283 @@
+package io.github.isoteriktech.xgdx.asset;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.Queue;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.badlogic.gdx.utils.async.ThreadUtils;
+
+/**
+ * Streams assets with priorities, loading them a little every frame so a scene can start rendering while less important assets are still loading.
+ * Every request returns an {@link AssetRequest} that can be polled or listened to.
+ * <p>
+ * One asset is handed to the {@link AssetManager} at a time, always the oldest request of the highest priority. A critical request made while a background
+ * asset is loading only waits for that asset. The time spent loading per frame adapts to the measured frame time: the budget grows slowly while
+ * frames meet the target frame time and is halved when a frame misses it. While critical requests are pending the maximum budget is used.
+ * <p>
+ * Assets enqueued directly with {@link GameAssetsLoader} share the same {@link AssetManager} and are loaded before the streamed asset that follows them.
+ * The streamer is updated every frame by {@link GameAssetsLoader}; there is no need to call {@link #update()} yourself.
+ *
+ * @author isoteriksoftware
+ */
+public class AssetStreamer {
+	protected final AssetManager assetManager;
+
+	private final Queue<AssetRequest<?>>[] pending;
+	private final ObjectMap<String, AssetRequest<?>> requests = new ObjectMap<>();
+	private AssetRequest<?> loading;
+
+	protected float targetFrameTime = 1 / 60f;
+	protected float minBudget = 1, maxBudget = 8;
+	protected float budgetStep = 0.5f;
+
+	private float budget = minBudget;
+	private long lastUpdateTime;
+
+	/**
+	 * Creates a new streamer.
+	 * @param assetManager the asset manager that loads the assets
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public AssetStreamer(AssetManager assetManager) {
+		this.assetManager = assetManager;
+
+		// Generic arrays cannot be created; every element is a Queue<AssetRequest<?>> created below
+		pending = new Queue[AssetPriority.values().length];
+		for (int i = 0; i < pending.length; i++)
+			pending[i] = new Queue<>();
+	}
+
+	/**
+	 * Requests an asset. If the asset is already requested and not loaded yet, the existing request is returned and its priority raised if needed;
+	 * the asset is loaded once. Otherwise the asset is loaded even if it was loaded before, which increments its reference count like
+	 * {@link AssetManager#load(String, Class)}.
+	 * @param path the path to the asset file
+	 * @param type the class of the asset
+	 * @param priority the priority of the request
+	 * @param <T> the type of the asset
+	 * @return the request
+	 * @throws IllegalArgumentException if the asset is already requested with another type
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> AssetRequest<T> load(String path, Class<T> type, AssetPriority priority) {
+		AssetRequest<?> existing = requests.get(path);
+		if (existing != null) {
+			if (existing.type != type)
+				throw new IllegalArgumentException("The asset " + path + " is already requested as " + existing.type.getSimpleName());
+
+			if (priority.ordinal() < existing.priority.ordinal()) {
+				if (existing.state == AssetRequest.State.QUEUED) {
+					pending[existing.priority.ordinal()].removeValue(existing, true);
+					pending[priority.ordinal()].addLast(existing);
+				}
+				existing.priority = priority;
+			}
+
+			return (AssetRequest<T>)existing;
+		}
+
+		AssetRequest<T> request = new AssetRequest<>(path, type, priority);
+		requests.put(path, request);
+		pending[priority.ordinal()].addLast(request);
+		return request;
+	}
+
+	/**
+	 * Requests an asset and listens to its request. See {@link #load(String, Class, AssetPriority)}.
+	 * @param path the path to the asset file
+	 * @param type the class of the asset
+	 * @param priority the priority of the request
+	 * @param listener the listener of the request
+	 * @param <T> the type of the asset
+	 * @return the request
+	 */
+	public <T> AssetRequest<T> load(String path, Class<T> type, AssetPriority priority, IAssetListener<T> listener)
+	{ return load(path, type, priority).addListener(listener); }
+
+	/**
+	 *
+	 * @return the number of requests that are not done yet
+	 */
+	public int getPendingCount()
+	{ return requests.size; }
+
+	/**
+	 *
+	 * @param priority the priority
+	 * @return the number of requests of the given priority that are not done yet
+	 */
+	public int getPendingCount(AssetPriority priority) {
+		int count = pending[priority.ordinal()].size;
+		if (loading != null && loading.priority == priority)
+			count++;
+
+		return count;
+	}
+
+	/**
+	 *
+	 * @return true if every request is done
+	 */
+	public boolean isIdle()
+	{ return requests.size == 0; }
+
+	/**
+	 * Sets the frame time that the budget adapts to. The default is a 60th of a second.
+	 * @param targetFrameTime the target frame time in seconds
+	 */
+	public void setTargetFrameTime(float targetFrameTime)
+	{ this.targetFrameTime = targetFrameTime; }
+
+	/**
+	 * Sets the range of the time spent loading per frame. The defaults are 1 and 8 milliseconds.
+	 * A request may run over the budget when it is handed to the {@link AssetManager} or while its synchronous part, like uploading a texture, runs.
+	 * @param minBudget the minimum time in milliseconds
+	 * @param maxBudget the maximum time in milliseconds, used while critical requests are pending
+	 */
+	public void setBudgetRange(float minBudget, float maxBudget) {
+		if (minBudget < 0 || maxBudget < minBudget)
+			throw new IllegalArgumentException("Invalid budget range [" + minBudget + ", " + maxBudget + "]");
+
+		this.minBudget = minBudget;
+		this.maxBudget = maxBudget;
+		budget = Math.max(minBudget, Math.min(maxBudget, budget));
+	}
+
+	/**
+	 *
+	 * @return the current time spent loading per frame in milliseconds when no critical request is pending
+	 */
+	public float getBudget()
+	{ return budget; }
+
+	/**
+	 * Loads for this frame, within the adaptive budget. This is called every frame by {@link GameAssetsLoader}.
+	 */
+	public void update() {
+		if (isIdle()) {
+			// The next frame time measured would include the idle period
+			lastUpdateTime = 0;
+			return;
+		}
+
+		long now = TimeUtils.nanoTime();
+		if (lastUpdateTime != 0) {
+			float frameTime = (now - lastUpdateTime) / 1000000000f;
+			if (frameTime > targetFrameTime * 1.1f)
+				budget = Math.max(minBudget, budget * 0.5f);
+			else
+				budget = Math.min(maxBudget, budget + budgetStep);
+		}
+		lastUpdateTime = now;
+
+		float millis = pending[AssetPriority.CRITICAL.ordinal()].size > 0 ||
+				(loading != null && loading.priority == AssetPriority.CRITICAL) ? maxBudget : budget;
+		update(millis);
+	}
+
+	/**
+	 * Loads for at most the given time; the asset being loaded may run a little over.
+	 * @param millis the time in milliseconds
+	 * @return true if every request is done
+	 */
+	public boolean update(float millis) {
+		long start = TimeUtils.nanoTime();
+		long budgetNanos = (long)(millis * 1000000L);
+
+		do {
+			if (loading == null && !loadNext())
+				break;
+
+			step();
+		} while (TimeUtils.nanoTime() - start < budgetNanos);
+
+		return isIdle();
+	}
+
+	/**
+	 * Blocks until every request of the given priority and higher is done. An asset of lower priority that is being loaded is finished first.
+	 * @param priority the lowest priority to finish
+	 */
+	public void finishLoading(AssetPriority priority) {
+		while (loading != null || hasPending(priority)) {
+			if (loading == null)
+				loadNext();
+
+			step();
+			if (loading != null)
+				ThreadUtils.yield();
+		}
+	}
+
+	private boolean hasPending(AssetPriority priority) {
+		for (int i = 0; i <= priority.ordinal(); i++) {
+			if (pending[i].size > 0)
+				return true;
+		}
+
+		return false;
+	}
+
+	/* Hands the next request to the asset manager. Returns false if there is none */
+	private boolean loadNext() {
+		for (Queue<AssetRequest<?>> queue : pending) {
+			if (queue.size == 0)
+				continue;
+
+			AssetRequest<?> request = queue.removeFirst();
+			request.state = AssetRequest.State.LOADING;
+			loading = request;
+
+			try {
+				assetManager.load(request.path, request.type);
+			} catch (GdxRuntimeException e) {
+				// The asset is already loaded with another type
+				fail(request, e);
+			}
+			return true;
+		}
+
+		return false;
+	}
+
+	private void step() {
+		AssetRequest<?> request = loading;
+		if (request == null)
+			return;
+
+		try {
+			assetManager.update();
+		} catch (GdxRuntimeException e) {
+			// Failures of assets enqueued directly in the asset manager are not ours to handle
+			if (assetManager.contains(request.path))
+				throw e;
+
+			fail(request, e.getCause() != null ? e.getCause() : e);
+			return;
+		}
+
+		if (assetManager.isLoaded(request.path, request.type))
+			complete(request);
+		else if (!assetManager.contains(request.path))
+			fail(request, new GdxRuntimeException("Couldn't load asset: " + request.path));
+	}
+
+	private <T> void complete(AssetRequest<T> request) {
+		loading = null;
+		requests.remove(request.path);
+		request.complete(assetManager.get(request.path, request.type));
+	}
+
+	private void fail(AssetRequest<?> request, Throwable error) {
+		loading = null;
+		requests.remove(request.path);
+
+		// Without listeners the failure would go unnoticed until the request is polled
+		if (!request.hasListeners() && Gdx.app != null)
+			Gdx.app.error("AssetStreamer", "Couldn't load asset: " + request.path, error);
+
+		request.fail(error);
+	}
+}
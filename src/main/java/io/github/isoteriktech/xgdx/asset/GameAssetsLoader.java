@@ -9,8 +9,10 @@ import com.badlogic.gdx.assets.loaders.resolvers.InternalFileHandleResolver;
 import com.badlogic.gdx.audio.Music;
 import com.badlogic.gdx.audio.Sound;
 import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.PixmapPacker;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.maps.tiled.TiledMap;
@@ -19,6 +21,11 @@ import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.scenes.scene2d.utils.Drawable;
 import com.badlogic.gdx.scenes.scene2d.utils.NinePatchDrawable;
 import com.badlogic.gdx.scenes.scene2d.utils.TextureRegionDrawable;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.badlogic.gdx.utils.async.AsyncTask;
 
 /**
  * For loading and managing game assets. This class uses {@link AssetManager} internally for handling assets.
@@ -31,6 +38,20 @@ public final class GameAssetsLoader {
     
 	protected boolean loadAssetsInBackground;
 	protected Runnable onLoadAssets;
+
+	/* Loose textures waiting to be packed and the regions of the packed ones */
+	protected final Array<String> texturesToPack = new Array<>();
+	protected final ObjectMap<String, TextureRegion> packedRegions = new ObjectMap<>();
+	protected final Array<TextureAtlas> packedAtlases = new Array<>();
+	protected final Array<Texture> unpackedTextures = new Array<>();
+	protected int packPageSize = 2048;
+	protected int packPadding = 2;
+
+	/* Runs preparation work that does not need the GL thread */
+	protected AsyncExecutor asyncExecutor;
+
+	/* Loads streamed assets a little every frame */
+	protected final AssetStreamer streamer;
 	
 	private static GameAssetsLoader instance;
 
@@ -50,6 +71,7 @@ public final class GameAssetsLoader {
     private GameAssetsLoader() {
         assetManager = new AssetManager();
         setLoader(TiledMap.class, new TmxMapLoader(new InternalFileHandleResolver()));
+        streamer = new AssetStreamer(assetManager);
     }
 
 	/**
@@ -64,6 +86,18 @@ public final class GameAssetsLoader {
 		assetManager.setLoader(assetClass, loader);
 	}
 
+	/**
+	 * Sets a custom asset loader for the files of a type whose names end with a suffix. Use this to load a type of asset from several file formats.
+	 * @param assetClass the class of the asset
+	 * @param suffix the suffix of the file names, like an extension
+	 * @param loader the loader
+	 * @param <T> the type of asset
+	 * @param <P> the type of the loader parameters
+	 */
+	public <T, P extends AssetLoaderParameters<T>> void setLoader(Class<T> assetClass, String suffix, AssetLoader<T, P> loader) {
+		assetManager.setLoader(assetClass, suffix, loader);
+	}
+
 	/**
 	 * Returns the default loader for the given asset class.
 	 * @param assetClass the asset class
@@ -130,6 +164,8 @@ public final class GameAssetsLoader {
 	 */
 	public void update() {
 		if (tickLoader() && loadAssetsInBackground) {
+			packTextures();
+
 			if (onLoadAssets != null)
 				onLoadAssets.run();
 				
@@ -137,6 +173,66 @@ public final class GameAssetsLoader {
 		}
 	}
 
+	/**
+	 * Streams an asset: it is loaded a little every frame, after the requests of higher priority, without blocking the game.
+	 * Unlike enqueued assets, streamed assets don't wait for {@link #loadAssetsInBackground(Runnable)} or {@link #update()}.
+	 * @param path path to the asset file
+	 * @param assetClass the asset class
+	 * @param priority the priority of the asset
+	 * @param <T> the type of asset
+	 * @return the request of the asset, to poll or listen to
+	 * @see AssetStreamer
+	 */
+	public <T> AssetRequest<T> streamAsset(String path, Class<T> assetClass, AssetPriority priority)
+	{ return streamer.load(path, assetClass, priority); }
+
+	/**
+	 * Streams an asset and listens to its request. See {@link #streamAsset(String, Class, AssetPriority)}.
+	 * @param path path to the asset file
+	 * @param assetClass the asset class
+	 * @param priority the priority of the asset
+	 * @param listener the listener notified when the asset is loaded or fails to load
+	 * @param <T> the type of asset
+	 * @return the request of the asset
+	 */
+	public <T> AssetRequest<T> streamAsset(String path, Class<T> assetClass, AssetPriority priority, IAssetListener<T> listener)
+	{ return streamer.load(path, assetClass, priority, listener); }
+
+	/**
+	 * Blocks until every streamed asset of the given priority and higher is loaded. Use this with {@link AssetPriority#CRITICAL} before showing a scene;
+	 * assets of lower priority keep streaming afterwards.
+	 * @param priority the lowest priority to finish
+	 */
+	public void finishStreaming(AssetPriority priority)
+	{ streamer.finishLoading(priority); }
+
+	/**
+	 *
+	 * @return the streamer of assets
+	 */
+	public AssetStreamer getStreamer()
+	{ return streamer; }
+
+	/**
+	 * Progresses the streamed assets. This method is called internally every frame. Do not call this method!
+	 */
+	public void __update()
+	{ streamer.update(); }
+
+	/**
+	 * Submits a task to be run on a background thread. Use this for preparation work that does not need the GL context, like building indices for loaded assets.
+	 * On platforms without threads the task is run immediately.
+	 * @param task the task
+	 * @param <T> the type of the result of the task
+	 * @return the result of the task once it is done
+	 */
+	public <T> AsyncResult<T> submitBackgroundTask(AsyncTask<T> task) {
+		if (asyncExecutor == null)
+			asyncExecutor = new AsyncExecutor(1, "GameAssetsLoader");
+
+		return asyncExecutor.submit(task);
+	}
+
 	/**
 	 * Adds an asset to the queue of assets that needs to be loaded.
 	 * <strong>Note:</strong> this doesn't load the asset, this simply enqueue the asset, loading is deferred until either {@link #loadAssetsInBackground(Runnable)},
@@ -146,6 +242,132 @@ public final class GameAssetsLoader {
 	public void enqueueTexture(String filePath)
 	{ enqueueAsset(filePath, Texture.class); }
 
+	/**
+	 * Adds a loose texture to the queue of textures that will be packed into shared atlas pages once loaded.
+	 * Sprites that use textures from the same page can be drawn without flushing the sprite batch.
+	 * Packed textures are retrieved with {@link #regionForTexture(String)} using the original file path; they cannot be retrieved with {@link #getTexture(String)}.
+	 * <strong>Note:</strong> this doesn't load the texture, loading is deferred until either {@link #loadAssetsInBackground(Runnable)} or {@link #loadAssetsNow()} is called.
+	 * Packing happens when all queued assets are loaded. If you progress loading with {@link #tickLoader()} yourself, call {@link #packTextures()} when it is done.
+	 * @param filePath a path to the texture file
+	 */
+	public void enqueueTextureForPacking(String filePath) {
+		if (packedRegions.containsKey(filePath) || texturesToPack.contains(filePath, false))
+			return;
+
+		texturesToPack.add(filePath);
+		assetManager.load(filePath, Pixmap.class);
+	}
+
+	/**
+	 * A convenient method for packing all the textures in a folder. Textures are enqueued recursively.
+	 * See {@link #enqueueTextureForPacking(String)}.
+	 * @param folderPath path to the folder
+	 */
+	public void enqueueFolderForPacking(String folderPath) {
+		FileHandle dir = Gdx.files.internal(folderPath);
+
+		if (!dir.isDirectory())
+			enqueueTextureForPacking(dir.path());
+		else {
+			for (FileHandle file : dir.list())
+				enqueueFolderForPacking(file.path());
+		}
+	}
+
+	/**
+	 * Sets the size of the atlas pages created when packing textures. The default is 2048, which is supported by virtually every device.
+	 * @param pageSize the width and height of each page in pixels
+	 */
+	public void setPackPageSize(int pageSize)
+	{ this.packPageSize = pageSize; }
+
+	/**
+	 * Sets the number of pixels between packed textures. The default is 2, which avoids bleeding when sprites are scaled.
+	 * @param padding the padding in pixels
+	 */
+	public void setPackPadding(int padding)
+	{ this.packPadding = padding; }
+
+	/**
+	 * Packs the loaded textures enqueued with {@link #enqueueTextureForPacking(String)} into atlas pages.
+	 * This is called automatically when loading with {@link #loadAssetsInBackground(Runnable)} or {@link #loadAssetsNow()} completes.
+	 * Textures that are not loaded yet stay queued. Textures too large for a page get a texture of their own.
+	 */
+	public void packTextures() {
+		if (texturesToPack.size == 0)
+			return;
+
+		// Pack the largest textures first for a tighter fit
+		final Array<String> loaded = new Array<>(texturesToPack.size);
+		for (int i = texturesToPack.size - 1; i >= 0; i--) {
+			String path = texturesToPack.get(i);
+			if (assetManager.isLoaded(path, Pixmap.class)) {
+				loaded.add(path);
+				texturesToPack.removeIndex(i);
+			}
+		}
+
+		if (loaded.size == 0)
+			return;
+
+		loaded.sort((p1, p2) -> {
+			Pixmap a = assetManager.get(p1, Pixmap.class);
+			Pixmap b = assetManager.get(p2, Pixmap.class);
+			return Integer.compare(b.getWidth() * b.getHeight(), a.getWidth() * a.getHeight());
+		});
+
+		PixmapPacker packer = new PixmapPacker(packPageSize, packPageSize, Pixmap.Format.RGBA8888, packPadding, true);
+		// A page has pageSize - 2 * padding of usable space and the packer needs size + padding to place an image in it
+		int maxSize = packPageSize - packPadding * 3;
+
+		for (String path : loaded) {
+			Pixmap pixmap = assetManager.get(path, Pixmap.class);
+
+			if (pixmap.getWidth() > maxSize || pixmap.getHeight() > maxSize) {
+				Texture texture = new Texture(pixmap);
+				unpackedTextures.add(texture);
+				packedRegions.put(path, new TextureRegion(texture));
+			}
+			else
+				packer.pack(path, pixmap);
+		}
+
+		if (packer.getPages().size > 0) {
+			TextureAtlas atlas = packer.generateTextureAtlas(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear, false);
+			packedAtlases.add(atlas);
+
+			for (TextureAtlas.AtlasRegion region : atlas.getRegions())
+				packedRegions.put(region.name, region);
+		}
+
+		// The pixels now live in the atlas pages
+		packer.dispose();
+		for (String path : loaded)
+			assetManager.unload(path);
+	}
+
+	/**
+	 *
+	 * @param filePath the path of the texture file
+	 * @return whether the texture was packed into an atlas page
+	 */
+	public boolean isPacked(String filePath)
+	{ return packedRegions.containsKey(filePath); }
+
+	/**
+	 * Unloads every packed texture. Regions previously returned for packed textures must not be used anymore.
+	 */
+	public void unloadPackedTextures() {
+		for (TextureAtlas atlas : packedAtlases)
+			atlas.dispose();
+		for (Texture texture : unpackedTextures)
+			texture.dispose();
+
+		packedAtlases.clear();
+		unpackedTextures.clear();
+		packedRegions.clear();
+	}
+
 	/**
 	 * A convenient method for enqueuing {@link Music} and {@link Sound} assets inside a folder.
 	 * Files with '.mp3' extensions are assumed to be {@link Music} files and others are assumed to be {@link Sound} files.
@@ -216,6 +438,14 @@ public final class GameAssetsLoader {
     public boolean tickLoader()
     { return(assetManager.update()); }
 
+	/**
+	 * Progresses the loading process for at most the given time (the current task may run a little over). This spreads the work done on the render thread (like uploading textures) over several frames.
+	 * @param millis the maximum time to spend loading in milliseconds
+	 * @return true if all loading is finished
+	 */
+	public boolean tickLoader(int millis)
+	{ return assetManager.update(millis); }
+
 	/**
 	 *
 	 * @return the progress in percent of completion on a scale of [0 - 100]
@@ -229,8 +459,10 @@ public final class GameAssetsLoader {
 	 * Blocks until all queued assets are loaded.
 	 * This loads synchronously. For asynchronous loading use {@link #loadAssetsInBackground(Runnable)} instead.
 	 */
-	public void loadAssetsNow()
-    { assetManager.finishLoading(); }
+	public void loadAssetsNow() {
+		assetManager.finishLoading();
+		packTextures();
+	}
 
 	/**
 	 * Blocks until the specified asset is loaded.
@@ -328,12 +560,21 @@ public final class GameAssetsLoader {
 
 	/**
 	 * Convenient method for creating {@link TextureRegion}s from loaded {@link Texture}s.
+	 * If the texture was packed (see {@link #enqueueTextureForPacking(String)}), the region refers to its area in the atlas page.
+	 * <strong>Note:</strong> the filter of a packed texture is applied to its whole atlas page.
 	 * @param name path to the asset file
 	 * @param applyLinearFilter if true linear {@link com.badlogic.gdx.graphics.Texture.TextureFilter} will be applied, else nearest will be applied
 	 * @return the texture region
 	 */
-    public TextureRegion regionForTexture(String name, boolean applyLinearFilter)
-    { return(new TextureRegion(getTexture(name, applyLinearFilter))); }
+    public TextureRegion regionForTexture(String name, boolean applyLinearFilter) {
+		TextureRegion packed = packedRegions.get(name);
+		if (packed == null)
+			return(new TextureRegion(getTexture(name, applyLinearFilter)));
+
+		Texture.TextureFilter filter = applyLinearFilter ? Texture.TextureFilter.Linear : Texture.TextureFilter.Nearest;
+		packed.getTexture().setFilter(filter, filter);
+		return(new TextureRegion(packed));
+	}
 
 	/**
 	 * Convenient method for creating {@link TextureRegion}s from loaded {@link Texture}s. Linear {@link com.badlogic.gdx.graphics.Texture.TextureFilter} will be applied
@@ -421,6 +662,13 @@ public final class GameAssetsLoader {
 	/**
 	 * This method is called internally to dispose the asset manager. Do not call this method!
 	 */
-	public void __dispose()
-    { assetManager.dispose(); }
+	public void __dispose() {
+		unloadPackedTextures();
+		assetManager.dispose();
+
+		if (asyncExecutor != null) {
+			asyncExecutor.dispose();
+			asyncExecutor = null;
+		}
+	}
 }
@@ -0,0 +1,23 @@
+package io.github.isoteriktech.xgdx.asset;
+
+/**
+ * A listener notified when an asset streamed with {@link AssetStreamer} is loaded or fails to load. Listeners are invoked on the render thread.
+ * @param <T> the type of the asset
+ *
+ * @author isoteriksoftware
+ */
+public interface IAssetListener<T> {
+	/**
+	 * Called when the asset is loaded.
+	 * @param request the request of the asset
+	 * @param asset the asset
+	 */
+	void onLoaded(AssetRequest<T> request, T asset);
+
+	/**
+	 * Called when the asset could not be loaded.
+	 * @param request the request of the asset
+	 * @param error the cause of the failure
+	 */
+	void onFailed(AssetRequest<T> request, Throwable error);
+}
@@ -0,0 +1,421 @@
+package io.github.isoteriktech.xgdx.input;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input.Keys;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ArrayMap;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectIntMap;
+
+/**
+ * The state of the mappings of an {@link InputManager} sampled once per frame. Every mapping name is interned to an action id
+ * that indexes primitive arrays holding whether the action is held, was just pressed or was just released, its value and
+ * the world position of the pointer or gesture that last drove it.
+ * <p>
+ * The state is fed by the events dispatched by the manager, whether they arrive immediately or are queued, and the positions of
+ * the pointers being touched are unprojected once per frame when the snapshot is built.
+ *
+ * @author isoteriksoftware
+ */
+final class ActionState {
+	/** The number of pointers tracked */
+	static final int MAX_POINTERS = 20;
+
+	private static final int GESTURES_COUNT = GestureEventData.GestureEvent.values().length;
+
+	private final ObjectIntMap<String> actionIds = new ObjectIntMap<>();
+	private final Array<String> actionNames = new Array<>();
+
+	// The triggers of every action, resolved again only when the mappings change
+	private Array<ITrigger>[] actionTriggers;
+	private int triggersVersion = -1;
+
+	private boolean[] held, justPressed, justReleased;
+	private float[] values, actionX, actionY;
+
+	// The raw state fed by the dispatched events
+	private final boolean[] keysDown = new boolean[Keys.MAX_KEYCODE + 1];
+	private final boolean[] keysJustDown = new boolean[Keys.MAX_KEYCODE + 1];
+	private final boolean[] keysJustUp = new boolean[Keys.MAX_KEYCODE + 1];
+	private final IntArray downKeys = new IntArray(), justDownKeys = new IntArray(), justUpKeys = new IntArray();
+	private final IntArray typedChars = new IntArray();
+
+	private final boolean[] pointersDown = new boolean[MAX_POINTERS];
+	private final boolean[] pointersJustDown = new boolean[MAX_POINTERS];
+	private final boolean[] pointersJustUp = new boolean[MAX_POINTERS];
+	private final boolean[] pointersDragged = new boolean[MAX_POINTERS];
+	private final float[] pointerScreenX = new float[MAX_POINTERS], pointerScreenY = new float[MAX_POINTERS];
+	private final float[] pointerWorldX = new float[MAX_POINTERS], pointerWorldY = new float[MAX_POINTERS];
+
+	// Bits of the gesture events received this frame, indexed by ordinal
+	private int gestureEvents;
+	private final float[] gestureX = new float[GESTURES_COUNT], gestureY = new float[GESTURES_COUNT];
+	private boolean panning, pinching;
+	private float zoomRatio = 1;
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	ActionState () {
+		int capacity = 16;
+		actionTriggers = new Array[capacity];
+		held = new boolean[capacity];
+		justPressed = new boolean[capacity];
+		justReleased = new boolean[capacity];
+		values = new float[capacity];
+		actionX = new float[capacity];
+		actionY = new float[capacity];
+	}
+
+	/**
+	 * Interns a mapping name.
+	 * @param mappingName the name of the mapping
+	 * @return the id of the action, the same for every call with the same name
+	 */
+	int getActionId (String mappingName) {
+		int id = actionIds.get(mappingName, -1);
+		if (id != -1)
+			return id;
+
+		id = actionNames.size;
+		if (id == held.length)
+			grow(id * 2);
+
+		actionNames.add(mappingName);
+		actionIds.put(mappingName, id);
+
+		// The new action must be resolved against the mappings
+		triggersVersion = -1;
+		return id;
+	}
+
+	String getActionName (int actionId)
+	{ return actionNames.get(actionId); }
+
+	int getActionsCount ()
+	{ return actionNames.size; }
+
+	boolean isHeld (int actionId)
+	{ return held[actionId]; }
+
+	boolean isJustPressed (int actionId)
+	{ return justPressed[actionId]; }
+
+	boolean isJustReleased (int actionId)
+	{ return justReleased[actionId]; }
+
+	float getValue (int actionId)
+	{ return values[actionId]; }
+
+	float getActionX (int actionId)
+	{ return actionX[actionId]; }
+
+	float getActionY (int actionId)
+	{ return actionY[actionId]; }
+
+	boolean isPointerDown (int pointer)
+	{ return pointer >= 0 && pointer < MAX_POINTERS && pointersDown[pointer]; }
+
+	float getPointerWorldX (int pointer)
+	{ return pointerWorldX[pointer]; }
+
+	float getPointerWorldY (int pointer)
+	{ return pointerWorldY[pointer]; }
+
+	void onTouch (TouchEventData.TouchEvent touchEvent, float screenX, float screenY, int pointer) {
+		if (pointer < 0 || pointer >= MAX_POINTERS)
+			return;
+
+		pointerScreenX[pointer] = screenX;
+		pointerScreenY[pointer] = screenY;
+
+		if (touchEvent == TouchEventData.TouchEvent.TOUCH_DOWN) {
+			pointersDown[pointer] = true;
+			pointersJustDown[pointer] = true;
+		}
+		else if (touchEvent == TouchEventData.TouchEvent.TOUCH_UP) {
+			pointersDown[pointer] = false;
+			pointersJustUp[pointer] = true;
+		}
+		else {
+			pointersDown[pointer] = true;
+			pointersDragged[pointer] = true;
+		}
+	}
+
+	void onKey (KeyEventData.KeyEvent keyEvent, int keyCode, char keyChar) {
+		if (keyEvent == KeyEventData.KeyEvent.KEY_TYPED) {
+			typedChars.add(keyChar);
+			return;
+		}
+
+		if (keyCode < 0 || keyCode >= keysDown.length)
+			return;
+
+		if (keyEvent == KeyEventData.KeyEvent.KEY_DOWN) {
+			if (!keysDown[keyCode]) {
+				keysDown[keyCode] = true;
+				downKeys.add(keyCode);
+			}
+
+			if (!keysJustDown[keyCode]) {
+				keysJustDown[keyCode] = true;
+				justDownKeys.add(keyCode);
+			}
+		}
+		else {
+			if (keysDown[keyCode]) {
+				keysDown[keyCode] = false;
+				downKeys.removeValue(keyCode);
+			}
+
+			if (!keysJustUp[keyCode]) {
+				keysJustUp[keyCode] = true;
+				justUpKeys.add(keyCode);
+			}
+		}
+	}
+
+	void onGesture (GestureEventData eventData) {
+		int event = eventData.gestureEvent.ordinal();
+		gestureEvents |= 1 << event;
+
+		switch (eventData.gestureEvent) {
+			case TAP:
+			case DOUBLE_TAP:
+			case LONG_PRESS:
+				gestureX[event] = eventData.x;
+				gestureY[event] = eventData.y;
+				break;
+			case PAN:
+			case PAN_STOP:
+				gestureX[event] = eventData.x;
+				gestureY[event] = eventData.y;
+				panning = eventData.gestureEvent == GestureEventData.GestureEvent.PAN;
+				break;
+			case PINCH:
+				pinching = true;
+				break;
+			case ZOOM:
+				pinching = true;
+				break;
+			case PINCH_STOP:
+				pinching = false;
+				zoomRatio = 1;
+				break;
+		}
+	}
+
+	/**
+	 * Receives the distances of a zoom gesture in screen pixels, before they are unprojected for the listeners.
+	 * @param initialDistance the distance between the fingers when the gesture started
+	 * @param distance the current distance between the fingers
+	 */
+	void onZoom (float initialDistance, float distance)
+	{ zoomRatio = initialDistance != 0 ? distance / initialDistance : 1; }
+
+	/**
+	 * Builds the snapshot of the current frame from the events received since the previous one.
+	 * @param manager the manager that owns this state, used to unproject the pointers
+	 * @param mappings the mappings of the manager
+	 * @param mappingsVersion changes whenever the mappings change
+	 * @param liveInput whether the events come from {@link Gdx#input}, which can then be checked for missed releases
+	 */
+	void update (InputManager manager, ArrayMap<String, Array<ITrigger>> mappings, int mappingsVersion, boolean liveInput) {
+		if (liveInput && Gdx.input != null)
+			releaseMissedInput();
+
+		// The first pointer in each state, -1 if there is none
+		int downPointer = -1, justDownPointer = -1, justUpPointer = -1, draggedPointer = -1;
+		for (int p = 0; p < MAX_POINTERS; p++) {
+			if (!pointersDown[p] && !pointersJustDown[p] && !pointersJustUp[p])
+				continue;
+
+			Vector2 coords = manager.getWorldCoords(pointerScreenX[p], pointerScreenY[p]);
+			pointerWorldX[p] = coords.x;
+			pointerWorldY[p] = coords.y;
+
+			if (downPointer == -1 && pointersDown[p])
+				downPointer = p;
+			if (justDownPointer == -1 && pointersJustDown[p])
+				justDownPointer = p;
+			if (justUpPointer == -1 && pointersJustUp[p])
+				justUpPointer = p;
+			if (draggedPointer == -1 && pointersDragged[p])
+				draggedPointer = p;
+		}
+
+		if (triggersVersion != mappingsVersion) {
+			for (int id = 0; id < actionNames.size; id++)
+				actionTriggers[id] = mappings.get(actionNames.get(id));
+			triggersVersion = mappingsVersion;
+		}
+
+		for (int id = 0; id < actionNames.size; id++) {
+			Array<ITrigger> triggers = actionTriggers[id];
+			boolean down = false, just = false, zooming = false;
+
+			if (triggers != null) {
+				for (int i = 0; i < triggers.size; i++) {
+					ITrigger trigger = triggers.get(i);
+					if (!trigger.isActive())
+						continue;
+
+					if (trigger instanceof KeyTrigger) {
+						KeyEventData eventData = ((KeyTrigger)trigger).keyEventData;
+						if (eventData == null || eventData.keyEvent == null)
+							continue;
+
+						if (eventData.keyEvent == KeyEventData.KeyEvent.KEY_TYPED)
+							just |= typedChars.contains(eventData.keyChar);
+						else if (eventData.keyCode >= 0 && eventData.keyCode < keysDown.length) {
+							// Like touch ups, a key up is only reported in the frame the key is released
+							if (eventData.keyEvent == KeyEventData.KeyEvent.KEY_UP)
+								just |= keysJustUp[eventData.keyCode];
+							else {
+								down |= keysDown[eventData.keyCode];
+								just |= keysJustDown[eventData.keyCode];
+							}
+						}
+					}
+					else if (trigger instanceof TouchTrigger) {
+						TouchEventData eventData = ((TouchTrigger)trigger).touchEventData;
+						if (eventData == null || eventData.touchEvent == null)
+							continue;
+
+						// Like the dispatch tables, a touch trigger matches its event on any pointer. Only touch downs can be held
+						int pointer;
+						switch (eventData.touchEvent) {
+							case TOUCH_DOWN:
+								down |= downPointer != -1;
+								just |= justDownPointer != -1;
+								pointer = justDownPointer != -1 ? justDownPointer : downPointer;
+								break;
+							case TOUCH_DRAGGED:
+								just |= draggedPointer != -1;
+								pointer = draggedPointer;
+								break;
+							default:
+								just |= justUpPointer != -1;
+								pointer = justUpPointer;
+								break;
+						}
+
+						if (pointer != -1) {
+							actionX[id] = pointerWorldX[pointer];
+							actionY[id] = pointerWorldY[pointer];
+						}
+					}
+					else if (trigger instanceof GestureTrigger) {
+						GestureEventData eventData = ((GestureTrigger)trigger).gestureEventData;
+						if (eventData == null || eventData.gestureEvent == null)
+							continue;
+
+						int event = eventData.gestureEvent.ordinal();
+						boolean received = (gestureEvents & (1 << event)) != 0;
+						just |= received;
+
+						switch (eventData.gestureEvent) {
+							case PAN:
+								down |= panning;
+								break;
+							case PINCH:
+								down |= pinching;
+								break;
+							case ZOOM:
+								down |= pinching;
+								zooming |= pinching;
+								break;
+						}
+
+						if (received && gestureHasPosition(eventData.gestureEvent)) {
+							actionX[id] = gestureX[event];
+							actionY[id] = gestureY[event];
+						}
+					}
+				}
+			}
+
+			boolean wasHeld = held[id];
+			held[id] = down;
+			justPressed[id] = !wasHeld && (down || just);
+			justReleased[id] = wasHeld ? !down : just && !down;
+			values[id] = zooming ? zoomRatio : (down || just) ? 1 : 0;
+		}
+
+		clearFrameEvents();
+	}
+
+	private static boolean gestureHasPosition (GestureEventData.GestureEvent gestureEvent) {
+		switch (gestureEvent) {
+			case TAP:
+			case DOUBLE_TAP:
+			case LONG_PRESS:
+			case PAN:
+			case PAN_STOP:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/* Releases keys and pointers whose release was never received, for example because another scene had the input at the time */
+	private void releaseMissedInput () {
+		for (int i = downKeys.size - 1; i >= 0; i--) {
+			int keyCode = downKeys.get(i);
+			if (!Gdx.input.isKeyPressed(keyCode)) {
+				keysDown[keyCode] = false;
+				downKeys.removeIndex(i);
+			}
+		}
+
+		for (int p = 0; p < MAX_POINTERS; p++) {
+			if (pointersDown[p] && !Gdx.input.isTouched(p))
+				pointersDown[p] = false;
+		}
+	}
+
+	private void clearFrameEvents () {
+		for (int i = 0; i < justDownKeys.size; i++)
+			keysJustDown[justDownKeys.get(i)] = false;
+		justDownKeys.clear();
+
+		for (int i = 0; i < justUpKeys.size; i++)
+			keysJustUp[justUpKeys.get(i)] = false;
+		justUpKeys.clear();
+
+		for (int p = 0; p < MAX_POINTERS; p++) {
+			pointersJustDown[p] = false;
+			pointersJustUp[p] = false;
+			pointersDragged[p] = false;
+		}
+
+		typedChars.clear();
+		gestureEvents = 0;
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private void grow (int capacity) {
+		Array<ITrigger>[] newTriggers = new Array[capacity];
+		System.arraycopy(actionTriggers, 0, newTriggers, 0, actionTriggers.length);
+		actionTriggers = newTriggers;
+
+		held = copyOf(held, capacity);
+		justPressed = copyOf(justPressed, capacity);
+		justReleased = copyOf(justReleased, capacity);
+		values = copyOf(values, capacity);
+		actionX = copyOf(actionX, capacity);
+		actionY = copyOf(actionY, capacity);
+	}
+
+	private static boolean[] copyOf (boolean[] array, int capacity) {
+		boolean[] copy = new boolean[capacity];
+		System.arraycopy(array, 0, copy, 0, array.length);
+		return copy;
+	}
+
+	private static float[] copyOf (float[] array, int capacity) {
+		float[] copy = new float[capacity];
+		System.arraycopy(array, 0, copy, 0, array.length);
+		return copy;
+	}
+}
@@ -0,0 +1,258 @@
+package io.github.isoteriktech.xgdx.input;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ArrayMap;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.Pool;
+
+/**
+ * The listeners of an {@link InputManager} compiled into tables indexed by event type, and for keys by key code (or character for typed keys).
+ * An event only visits the bindings that can fire for it instead of every trigger of every mapping.
+ * <p>
+ * The tables only depend on which triggers and listeners are registered. Whether a trigger is active or polled is still checked
+ * when an event is dispatched, so triggers can be toggled without rebuilding the tables.
+ * Bindings are kept in the order the manager used to visit them: plain listeners first, then mapped listeners mapping by mapping.
+ *
+ * @author isoteriksoftware
+ */
+final class InputDispatchTable {
+	/**
+	 * A trigger and the listeners it wakes. Plain listeners have a single listener and no mapping name;
+	 * mapped listeners share the listeners of their mapping.
+	 */
+	static final class Binding<L extends InputListener> implements Pool.Poolable {
+		ITrigger trigger;
+		String mappingName;
+		L listener;
+		Array<L> listeners;
+
+		@Override
+		public void reset() {
+			trigger = null;
+			mappingName = null;
+			listener = null;
+			listeners = null;
+		}
+	}
+
+	private final Array<Binding<ITouchListener>>[] touchBindings;
+	private final IntMap<Array<Binding<IKeyListener>>>[] keyBindings;
+	private final Array<Binding<IGestureListener>>[] gestureBindings;
+
+	// Every key down binding in order, for polling
+	private final Array<Binding<IKeyListener>> keyDownBindings = new Array<>(false, 16);
+
+	// Every binding currently in a table, so they can be returned to the pool on rebuild
+	private final Array<Binding<?>> bindings = new Array<>(false, 16);
+	private final Pool<Binding<?>> bindingPool = new Pool<Binding<?>>() {
+		@Override
+		protected Binding<?> newObject() {
+			return new Binding<>();
+		}
+	};
+
+	// Unused key tables are kept for reuse
+	private final Array<Array<Binding<IKeyListener>>> freeKeyArrays = new Array<>(false, 16);
+
+	private final Array<Binding<ITouchListener>> noTouchBindings = new Array<>(0);
+	private final Array<Binding<IKeyListener>> noKeyBindings = new Array<>(0);
+
+	private boolean dirty = true;
+
+	// Bumped on every invalidation, so caches built from the same listeners and mappings can tell they are outdated
+	private int version;
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	InputDispatchTable () {
+		touchBindings = new Array[TouchEventData.TouchEvent.values().length];
+		for (int i = 0; i < touchBindings.length; i++)
+			touchBindings[i] = new Array<>();
+
+		keyBindings = new IntMap[KeyEventData.KeyEvent.values().length];
+		for (int i = 0; i < keyBindings.length; i++)
+			keyBindings[i] = new IntMap<>();
+
+		gestureBindings = new Array[GestureEventData.GestureEvent.values().length];
+		for (int i = 0; i < gestureBindings.length; i++)
+			gestureBindings[i] = new Array<>();
+	}
+
+	void invalidate () {
+		dirty = true;
+		version++;
+	}
+
+	boolean isDirty ()
+	{ return dirty; }
+
+	int getVersion ()
+	{ return version; }
+
+	/**
+	 *
+	 * @param touchEvent the touch event
+	 * @return the bindings of the touch triggers for the given event
+	 */
+	Array<Binding<ITouchListener>> getTouchBindings (TouchEventData.TouchEvent touchEvent)
+	{ return touchEvent == null ? noTouchBindings : touchBindings[touchEvent.ordinal()]; }
+
+	/**
+	 *
+	 * @param eventData the key event
+	 * @return the bindings of the key triggers for the given event and key code, or character for typed keys
+	 */
+	Array<Binding<IKeyListener>> getKeyBindings (KeyEventData eventData) {
+		if (eventData.keyEvent == null)
+			return noKeyBindings;
+
+		Array<Binding<IKeyListener>> bindings = keyBindings[eventData.keyEvent.ordinal()].get(keyOf(eventData));
+		return bindings != null ? bindings : noKeyBindings;
+	}
+
+	/**
+	 *
+	 * @return the bindings of every key down trigger
+	 */
+	Array<Binding<IKeyListener>> getKeyDownBindings ()
+	{ return keyDownBindings; }
+
+	/**
+	 *
+	 * @param gestureEvent the gesture event
+	 * @return the bindings of the gesture triggers for the given event
+	 */
+	Array<Binding<IGestureListener>> getGestureBindings (GestureEventData.GestureEvent gestureEvent)
+	{ return gestureBindings[gestureEvent.ordinal()]; }
+
+	private static int keyOf (KeyEventData eventData)
+	{ return eventData.keyEvent == KeyEventData.KeyEvent.KEY_TYPED ? eventData.keyChar : eventData.keyCode; }
+
+	/**
+	 * Rebuilds the tables from the listeners and mappings of a manager.
+	 */
+	@SuppressWarnings("unchecked")
+	void rebuild (ArrayMap<String, Array<ITrigger>> mappings,
+				  ArrayMap<TouchTrigger, ITouchListener> touchListeners,
+				  ArrayMap<KeyTrigger, IKeyListener> keyListeners,
+				  ArrayMap<GestureTrigger, IGestureListener> gestureListeners,
+				  ArrayMap<String, Array<ITouchListener>> mappedTouchListeners,
+				  ArrayMap<String, Array<IKeyListener>> mappedKeyListeners,
+				  ArrayMap<String, Array<IGestureListener>> mappedGestureListeners) {
+		clear();
+
+		for (int i = 0; i < touchListeners.size; i++)
+			addTouchBinding(touchListeners.getKeyAt(i), null, touchListeners.getValueAt(i), null);
+
+		for (int i = 0; i < keyListeners.size; i++)
+			addKeyBinding(keyListeners.getKeyAt(i), null, keyListeners.getValueAt(i), null);
+
+		for (int i = 0; i < gestureListeners.size; i++)
+			addGestureBinding(gestureListeners.getKeyAt(i), null, gestureListeners.getValueAt(i), null);
+
+		for (int i = 0; i < mappedTouchListeners.size; i++) {
+			String mappingName = mappedTouchListeners.getKeyAt(i);
+			Array<ITrigger> triggers = mappings.get(mappingName);
+			if (triggers == null)
+				continue;
+
+			for (ITrigger trigger : triggers) {
+				if (trigger instanceof TouchTrigger)
+					addTouchBinding((TouchTrigger)trigger, mappingName, null, mappedTouchListeners.getValueAt(i));
+			}
+		}
+
+		for (int i = 0; i < mappedKeyListeners.size; i++) {
+			String mappingName = mappedKeyListeners.getKeyAt(i);
+			Array<ITrigger> triggers = mappings.get(mappingName);
+			if (triggers == null)
+				continue;
+
+			for (ITrigger trigger : triggers) {
+				if (trigger instanceof KeyTrigger)
+					addKeyBinding((KeyTrigger)trigger, mappingName, null, mappedKeyListeners.getValueAt(i));
+			}
+		}
+
+		for (int i = 0; i < mappedGestureListeners.size; i++) {
+			String mappingName = mappedGestureListeners.getKeyAt(i);
+			Array<ITrigger> triggers = mappings.get(mappingName);
+			if (triggers == null)
+				continue;
+
+			for (ITrigger trigger : triggers) {
+				if (trigger instanceof GestureTrigger)
+					addGestureBinding((GestureTrigger)trigger, mappingName, null, mappedGestureListeners.getValueAt(i));
+			}
+		}
+
+		dirty = false;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <L extends InputListener> Binding<L> obtainBinding (ITrigger trigger, String mappingName, L listener, Array<L> listeners) {
+		// Pooled bindings are reset, so one can hold listeners of any type
+		Binding<L> binding = (Binding<L>)bindingPool.obtain();
+		binding.trigger = trigger;
+		binding.mappingName = mappingName;
+		binding.listener = listener;
+		binding.listeners = listeners;
+
+		bindings.add(binding);
+		return binding;
+	}
+
+	private void addTouchBinding (TouchTrigger trigger, String mappingName, ITouchListener listener, Array<ITouchListener> listeners) {
+		if (trigger.touchEventData == null || trigger.touchEventData.touchEvent == null)
+			return;
+
+		touchBindings[trigger.touchEventData.touchEvent.ordinal()].add(obtainBinding(trigger, mappingName, listener, listeners));
+	}
+
+	private void addKeyBinding (KeyTrigger trigger, String mappingName, IKeyListener listener, Array<IKeyListener> listeners) {
+		KeyEventData eventData = trigger.keyEventData;
+		if (eventData == null || eventData.keyEvent == null)
+			return;
+
+		IntMap<Array<Binding<IKeyListener>>> table = keyBindings[eventData.keyEvent.ordinal()];
+		int key = keyOf(eventData);
+
+		Array<Binding<IKeyListener>> keyArray = table.get(key);
+		if (keyArray == null) {
+			keyArray = freeKeyArrays.size > 0 ? freeKeyArrays.pop() : new Array<Binding<IKeyListener>>(4);
+			table.put(key, keyArray);
+		}
+
+		Binding<IKeyListener> binding = obtainBinding(trigger, mappingName, listener, listeners);
+		keyArray.add(binding);
+
+		if (eventData.keyEvent == KeyEventData.KeyEvent.KEY_DOWN)
+			keyDownBindings.add(binding);
+	}
+
+	private void addGestureBinding (GestureTrigger trigger, String mappingName, IGestureListener listener, Array<IGestureListener> listeners) {
+		if (trigger.gestureEventData == null || trigger.gestureEventData.gestureEvent == null)
+			return;
+
+		gestureBindings[trigger.gestureEventData.gestureEvent.ordinal()].add(obtainBinding(trigger, mappingName, listener, listeners));
+	}
+
+	private void clear () {
+		for (Array<Binding<ITouchListener>> array : touchBindings)
+			array.clear();
+
+		for (IntMap<Array<Binding<IKeyListener>>> table : keyBindings) {
+			for (IntMap.Entry<Array<Binding<IKeyListener>>> entry : table.entries()) {
+				entry.value.clear();
+				freeKeyArrays.add(entry.value);
+			}
+			table.clear();
+		}
+
+		for (Array<Binding<IGestureListener>> array : gestureBindings)
+			array.clear();
+
+		keyDownBindings.clear();
+		bindingPool.freeAll(bindings);
+		bindings.clear();
+	}
+}
@@ -0,0 +1,131 @@
+package io.github.isoteriktech.xgdx.input;
+
+/**
+ * A ring buffer of raw input events used by {@link InputManager} when events are queued.
+ * Every event is a record of primitives spread over three parallel arrays: its kind, {@link #INTS} ints and {@link #FLOATS} floats.
+ * A record is addressed by its slot; its ints start at {@code slot * INTS} and its floats at {@code slot * FLOATS}.
+ * <p>
+ * The buffer is preallocated. It only grows, by doubling, if more events arrive in a single frame than it can hold.
+ *
+ * @author isoteriksoftware
+ */
+final class InputEventQueue {
+	static final int TOUCH_DOWN    = 0;
+	static final int TOUCH_UP      = 1;
+	static final int TOUCH_DRAGGED = 2;
+	static final int KEY_DOWN      = 3;
+	static final int KEY_UP        = 4;
+	static final int KEY_TYPED     = 5;
+	static final int TAP           = 6;
+	static final int FLING         = 7;
+	static final int LONG_PRESS    = 8;
+	static final int PAN           = 9;
+	static final int PAN_STOP      = 10;
+	static final int PINCH         = 11;
+	static final int PINCH_STOP    = 12;
+	static final int ZOOM          = 13;
+
+	/** The number of ints of a record */
+	static final int INTS = 2;
+
+	/** The number of floats of a record */
+	static final int FLOATS = 8;
+
+	int[] kinds;
+	int[] ints;
+	float[] floats;
+
+	private int head, size;
+
+	// The number of records ever pushed. Records are identified by sequence numbers, which unlike slots survive growth
+	private long pushed;
+
+	InputEventQueue (int capacity) {
+		kinds = new int[capacity];
+		ints = new int[capacity * INTS];
+		floats = new float[capacity * FLOATS];
+	}
+
+	/**
+	 * Appends a record. Its ints and floats must be written by the caller.
+	 * @param kind the kind of the event
+	 * @return the slot of the new record
+	 */
+	int push (int kind) {
+		if (size == kinds.length)
+			grow();
+
+		int slot = (head + size) % kinds.length;
+		kinds[slot] = kind;
+		size++;
+		pushed++;
+
+		return slot;
+	}
+
+	/**
+	 *
+	 * @return the sequence number of the most recent record, valid until it is removed
+	 */
+	long lastSequence ()
+	{ return pushed - 1; }
+
+	/**
+	 * Finds the slot of a record given its sequence number.
+	 * @param sequence the sequence number of the record
+	 * @return the slot of the record or -1 if it was removed
+	 */
+	int slotOf (long sequence) {
+		long offset = sequence - (pushed - size);
+		if (offset < 0 || offset >= size)
+			return -1;
+
+		return (int)((head + offset) % kinds.length);
+	}
+
+	/**
+	 * Removes the oldest record. Its slot stays valid until the next call to {@link #push(int)}.
+	 * @return the slot of the oldest record or -1 if the queue is empty
+	 */
+	int poll () {
+		if (size == 0)
+			return -1;
+
+		int slot = head;
+		head = (head + 1) % kinds.length;
+		size--;
+
+		return slot;
+	}
+
+	int size ()
+	{ return size; }
+
+	int capacity ()
+	{ return kinds.length; }
+
+	void clear () {
+		head = 0;
+		size = 0;
+	}
+
+	private void grow () {
+		int capacity = kinds.length;
+		int[] newKinds = new int[capacity * 2];
+		int[] newInts = new int[capacity * 2 * INTS];
+		float[] newFloats = new float[capacity * 2 * FLOATS];
+
+		// Unwrap the records so the oldest one is at slot 0
+		for (int i = 0; i < size; i++) {
+			int slot = (head + i) % capacity;
+			newKinds[i] = kinds[slot];
+			System.arraycopy(ints, slot * INTS, newInts, i * INTS, INTS);
+			System.arraycopy(floats, slot * FLOATS, newFloats, i * FLOATS, FLOATS);
+		}
+
+		kinds = newKinds;
+		ints = newInts;
+		floats = newFloats;
+		head = 0;
+	}
+}
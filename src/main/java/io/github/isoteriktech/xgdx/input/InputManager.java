@@ -9,6 +9,8 @@ import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.ArrayMap;
 import io.github.isoteriktech.xgdx.Scene;
 
+import java.util.Arrays;
+
 /**
  * An instance of this class is used to manage all input-related tasks of a {@link Scene}.
  * It uses {@link ITrigger}s to determine when {@link InputListener}s should be invoked.
@@ -28,6 +30,13 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	private final ArrayMap<KeyTrigger, IKeyListener> keyListeners;
 	private final ArrayMap<GestureTrigger, IGestureListener> gestureListeners;
 
+	/* The listeners above compiled into tables indexed by event */
+	private final InputDispatchTable dispatchTable = new InputDispatchTable();
+	private int dispatchDepth;
+
+	/* The state of every action, sampled once per frame */
+	private final ActionState actionState = new ActionState();
+
 	private static TouchEventData.DataPool touchDataPool;
 	private static KeyEventData.DataPool keyDataPool;
 	private static GestureEventData.DataPool gestureDataPool;
@@ -38,6 +47,30 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	private final Vector2 tempVector = new Vector2();
 	private final Vector3 tempVector3 = new Vector3();
 
+	/* Raw events waiting for the next frame; null when events are dispatched as they arrive */
+	private InputEventQueue eventQueue;
+	private static final int DEFAULT_QUEUE_CAPACITY = 128;
+
+	/* The sequences of the latest queued pan, pinch and zoom and of the latest queued drag of every pointer, NO_EVENT if there is none */
+	private static final int COALESCIBLE_PAN = 0, COALESCIBLE_PINCH = 1, COALESCIBLE_ZOOM = 2, COALESCIBLE_DRAG = 3;
+	private static final int MAX_COALESCIBLE_POINTERS = 20;
+	private static final long NO_EVENT = -1;
+	private final long[] coalescibleEvents = new long[COALESCIBLE_DRAG + MAX_COALESCIBLE_POINTERS];
+
+	// The button of events that are not produced by a button, such as drags
+	static final int NO_BUTTON = -10;
+
+	/* Records the dispatched events when set */
+	private InputRecorder recorder;
+
+	/* Replaces live events when set */
+	private InputReplay replay;
+	private boolean queueEnabledBeforeReplay;
+
+	// The pinch pointers handed to gesture listeners
+	private final Vector2 initialPinchPointer1 = new Vector2(), initialPinchPointer2 = new Vector2();
+	private final Vector2 pinchPointer1 = new Vector2(), pinchPointer2 = new Vector2();
+
 	/**
 	 * An array of supported mouse buttons.
 	 */
@@ -109,6 +142,8 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	 * @return {@code true} if the mapping was created, {@code false} if the mapping already exists
 	 */
 	public boolean addMapping(String mappingName, ITrigger trigger, ITrigger... triggers) {
+		dispatchTable.invalidate();
+
 		if (hasMapping(mappingName))
 			return false;
 
@@ -128,6 +163,8 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	 * @return {@code true} if the mapping was modified, {@code false} if the mapping doesn't exist
 	 */
 	public boolean updateMapping(String mappingName, ITrigger trigger, ITrigger... triggers) {
+		dispatchTable.invalidate();
+
 		if (!hasMapping(mappingName))
 			return false;
 
@@ -138,7 +175,8 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	}
 
 	/**
-	 * Gets a mapping
+	 * Gets a mapping.
+	 * <strong>Note:</strong> call {@link #invalidateDispatchTables()} after modifying the returned array directly.
 	 * @param mappingName the name of the mapping
 	 * @return an array of triggers for an existing map. {@code null} if the mapping doesn't exist
 	 */
@@ -164,6 +202,8 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	 * @return true if the mapped triggers were removed, false otherwise
 	 */
 	public boolean removedMappedTriggers(String mappingName) {
+		dispatchTable.invalidate();
+
 		if (!hasMapping(mappingName))
 			return false;
 
@@ -177,6 +217,8 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	 * Removes all mapped triggers from every mapping
 	 */
 	public void removeAllMappedTriggers() {
+		dispatchTable.invalidate();
+
 		ArrayMap.Keys<String> keys = mappings.keys();
 		for (String key : keys)
 			getMapping(key).clear();
@@ -193,6 +235,8 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	}
 
 	private void clearMappedTouchListeners(String mappingName) {
+		dispatchTable.invalidate();
+
 		if (!mappedTouchListeners.containsKey(mappingName))
 			return;
 
@@ -200,6 +244,8 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	}
 
 	private void clearMappedKeyListeners(String mappingName) {
+		dispatchTable.invalidate();
+
 		if (!mappedKeyListeners.containsKey(mappingName))
 			return;
 
@@ -207,6 +253,8 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	}
 
 	private void clearMappedGestureListeners(String mappingName) {
+		dispatchTable.invalidate();
+
 		if (!mappedGestureListeners.containsKey(mappingName))
 			return;
 
@@ -214,6 +262,8 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	}
 
 	private void removeMappedTouchListeners(String mappingName) {
+		dispatchTable.invalidate();
+
 		if (!mappedTouchListeners.containsKey(mappingName))
 			return;
 
@@ -221,6 +271,8 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	}
 
 	private void removeMappedTouchListener(String mappingName, ITouchListener touchListener) {
+		dispatchTable.invalidate();
+
 		if (!mappedTouchListeners.containsKey(mappingName))
 			return;
 
@@ -229,6 +281,8 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	}
 
 	private void removeMappedKeyListeners(String mappingName) {
+		dispatchTable.invalidate();
+
 		if (!mappedKeyListeners.containsKey(mappingName))
 			return;
 
@@ -236,6 +290,8 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	}
 
 	private void removeMappedKeyListener(String mappingName, IKeyListener keyListener) {
+		dispatchTable.invalidate();
+
 		if (!mappedKeyListeners.containsKey(mappingName))
 			return;
 
@@ -244,6 +300,8 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	}
 
 	private void removeMappedGestureListeners(String mappingName) {
+		dispatchTable.invalidate();
+
 		if (!mappedGestureListeners.containsKey(mappingName))
 			return;
 
@@ -251,6 +309,8 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	}
 
 	private void removeMappedGestureListener(String mappingName, IGestureListener gestureListener) {
+		dispatchTable.invalidate();
+
 		if (!mappedGestureListeners.containsKey(mappingName))
 			return;
 
@@ -282,14 +342,20 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 		removeMappedGestureListeners(mappingName);
 	}
 
-	private void removeAllMappedTouchListeners()
-	{ mappedTouchListeners.clear(); }
+	private void removeAllMappedTouchListeners() {
+		mappedTouchListeners.clear();
+		dispatchTable.invalidate();
+	}
 
-	private void removeAllMappedKeyListeners()
-	{ mappedKeyListeners.clear(); }
+	private void removeAllMappedKeyListeners() {
+		mappedKeyListeners.clear();
+		dispatchTable.invalidate();
+	}
 
-	private void removeAllMappedGestureListeners ()
-	{ mappedGestureListeners.clear(); }
+	private void removeAllMappedGestureListeners () {
+		mappedGestureListeners.clear();
+		dispatchTable.invalidate();
+	}
 
 	/**
 	 * Removes all mapped listeners of every mapping.
@@ -314,6 +380,8 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	 * @param mappingName the name of the mapping
 	 */
 	public void removeMapping(String mappingName) {
+		dispatchTable.invalidate();
+
 		if (!hasMapping(mappingName))
 			return;
 
@@ -323,8 +391,10 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	/**
 	 * Removes all mappings.
 	 */
-	public void removeAllMappings()
-	{ mappings.clear(); }
+	public void removeAllMappings() {
+		mappings.clear();
+		dispatchTable.invalidate();
+	}
 
 	/**
 	 * Deactivates mapped triggers for a mapping.
@@ -422,6 +492,8 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	}
 
 	public void mapTouchListener(String mappingName, ITouchListener listener) {
+		dispatchTable.invalidate();
+
 		Array<ITouchListener> listeners =
 				mappedTouchListeners.containsKey(mappingName) ?
 						mappedTouchListeners.get(mappingName) : new Array<>();
@@ -432,6 +504,8 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	}
 
 	public void mapKeyListener(String mappingName, IKeyListener listener) {
+		dispatchTable.invalidate();
+
 		Array<IKeyListener> listeners =
 				mappedKeyListeners.containsKey(mappingName) ?
 						mappedKeyListeners.get(mappingName) : new Array<>();
@@ -442,6 +516,8 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	}
 
 	public void mapGestureListener(String mappingName, IGestureListener listener) {
+		dispatchTable.invalidate();
+
 		Array<IGestureListener> listeners =
 				mappedGestureListeners.containsKey(mappingName) ?
 						mappedGestureListeners.get(mappingName) : new Array<>();
@@ -548,6 +624,8 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	}
 
 	public void addTouchListener(TouchTrigger trigger, ITouchListener listener) {
+		dispatchTable.invalidate();
+
 		if (touchListeners.containsKey(trigger))
 			return;
 
@@ -555,6 +633,8 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	}
 
 	public void addKeyListener(KeyTrigger trigger, IKeyListener listener) {
+		dispatchTable.invalidate();
+
 		if (keyListeners.containsKey(trigger))
 			return;
 
@@ -562,6 +642,8 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	}
 
 	public void addGestureListener(GestureTrigger trigger, IGestureListener listener) {
+		dispatchTable.invalidate();
+
 		if (gestureListeners.containsKey(trigger))
 			return;
 
@@ -597,14 +679,18 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	}
 
 	private void removeTouchListener(TouchTrigger trigger) {
+		dispatchTable.invalidate();
+
 		if (!touchListeners.containsKey(trigger))
 			return;
 
 		touchListeners.removeKey(trigger);
 	}
 
-	private void removeTouchListener(ITouchListener touchListener)
-	{ touchListeners.removeValue(touchListener, true); }
+	private void removeTouchListener(ITouchListener touchListener) {
+		touchListeners.removeValue(touchListener, true);
+		dispatchTable.invalidate();
+	}
 
 	/**
 	 * Removes all touch listeners of a given event type
@@ -612,6 +698,8 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	 * @param touchEvent the event type
 	 */
 	public void removeTouchListeners(TouchEventData.TouchEvent touchEvent) {
+		dispatchTable.invalidate();
+
 		ArrayMap.Keys<TouchTrigger> triggers = touchListeners.keys();
 		for (TouchTrigger trigger : triggers) {
 			if (trigger.touchEventData.sameEvent(touchEvent)) {
@@ -626,6 +714,8 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	 * @param keyEvent the event type
 	 */
 	public void removeKeyListeners(KeyEventData.KeyEvent keyEvent) {
+		dispatchTable.invalidate();
+
 		ArrayMap.Keys<KeyTrigger> triggers = keyListeners.keys();
 		for (KeyTrigger trigger : triggers) {
 			if (trigger.keyEventData.sameEvent(keyEvent)) {
@@ -640,6 +730,8 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	 * @param gestureEvent the event type
 	 */
 	public void removeGestureListeners(GestureEventData.GestureEvent gestureEvent) {
+		dispatchTable.invalidate();
+
 		ArrayMap.Keys<GestureTrigger> triggers = gestureListeners.keys();
 		for (GestureTrigger trigger : triggers) {
 			if (trigger.gestureEventData.sameEvent(gestureEvent)) {
@@ -652,42 +744,56 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	 * Removes all touch listeners.
 	 * <strong>Note:</strong> this wont remove mapped listeners.
 	 */
-	public void removeAllTouchListeners()
-	{ touchListeners.clear(); }
+	public void removeAllTouchListeners() {
+		touchListeners.clear();
+		dispatchTable.invalidate();
+	}
 
 	private void removeKeyListener(KeyTrigger trigger) {
+		dispatchTable.invalidate();
+
 		if (!keyListeners.containsKey(trigger))
 			return;
 
 		keyListeners.removeKey(trigger);
 	}
 
-	private void removeKeyListener(IKeyListener keyListener)
-	{ keyListeners.removeValue(keyListener, true); }
+	private void removeKeyListener(IKeyListener keyListener) {
+		keyListeners.removeValue(keyListener, true);
+		dispatchTable.invalidate();
+	}
 
 	/**
 	 * Removes all key listeners.
 	 * <strong>Note:</strong> this wont remove mapped listeners.
 	 */
-	public void removeAllKeyListeners ()
-	{ keyListeners.clear(); }
+	public void removeAllKeyListeners () {
+		keyListeners.clear();
+		dispatchTable.invalidate();
+	}
 
 	private void removeGestureListener(GestureTrigger trigger) {
+		dispatchTable.invalidate();
+
 		if (!gestureListeners.containsKey(trigger))
 			return;
 
 		gestureListeners.removeKey(trigger);
 	}
 
-	private void removeGestureListener(IGestureListener gestureListener)
-	{ gestureListeners.removeValue(gestureListener, true); }
+	private void removeGestureListener(IGestureListener gestureListener) {
+		gestureListeners.removeValue(gestureListener, true);
+		dispatchTable.invalidate();
+	}
 
 	/**
 	 * Removes all gesture listeners.
 	 * <strong>Note:</strong> this wont remove mapped listeners.
 	 */
-	public void removeAllGestureListeners ()
-	{ gestureListeners.clear(); }
+	public void removeAllGestureListeners () {
+		gestureListeners.clear();
+		dispatchTable.invalidate();
+	}
 
 	/**
 	 * Removes all listeners.
@@ -701,110 +807,460 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 
 	@Override
 	public boolean touchUp (int screenX, int screenY, int pointer, int button) {
-		Vector2 coords = getWorldCoords(screenX, screenY);
+		if (eventQueue != null)
+			queueTouch(InputEventQueue.TOUCH_UP, screenX, screenY, pointer, button);
+		else
+			dispatchTouch(TouchEventData.TouchEvent.TOUCH_UP, screenX, screenY, pointer, button);
 
-		TouchEventData eventData = obtainTouchEventData();
-		eventData.touchEvent = TouchEventData.TouchEvent.TOUCH_UP;
-		eventData.touchX = coords.x;
-		eventData.touchY = coords.y;
-		eventData.pointer = pointer;
-		eventData.button = button;
+		return super.touchUp(screenX, screenY, pointer, button);
+	}
 
-		wakeTouchListeners(eventData);
-		wakeMappedTouchListeners(eventData);
+	@Override
+	public boolean touchDown (int screenX, int screenY, int pointer, int button) {
+		if (eventQueue != null)
+			queueTouch(InputEventQueue.TOUCH_DOWN, screenX, screenY, pointer, button);
+		else
+			dispatchTouch(TouchEventData.TouchEvent.TOUCH_DOWN, screenX, screenY, pointer, button);
 
-		// Once all the listeners have been invoked, we need to recycle the event data for later use
-		recycleEventData(eventData);
+		return super.touchDown(screenX, screenY, pointer, button);
+	}
 
-		return super.touchUp(screenX, screenY, pointer, button);
+	@Override
+	public boolean touchDragged (int screenX, int screenY, int pointer) {
+		if (eventQueue != null)
+			queueTouch(InputEventQueue.TOUCH_DRAGGED, screenX, screenY, pointer, NO_BUTTON);
+		else
+			dispatchTouch(TouchEventData.TouchEvent.TOUCH_DRAGGED, screenX, screenY, pointer, NO_BUTTON);
+
+		return super.touchDragged(screenX, screenY, pointer);
 	}
 
 	@Override
-	public boolean touchDown (int screenX, int screenY, int pointer, int button) {
-		Vector2 coords = getWorldCoords(screenX, screenY);
+	public boolean keyUp (int keyCode) {
+		if (eventQueue != null)
+			queueEvent(InputEventQueue.KEY_UP, keyCode, 0);
+		else
+			dispatchKey(KeyEventData.KeyEvent.KEY_UP, keyCode, (char)0);
 
-		TouchEventData eventData = obtainTouchEventData();
-		eventData.touchEvent = TouchEventData.TouchEvent.TOUCH_DOWN;
-		eventData.touchX = coords.x;
-		eventData.touchY = coords.y;
-		eventData.pointer = pointer;
-		eventData.button = button;
+		return super.keyUp(keyCode);
+	}
 
-		wakeTouchListeners(eventData);
-		wakeMappedTouchListeners(eventData);
+	@Override
+	public boolean keyDown (int keyCode) {
+		if (eventQueue != null)
+			queueEvent(InputEventQueue.KEY_DOWN, keyCode, 0);
+		else
+			dispatchKey(KeyEventData.KeyEvent.KEY_DOWN, keyCode, (char)0);
 
-		// Once all the listeners have been invoked, we need to recycle the event data for later use
-		recycleEventData(eventData);
+		return super.keyDown(keyCode);
+	}
 
-		return super.touchDown(screenX, screenY, pointer, button);
+	@Override
+	public boolean keyTyped (char keyChar) {
+		if (eventQueue != null)
+			queueEvent(InputEventQueue.KEY_TYPED, keyChar, 0);
+		else
+			dispatchKey(KeyEventData.KeyEvent.KEY_TYPED, 0, keyChar);
+
+		return super.keyTyped(keyChar);
 	}
 
 	@Override
-	public boolean touchDragged (int screenX, int screenY, int pointer) {
-		Vector2 coords = getWorldCoords(screenX, screenY);
+	public boolean tap (float x, float y, int count, int button) {
+		if (eventQueue != null) {
+			int slot = queueEvent(InputEventQueue.TAP, count, button);
+			setQueuedFloats(slot, x, y);
+		}
+		else
+			dispatchTap(x, y, count, button);
 
-		TouchEventData eventData = obtainTouchEventData();
-		eventData.touchEvent = TouchEventData.TouchEvent.TOUCH_DRAGGED;
-		eventData.touchX = coords.x;
-		eventData.touchY = coords.y;
-		eventData.pointer = pointer;
+		return false;
+	}
 
-		wakeTouchListeners(eventData);
-		wakeMappedTouchListeners(eventData);
+	@Override
+	public boolean fling (float velocityX, float velocityY, int button) {
+		if (eventQueue != null) {
+			int slot = queueEvent(InputEventQueue.FLING, 0, button);
+			setQueuedFloats(slot, velocityX, velocityY);
+		}
+		else
+			dispatchFling(velocityX, velocityY, button);
 
-		// Once all the listeners have been invoked, we need to recycle the event data for later use
-		recycleEventData(eventData);
+		return false;
+	}
 
-		return super.touchDragged(screenX, screenY, pointer);
+	@Override
+	public boolean longPress (float x, float y) {
+		if (eventQueue != null) {
+			int slot = queueEvent(InputEventQueue.LONG_PRESS, 0, 0);
+			setQueuedFloats(slot, x, y);
+		}
+		else
+			dispatchLongPress(x, y);
+
+		return false;
 	}
 
 	@Override
-	public boolean keyUp (int keyCode) {
-		KeyEventData eventData = obtainKeyEventData();
-		eventData.keyEvent = KeyEventData.KeyEvent.KEY_UP;
-		eventData.keyCode = keyCode;
+	public boolean pinch (Vector2 initialPointer1, Vector2 initialPointer2, Vector2 pointer1, Vector2 pointer2) {
+		if (eventQueue != null) {
+			// Consecutive pinches are merged; they share the initial pointers and only the latest pointers matter
+			int slot = findCoalescibleEvent(InputEventQueue.PINCH, 0);
+			if (slot == -1) {
+				slot = queueEvent(InputEventQueue.PINCH, 0, 0);
+				setQueuedFloats(slot, initialPointer1.x, initialPointer1.y);
+				eventQueue.floats[slot * InputEventQueue.FLOATS + 2] = initialPointer2.x;
+				eventQueue.floats[slot * InputEventQueue.FLOATS + 3] = initialPointer2.y;
+			}
 
-		wakeKeyListeners(eventData);
-		wakeMappedKeyListeners(eventData);
+			int f = slot * InputEventQueue.FLOATS;
+			eventQueue.floats[f + 4] = pointer1.x;
+			eventQueue.floats[f + 5] = pointer1.y;
+			eventQueue.floats[f + 6] = pointer2.x;
+			eventQueue.floats[f + 7] = pointer2.y;
+		}
+		else
+			dispatchPinch(initialPointer1.x, initialPointer1.y, initialPointer2.x, initialPointer2.y,
+					pointer1.x, pointer1.y, pointer2.x, pointer2.y);
 
-		// Once all the listeners have been invoked, we need to recycle the event data for later use
-		recycleEventData(eventData);
+		return false;
+	}
 
-		return super.keyUp(keyCode);
+	@Override
+	public void pinchStop () {
+		if (eventQueue != null)
+			queueEvent(InputEventQueue.PINCH_STOP, 0, 0);
+		else
+			dispatchPinchStop();
 	}
 
 	@Override
-	public boolean keyDown (int keyCode) {
-		KeyEventData eventData = obtainKeyEventData();
-		eventData.keyEvent = KeyEventData.KeyEvent.KEY_DOWN;
-		eventData.keyCode = keyCode;
+	public boolean pan (float x, float y, float deltaX, float deltaY) {
+		if (eventQueue != null) {
+			// Consecutive pans are merged into one that ends at the latest position and moves by the sum of the deltas
+			int slot = findCoalescibleEvent(InputEventQueue.PAN, 0);
+			if (slot == -1) {
+				slot = queueEvent(InputEventQueue.PAN, 0, 0);
+				eventQueue.floats[slot * InputEventQueue.FLOATS + 2] = 0;
+				eventQueue.floats[slot * InputEventQueue.FLOATS + 3] = 0;
+			}
 
-		wakeKeyListeners(eventData);
-		wakeMappedKeyListeners(eventData);
+			setQueuedFloats(slot, x, y);
+			eventQueue.floats[slot * InputEventQueue.FLOATS + 2] += deltaX;
+			eventQueue.floats[slot * InputEventQueue.FLOATS + 3] += deltaY;
+		}
+		else
+			dispatchPan(x, y, deltaX, deltaY);
 
-		// Once all the listeners have been invoked, we need to recycle the event data for later use
-		recycleEventData(eventData);
+		return false;
+	}
 
-		return super.keyDown(keyCode);
+	@Override
+	public boolean panStop (float x, float y, int pointer, int button) {
+		if (eventQueue != null) {
+			int slot = queueEvent(InputEventQueue.PAN_STOP, pointer, button);
+			setQueuedFloats(slot, x, y);
+		}
+		else
+			dispatchPanStop(x, y, pointer, button);
+
+		return false;
 	}
 
 	@Override
-	public boolean keyTyped (char keyChar) {
+	public boolean zoom (float initialDistance, float distance) {
+		if (eventQueue != null) {
+			// Consecutive zooms are merged; they share the initial distance and only the latest distance matters
+			int slot = findCoalescibleEvent(InputEventQueue.ZOOM, 0);
+			if (slot == -1) {
+				slot = queueEvent(InputEventQueue.ZOOM, 0, 0);
+				eventQueue.floats[slot * InputEventQueue.FLOATS] = initialDistance;
+			}
+
+			eventQueue.floats[slot * InputEventQueue.FLOATS + 1] = distance;
+		}
+		else
+			dispatchZoom(initialDistance, distance);
+
+		return false;
+	}
+
+	/**
+	 * Enables or disables queued events. By default, listeners are invoked as soon as libGDX reports an event.
+	 * When events are queued, the raw events are stored in a preallocated buffer instead and dispatched to the listeners all at once
+	 * by {@link #__update(float)}, at the start of the next scene update. Events of the same kind are merged while they wait, as long as no other kind
+	 * of event is queued in between: drags of the same pointer, pans, pinches and zooms. Drags and the pans detected from them are merged separately,
+	 * so high frequency mouse and touch input costs a bounded amount of work per frame.
+	 * <p>
+	 * Disabling queued events dispatches the events that are still waiting.
+	 * <strong>Note:</strong> events are always queued during a replay. The setting applies once the replay is removed.
+	 * @param enabled whether events should be queued
+	 */
+	public void setEventQueueEnabled (boolean enabled) {
+		if (replay != null) {
+			queueEnabledBeforeReplay = enabled;
+			return;
+		}
+
+		if (enabled == (eventQueue != null))
+			return;
+
+		if (enabled) {
+			eventQueue = new InputEventQueue(DEFAULT_QUEUE_CAPACITY);
+			Arrays.fill(coalescibleEvents, NO_EVENT);
+		}
+		else {
+			dispatchQueuedEvents();
+			eventQueue = null;
+		}
+	}
+
+	/**
+	 *
+	 * @return whether events are queued until the next frame
+	 * @see #setEventQueueEnabled(boolean)
+	 */
+	public boolean isEventQueueEnabled ()
+	{ return eventQueue != null; }
+
+	/**
+	 *
+	 * @return the number of events waiting to be dispatched
+	 */
+	public int getQueuedEventsCount ()
+	{ return eventQueue != null ? eventQueue.size() : 0; }
+
+	/**
+	 * Starts or stops recording the events dispatched by this manager. The recorder receives every frame, with its delta time and the events
+	 * dispatched in it, until it is removed.
+	 * @param recorder the recorder, or {@code null} to stop recording
+	 */
+	public void setRecorder (InputRecorder recorder)
+	{ this.recorder = recorder; }
+
+	/**
+	 *
+	 * @return the recorder of this manager or {@code null} if events are not recorded
+	 */
+	public InputRecorder getRecorder ()
+	{ return recorder; }
+
+	/**
+	 * Starts or stops a replay. While a replay is set, every frame dispatches the events of its next recorded frame, and the live events
+	 * received from libGDX are discarded. Once the replay is finished, frames have no events until it is removed.
+	 * <p>
+	 * Live events that are still waiting when a replay starts or stops are discarded.
+	 * @param replay the replay, or {@code null} to return to live events
+	 */
+	public void setReplay (InputReplay replay) {
+		if (this.replay == null && replay != null) {
+			queueEnabledBeforeReplay = eventQueue != null;
+			if (eventQueue == null) {
+				eventQueue = new InputEventQueue(DEFAULT_QUEUE_CAPACITY);
+				Arrays.fill(coalescibleEvents, NO_EVENT);
+			}
+		}
+		else if (this.replay != null && replay == null) {
+			if (!queueEnabledBeforeReplay)
+				eventQueue = null;
+		}
+
+		if (eventQueue != null)
+			eventQueue.clear();
+
+		this.replay = replay;
+	}
+
+	/**
+	 *
+	 * @return the replay of this manager or {@code null} if live events are dispatched
+	 */
+	public InputReplay getReplay ()
+	{ return replay; }
+
+	private int queueEvent (int kind, int int0, int int1) {
+		int slot = eventQueue.push(kind);
+		eventQueue.ints[slot * InputEventQueue.INTS] = int0;
+		eventQueue.ints[slot * InputEventQueue.INTS + 1] = int1;
+
+		int coalescible = coalescibleIndex(kind, int0);
+		if (coalescible != -1)
+			coalescibleEvents[coalescible] = eventQueue.lastSequence();
+		else {
+			// Merging into an event queued before this one would reorder them
+			Arrays.fill(coalescibleEvents, NO_EVENT);
+		}
+
+		return slot;
+	}
+
+	private void setQueuedFloats (int slot, float float0, float float1) {
+		eventQueue.floats[slot * InputEventQueue.FLOATS] = float0;
+		eventQueue.floats[slot * InputEventQueue.FLOATS + 1] = float1;
+	}
+
+	/* Returns the index of an event in coalescibleEvents given its kind and first int (the pointer of drags), -1 if it cannot be merged */
+	private static int coalescibleIndex (int kind, int int0) {
+		switch (kind) {
+			case InputEventQueue.PAN:
+				return COALESCIBLE_PAN;
+			case InputEventQueue.PINCH:
+				return COALESCIBLE_PINCH;
+			case InputEventQueue.ZOOM:
+				return COALESCIBLE_ZOOM;
+			case InputEventQueue.TOUCH_DRAGGED:
+				return int0 >= 0 && int0 < MAX_COALESCIBLE_POINTERS ? COALESCIBLE_DRAG + int0 : -1;
+			default:
+				return -1;
+		}
+	}
+
+	/* Returns the slot of the latest queued event with the given kind and first int if it can still be merged, -1 otherwise */
+	private int findCoalescibleEvent (int kind, int int0) {
+		int coalescible = coalescibleIndex(kind, int0);
+		if (coalescible == -1 || coalescibleEvents[coalescible] == NO_EVENT)
+			return -1;
+
+		return eventQueue.slotOf(coalescibleEvents[coalescible]);
+	}
+
+	private void queueTouch (int kind, int screenX, int screenY, int pointer, int button) {
+		// Consecutive drags of the same pointer are merged; only the latest position matters
+		int slot = kind == InputEventQueue.TOUCH_DRAGGED ? findCoalescibleEvent(kind, pointer) : -1;
+		if (slot == -1)
+			slot = queueEvent(kind, pointer, button);
+
+		setQueuedFloats(slot, screenX, screenY);
+	}
+
+	/* Dispatches the events queued so far. Events queued by the listeners wait for the next frame */
+	private void dispatchQueuedEvents () {
+		InputEventQueue queue = eventQueue;
+		if (queue == null)
+			return;
+
+		for (int n = queue.size(); n > 0; n--) {
+			int slot = queue.poll();
+			if (slot == -1)
+				break;
+
+			// Read the record first; a listener may queue events that reuse its slot
+			int i = slot * InputEventQueue.INTS;
+			int f = slot * InputEventQueue.FLOATS;
+			float[] floats = queue.floats;
+			dispatchEvent(queue.kinds[slot], queue.ints[i], queue.ints[i + 1], floats[f], floats[f + 1], floats[f + 2], floats[f + 3],
+					floats[f + 4], floats[f + 5], floats[f + 6], floats[f + 7]);
+		}
+	}
+
+	/* Dispatches the events of the next frame of the replay */
+	private void dispatchReplayedEvents () {
+		InputReplay replay = this.replay;
+
+		for (int n = replay.beginFrame(); n > 0; n--) {
+			replay.readEvent();
+			float[] floats = replay.floats;
+			dispatchEvent(replay.kind, replay.int0, replay.int1, floats[0], floats[1], floats[2], floats[3],
+					floats[4], floats[5], floats[6], floats[7]);
+		}
+	}
+
+	/* Dispatches an event given with the layout of the records of InputEventQueue */
+	private void dispatchEvent (int kind, int int0, int int1, float f0, float f1, float f2, float f3, float f4, float f5, float f6, float f7) {
+		switch (kind) {
+			case InputEventQueue.TOUCH_DOWN:
+				dispatchTouch(TouchEventData.TouchEvent.TOUCH_DOWN, f0, f1, int0, int1);
+				break;
+			case InputEventQueue.TOUCH_UP:
+				dispatchTouch(TouchEventData.TouchEvent.TOUCH_UP, f0, f1, int0, int1);
+				break;
+			case InputEventQueue.TOUCH_DRAGGED:
+				dispatchTouch(TouchEventData.TouchEvent.TOUCH_DRAGGED, f0, f1, int0, int1);
+				break;
+			case InputEventQueue.KEY_DOWN:
+				dispatchKey(KeyEventData.KeyEvent.KEY_DOWN, int0, (char)0);
+				break;
+			case InputEventQueue.KEY_UP:
+				dispatchKey(KeyEventData.KeyEvent.KEY_UP, int0, (char)0);
+				break;
+			case InputEventQueue.KEY_TYPED:
+				dispatchKey(KeyEventData.KeyEvent.KEY_TYPED, 0, (char)int0);
+				break;
+			case InputEventQueue.TAP:
+				dispatchTap(f0, f1, int0, int1);
+				break;
+			case InputEventQueue.FLING:
+				dispatchFling(f0, f1, int1);
+				break;
+			case InputEventQueue.LONG_PRESS:
+				dispatchLongPress(f0, f1);
+				break;
+			case InputEventQueue.PAN:
+				dispatchPan(f0, f1, f2, f3);
+				break;
+			case InputEventQueue.PAN_STOP:
+				dispatchPanStop(f0, f1, int0, int1);
+				break;
+			case InputEventQueue.PINCH:
+				dispatchPinch(f0, f1, f2, f3, f4, f5, f6, f7);
+				break;
+			case InputEventQueue.PINCH_STOP:
+				dispatchPinchStop();
+				break;
+			case InputEventQueue.ZOOM:
+				dispatchZoom(f0, f1);
+				break;
+		}
+	}
+
+	private void dispatchTouch (TouchEventData.TouchEvent touchEvent, float screenX, float screenY, int pointer, int button) {
+		if (recorder != null) {
+			int kind = touchEvent == TouchEventData.TouchEvent.TOUCH_DOWN ? InputEventQueue.TOUCH_DOWN :
+					touchEvent == TouchEventData.TouchEvent.TOUCH_UP ? InputEventQueue.TOUCH_UP : InputEventQueue.TOUCH_DRAGGED;
+			record(kind, pointer, button, screenX, screenY);
+		}
+
+		actionState.onTouch(touchEvent, screenX, screenY, pointer);
+
+		Vector2 coords = getWorldCoords(screenX, screenY);
+
+		TouchEventData eventData = obtainTouchEventData();
+		eventData.touchEvent = touchEvent;
+		eventData.touchX = coords.x;
+		eventData.touchY = coords.y;
+		eventData.pointer = pointer;
+		eventData.button = button;
+
+		wakeTouchListeners(eventData, false);
+
+		// Once all the listeners have been invoked, we need to recycle the event data for later use
+		recycleEventData(eventData);
+	}
+
+	private void dispatchKey (KeyEventData.KeyEvent keyEvent, int keyCode, char keyChar) {
+		if (recorder != null) {
+			if (keyEvent == KeyEventData.KeyEvent.KEY_TYPED)
+				record(InputEventQueue.KEY_TYPED, keyChar, 0, 0, 0);
+			else
+				record(keyEvent == KeyEventData.KeyEvent.KEY_DOWN ? InputEventQueue.KEY_DOWN : InputEventQueue.KEY_UP, keyCode, 0, 0, 0);
+		}
+
+		actionState.onKey(keyEvent, keyCode, keyChar);
+
 		KeyEventData eventData = obtainKeyEventData();
-		eventData.keyEvent = KeyEventData.KeyEvent.KEY_TYPED;
+		eventData.keyEvent = keyEvent;
+		eventData.keyCode = keyCode;
 		eventData.keyChar = keyChar;
 
 		wakeKeyListeners(eventData);
-		wakeMappedKeyListeners(eventData);
 
 		// Once all the listeners have been invoked, we need to recycle the event data for later use
 		recycleEventData(eventData);
-
-		return super.keyTyped(keyChar);
 	}
 
-	@Override
-	public boolean tap (float x, float y, int count, int button) {
+	private void dispatchTap (float x, float y, int count, int button) {
+		record(InputEventQueue.TAP, count, button, x, y);
+
 		Vector2 coords = getWorldCoords(x, y);
 
 		GestureEventData eventData = obtainGestureEventData();
@@ -817,17 +1273,12 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 		if (count == 2)
 			eventData.gestureEvent = GestureEventData.GestureEvent.DOUBLE_TAP;
 
-		wakeGestureListeners(eventData);
-		wakeMappedGestureListeners(eventData);
-
-		// Once all the listeners have been invoked, we need to recycle the event data for later use
-		recycleEventData(eventData);
-
-		return false;
+		dispatchGesture(eventData);
 	}
 
-	@Override
-	public boolean fling (float velocityX, float velocityY, int button) {
+	private void dispatchFling (float velocityX, float velocityY, int button) {
+		record(InputEventQueue.FLING, 0, button, velocityX, velocityY);
+
 		Vector2 velocity = getWorldCoords(velocityX, velocityY);
 
 		GestureEventData eventData = obtainGestureEventData();
@@ -836,17 +1287,12 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 		eventData.flingVelocityY = velocity.y;
 		eventData.button = button;
 
-		wakeGestureListeners(eventData);
-		wakeMappedGestureListeners(eventData);
-
-		// Once all the listeners have been invoked, we need to recycle the event data for later use
-		recycleEventData(eventData);
-
-		return false;
+		dispatchGesture(eventData);
 	}
 
-	@Override
-	public boolean longPress (float x, float y) {
+	private void dispatchLongPress (float x, float y) {
+		record(InputEventQueue.LONG_PRESS, 0, 0, x, y);
+
 		Vector2 coords = getWorldCoords(x, y);
 
 		GestureEventData eventData = obtainGestureEventData();
@@ -854,55 +1300,36 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 		eventData.x = coords.x;
 		eventData.y = coords.y;
 
-		wakeGestureListeners(eventData);
-		wakeMappedGestureListeners(eventData);
-
-		// Once all the listeners have been invoked, we need to recycle the event data for later use
-		recycleEventData(eventData);
-
-		return false;
+		dispatchGesture(eventData);
 	}
 
-	@Override
-	public boolean pinch (Vector2 initialPointer1, Vector2 initialPointer2, Vector2 pointer1, Vector2 pointer2) {
+	private void dispatchPinch (float initialX1, float initialY1, float initialX2, float initialY2, float x1, float y1, float x2, float y2) {
+		if (recorder != null)
+			recorder.recordEvent(InputEventQueue.PINCH, 0, 0, initialX1, initialY1, initialX2, initialY2, x1, y1, x2, y2);
+
 		GestureEventData eventData = obtainGestureEventData();
 		eventData.gestureEvent = GestureEventData.GestureEvent.PINCH;
+		eventData.initialPinchPointer1 = initialPinchPointer1.set(getWorldCoords(initialX1, initialY1));
+		eventData.initialPinchPointer2 = initialPinchPointer2.set(getWorldCoords(initialX2, initialY2));
+		eventData.pinchPointer1 = pinchPointer1.set(getWorldCoords(x1, y1));
+		eventData.pinchPointer2 = pinchPointer2.set(getWorldCoords(x2, y2));
 
-		Vector2 worldPoint = getWorldCoords(initialPointer1);
-		eventData.initialPinchPointer1 = initialPointer1.set(worldPoint);
-
-		worldPoint = getWorldCoords(initialPointer2);
-		eventData.initialPinchPointer2 = initialPointer2.set(worldPoint);
-
-		worldPoint = getWorldCoords(pointer1);
-		eventData.pinchPointer1 = pointer1.set(worldPoint);
-
-		worldPoint = getWorldCoords(pointer2);
-		eventData.pinchPointer2 = pointer2.set(worldPoint);
-
-		wakeGestureListeners(eventData);
-		wakeMappedGestureListeners(eventData);
-
-		// Once all the listeners have been invoked, we need to recycle the event data for later use
-		recycleEventData(eventData);
-
-		return false;
+		dispatchGesture(eventData);
 	}
 
-	@Override
-	public void pinchStop () {
+	private void dispatchPinchStop () {
+		record(InputEventQueue.PINCH_STOP, 0, 0, 0, 0);
+
 		GestureEventData eventData = obtainGestureEventData();
 		eventData.gestureEvent = GestureEventData.GestureEvent.PINCH_STOP;
 
-		wakeGestureListeners(eventData);
-		wakeMappedGestureListeners(eventData);
-
-		// Once all the listeners have been invoked, we need to recycle the event data for later use
-		recycleEventData(eventData);
+		dispatchGesture(eventData);
 	}
 
-	@Override
-	public boolean pan (float x, float y, float deltaX, float deltaY) {
+	private void dispatchPan (float x, float y, float deltaX, float deltaY) {
+		if (recorder != null)
+			recorder.recordEvent(InputEventQueue.PAN, 0, 0, x, y, deltaX, deltaY, 0, 0, 0, 0);
+
 		Vector2 coords = getWorldCoords(x, y);
 
 		GestureEventData eventData = obtainGestureEventData();
@@ -914,17 +1341,12 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 		eventData.panDeltaX = coords.x;
 		eventData.panDeltaY = coords.y;
 
-		wakeGestureListeners(eventData);
-		wakeMappedGestureListeners(eventData);
-
-		// Once all the listeners have been invoked, we need to recycle the event data for later use
-		recycleEventData(eventData);
-
-		return false;
+		dispatchGesture(eventData);
 	}
 
-	@Override
-	public boolean panStop (float x, float y, int pointer, int button) {
+	private void dispatchPanStop (float x, float y, int pointer, int button) {
+		record(InputEventQueue.PAN_STOP, pointer, button, x, y);
+
 		Vector2 coords = getWorldCoords(x, y);
 
 		GestureEventData eventData = obtainGestureEventData();
@@ -933,17 +1355,15 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 		eventData.y = coords.y;
 		eventData.pointer = pointer;
 
-		wakeGestureListeners(eventData);
-		wakeMappedGestureListeners(eventData);
+		dispatchGesture(eventData);
+	}
 
-		// Once all the listeners have been invoked, we need to recycle the event data for later use
-		recycleEventData(eventData);
+	private void dispatchZoom (float initialDistance, float distance) {
+		record(InputEventQueue.ZOOM, 0, 0, initialDistance, distance);
 
-		return false;
-	}
+		// The value of zoom actions is the ratio of the screen distances
+		actionState.onZoom(initialDistance, distance);
 
-	@Override
-	public boolean zoom (float initialDistance, float distance) {
 		Vector2 worldPoint = getWorldCoords(initialDistance, distance);
 		initialDistance = worldPoint.x;
 		distance = worldPoint.y;
@@ -955,13 +1375,21 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 		eventData.zoomFactor = initialDistance / distance;
 		eventData.zoomedIn = distance > initialDistance;
 
-		wakeGestureListeners(eventData);
-		wakeMappedGestureListeners(eventData);
+		dispatchGesture(eventData);
+	}
+
+	private void record (int kind, int int0, int int1, float f0, float f1) {
+		if (recorder != null)
+			recorder.recordEvent(kind, int0, int1, f0, f1, 0, 0, 0, 0, 0, 0);
+	}
+
+	private void dispatchGesture (GestureEventData eventData) {
+		actionState.onGesture(eventData);
+
+		wakeGestureListeners(eventData, false);
 
 		// Once all the listeners have been invoked, we need to recycle the event data for later use
 		recycleEventData(eventData);
-
-		return false;
 	}
 
 	@Override
@@ -993,301 +1421,269 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	{ return getWorldCoords(screenCoords.x, screenCoords.y); }
 
 	/**
-	 * A convenient method for adding a listener that responds to back presses on Android devices.
-	 * @param listener the listener
+	 * Returns the id of the action of a mapping. The state of every action is sampled once per frame, at the start of the scene update,
+	 * from the events received since the previous frame. Querying it is an array lookup: no listener is invoked and no coordinates are unprojected.
+	 * <p>
+	 * Ids are interned, so resolve them once and keep them. An id stays valid for the life of this manager, even if its mapping is removed
+	 * and added again; an action whose mapping does not exist is never pressed. The state of a new action is available from the next frame.
+	 * <p>
+	 * Key triggers hold the action while their key is down, whatever their event, except typed key triggers that press and release it
+	 * in the same frame. Touch down triggers hold it while any pointer is down; touch up and drag triggers press and release it in the frame
+	 * a pointer was released or dragged. Pan, pinch and zoom triggers hold it during the gesture;
+	 * the other gesture triggers press and release it in the frame the gesture was detected. Inactive triggers are ignored; polled ones are not.
+	 * @param mappingName the name of the mapping
+	 * @return the id of the action
 	 */
-	public void addOnBackpressListener(IKeyListener listener)
-	{ addListener(KeyTrigger.keyDownTrigger(Keys.BACK), listener); }
+	public int getActionId (String mappingName)
+	{ return actionState.getActionId(mappingName); }
 
-	private void wakeMappedTouchListeners(TouchEventData eventData) {
-		// Get the mapped listener keys
-		ArrayMap.Keys<String> mappedListenerKeys  = mappedTouchListeners.keys();
-
-		// For every mapped key, get the mapped triggers check if fired (associated event occurred)
-		for (String mappedKey : mappedListenerKeys) {
-			if (!hasMapping(mappedKey))
-				continue;
-
-			// Get the triggers
-			Array<ITrigger> triggers = mappings.get(mappedKey);
+	/**
+	 *
+	 * @param actionId the id of an action
+	 * @return the name of the mapping of the action
+	 */
+	public String getActionName (int actionId)
+	{ return actionState.getActionName(actionId); }
 
-			// Get the listeners
-			Array<ITouchListener> listeners = mappedTouchListeners.get(mappedKey);
+	/**
+	 *
+	 * @param actionId the id of an action, returned by {@link #getActionId(String)}
+	 * @return {@code true} if the action is held down in this frame, {@code false} otherwise
+	 */
+	public boolean isActionPressed (int actionId)
+	{ return actionState.isHeld(actionId); }
 
-			// Check triggers that fired
-			for (ITrigger trigger : triggers) {
-				if (!trigger.isActive() || trigger.isPolled())
-					continue;
+	/**
+	 *
+	 * @param actionId the id of an action, returned by {@link #getActionId(String)}
+	 * @return {@code true} if the action was pressed in this frame after not being held in the previous one, {@code false} otherwise
+	 */
+	public boolean isActionJustPressed (int actionId)
+	{ return actionState.isJustPressed(actionId); }
 
-				if (!(trigger instanceof TouchTrigger))
-					continue;
+	/**
+	 *
+	 * @param actionId the id of an action, returned by {@link #getActionId(String)}
+	 * @return {@code true} if the action was released in this frame, {@code false} otherwise
+	 */
+	public boolean isActionJustReleased (int actionId)
+	{ return actionState.isJustReleased(actionId); }
 
-				TouchTrigger trigg = (TouchTrigger) trigger;
-				if (trigg.touchEventData.sameEvent(eventData)) {
-					// trigger fired!
-					for (ITouchListener listener : listeners)
-						listener.onTouch(mappedKey, eventData);
-				}
-			}
-		}
-	}
+	/**
+	 * Returns the value of an action: 1 while it is pressed and 0 otherwise, except during a zoom where zoom triggers report
+	 * the ratio of the current distance between the fingers to the initial one.
+	 * @param actionId the id of an action, returned by {@link #getActionId(String)}
+	 * @return the value of the action in this frame
+	 */
+	public float getActionValue (int actionId)
+	{ return actionState.getValue(actionId); }
 
-	private void wakeMappedKeyListeners(KeyEventData eventData) {
-		// Get the mapped listener keys
-		ArrayMap.Keys<String> mappedListenerKeys  = mappedKeyListeners.keys();
+	/**
+	 *
+	 * @param actionId the id of an action, returned by {@link #getActionId(String)}
+	 * @return the x-coordinate (in world units) of the pointer or gesture that last drove the action
+	 */
+	public float getActionX (int actionId)
+	{ return actionState.getActionX(actionId); }
 
-		// For every mapped key, get the mapped triggers check if fired (associated event occurred)
-		for (String mappedKey : mappedListenerKeys) {
-			if (!hasMapping(mappedKey))
-				continue;
+	/**
+	 *
+	 * @param actionId the id of an action, returned by {@link #getActionId(String)}
+	 * @return the y-coordinate (in world units) of the pointer or gesture that last drove the action
+	 */
+	public float getActionY (int actionId)
+	{ return actionState.getActionY(actionId); }
 
-			// Get the triggers
-			Array<ITrigger> triggers = mappings.get(mappedKey);
+	/**
+	 *
+	 * @param pointer the pointer index for a finger
+	 * @return {@code true} if the pointer was down when the current frame was sampled, {@code false} otherwise
+	 */
+	public boolean isPointerDown (int pointer)
+	{ return actionState.isPointerDown(pointer); }
 
-			// Get the listeners
-			Array<IKeyListener> listeners = mappedKeyListeners.get(mappedKey);
+	/**
+	 *
+	 * @param pointer the pointer index for a finger
+	 * @return the x-coordinate (in world units) of the pointer when it was last sampled, unprojected once per frame
+	 */
+	public float getPointerWorldX (int pointer)
+	{ return actionState.getPointerWorldX(pointer); }
 
-			// Check triggers that fired
-			for (ITrigger trigger : triggers) {
-				if (!trigger.isActive() || trigger.isPolled())
-					continue;
+	/**
+	 *
+	 * @param pointer the pointer index for a finger
+	 * @return the y-coordinate (in world units) of the pointer when it was last sampled, unprojected once per frame
+	 */
+	public float getPointerWorldY (int pointer)
+	{ return actionState.getPointerWorldY(pointer); }
 
-				if (!(trigger instanceof KeyTrigger))
-					continue;
+	/* Returns the world coordinates of a pointer, sampled this frame if possible */
+	private Vector2 getPointerCoords (int pointer) {
+		if (actionState.isPointerDown(pointer))
+			return tempVector.set(actionState.getPointerWorldX(pointer), actionState.getPointerWorldY(pointer));
 
-				KeyTrigger trigg = (KeyTrigger)trigger;
-				if (trigg.keyEventData.sameEvent(eventData)) {
-					// trigger fired!
-					for (IKeyListener listener : listeners)
-						listener.onKey(mappedKey, eventData);
-				}
-			}
-		}
+		return getWorldCoords(Gdx.input.getX(pointer), Gdx.input.getY(pointer));
 	}
 
-	private void wakeMappedGestureListeners(GestureEventData eventData) {
-		// Get the mapped listener keys
-		ArrayMap.Keys<String> mappedListenerKeys  = mappedGestureListeners.keys();
+	/**
+	 * A convenient method for adding a listener that responds to back presses on Android devices.
+	 * @param listener the listener
+	 */
+	public void addOnBackpressListener(IKeyListener listener)
+	{ addListener(KeyTrigger.keyDownTrigger(Keys.BACK), listener); }
 
-		// For every mapped key, get the mapped triggers check if fired (associated event occurred)
-		for (String mappedKey : mappedListenerKeys) {
-			if (!hasMapping(mappedKey))
-				continue;
+	/* Returns the dispatch table, rebuilt if the listeners changed. A table being dispatched from is never rebuilt */
+	private InputDispatchTable getDispatchTable () {
+		if (dispatchTable.isDirty() && dispatchDepth == 0)
+			dispatchTable.rebuild(mappings, touchListeners, keyListeners, gestureListeners,
+					mappedTouchListeners, mappedKeyListeners, mappedGestureListeners);
 
-			// Get the triggers
-			Array<ITrigger> triggers = mappings.get(mappedKey);
+		return dispatchTable;
+	}
 
-			// Get the listeners
-			Array<IGestureListener> listeners = mappedGestureListeners.get(mappedKey);
+	/**
+	 * Marks the dispatch tables as outdated so they are rebuilt before the next event is dispatched.
+	 * The tables are rebuilt automatically when listeners, mappings or mapped triggers are changed through this manager.
+	 * Call this method only after modifying the arrays returned by {@link #getMapping(String)} or the getters of mapped listeners directly,
+	 * or after changing the event data of a registered trigger.
+	 */
+	public void invalidateDispatchTables ()
+	{ dispatchTable.invalidate(); }
 
-			// Check triggers that fired
-			for (ITrigger trigger : triggers) {
-				if (!trigger.isActive() || trigger.isPolled())
-					continue;
+	private void wakeTouchListeners (TouchEventData eventData, boolean polled) {
+		Array<InputDispatchTable.Binding<ITouchListener>> bindings = getDispatchTable().getTouchBindings(eventData.touchEvent);
 
-				if (!(trigger instanceof GestureTrigger))
+		dispatchDepth++;
+		try {
+			for (int i = 0; i < bindings.size; i++) {
+				InputDispatchTable.Binding<ITouchListener> binding = bindings.get(i);
+				if (!binding.trigger.isActive() || binding.trigger.isPolled() != polled)
 					continue;
 
-				GestureTrigger trigg = (GestureTrigger)trigger;
-				if (trigg.gestureEventData.sameEvent(eventData)) {
-					// trigger fired!
-					for (IGestureListener listener : listeners)
-						listener.onGesture(mappedKey, eventData);
+				// trigger fired!
+				if (binding.mappingName == null)
+					binding.listener.onTouch(null, eventData);
+				else {
+					Array<ITouchListener> listeners = binding.listeners;
+					for (int j = 0; j < listeners.size; j++)
+						listeners.get(j).onTouch(binding.mappingName, eventData);
 				}
 			}
+		} finally {
+			dispatchDepth--;
 		}
 	}
 
-	private void wakeTouchListeners(TouchEventData eventData) {
-		// Check triggers that fired
-		ArrayMap.Keys<TouchTrigger> triggers = touchListeners.keys();
-		for (TouchTrigger trigger : triggers) {
-			if (!trigger.isActive() || trigger.isPolled())
-				continue;
-
-			if (trigger.touchEventData.sameEvent(eventData))
-				touchListeners.get(trigger).onTouch(null, eventData);
-		}
-	}
+	private void wakeKeyListeners (KeyEventData eventData) {
+		Array<InputDispatchTable.Binding<IKeyListener>> bindings = getDispatchTable().getKeyBindings(eventData);
 
-	private void wakeKeyListeners(KeyEventData eventData) {
-		// Check triggers that fired
-		ArrayMap.Keys<KeyTrigger> triggers = keyListeners.keys();
-		for (KeyTrigger trigger : triggers) {
-			if (!trigger.isActive() || trigger.isPolled())
-				continue;
-
-			if (trigger.keyEventData.sameEvent(eventData))
-				keyListeners.get(trigger).onKey(null, eventData);
-		}
-	}
-
-	private void wakeGestureListeners(GestureEventData eventData) {
-		// Check triggers that fired
-		ArrayMap.Keys<GestureTrigger> triggers = gestureListeners.keys();
-		for (GestureTrigger trigger : triggers) {
-			if (!trigger.isActive() || trigger.isPolled())
-				continue;
-
-			if (trigger.gestureEventData.sameEvent(eventData))
-				gestureListeners.get(trigger).onGesture(null, eventData);
-		}
-	}
-
-	private void wakeMappedPolledTouchListeners(TouchEventData eventData) {
-		// Get the mapped listener keys
-		ArrayMap.Keys<String> mappedListenerKeys  = mappedTouchListeners.keys();
-
-		// For every mapped key, get the mapped triggers check if fired (associated event occurred)
-		for (String mappedKey : mappedListenerKeys) {
-			if (!hasMapping(mappedKey))
-				continue;
-
-			// Get the triggers
-			Array<ITrigger> triggers = mappings.get(mappedKey);
-
-			// Get the listeners
-			Array<ITouchListener> listeners = mappedTouchListeners.get(mappedKey);
-
-			// Check triggers that fired
-			for (ITrigger trigger : triggers) {
-				if (!trigger.isActive() || !trigger.isPolled())
+		dispatchDepth++;
+		try {
+			for (int i = 0; i < bindings.size; i++) {
+				InputDispatchTable.Binding<IKeyListener> binding = bindings.get(i);
+				if (!binding.trigger.isActive() || binding.trigger.isPolled())
 					continue;
 
-				if (!(trigger instanceof TouchTrigger))
+				if (!((KeyTrigger)binding.trigger).keyEventData.sameEvent(eventData))
 					continue;
 
-				TouchTrigger trigg = (TouchTrigger) trigger;
-				if (trigg.touchEventData.sameEvent(eventData)) {
-					// trigger fired!
-					for (ITouchListener listener : listeners)
-						listener.onTouch(mappedKey, eventData);
-				}
+				// trigger fired!
+				wakeKeyBinding(binding, eventData);
 			}
+		} finally {
+			dispatchDepth--;
 		}
 	}
 
-	private void wakeMappedPolledKeyListeners() {
-		// Get the mapped listener keys
-		ArrayMap.Keys<String> mappedListenerKeys  = mappedKeyListeners.keys();
-
-		// For every mapped key, get the mapped triggers check if fired (associated event occurred)
-		for (String mappedKey : mappedListenerKeys) {
-			if (!hasMapping(mappedKey))
-				continue;
-
-			// Get the triggers
-			Array<ITrigger> triggers = mappings.get(mappedKey);
+	private void wakePolledKeyListeners () {
+		Array<InputDispatchTable.Binding<IKeyListener>> bindings = getDispatchTable().getKeyDownBindings();
 
-			// Get the listeners
-			Array<IKeyListener> listeners = mappedKeyListeners.get(mappedKey);
-
-			// Check triggers that fired
-			for (ITrigger trigger : triggers) {
-				if (!trigger.isActive() || !trigger.isPolled())
+		dispatchDepth++;
+		try {
+			for (int i = 0; i < bindings.size; i++) {
+				InputDispatchTable.Binding<IKeyListener> binding = bindings.get(i);
+				if (!binding.trigger.isActive() || !binding.trigger.isPolled())
 					continue;
 
-				if (!(trigger instanceof KeyTrigger))
+				int keyCode = ((KeyTrigger)binding.trigger).keyEventData.keyCode;
+				if (!isKeyDown(keyCode))
 					continue;
 
-				KeyTrigger trigg = (KeyTrigger)trigger;
-				if (isKeyDown(trigg.keyEventData.keyCode)
-						&& trigg.keyEventData.sameEvent(KeyEventData.KeyEvent.KEY_DOWN)) {
-					KeyEventData eventData = obtainKeyEventData();
-					eventData.keyCode = trigg.keyEventData.keyCode;
+				KeyEventData eventData = obtainKeyEventData();
+				eventData.keyCode = keyCode;
 
-					for (IKeyListener listener : listeners)
-						listener.onKey(mappedKey, eventData);
+				wakeKeyBinding(binding, eventData);
 
-					recycleEventData(eventData);
-				}
+				recycleEventData(eventData);
 			}
+		} finally {
+			dispatchDepth--;
 		}
 	}
 
-	private void wakeMappedPolledGestureListeners(GestureEventData eventData) {
-		// Get the mapped listener keys
-		ArrayMap.Keys<String> mappedListenerKeys  = mappedGestureListeners.keys();
-
-		// For every mapped key, get the mapped triggers check if fired (associated event occurred)
-		for (String mappedKey : mappedListenerKeys) {
-			if (!hasMapping(mappedKey))
-				continue;
-
-			// Get the triggers
-			Array<ITrigger> triggers = mappings.get(mappedKey);
-
-			// Get the listeners
-			Array<IGestureListener> listeners = mappedGestureListeners.get(mappedKey);
+	private void wakeKeyBinding (InputDispatchTable.Binding<IKeyListener> binding, KeyEventData eventData) {
+		if (binding.mappingName == null)
+			binding.listener.onKey(null, eventData);
+		else {
+			Array<IKeyListener> listeners = binding.listeners;
+			for (int j = 0; j < listeners.size; j++)
+				listeners.get(j).onKey(binding.mappingName, eventData);
+		}
+	}
 
-			// Check triggers that fired
-			for (ITrigger trigger : triggers) {
-				if (!trigger.isActive() || !trigger.isPolled())
-					continue;
+	private void wakeGestureListeners (GestureEventData eventData, boolean polled) {
+		Array<InputDispatchTable.Binding<IGestureListener>> bindings = getDispatchTable().getGestureBindings(eventData.gestureEvent);
 
-				if (!(trigger instanceof GestureTrigger))
+		dispatchDepth++;
+		try {
+			for (int i = 0; i < bindings.size; i++) {
+				InputDispatchTable.Binding<IGestureListener> binding = bindings.get(i);
+				if (!binding.trigger.isActive() || binding.trigger.isPolled() != polled)
 					continue;
 
-				GestureTrigger trigg = (GestureTrigger)trigger;
-				if (trigg.gestureEventData.sameEvent(eventData)) {
-					// trigger fired!
-					for (IGestureListener listener : listeners)
-						listener.onGesture(mappedKey, eventData);
+				// trigger fired!
+				if (binding.mappingName == null)
+					binding.listener.onGesture(null, eventData);
+				else {
+					Array<IGestureListener> listeners = binding.listeners;
+					for (int j = 0; j < listeners.size; j++)
+						listeners.get(j).onGesture(binding.mappingName, eventData);
 				}
 			}
+		} finally {
+			dispatchDepth--;
 		}
 	}
 
-	private void wakePolledTouchListeners(TouchEventData eventData) {
-		ArrayMap.Keys<TouchTrigger> triggers = touchListeners.keys();
-		for (TouchTrigger trigger : triggers) {
-			if (!trigger.isActive() || !trigger.isPolled())
-				continue;
-
-			if (trigger.touchEventData.sameEvent(eventData))
-				touchListeners.get(trigger).onTouch(null, eventData);
-		}
-	}
-
-	private void wakePolledKeyListeners() {
-		ArrayMap.Keys<KeyTrigger> triggers = keyListeners.keys();
-		for (KeyTrigger trigger : triggers) {
-			if (!trigger.isActive() || !trigger.isPolled())
-				continue;
-
-			if (isKeyDown(trigger.keyEventData.keyCode)
-					&& trigger.keyEventData.sameEvent(KeyEventData.KeyEvent.KEY_DOWN)) {
-				KeyEventData eventData = obtainKeyEventData();
-				eventData.keyCode = trigger.keyEventData.keyCode;
-				keyListeners.get(trigger).onKey(null, eventData);
-				recycleEventData(eventData);
-			}
+	/**
+	 * Called every frame internally by the system. This is where queued or replayed events are dispatched, the frame is recorded,
+	 * the state of the actions is sampled and polled triggers gets evaluated and fired if need be.
+	 * <strong>Do not call this method explicitly</strong>
+	 * @param deltaTime the time difference between this frame and the previous frame
+	 */
+	public void __update(float deltaTime) {
+		if (replay != null) {
+			// Live events are ignored during a replay
+			eventQueue.clear();
+			dispatchReplayedEvents();
 		}
-	}
+		else
+			dispatchQueuedEvents();
 
-	private void wakePolledGestureListeners(GestureEventData eventData) {
-		ArrayMap.Keys<GestureTrigger> triggers = gestureListeners.keys();
-		for (GestureTrigger trigger : triggers) {
-			if (!trigger.isActive() || !trigger.isPolled())
-				continue;
+		if (recorder != null)
+			recorder.endFrame(deltaTime);
 
-			if (trigger.gestureEventData.sameEvent(eventData))
-				gestureListeners.get(trigger).onGesture(null, eventData);
-		}
-	}
+		actionState.update(this, mappings, dispatchTable.getVersion(), replay == null);
 
-	/**
-	 * Called every frame internally by the system. This is where polled triggers gets evaluated and fired if need be.
-	 * <strong>Do not call this method explicitly</strong>
-	 */
-	public void __update() {
 		int maxPointers = Gdx.input.getMaxPointers();
 		for (int i=0; i < maxPointers; i++) {
 			if (isTouched(i)) {
 				TouchEventData eventData = obtainTouchEventData();
+				Vector2 coords = getPointerCoords(i);
 				eventData.touchEvent = TouchEventData.TouchEvent.TOUCH_DOWN;
-				eventData.touchX = getTouchedX(i);
-				eventData.touchY = getTouchedY(i);
+				eventData.touchX = coords.x;
+				eventData.touchY = coords.y;
 				eventData.pointer = i;
 				for (int button : MOUSE_BUTTONS) {
 					if (isMouseJustPressed(button)) {
@@ -1296,8 +1692,7 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 					}
 				}
 
-				wakePolledTouchListeners(eventData);
-				wakeMappedPolledTouchListeners(eventData);
+				wakeTouchListeners(eventData, true);
 
 				// Once all the listeners have been invoked, we need to recycle the event data for later use
 				recycleEventData(eventData);
@@ -1306,9 +1701,10 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 
 		if (isLongPressed()) {
 			GestureEventData eventData = obtainGestureEventData();
+			Vector2 coords = getPointerCoords(0);
 			eventData.gestureEvent = GestureEventData.GestureEvent.LONG_PRESS;
-			eventData.x = getTouchedX();
-			eventData.y = getTouchedY();
+			eventData.x = coords.x;
+			eventData.y = coords.y;
 			for (int button : MOUSE_BUTTONS) {
 				if (isMouseJustPressed(button)) {
 					eventData.button = button;
@@ -1316,8 +1712,7 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 				}
 			}
 
-			wakePolledGestureListeners(eventData);
-			wakeMappedPolledGestureListeners(eventData);
+			wakeGestureListeners(eventData, true);
 
 			// Once all the listeners have been invoked, we need to recycle the event data for later use
 			recycleEventData(eventData);
@@ -1325,9 +1720,10 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 
 		if (isPanning()) {
 			GestureEventData eventData = obtainGestureEventData();
+			Vector2 coords = getPointerCoords(0);
 			eventData.gestureEvent = GestureEventData.GestureEvent.PAN;
-			eventData.x = getTouchedX();
-			eventData.y = getTouchedY();
+			eventData.x = coords.x;
+			eventData.y = coords.y;
 			eventData.panDeltaX = getPanDeltaX();
 			eventData.panDeltaY = getPanDeltaY();
 			for (int button : MOUSE_BUTTONS) {
@@ -1337,15 +1733,13 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 				}
 			}
 
-			wakePolledGestureListeners(eventData);
-			wakeMappedPolledGestureListeners(eventData);
+			wakeGestureListeners(eventData, true);
 
 			// Once all the listeners have been invoked, we need to recycle the event data for later use
 			recycleEventData(eventData);
 		}
 
 		wakePolledKeyListeners();
-		wakeMappedPolledKeyListeners();
 	}
 
 	/**
@@ -1415,7 +1809,7 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	{ return gestureDetector.isPanning(); }
 
 	/**
-	 *
+	 * <strong>Note:</strong> this unprojects the position on every call. Prefer {@link #getPointerWorldX(int)} in code that runs every frame.
 	 * @param pointer the pointer index for a finger
 	 * @return the x-coordinate (in world units) of the point where a touch event occurred
 	 */
@@ -1430,7 +1824,7 @@ public class InputManager extends InputAdapter implements GestureDetector.Gestur
 	{ return getTouchedX(0); }
 
 	/**
-	 *
+	 * <strong>Note:</strong> this unprojects the position on every call. Prefer {@link #getPointerWorldY(int)} in code that runs every frame.
 	 * @param pointer the pointer index for a finger
 	 * @return the y-coordinate (in world units) of the point where a touch event occurred
 	 */
@@ -0,0 +1,212 @@
+package io.github.isoteriktech.xgdx.input;
+
+import com.badlogic.gdx.files.FileHandle;
+
+/**
+ * Records the input events dispatched by an {@link InputManager}, frame by frame, so they can be replayed later with an {@link InputReplay}.
+ * Attach a recorder with {@link InputManager#setRecorder(InputRecorder)}; every frame of the manager is recorded from then on,
+ * with its index, its delta time and the events dispatched in it.
+ * <p>
+ * Events are recorded raw, before they are converted to world coordinates, in a compact binary format: every event is a kind byte followed
+ * by the fields of that kind only, and counts and indices are variable length ints. A frame without events takes a few bytes.
+ * The recording is kept in memory until it is saved with {@link #save(FileHandle)}.
+ *
+ * @author isoteriksoftware
+ */
+public class InputRecorder {
+	static final int MAGIC = 0x58474952;
+	static final int VERSION = 1;
+
+	private byte[] bytes;
+	private int size;
+
+	private int framesCount;
+	private int frameEventsCount;
+
+	// The events of the current frame, written after the frame header once the frame ends
+	private byte[] frameBytes = new byte[256];
+	private int frameSize;
+
+	/**
+	 * Creates a new empty recording.
+	 */
+	public InputRecorder () {
+		bytes = new byte[1024];
+		clear();
+	}
+
+	/**
+	 * Discards everything recorded so far.
+	 */
+	public void clear () {
+		size = 0;
+		framesCount = 0;
+		frameEventsCount = 0;
+		frameSize = 0;
+
+		writeInt(MAGIC);
+		writeInt(VERSION);
+	}
+
+	/**
+	 *
+	 * @return the number of frames recorded
+	 */
+	public int getFramesCount ()
+	{ return framesCount; }
+
+	/**
+	 *
+	 * @return the size of the recording in bytes
+	 */
+	public int getSize ()
+	{ return size; }
+
+	/**
+	 *
+	 * @return a copy of the recording
+	 */
+	public byte[] toByteArray () {
+		byte[] copy = new byte[size];
+		System.arraycopy(bytes, 0, copy, 0, size);
+		return copy;
+	}
+
+	/**
+	 * Writes the recording to a file, replacing its content.
+	 * @param file the file to write to
+	 */
+	public void save (FileHandle file)
+	{ file.writeBytes(bytes, 0, size, false); }
+
+	/* Records an event with the layout of the records of InputEventQueue */
+	void recordEvent (int kind, int int0, int int1, float f0, float f1, float f2, float f3, float f4, float f5, float f6, float f7) {
+		frameEventsCount++;
+		writeFrameByte(kind);
+
+		switch (kind) {
+			case InputEventQueue.TOUCH_DOWN:
+			case InputEventQueue.TOUCH_UP:
+			case InputEventQueue.TAP:
+			case InputEventQueue.PAN_STOP:
+				writeFrameVarInt(int0);
+				writeFrameVarInt(zigZag(int1));
+				writeFrameFloat(f0);
+				writeFrameFloat(f1);
+				break;
+			case InputEventQueue.TOUCH_DRAGGED:
+				writeFrameVarInt(int0);
+				writeFrameFloat(f0);
+				writeFrameFloat(f1);
+				break;
+			case InputEventQueue.KEY_DOWN:
+			case InputEventQueue.KEY_UP:
+			case InputEventQueue.KEY_TYPED:
+				writeFrameVarInt(int0);
+				break;
+			case InputEventQueue.FLING:
+				writeFrameVarInt(zigZag(int1));
+				writeFrameFloat(f0);
+				writeFrameFloat(f1);
+				break;
+			case InputEventQueue.LONG_PRESS:
+			case InputEventQueue.ZOOM:
+				writeFrameFloat(f0);
+				writeFrameFloat(f1);
+				break;
+			case InputEventQueue.PAN:
+				writeFrameFloat(f0);
+				writeFrameFloat(f1);
+				writeFrameFloat(f2);
+				writeFrameFloat(f3);
+				break;
+			case InputEventQueue.PINCH:
+				writeFrameFloat(f0);
+				writeFrameFloat(f1);
+				writeFrameFloat(f2);
+				writeFrameFloat(f3);
+				writeFrameFloat(f4);
+				writeFrameFloat(f5);
+				writeFrameFloat(f6);
+				writeFrameFloat(f7);
+				break;
+			case InputEventQueue.PINCH_STOP:
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown event kind " + kind);
+		}
+	}
+
+	/* Ends the current frame: writes its index, delta time and events */
+	void endFrame (float deltaTime) {
+		writeVarInt(framesCount);
+		writeInt(Float.floatToIntBits(deltaTime));
+		writeVarInt(frameEventsCount);
+
+		ensureCapacity(frameSize);
+		System.arraycopy(frameBytes, 0, bytes, size, frameSize);
+		size += frameSize;
+
+		framesCount++;
+		frameEventsCount = 0;
+		frameSize = 0;
+	}
+
+	static int zigZag (int value)
+	{ return (value << 1) ^ (value >> 31); }
+
+	private void ensureCapacity (int count) {
+		if (size + count <= bytes.length)
+			return;
+
+		byte[] newBytes = new byte[Math.max(bytes.length * 2, size + count)];
+		System.arraycopy(bytes, 0, newBytes, 0, size);
+		bytes = newBytes;
+	}
+
+	private void writeInt (int value) {
+		ensureCapacity(4);
+		bytes[size++] = (byte)(value >>> 24);
+		bytes[size++] = (byte)(value >>> 16);
+		bytes[size++] = (byte)(value >>> 8);
+		bytes[size++] = (byte)value;
+	}
+
+	private void writeVarInt (int value) {
+		ensureCapacity(5);
+		while ((value & ~0x7F) != 0) {
+			bytes[size++] = (byte)((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		bytes[size++] = (byte)value;
+	}
+
+	private void writeFrameByte (int value) {
+		if (frameSize + 1 > frameBytes.length)
+			growFrame();
+
+		frameBytes[frameSize++] = (byte)value;
+	}
+
+	private void writeFrameVarInt (int value) {
+		while ((value & ~0x7F) != 0) {
+			writeFrameByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		writeFrameByte(value);
+	}
+
+	private void writeFrameFloat (float value) {
+		int bits = Float.floatToIntBits(value);
+		writeFrameByte(bits >>> 24);
+		writeFrameByte(bits >>> 16);
+		writeFrameByte(bits >>> 8);
+		writeFrameByte(bits);
+	}
+
+	private void growFrame () {
+		byte[] newBytes = new byte[frameBytes.length * 2];
+		System.arraycopy(frameBytes, 0, newBytes, 0, frameSize);
+		frameBytes = newBytes;
+	}
+}
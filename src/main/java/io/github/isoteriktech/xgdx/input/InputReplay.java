@@ -0,0 +1,171 @@
+package io.github.isoteriktech.xgdx.input;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * Plays back a recording made by an {@link InputRecorder}. Attach a replay with {@link InputManager#setReplay(InputReplay)}; every frame of the manager
+ * then dispatches the events of the next recorded frame through the same path as live events, and live events are ignored.
+ * <p>
+ * A replay is deterministic as long as the frames are too. While the manager of the current scene replays a recording, {@link io.github.isoteriktech.xgdx.XGdx}
+ * gives every frame the delta time recorded with it (see {@link #peekDeltaTime()}), unless a fixed delta time is set with
+ * {@link io.github.isoteriktech.xgdx.XGdx#setFixedDeltaTime(float)}. Polled triggers and the methods of the manager that read
+ * {@link com.badlogic.gdx.Gdx#input} directly still see the live input; on the headless backend it never changes.
+ *
+ * @author isoteriksoftware
+ */
+public class InputReplay {
+	private final byte[] bytes;
+	private final int start;
+	private int position;
+	private int frameIndex;
+
+	// The event read last by readEvent()
+	int kind, int0, int1;
+	final float[] floats = new float[InputEventQueue.FLOATS];
+
+	/**
+	 * Creates a replay of a recording.
+	 * @param bytes the recording, as returned by {@link InputRecorder#toByteArray()}
+	 */
+	public InputReplay (byte[] bytes) {
+		this.bytes = bytes;
+
+		if (bytes.length < 8 || readInt() != InputRecorder.MAGIC)
+			throw new GdxRuntimeException("Not an input recording");
+
+		int version = readInt();
+		if (version != InputRecorder.VERSION)
+			throw new GdxRuntimeException("Unsupported input recording version " + version);
+
+		start = position;
+	}
+
+	/**
+	 * Creates a replay of a recording saved with {@link InputRecorder#save(FileHandle)}.
+	 * @param file the file of the recording
+	 */
+	public InputReplay (FileHandle file)
+	{ this(file.readBytes()); }
+
+	/**
+	 *
+	 * @return {@code true} if every recorded frame was replayed, {@code false} otherwise
+	 */
+	public boolean isFinished ()
+	{ return position >= bytes.length; }
+
+	/**
+	 *
+	 * @return the index of the next frame to replay
+	 */
+	public int getFrameIndex ()
+	{ return frameIndex; }
+
+	/**
+	 *
+	 * @return the recorded delta time of the next frame to replay, or 0 if the replay is finished
+	 */
+	public float peekDeltaTime () {
+		if (isFinished())
+			return 0;
+
+		int mark = position;
+		readVarInt();
+		float deltaTime = Float.intBitsToFloat(readInt());
+		position = mark;
+
+		return deltaTime;
+	}
+
+	/**
+	 * Starts the replay again from the first frame.
+	 */
+	public void rewind () {
+		position = start;
+		frameIndex = 0;
+	}
+
+	/* Reads the header of the next frame and returns its number of events, or -1 if the replay is finished */
+	int beginFrame () {
+		if (isFinished())
+			return -1;
+
+		if (readVarInt() != frameIndex)
+			throw new GdxRuntimeException("Corrupted input recording at frame " + frameIndex);
+
+		readInt(); // delta time, see peekDeltaTime()
+		frameIndex++;
+		return readVarInt();
+	}
+
+	/* Reads the next event of the frame into kind, int0, int1 and floats, with the layout of the records of InputEventQueue */
+	void readEvent () {
+		kind = bytes[position++];
+		int0 = int1 = 0;
+		for (int i = 0; i < floats.length; i++)
+			floats[i] = 0;
+
+		switch (kind) {
+			case InputEventQueue.TOUCH_DOWN:
+			case InputEventQueue.TOUCH_UP:
+			case InputEventQueue.TAP:
+			case InputEventQueue.PAN_STOP:
+				int0 = readVarInt();
+				int1 = unZigZag(readVarInt());
+				readFloats(2);
+				break;
+			case InputEventQueue.TOUCH_DRAGGED:
+				int0 = readVarInt();
+				int1 = InputManager.NO_BUTTON;
+				readFloats(2);
+				break;
+			case InputEventQueue.KEY_DOWN:
+			case InputEventQueue.KEY_UP:
+			case InputEventQueue.KEY_TYPED:
+				int0 = readVarInt();
+				break;
+			case InputEventQueue.FLING:
+				int1 = unZigZag(readVarInt());
+				readFloats(2);
+				break;
+			case InputEventQueue.LONG_PRESS:
+			case InputEventQueue.ZOOM:
+				readFloats(2);
+				break;
+			case InputEventQueue.PAN:
+				readFloats(4);
+				break;
+			case InputEventQueue.PINCH:
+				readFloats(8);
+				break;
+			case InputEventQueue.PINCH_STOP:
+				break;
+			default:
+				throw new GdxRuntimeException("Corrupted input recording at frame " + (frameIndex - 1));
+		}
+	}
+
+	private static int unZigZag (int value)
+	{ return (value >>> 1) ^ -(value & 1); }
+
+	private void readFloats (int count) {
+		for (int i = 0; i < count; i++)
+			floats[i] = Float.intBitsToFloat(readInt());
+	}
+
+	private int readInt () {
+		return (bytes[position++] & 0xFF) << 24 | (bytes[position++] & 0xFF) << 16
+				| (bytes[position++] & 0xFF) << 8 | (bytes[position++] & 0xFF);
+	}
+
+	private int readVarInt () {
+		int value = 0;
+		for (int shift = 0; ; shift += 7) {
+			byte b = bytes[position++];
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package io.github.isoteriktech.xgdx.ui;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.StringBuilder;
+import io.github.isoteriktech.xgdx.Scene;
+import io.github.isoteriktech.xgdx.SceneProfiler;
+
+import java.util.Comparator;
+
+/**
+ * An actor that displays the measurements of a {@link SceneProfiler} as text. Add it to the UI canvas of a scene ({@link Scene#getCanvas()}) to see
+ * the average, 95th percentile and maximum time of every section and of the most expensive component classes.
+ * The position of the actor is the top-left corner of the text.
+ * <p>
+ * The text is rebuilt a few times per second only, so reading it stays cheap. The overlay does not enable the profiler; call {@link SceneProfiler#setEnabled(boolean)}.
+ *
+ * @author isoteriksoftware
+ */
+public class ProfilerOverlay extends Actor {
+    private static final Comparator<SceneProfiler.Timing> averageComparator =
+            (t1, t2) -> Long.compare(t2.getAverageNanos(), t1.getAverageNanos());
+
+    protected final SceneProfiler profiler;
+    protected final BitmapFont font;
+
+    private final StringBuilder text = new StringBuilder();
+    private final Array<SceneProfiler.Timing> sortedComponents = new Array<>(SceneProfiler.Timing.class);
+
+    private float refreshInterval = 0.5f;
+    private float refreshTimer = Float.MAX_VALUE;
+    private int maxComponents = 10;
+
+    /**
+     * Creates a new overlay.
+     * @param profiler the profiler to display
+     * @param font the font to write the text with
+     */
+    public ProfilerOverlay(SceneProfiler profiler, BitmapFont font) {
+        this.profiler = profiler;
+        this.font = font;
+        setColor(Color.GREEN);
+    }
+
+    /**
+     * Sets how often the text is rebuilt. The default is every half second.
+     * @param refreshInterval the interval in seconds
+     */
+    public void setRefreshInterval(float refreshInterval)
+    { this.refreshInterval = refreshInterval; }
+
+    /**
+     *
+     * @return how often the text is rebuilt in seconds
+     */
+    public float getRefreshInterval()
+    { return refreshInterval; }
+
+    /**
+     * Sets the number of component classes listed, the most expensive first. The default is 10.
+     * @param maxComponents the number of component classes
+     */
+    public void setMaxComponents(int maxComponents)
+    { this.maxComponents = maxComponents; }
+
+    /**
+     *
+     * @return the number of component classes listed
+     */
+    public int getMaxComponents()
+    { return maxComponents; }
+
+    @Override
+    public void act(float delta) {
+        super.act(delta);
+
+        refreshTimer += delta;
+        if (refreshTimer >= refreshInterval) {
+            refreshTimer = 0;
+            rebuildText();
+        }
+    }
+
+    protected void rebuildText() {
+        text.setLength(0);
+        text.append("section/class  calls  avg  p95  max (ms)\n");
+
+        for (int i = 0; i < SceneProfiler.SECTIONS_COUNT; i++)
+            appendTiming(profiler.getSection(i));
+
+        sortedComponents.clear();
+        sortedComponents.addAll(profiler.getComponentTimings());
+        sortedComponents.sort(averageComparator);
+
+        for (int i = 0, n = Math.min(maxComponents, sortedComponents.size); i < n; i++)
+            appendTiming(sortedComponents.get(i));
+    }
+
+    private void appendTiming(SceneProfiler.Timing timing) {
+        text.append(timing.getName()).append("  ")
+                .append(Math.round(timing.getAverageCalls())).append("  ");
+        appendMillis(timing.getAverageNanos());
+        text.append("  ");
+        appendMillis(timing.getPercentileNanos(0.95f));
+        text.append("  ");
+        appendMillis(timing.getMaxNanos());
+        text.append('\n');
+    }
+
+    // Appends with two decimals without formatting a float, which would allocate
+    private void appendMillis(long nanos) {
+        long hundredths = (nanos + 5000) / 10000;
+        text.append(hundredths / 100).append('.');
+
+        long fraction = hundredths % 100;
+        if (fraction < 10)
+            text.append('0');
+        text.append(fraction);
+    }
+
+    @Override
+    public void draw(Batch batch, float parentAlpha) {
+        Color color = getColor();
+        font.setColor(color.r, color.g, color.b, color.a * parentAlpha);
+        font.draw(batch, text, getX(), getY());
+    }
+}
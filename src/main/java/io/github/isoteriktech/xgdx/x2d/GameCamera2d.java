@@ -23,6 +23,11 @@ public class GameCamera2d extends GameCamera {
 
     protected Color backgroundColor;
 
+    protected SpriteRenderQueue renderQueue;
+    protected boolean sortSprites;
+
+    protected int renderCalls;
+
     /**
      * Creates a new instance given a viewport.
      * * <strong>Note:</strong> an {@link OrthographicCamera} will be created if it doesn't exist.
@@ -81,6 +86,41 @@ public class GameCamera2d extends GameCamera {
     public Color getBackgroundColor()
     { return backgroundColor; }
 
+    /**
+     * Enables or disables sorted sprite rendering. When enabled, sprite renderers queue their sprites in the {@link SpriteRenderQueue} of this camera
+     * instead of drawing them immediately. The queue is sorted by layer, sorting order, z and texture and drawn at the end of the frame, which minimizes
+     * the flushes of the sprite batch. It is disabled by default.
+     * <p>
+     * <strong>Note:</strong> queued sprites are drawn after anything drawn directly with the sprite batch during the frame.
+     * @param sortSprites whether sprites should be sorted before they are drawn
+     */
+    public void setSortSprites(boolean sortSprites) {
+        this.sortSprites = sortSprites;
+        if (sortSprites && renderQueue == null)
+            renderQueue = new SpriteRenderQueue();
+    }
+
+    /**
+     *
+     * @return whether sprites are sorted before they are drawn
+     */
+    public boolean isSortSprites()
+    { return sortSprites; }
+
+    /**
+     *
+     * @return the queue that collects sprites when sorting is enabled or null if sorting was never enabled
+     */
+    public SpriteRenderQueue getRenderQueue()
+    { return renderQueue; }
+
+    /**
+     * Every render call is a flush of the sprite batch. Use this with {@link SpriteRenderQueue#getTextureSwitchesCount()} to tune rendering.
+     * @return the number of render calls made by the sprite batch during the last frame
+     */
+    public int getRenderCalls()
+    { return renderCalls; }
+
     @Override
     public OrthographicCamera getCamera()
     { return (OrthographicCamera)camera; }
@@ -132,7 +172,11 @@ public class GameCamera2d extends GameCamera {
 
     @Override
     public void postRender(Array<GameObject> gameObjects) {
+        if (sortSprites)
+            renderQueue.flush(spriteBatch);
+
         spriteBatch.end();
+        renderCalls = spriteBatch.renderCalls;
     }
 }
 
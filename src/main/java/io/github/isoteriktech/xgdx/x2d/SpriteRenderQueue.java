@@ -0,0 +1,205 @@
+package io.github.isoteriktech.xgdx.x2d;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Affine2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+
+import java.util.Comparator;
+
+/**
+ * A SpriteRenderQueue collects sprite draws during a frame and submits them to a {@link Batch} in one sorted pass.
+ * Draws are sorted by layer, then by sorting order, then by z and finally by texture, so that consecutive draws share textures and the batch flushes less often.
+ * Draws with equal keys keep the order they were submitted in.
+ * <p>
+ * Like a {@link Batch}, the queue is stateful: set the color and the sort key, then submit draws.
+ * Draw commands are pooled so queueing sprites does not create garbage.
+ *
+ * @see GameCamera2d#setSortSprites(boolean)
+ *
+ * @author isoteriksoftware
+ */
+public class SpriteRenderQueue {
+    private final Array<SpriteCommand> commands = new Array<>(SpriteCommand.class);
+
+    private final Pool<SpriteCommand> commandPool = new Pool<SpriteCommand>() {
+        @Override
+        protected SpriteCommand newObject() {
+            return new SpriteCommand();
+        }
+    };
+
+    private static final Comparator<SpriteCommand> comparator = (c1, c2) -> {
+        if (c1.layer != c2.layer)
+            return Integer.compare(c1.layer, c2.layer);
+        if (c1.sortingOrder != c2.sortingOrder)
+            return Integer.compare(c1.sortingOrder, c2.sortingOrder);
+        if (c1.z != c2.z)
+            return Float.compare(c1.z, c2.z);
+        return Integer.compare(c1.textureId, c2.textureId);
+    };
+
+    private float color = Color.WHITE_FLOAT_BITS;
+    private int layer, sortingOrder;
+    private float z;
+
+    private int spritesCount;
+    private int textureSwitchesCount;
+
+    /**
+     * Sets the color used to tint the sprites submitted after this call.
+     * @param color the color
+     */
+    public void setColor(Color color)
+    { this.color = color.toFloatBits(); }
+
+    /**
+     * Sets the sort key of the sprites submitted after this call.
+     * @param layer the index of the layer of the sprite; lower layers are drawn first
+     * @param sortingOrder the sorting order of the sprite within its layer; lower orders are drawn first
+     * @param z the depth of the sprite; lower depths are drawn first
+     */
+    public void setSortKey(int layer, int sortingOrder, float z) {
+        this.layer = layer;
+        this.sortingOrder = sortingOrder;
+        this.z = z;
+    }
+
+    /**
+     * Queues a sprite. The parameters are the same as {@link Batch#draw(Texture, float, float, float, float, float, float, float, float, float, int, int, int, int, boolean, boolean)}.
+     */
+    public void draw(TextureRegion region, float x, float y, float originX, float originY, float width, float height,
+                     float scaleX, float scaleY, float rotation, boolean flipX, boolean flipY) {
+        SpriteCommand command = obtain(region);
+        command.x = x;
+        command.y = y;
+        command.originX = originX;
+        command.originY = originY;
+        command.width = width;
+        command.height = height;
+        command.scaleX = scaleX;
+        command.scaleY = scaleY;
+        command.rotation = rotation;
+        command.flipX = flipX;
+        command.flipY = flipY;
+        command.hasTransform = false;
+    }
+
+    /**
+     * Queues a sprite. The parameters are the same as {@link Batch#draw(TextureRegion, float, float, Affine2)}.
+     * The transform is copied.
+     */
+    public void draw(TextureRegion region, float width, float height, Affine2 transform) {
+        SpriteCommand command = obtain(region);
+        command.width = width;
+        command.height = height;
+        command.transform.set(transform);
+        command.hasTransform = true;
+    }
+
+    private SpriteCommand obtain(TextureRegion region) {
+        SpriteCommand command = commandPool.obtain();
+        command.region = region;
+        command.textureId = region.getTexture().getTextureObjectHandle();
+        command.color = color;
+        command.layer = layer;
+        command.sortingOrder = sortingOrder;
+        command.z = z;
+        commands.add(command);
+        return command;
+    }
+
+    /**
+     * Sorts the queued sprites, draws them and clears the queue. The batch must have been started.
+     * @param batch the batch to draw with
+     */
+    public void flush(Batch batch) {
+        spritesCount = commands.size;
+        textureSwitchesCount = 0;
+        if (commands.size == 0)
+            return;
+
+        // The sort is stable so draws with equal keys keep their order
+        commands.sort(comparator);
+
+        float oldColor = batch.getPackedColor();
+        Texture lastTexture = null;
+
+        SpriteCommand[] items = commands.items;
+        for (int i = 0, n = commands.size; i < n; i++) {
+            SpriteCommand command = items[i];
+            TextureRegion region = command.region;
+
+            if (region.getTexture() != lastTexture) {
+                lastTexture = region.getTexture();
+                textureSwitchesCount++;
+            }
+
+            batch.setPackedColor(command.color);
+            if (command.hasTransform)
+                batch.draw(region, command.width, command.height, command.transform);
+            else
+                batch.draw(lastTexture, command.x, command.y, command.originX, command.originY,
+                        command.width, command.height, command.scaleX, command.scaleY, command.rotation,
+                        region.getRegionX(), region.getRegionY(), region.getRegionWidth(), region.getRegionHeight(),
+                        command.flipX, command.flipY);
+        }
+
+        batch.setPackedColor(oldColor);
+
+        commandPool.freeAll(commands);
+        commands.clear();
+    }
+
+    /**
+     * Discards the queued sprites without drawing them.
+     */
+    public void clear() {
+        commandPool.freeAll(commands);
+        commands.clear();
+    }
+
+    /**
+     *
+     * @return the number of sprites currently queued
+     */
+    public int getQueuedCount()
+    { return commands.size; }
+
+    /**
+     *
+     * @return the number of sprites drawn by the last flush
+     */
+    public int getSpritesCount()
+    { return spritesCount; }
+
+    /**
+     * Each texture switch forces the batch to flush. Lower is better.
+     * @return the number of times the texture changed between consecutive sprites during the last flush
+     */
+    public int getTextureSwitchesCount()
+    { return textureSwitchesCount; }
+
+    private static class SpriteCommand implements Pool.Poolable {
+        TextureRegion region;
+        int textureId;
+        float color;
+
+        int layer, sortingOrder;
+        float z;
+
+        float x, y, originX, originY, width, height, scaleX, scaleY, rotation;
+        boolean flipX, flipY;
+
+        final Affine2 transform = new Affine2();
+        boolean hasTransform;
+
+        @Override
+        public void reset() {
+            region = null;
+        }
+    }
+}
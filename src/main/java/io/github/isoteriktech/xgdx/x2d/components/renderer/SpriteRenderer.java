@@ -4,14 +4,19 @@ import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Affine2;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.utils.Array;
 import io.github.isoteriktech.xgdx.Component;
 import io.github.isoteriktech.xgdx.GameCamera;
 import io.github.isoteriktech.xgdx.GameObject;
+import io.github.isoteriktech.xgdx.ICullable;
+import io.github.isoteriktech.xgdx.Layer;
+import io.github.isoteriktech.xgdx.Transform;
 import io.github.isoteriktech.xgdx.utils.GameWorldUnits;
 import io.github.isoteriktech.xgdx.x2d.GameCamera2d;
+import io.github.isoteriktech.xgdx.x2d.SpriteRenderQueue;
 
 /**
  * Renders sprites ({@link Texture} or {@link TextureRegion}) when attached to a gameObject.
@@ -19,7 +24,7 @@ import io.github.isoteriktech.xgdx.x2d.GameCamera2d;
  *
  * @author isoteriksoftware
  */
-public class SpriteRenderer extends Component {
+public class SpriteRenderer extends Component implements ICullable {
     protected TextureRegion sprite;
 
     protected Color color;
@@ -28,9 +33,12 @@ public class SpriteRenderer extends Component {
     protected boolean cull;
     protected boolean visible;
 
+    protected int sortingOrder;
+
     protected GameWorldUnits gameWorldUnits;
 
     protected Vector3 temp = new Vector3();
+    protected Affine2 tempAffine = new Affine2();
 
     protected GameCamera2d gameCamera;
 
@@ -73,6 +81,7 @@ public class SpriteRenderer extends Component {
      */
     public void setGameCamera(GameCamera2d gameCamera) {
         this.gameCamera = gameCamera;
+        cullabilityChanged();
     }
 
     /**
@@ -90,13 +99,30 @@ public class SpriteRenderer extends Component {
     public boolean isVisible()
     { return visible; }
 
+    /**
+     * Sets the order of this sprite within its layer when the camera sorts sprites (see {@link GameCamera2d#setSortSprites(boolean)}).
+     * Sprites with lower orders are drawn first.
+     * @param sortingOrder the sorting order
+     */
+    public void setSortingOrder(int sortingOrder)
+    { this.sortingOrder = sortingOrder; }
+
+    /**
+     *
+     * @return the order of this sprite within its layer when the camera sorts sprites
+     */
+    public int getSortingOrder()
+    { return sortingOrder; }
+
     /**
      * Whether this sprite should be culled. When enabled, sprite will be rendered only if the game object can be seen by the camera.
      * This significantly reduces processor load. It is enabled by default
      * @param cull whether culling should be enabled for this renderer
      */
-    public void setCull(boolean cull)
-    { this.cull = cull; }
+    public void setCull(boolean cull) {
+        this.cull = cull;
+        cullabilityChanged();
+    }
 
     /**
      *
@@ -105,6 +131,20 @@ public class SpriteRenderer extends Component {
     public boolean isCull()
     { return cull; }
 
+    /**
+     * A sprite can be culled by the spatial grid of the scene if culling is enabled and it is rendered with the main camera of the scene.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSpatiallyCullable() {
+        return cull && (gameCamera == null || scene == null || gameCamera == scene.getMainCamera());
+    }
+
+    private void cullabilityChanged() {
+        if (scene != null)
+            scene.getComponentRegistry().invalidate();
+    }
+
     /**
      * Sets the sprite ({@link TextureRegion}) for this renderer. The host game object will be resized to fit the dimensions of the sprite.
      * The {@link GameWorldUnits} given will be used for converting the sprite dimension to world units.
@@ -221,15 +261,16 @@ public class SpriteRenderer extends Component {
 
         // Use the default mainCamera if none is provided
         if (gameCamera == null) {
-            GameCamera camera = scene.getMainCamera().getComponent(GameCamera.class);
+            GameCamera camera = scene.getMainCamera();
             if (!(camera instanceof GameCamera2d))
                 return;
 
             gameCamera = (GameCamera2d) camera;
         }
 
-        // If culling, the sprite should be rendered only if it can be seen by the camera
-        if (cull) {
+        // If culling, the sprite should be rendered only if it can be seen by the camera.
+        // There is nothing to test if the spatial index of the scene already culled this sprite.
+        if (cull && !(scene.isSpatiallyCulling() && isSpatiallyCullable())) {
             if (gameObject.transform.isInCameraFrustum(gameCamera.getCamera())) {
                 drawSprite(gameCamera);
             }
@@ -241,24 +282,65 @@ public class SpriteRenderer extends Component {
 
     /**
      * Renders the sprite to the screen.
+     * If the transform of the host game object has a parent, the sprite is drawn with its world transformation.
+     * Otherwise the position and rotation are interpolated if the transform enables {@link Transform#setInterpolated(boolean)}.
+     * If the camera sorts sprites, the sprite is queued instead of drawn immediately.
      * @param gameCamera the camera to use.
      */
     protected void drawSprite(GameCamera2d gameCamera) {
-        SpriteBatch batch = gameCamera.getSpriteBatch();
-        batch.setColor(color);
+        SpriteRenderQueue queue = null;
+        SpriteBatch batch = null;
+
+        if (gameCamera.isSortSprites()) {
+            queue = gameCamera.getRenderQueue();
+            queue.setColor(color);
+
+            Layer layer = gameObject.getHostLayer();
+            queue.setSortKey(layer == null ? 0 : layer.getIndex(), sortingOrder,
+                    gameObject.transform.position.z);
+        }
+        else {
+            batch = gameCamera.getSpriteBatch();
+            batch.setColor(color);
+        }
+
+        Transform transform = gameObject.transform;
+        if (transform.getParent() != null) {
+            Vector3 size = transform.size;
+            Affine2 world = tempAffine.set(transform.getWorldAffine());
+
+            // Mirror around the center of the sprite
+            if (flipX)
+                world.translate(size.x, 0).scale(-1, 1);
+            if (flipY)
+                world.translate(0, size.y).scale(1, -1);
+
+            if (queue != null)
+                queue.draw(sprite, size.x, size.y, world);
+            else
+                batch.draw(sprite, size.x, size.y, world);
+            return;
+        }
 
-        Vector3 pos    = temp.set(gameObject.transform.position);
-        Vector3 size   = gameObject.transform.size;
-        Vector3 scale  = gameObject.transform.scale;
-        Vector3 origin = gameObject.transform.origin;
-        float rotation = gameObject.transform.getRotation();
+        // Interpolated transforms are drawn between their previous and current fixed step states
+        float alpha    = scene.getInterpolationAlpha();
+        Vector3 pos    = transform.getInterpolatedPosition(alpha, temp);
+        Vector3 size   = transform.size;
+        Vector3 scale  = transform.scale;
+        Vector3 origin = transform.origin;
+        float rotation = transform.getInterpolatedRotation(alpha);
 
         // Draw the sprite
-        batch.draw(sprite.getTexture(),
-                pos.x, pos.y, origin.x, origin.y,
-                size.x, size.y, scale.x, scale.y,
-                rotation, sprite.getRegionX(), sprite.getRegionY(),
-                sprite.getRegionWidth(), sprite.getRegionHeight(),
-                flipX, flipY);
+        if (queue != null)
+            queue.draw(sprite, pos.x, pos.y, origin.x, origin.y,
+                    size.x, size.y, scale.x, scale.y,
+                    rotation, flipX, flipY);
+        else
+            batch.draw(sprite.getTexture(),
+                    pos.x, pos.y, origin.x, origin.y,
+                    size.x, size.y, scale.x, scale.y,
+                    rotation, sprite.getRegionX(), sprite.getRegionY(),
+                    sprite.getRegionWidth(), sprite.getRegionHeight(),
+                    flipX, flipY);
     }
 }
@@ -2,7 +2,6 @@ package io.github.isoteriktech.xgdx.x2d.components.renderer;
 
 import com.badlogic.gdx.maps.MapLayer;
 import com.badlogic.gdx.maps.MapObject;
-import com.badlogic.gdx.maps.MapProperties;
 import com.badlogic.gdx.maps.MapRenderer;
 import com.badlogic.gdx.maps.objects.CircleMapObject;
 import com.badlogic.gdx.maps.objects.EllipseMapObject;
@@ -10,7 +9,6 @@ import com.badlogic.gdx.maps.objects.PolygonMapObject;
 import com.badlogic.gdx.maps.objects.PolylineMapObject;
 import com.badlogic.gdx.maps.objects.RectangleMapObject;
 import com.badlogic.gdx.maps.tiled.TiledMap;
-import com.badlogic.gdx.maps.tiled.TiledMapTile;
 import com.badlogic.gdx.maps.tiled.TmxMapLoader;
 import com.badlogic.gdx.maps.tiled.objects.TiledMapTileMapObject;
 import com.badlogic.gdx.maps.tiled.renderers.OrthoCachedTiledMapRenderer;
@@ -19,8 +17,10 @@ import io.github.isoteriktech.xgdx.Component;
 import io.github.isoteriktech.xgdx.GameCamera;
 import io.github.isoteriktech.xgdx.GameObject;
 import io.github.isoteriktech.xgdx.x2d.GameCamera2d;
-
-import java.util.Iterator;
+import io.github.isoteriktech.xgdx.x2d.tiled.ChunkedTiledMapRenderer;
+import io.github.isoteriktech.xgdx.x2d.tiled.MapObjectIndex;
+import io.github.isoteriktech.xgdx.x2d.tiled.TileCollisionGrid;
+import io.github.isoteriktech.xgdx.x2d.tiled.TiledMapLoadTask;
 
 /**
  * A component capable of rendering a {@link TiledMap}. It uses {@link OrthoCachedTiledMapRenderer} for rendering by default but can be changed.
@@ -41,9 +41,12 @@ public class TiledMapRenderer extends Component {
     protected final float unitScale;
 
     protected MapRenderer tiledMapRenderer;
+    protected final MapObjectIndex objectIndex;
 
     protected GameCamera2d camera;
 
+    protected boolean animatedTilesEnabled;
+
     /**
      * Creates a new instance given a tiled map and the unit scale to use.
      * The unit scale is the equivalence of 1 pixel in the game (1 / Pixels Per Unit).
@@ -52,7 +55,38 @@ public class TiledMapRenderer extends Component {
      * @param tiledMap the tiled map
      * @param unitScale the unit scale
      */
-    public TiledMapRenderer(TiledMap tiledMap, float unitScale) {
+    public TiledMapRenderer(TiledMap tiledMap, float unitScale)
+    { this(tiledMap, unitScale, newCachedRenderer(tiledMap, unitScale), new MapObjectIndex(tiledMap, unitScale)); }
+
+    /**
+     * Creates a new instance given the fileName of the map file and a unit scale. This constructor will block until the map is loaded.
+     * Use a {@link TiledMapLoadTask} to load large maps without blocking.
+     * @param mapFileName the fileName of the map file
+     * @param unitScale the unit scale.
+     */
+    public TiledMapRenderer(String mapFileName, float unitScale)
+    { this(new TmxMapLoader().load(mapFileName), unitScale); }
+
+    /**
+     * Creates a new instance that renders the map with a {@link ChunkedTiledMapRenderer}. Use this for large maps: only the chunks around the camera are cached.
+     * @param tiledMap the tiled map
+     * @param unitScale the unit scale
+     * @param chunkSize the width and height of a chunk in tiles
+     * @param memoryBudget the maximum number of bytes used by the chunk caches
+     */
+    public TiledMapRenderer(TiledMap tiledMap, float unitScale, int chunkSize, long memoryBudget) {
+        this(tiledMap, unitScale, new ChunkedTiledMapRenderer(tiledMap, unitScale, chunkSize, memoryBudget),
+                new MapObjectIndex(tiledMap, unitScale));
+    }
+
+    /**
+     * Creates a new instance from a map whose renderer and object index are already prepared, for example by a {@link TiledMapLoadTask}.
+     * @param tiledMap the tiled map
+     * @param unitScale the unit scale
+     * @param tiledMapRenderer the map renderer
+     * @param objectIndex the index of the objects of the map
+     */
+    public TiledMapRenderer(TiledMap tiledMap, float unitScale, MapRenderer tiledMapRenderer, MapObjectIndex objectIndex) {
         this.tiledMap = tiledMap;
         this.unitScale = unitScale;
 
@@ -63,17 +97,15 @@ public class TiledMapRenderer extends Component {
         mapWidth = tileWidth * horizontalTilesCount;
         mapHeight = tileHeight * verticalTilesCount;
 
-        tiledMapRenderer = new OrthoCachedTiledMapRenderer(tiledMap, unitScale);
-        ((OrthoCachedTiledMapRenderer)tiledMapRenderer).setBlending(true);
+        this.objectIndex = objectIndex;
+        this.tiledMapRenderer = tiledMapRenderer;
     }
 
-    /**
-     * Creates a new instance given the fileName of the map file and a unit scale. This constructor will block until the map is loaded.
-     * @param mapFileName the fileName of the map file
-     * @param unitScale the unit scale.
-     */
-    public TiledMapRenderer(String mapFileName, float unitScale)
-    { this(new TmxMapLoader().load(mapFileName), unitScale); }
+    private static MapRenderer newCachedRenderer(TiledMap tiledMap, float unitScale) {
+        OrthoCachedTiledMapRenderer renderer = new OrthoCachedTiledMapRenderer(tiledMap, unitScale);
+        renderer.setBlending(true);
+        return renderer;
+    }
 
     /**
      * @return the current camera used for projection
@@ -105,8 +137,12 @@ public class TiledMapRenderer extends Component {
                 camera = (GameCamera2d) cam;
         }
 
-        if (camera != null)
+        if (camera != null) {
             tiledMapRenderer.setView(camera.getCamera());
+
+            if (animatedTilesEnabled && tiledMapRenderer instanceof ChunkedTiledMapRenderer)
+                ((ChunkedTiledMapRenderer) tiledMapRenderer).setAnimatedTilesBatch(camera.getSpriteBatch());
+        }
     }
 
     @Override
@@ -115,6 +151,29 @@ public class TiledMapRenderer extends Component {
             renderTiledMap();
     }
 
+    /**
+     * Enables or disables animated tiles. When enabled, static tiles stay cached and the visible {@link com.badlogic.gdx.maps.tiled.tiles.AnimatedTiledMapTile}s
+     * are drawn with the sprite batch of the camera every frame.
+     * This requires a {@link ChunkedTiledMapRenderer}; see {@link #TiledMapRenderer(TiledMap, float, int, long)}.
+     * @param animatedTilesEnabled whether animated tiles should animate
+     * @throws IllegalStateException if the current map renderer is not a {@link ChunkedTiledMapRenderer}
+     */
+    public void setAnimatedTilesEnabled(boolean animatedTilesEnabled) {
+        if (!(tiledMapRenderer instanceof ChunkedTiledMapRenderer))
+            throw new IllegalStateException("Animated tiles require a ChunkedTiledMapRenderer!");
+
+        this.animatedTilesEnabled = animatedTilesEnabled;
+        if (!animatedTilesEnabled)
+            ((ChunkedTiledMapRenderer) tiledMapRenderer).setAnimatedTilesBatch(null);
+    }
+
+    /**
+     *
+     * @return whether animated tiles are enabled
+     */
+    public boolean isAnimatedTilesEnabled()
+    { return animatedTilesEnabled; }
+
     /**
      *
      * @return the current map renderer
@@ -137,25 +196,8 @@ public class TiledMapRenderer extends Component {
      * @param value the property value to check
      * @return an array of found objects
      */
-    public Array<RectangleMapObject> getRectangleObjects(MapLayer mapLayer, String propertyName, String value) {
-        Array<RectangleMapObject> found = new Array<>();
-
-        for (MapObject mapObject : mapLayer.getObjects()) {
-            if (!(mapObject instanceof  RectangleMapObject))
-                continue;
-
-            if (propertyName.equals("*")) {
-                found.add((RectangleMapObject) mapObject);
-                continue;
-            }
-
-            MapProperties mapProperties = mapObject.getProperties();
-            if (mapProperties.containsKey(propertyName) && mapProperties.get(propertyName).equals(value))
-                found.add((RectangleMapObject)mapObject);
-        }
-
-        return found;
-    }
+    public Array<RectangleMapObject> getRectangleObjects(MapLayer mapLayer, String propertyName, String value)
+    { return getObjectIndex().query(RectangleMapObject.class, mapLayer, propertyName, value, new Array<RectangleMapObject>()); }
 
     /**
      * Gets all rectangle objects in every layer that has a property whose value matches the one given.
@@ -163,27 +205,8 @@ public class TiledMapRenderer extends Component {
      * @param value the property value to check
      * @return an array of found objects
      */
-    public Array<RectangleMapObject> getRectangleObjects(String propertyName, String value) {
-        Array<RectangleMapObject> found = new Array<>();
-
-        for (MapLayer mapLayer : tiledMap.getLayers()) {
-            for (MapObject mapObject : mapLayer.getObjects()) {
-                if (!(mapObject instanceof  RectangleMapObject))
-                    continue;
-
-                if (propertyName.equals("*")) {
-                    found.add((RectangleMapObject) mapObject);
-                    continue;
-                }
-
-                MapProperties mapProperties = mapObject.getProperties();
-                if (mapProperties.containsKey(propertyName) && mapProperties.get(propertyName).equals(value))
-                    found.add((RectangleMapObject)mapObject);
-            }
-        }
-
-        return found;
-    }
+    public Array<RectangleMapObject> getRectangleObjects(String propertyName, String value)
+    { return getObjectIndex().query(RectangleMapObject.class, propertyName, value, new Array<RectangleMapObject>()); }
 
     /**
      * Gets all circle objects in a given layer that has a property whose value matches the one given.
@@ -192,25 +215,8 @@ public class TiledMapRenderer extends Component {
      * @param value the property value to check
      * @return an array of found objects
      */
-    public Array<CircleMapObject> getCircleObjects(MapLayer mapLayer, String propertyName, String value) {
-        Array<CircleMapObject> found = new Array<>();
-
-        for (MapObject mapObject : mapLayer.getObjects()) {
-            if (!(mapObject instanceof  CircleMapObject))
-                continue;
-
-            if (propertyName.equals("*")) {
-                found.add((CircleMapObject) mapObject);
-                continue;
-            }
-
-            MapProperties mapProperties = mapObject.getProperties();
-            if (mapProperties.containsKey(propertyName) && mapProperties.get(propertyName).equals(value))
-                found.add((CircleMapObject)mapObject);
-        }
-
-        return found;
-    }
+    public Array<CircleMapObject> getCircleObjects(MapLayer mapLayer, String propertyName, String value)
+    { return getObjectIndex().query(CircleMapObject.class, mapLayer, propertyName, value, new Array<CircleMapObject>()); }
 
     /**
      * Gets all circle objects in every layer that has a property whose value matches the one given.
@@ -218,27 +224,8 @@ public class TiledMapRenderer extends Component {
      * @param value the property value to check
      * @return an array of found objects
      */
-    public Array<CircleMapObject> getCircleObjects(String propertyName, String value) {
-        Array<CircleMapObject> found = new Array<>();
-
-        for (MapLayer mapLayer : tiledMap.getLayers()) {
-            for (MapObject mapObject : mapLayer.getObjects()) {
-                if (!(mapObject instanceof  CircleMapObject))
-                    continue;
-
-                if (propertyName.equals("*")) {
-                    found.add((CircleMapObject) mapObject);
-                    continue;
-                }
-
-                MapProperties mapProperties = mapObject.getProperties();
-                if (mapProperties.containsKey(propertyName) && mapProperties.get(propertyName).equals(value))
-                    found.add((CircleMapObject)mapObject);
-            }
-        }
-
-        return found;
-    }
+    public Array<CircleMapObject> getCircleObjects(String propertyName, String value)
+    { return getObjectIndex().query(CircleMapObject.class, propertyName, value, new Array<CircleMapObject>()); }
 
     /**
      * Gets all ellipse objects in a given layer that has a property whose value matches the one given.
@@ -247,25 +234,8 @@ public class TiledMapRenderer extends Component {
      * @param value the property value to check
      * @return an array of found objects
      */
-    public Array<EllipseMapObject> getEllipseObjects(MapLayer mapLayer, String propertyName, String value) {
-        Array<EllipseMapObject> found = new Array<>();
-
-        for (MapObject mapObject : mapLayer.getObjects()) {
-            if (!(mapObject instanceof  EllipseMapObject))
-                continue;
-
-            if (propertyName.equals("*")) {
-                found.add((EllipseMapObject) mapObject);
-                continue;
-            }
-
-            MapProperties mapProperties = mapObject.getProperties();
-            if (mapProperties.containsKey(propertyName) && mapProperties.get(propertyName).equals(value))
-                found.add((EllipseMapObject)mapObject);
-        }
-
-        return found;
-    }
+    public Array<EllipseMapObject> getEllipseObjects(MapLayer mapLayer, String propertyName, String value)
+    { return getObjectIndex().query(EllipseMapObject.class, mapLayer, propertyName, value, new Array<EllipseMapObject>()); }
 
     /**
      * Gets all ellipse objects in every layer that has a property whose value matches the one given.
@@ -273,27 +243,8 @@ public class TiledMapRenderer extends Component {
      * @param value the property value to check
      * @return an array of found objects
      */
-    public Array<EllipseMapObject> getEllipseObjects(String propertyName, String value) {
-        Array<EllipseMapObject> found = new Array<>();
-
-        for (MapLayer mapLayer : tiledMap.getLayers()) {
-            for (MapObject mapObject : mapLayer.getObjects()) {
-                if (!(mapObject instanceof  EllipseMapObject))
-                    continue;
-
-                if (propertyName.equals("*")) {
-                    found.add((EllipseMapObject) mapObject);
-                    continue;
-                }
-
-                MapProperties mapProperties = mapObject.getProperties();
-                if (mapProperties.containsKey(propertyName) && mapProperties.get(propertyName).equals(value))
-                    found.add((EllipseMapObject)mapObject);
-            }
-        }
-
-        return found;
-    }
+    public Array<EllipseMapObject> getEllipseObjects(String propertyName, String value)
+    { return getObjectIndex().query(EllipseMapObject.class, propertyName, value, new Array<EllipseMapObject>()); }
 
     /**
      * Gets all polygon objects in a given layer that has a property whose value matches the one given.
@@ -302,25 +253,8 @@ public class TiledMapRenderer extends Component {
      * @param value the property value to check
      * @return an array of found objects
      */
-    public Array<PolygonMapObject> getPolygonObjects(MapLayer mapLayer, String propertyName, String value) {
-        Array<PolygonMapObject> found = new Array<>();
-
-        for (MapObject mapObject : mapLayer.getObjects()) {
-            if (!(mapObject instanceof  PolygonMapObject))
-                continue;
-
-            if (propertyName.equals("*")) {
-                found.add((PolygonMapObject) mapObject);
-                continue;
-            }
-
-            MapProperties mapProperties = mapObject.getProperties();
-            if (mapProperties.containsKey(propertyName) && mapProperties.get(propertyName).equals(value))
-                found.add((PolygonMapObject)mapObject);
-        }
-
-        return found;
-    }
+    public Array<PolygonMapObject> getPolygonObjects(MapLayer mapLayer, String propertyName, String value)
+    { return getObjectIndex().query(PolygonMapObject.class, mapLayer, propertyName, value, new Array<PolygonMapObject>()); }
 
     /**
      * Gets all polygon objects in every layer that has a property whose value matches the one given.
@@ -328,27 +262,8 @@ public class TiledMapRenderer extends Component {
      * @param value the property value to check
      * @return an array of found objects
      */
-    public Array<PolygonMapObject> getPolygonObjects(String propertyName, String value) {
-        Array<PolygonMapObject> found = new Array<>();
-
-        for (MapLayer mapLayer : tiledMap.getLayers()) {
-            for (MapObject mapObject : mapLayer.getObjects()) {
-                if (!(mapObject instanceof  PolygonMapObject))
-                    continue;
-
-                if (propertyName.equals("*")) {
-                    found.add((PolygonMapObject) mapObject);
-                    continue;
-                }
-
-                MapProperties mapProperties = mapObject.getProperties();
-                if (mapProperties.containsKey(propertyName) && mapProperties.get(propertyName).equals(value))
-                    found.add((PolygonMapObject)mapObject);
-            }
-        }
-
-        return found;
-    }
+    public Array<PolygonMapObject> getPolygonObjects(String propertyName, String value)
+    { return getObjectIndex().query(PolygonMapObject.class, propertyName, value, new Array<PolygonMapObject>()); }
 
     /**
      * Gets all polyline objects in a given layer that has a property whose value matches the one given.
@@ -357,25 +272,8 @@ public class TiledMapRenderer extends Component {
      * @param value the property value to check
      * @return an array of found objects
      */
-    public Array<PolylineMapObject> getPolylineObjects(MapLayer mapLayer, String propertyName, String value) {
-        Array<PolylineMapObject> found = new Array<>();
-
-        for (MapObject mapObject : mapLayer.getObjects()) {
-            if (!(mapObject instanceof  PolylineMapObject))
-                continue;
-
-            if (propertyName.equals("*")) {
-                found.add((PolylineMapObject) mapObject);
-                continue;
-            }
-
-            MapProperties mapProperties = mapObject.getProperties();
-            if (mapProperties.containsKey(propertyName) && mapProperties.get(propertyName).equals(value))
-                found.add((PolylineMapObject)mapObject);
-        }
-
-        return found;
-    }
+    public Array<PolylineMapObject> getPolylineObjects(MapLayer mapLayer, String propertyName, String value)
+    { return getObjectIndex().query(PolylineMapObject.class, mapLayer, propertyName, value, new Array<PolylineMapObject>()); }
 
     /**
      * Gets all polyline objects in every layer that has a property whose value matches the one given.
@@ -383,140 +281,80 @@ public class TiledMapRenderer extends Component {
      * @param value the property value to check
      * @return an array of found objects
      */
-    public Array<PolylineMapObject> getPolylineObjects(String propertyName, String value) {
-        Array<PolylineMapObject> found = new Array<>();
-
-        for (MapLayer mapLayer : tiledMap.getLayers()) {
-            for (MapObject mapObject : mapLayer.getObjects()) {
-                if (!(mapObject instanceof  PolylineMapObject))
-                    continue;
-
-                if (propertyName.equals("*")) {
-                    found.add((PolylineMapObject) mapObject);
-                    continue;
-                }
-
-                MapProperties mapProperties = mapObject.getProperties();
-                if (mapProperties.containsKey(propertyName) && mapProperties.get(propertyName).equals(value))
-                    found.add((PolylineMapObject)mapObject);
-            }
-        }
-
-        return found;
-    }
+    public Array<PolylineMapObject> getPolylineObjects(String propertyName, String value)
+    { return getObjectIndex().query(PolylineMapObject.class, propertyName, value, new Array<PolylineMapObject>()); }
 
     /**
      * Gets all tile objects in a given layer that has a property whose value matches the one given.
-     * Because {@link TiledMapTileMapObject}s have two kinds of properties (default and own properties), this method will merge the properties
-     * before making the search.
+     * Because {@link TiledMapTileMapObject}s have two kinds of properties (default and own properties), the properties are merged
+     * once when the objects are indexed.
      * @param mapLayer the layer
      * @param propertyName the property name. <strong>use *</strong> to retrieve everything
      * @param value the property value to check
      * @return an array of found objects
      */
-    public Array<TiledMapTileMapObject> getTileObjects(MapLayer mapLayer, String propertyName, String value) {
-        Array<TiledMapTileMapObject> found = new Array<>();
-
-        for (MapObject mapObject : mapLayer.getObjects()) {
-            if (!(mapObject instanceof  TiledMapTileMapObject))
-                continue;
-
-            MapProperties mapProperties = mapObject.getProperties();
-
-            TiledMapTileMapObject tiledMapTileMapObject = (TiledMapTileMapObject)mapObject;
-            TiledMapTile tiledMapTile = tiledMapTileMapObject.getTile();
-            MapProperties defaultProperties = tiledMapTile.getProperties();
-
-            if (propertyName.equals("*")) {
-                found.add((TiledMapTileMapObject) mapObject);
-                continue;
-            }
-
-            // Copy all the default properties
-            Iterator<String> propertyKeys = defaultProperties.getKeys();
-            while (propertyKeys.hasNext()) {
-                String key = propertyKeys.next();
-
-                if (mapProperties.containsKey(key))
-                    continue;
-
-                mapProperties.put(key, defaultProperties.get(key));
-            }
-
-            if (mapProperties.containsKey(propertyName) && mapProperties.get(propertyName).equals(value))
-                found.add((TiledMapTileMapObject)mapObject);
-        }
-
-        return found;
-    }
+    public Array<TiledMapTileMapObject> getTileObjects(MapLayer mapLayer, String propertyName, String value)
+    { return getObjectIndex().query(TiledMapTileMapObject.class, mapLayer, propertyName, value, new Array<TiledMapTileMapObject>()); }
 
     /**
      * Gets all tile objects in every layer that has a property whose value matches the one given.
-     * Because {@link TiledMapTileMapObject}s have two kinds of properties (default and own properties), this method will merge the properties
-     * before making the search.
+     * Because {@link TiledMapTileMapObject}s have two kinds of properties (default and own properties), the properties are merged
+     * once when the objects are indexed.
      * @param propertyName the property name. <strong>use *</strong> to retrieve everything
      * @param value the property value to check
      * @return an array of found objects
      */
-    public Array<TiledMapTileMapObject> getTileObjects(String propertyName, String value) {
-        Array<TiledMapTileMapObject> found = new Array<>();
+    public Array<TiledMapTileMapObject> getTileObjects(String propertyName, String value)
+    { return getObjectIndex().query(TiledMapTileMapObject.class, propertyName, value, new Array<TiledMapTileMapObject>()); }
 
-        for (MapLayer mapLayer : tiledMap.getLayers()) {
-            for (MapObject mapObject : mapLayer.getObjects()) {
-                if (!(mapObject instanceof  TiledMapTileMapObject))
-                    continue;
-
-                MapProperties mapProperties = mapObject.getProperties();
-
-                TiledMapTileMapObject tiledMapTileMapObject = (TiledMapTileMapObject)mapObject;
-                TiledMapTile tiledMapTile = tiledMapTileMapObject.getTile();
-                MapProperties defaultProperties = tiledMapTile.getProperties();
-
-                if (propertyName.equals("*")) {
-                    found.add((TiledMapTileMapObject) mapObject);
-                    continue;
-                }
-
-                // Copy all the default properties
-                Iterator<String> propertyKeys = defaultProperties.getKeys();
-                while (propertyKeys.hasNext()) {
-                    String key = propertyKeys.next();
+    /**
+     * Gets all objects of a given type in a layer that has a property whose value matches the one given. This method does not allocate.
+     * @param type the type of the objects
+     * @param mapLayer the layer or null to search every layer
+     * @param propertyName the property name. <strong>use *</strong> to retrieve everything
+     * @param value the property value to check
+     * @param out the array to add the found objects to
+     * @param <T> the type of the objects
+     * @return the given array
+     */
+    public <T extends MapObject> Array<T> getObjects(Class<T> type, MapLayer mapLayer, String propertyName, Object value, Array<T> out)
+    { return getObjectIndex().query(type, mapLayer, propertyName, value, out); }
 
-                    if (mapProperties.containsKey(key))
-                        continue;
+    /**
+     * Gets all objects of a given type whose bounds overlap a rectangle. This method does not allocate.
+     * @param type the type of the objects
+     * @param x the x coordinate of the bottom-left corner of the rectangle in world units
+     * @param y the y coordinate of the bottom-left corner of the rectangle in world units
+     * @param width the width of the rectangle in world units
+     * @param height the height of the rectangle in world units
+     * @param out the array to add the found objects to
+     * @param <T> the type of the objects
+     * @return the given array
+     */
+    public <T extends MapObject> Array<T> getObjectsInRect(Class<T> type, float x, float y, float width, float height, Array<T> out)
+    { return getObjectIndex().queryRect(type, x, y, width, height, out); }
 
-                    mapProperties.put(key, defaultProperties.get(key));
-                }
+    /**
+     * The index is built when the map is loaded. Call {@link MapObjectIndex#rebuild()} after modifying the objects of the map.
+     * @return the index of the objects of the map
+     */
+    public MapObjectIndex getObjectIndex()
+    { return objectIndex; }
 
-                if (mapProperties.containsKey(propertyName) && mapProperties.get(propertyName).equals(value))
-                    found.add((TiledMapTileMapObject)mapObject);
-            }
-        }
+    /**
+     * Extracts a collision grid from tile layers. Every tile of the given layers is solid.
+     * @param layerNames the names of the tile layers
+     * @return a new grid of {@link #horizontalTilesCount} x {@link #verticalTilesCount} tiles
+     */
+    public TileCollisionGrid createCollisionGrid(String... layerNames)
+    { return TileCollisionGrid.fromLayers(tiledMap, unitScale, layerNames); }
 
-        return found;
-    }
+    /**
+     * Extracts a collision grid from the tiles whose tile property matches a value.
+     * @param propertyName the name of the tile property
+     * @param value the value of the property
+     * @return a new grid of {@link #horizontalTilesCount} x {@link #verticalTilesCount} tiles
+     */
+    public TileCollisionGrid createCollisionGridFromProperty(String propertyName, Object value)
+    { return TileCollisionGrid.fromProperty(tiledMap, unitScale, propertyName, value); }
 }
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
@@ -0,0 +1,501 @@
+package io.github.isoteriktech.xgdx.x2d.tiled;
+
+import com.badlogic.gdx.assets.AssetDescriptor;
+import com.badlogic.gdx.assets.AssetLoaderParameters;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.AsynchronousAssetLoader;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.assets.loaders.TextureLoader;
+import com.badlogic.gdx.assets.loaders.resolvers.InternalFileHandleResolver;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.maps.MapGroupLayer;
+import com.badlogic.gdx.maps.MapLayer;
+import com.badlogic.gdx.maps.MapLayers;
+import com.badlogic.gdx.maps.MapObject;
+import com.badlogic.gdx.maps.MapObjects;
+import com.badlogic.gdx.maps.MapProperties;
+import com.badlogic.gdx.maps.objects.CircleMapObject;
+import com.badlogic.gdx.maps.objects.EllipseMapObject;
+import com.badlogic.gdx.maps.objects.PolygonMapObject;
+import com.badlogic.gdx.maps.objects.PolylineMapObject;
+import com.badlogic.gdx.maps.objects.RectangleMapObject;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapImageLayer;
+import com.badlogic.gdx.maps.tiled.TiledMapTile;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.maps.tiled.TiledMapTileSet;
+import com.badlogic.gdx.maps.tiled.objects.TiledMapTileMapObject;
+import com.badlogic.gdx.maps.tiled.tiles.AnimatedTiledMapTile;
+import com.badlogic.gdx.maps.tiled.tiles.StaticTiledMapTile;
+import com.badlogic.gdx.math.Polygon;
+import com.badlogic.gdx.math.Polyline;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+
+/**
+ * Loads maps compiled by {@link TiledMapCompiler}. The whole file is read with a single bulk read into a {@link ByteBuffer} and the map is built directly from it,
+ * without an XML document. Strings are read once from the string table of the file and shared.
+ * <p>
+ * Register the loader for the extension of compiled maps:
+ * <pre>
+ * GameAssetsLoader.instance().setLoader(TiledMap.class, BinaryTiledMapLoader.EXTENSION, new BinaryTiledMapLoader());
+ * </pre>
+ * The textures of the map are loaded as dependencies by the {@link AssetManager}; the map is then built on the loader's thread.
+ *
+ * @author isoteriksoftware
+ */
+public class BinaryTiledMapLoader extends AsynchronousAssetLoader<TiledMap, BinaryTiledMapLoader.Parameters> {
+    /** The extension of compiled maps. */
+    public static final String EXTENSION = ".xmap";
+
+    static final int MAGIC = 0x58474D50;
+    static final int VERSION = 1;
+
+    static final byte LAYER_OBJECTS = 0, LAYER_TILES = 1, LAYER_IMAGE = 2, LAYER_GROUP = 3;
+    static final byte OBJECT_GENERIC = 0, OBJECT_RECTANGLE = 1, OBJECT_ELLIPSE = 2, OBJECT_CIRCLE = 3, OBJECT_POLYGON = 4, OBJECT_POLYLINE = 5, OBJECT_TILE = 6;
+    static final byte TILE_STATIC = 0, TILE_ANIMATED = 1;
+    static final byte PROPERTY_STRING = 0, PROPERTY_INT = 1, PROPERTY_FLOAT = 2, PROPERTY_BOOLEAN = 3, PROPERTY_LONG = 4, PROPERTY_DOUBLE = 5, PROPERTY_COLOR = 6;
+
+    /* Flags stored in the high bits of the cells of tile layers */
+    static final int FLAG_FLIP_HORIZONTALLY = 0x80000000;
+    static final int FLAG_FLIP_VERTICALLY = 0x40000000;
+    static final int ROTATION_SHIFT = 28;
+    static final int TILE_ID_MASK = 0x0FFFFFFF;
+
+    public static class Parameters extends AssetLoaderParameters<TiledMap> {
+        /** Whether to generate mipmaps for the textures of the map. */
+        public boolean generateMipMaps = false;
+
+        /** The minifying filter of the textures of the map. */
+        public Texture.TextureFilter textureMinFilter = Texture.TextureFilter.Nearest;
+
+        /** The magnification filter of the textures of the map. */
+        public Texture.TextureFilter textureMagFilter = Texture.TextureFilter.Nearest;
+    }
+
+    // The file being loaded: its content, its strings and the paths of its textures
+    protected ByteBuffer buffer;
+    protected String[] strings;
+    protected FileHandle[] textureFiles;
+    protected TiledMap map;
+
+    public BinaryTiledMapLoader()
+    { super(new InternalFileHandleResolver()); }
+
+    public BinaryTiledMapLoader(FileHandleResolver resolver)
+    { super(resolver); }
+
+    /**
+     * Loads a map synchronously. The textures of the map are owned by the map and disposed with it.
+     * @param fileName the path to the compiled map
+     * @return the map
+     */
+    public TiledMap load(String fileName)
+    { return load(fileName, new Parameters()); }
+
+    /**
+     * Loads a map synchronously. The textures of the map are owned by the map and disposed with it.
+     * @param fileName the path to the compiled map
+     * @param parameters the parameters
+     * @return the map
+     */
+    public TiledMap load(String fileName, Parameters parameters) {
+        readHeader(resolve(fileName));
+
+        Array<Texture> textures = new Array<>(textureFiles.length);
+        for (FileHandle textureFile : textureFiles) {
+            Texture texture = new Texture(textureFile, parameters.generateMipMaps);
+            texture.setFilter(parameters.textureMinFilter, parameters.textureMagFilter);
+            textures.add(texture);
+        }
+
+        TiledMap map = readMap(textures);
+        map.setOwnedResources(textures);
+        reset();
+        return map;
+    }
+
+    // The raw type is part of the signature of AssetLoader
+    @SuppressWarnings("rawtypes")
+    @Override
+    public Array<AssetDescriptor> getDependencies(String fileName, FileHandle file, Parameters parameter) {
+        readHeader(file);
+
+        TextureLoader.TextureParameter textureParameter = new TextureLoader.TextureParameter();
+        if (parameter != null) {
+            textureParameter.genMipMaps = parameter.generateMipMaps;
+            textureParameter.minFilter = parameter.textureMinFilter;
+            textureParameter.magFilter = parameter.textureMagFilter;
+        }
+
+        Array<AssetDescriptor> dependencies = new Array<>(textureFiles.length);
+        for (FileHandle textureFile : textureFiles)
+            dependencies.add(new AssetDescriptor<>(textureFile, Texture.class, textureParameter));
+
+        return dependencies;
+    }
+
+    @Override
+    public void loadAsync(AssetManager manager, String fileName, FileHandle file, Parameters parameter) {
+        Array<Texture> textures = new Array<>(textureFiles.length);
+        for (FileHandle textureFile : textureFiles)
+            textures.add(manager.get(textureFile.path(), Texture.class));
+
+        map = readMap(textures);
+    }
+
+    @Override
+    public TiledMap loadSync(AssetManager manager, String fileName, FileHandle file, Parameters parameter) {
+        TiledMap map = this.map;
+        reset();
+        return map;
+    }
+
+    private void reset() {
+        buffer = null;
+        strings = null;
+        textureFiles = null;
+        map = null;
+    }
+
+    /* Reads the file, the string table and the paths of the textures */
+    protected void readHeader(FileHandle file) {
+        buffer = ByteBuffer.wrap(file.readBytes());
+
+        if (buffer.getInt() != MAGIC)
+            throw new GdxRuntimeException("Not a compiled map: " + file.path());
+
+        int version = buffer.getInt();
+        if (version != VERSION)
+            throw new GdxRuntimeException("Unsupported compiled map version " + version + ": " + file.path());
+
+        strings = new String[buffer.getInt()];
+        byte[] bytes = new byte[64];
+        for (int i = 0; i < strings.length; i++) {
+            int length = buffer.getInt();
+            if (bytes.length < length)
+                bytes = new byte[length];
+
+            buffer.get(bytes, 0, length);
+            try {
+                strings[i] = new String(bytes, 0, length, "UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                throw new GdxRuntimeException(e);
+            }
+        }
+
+        FileHandle directory = file.parent();
+        textureFiles = new FileHandle[buffer.getInt()];
+        for (int i = 0; i < textureFiles.length; i++)
+            textureFiles[i] = getRelativeFileHandle(directory, readString());
+    }
+
+    private static FileHandle getRelativeFileHandle(FileHandle directory, String path) {
+        FileHandle result = directory;
+        for (String token : path.split("/")) {
+            if (token.equals(".."))
+                result = result.parent();
+            else if (!token.isEmpty() && !token.equals("."))
+                result = result.child(token);
+        }
+
+        return result;
+    }
+
+    protected TiledMap readMap(Array<Texture> textures) {
+        TiledMap map = new TiledMap();
+        readProperties(map.getProperties());
+
+        int tileSetsCount = buffer.getInt();
+        for (int i = 0; i < tileSetsCount; i++)
+            map.getTileSets().addTileSet(readTileSet(textures));
+
+        readLayers(map, map.getLayers(), null, textures);
+        return map;
+    }
+
+    private TiledMapTileSet readTileSet(Array<Texture> textures) {
+        TiledMapTileSet tileSet = new TiledMapTileSet();
+        tileSet.setName(readString());
+        readProperties(tileSet.getProperties());
+
+        // Animated tiles reference static tiles that may come after them, so their frames are resolved last
+        Array<TiledMapTile> animatedTiles = null;
+        Array<IntArray> animatedFrames = null;
+
+        int tilesCount = buffer.getInt();
+        for (int i = 0; i < tilesCount; i++) {
+            byte kind = buffer.get();
+            int id = buffer.getInt();
+            TiledMapTile.BlendMode blendMode = buffer.get() == 0 ? TiledMapTile.BlendMode.NONE : TiledMapTile.BlendMode.ALPHA;
+            float offsetX = buffer.getFloat();
+            float offsetY = buffer.getFloat();
+
+            // A static tile holds the data of an animated tile until its frames are resolved. Animated tiles take their offsets from their frames
+            StaticTiledMapTile tile = new StaticTiledMapTile((TextureRegion) null);
+            tile.setId(id);
+            tile.setBlendMode(blendMode);
+            tile.setOffsetX(offsetX);
+            tile.setOffsetY(offsetY);
+            readProperties(tile.getProperties());
+            readObjects(tile.getObjects(), null);
+
+            if (kind == TILE_STATIC) {
+                tile.setTextureRegion(readRegion(textures));
+                tileSet.putTile(id, tile);
+            }
+            else {
+                int framesCount = buffer.getInt();
+                IntArray frames = new IntArray(framesCount * 2);
+                for (int j = 0; j < framesCount; j++)
+                    frames.add(buffer.getInt(), buffer.getInt());
+
+                if (animatedTiles == null) {
+                    animatedTiles = new Array<>();
+                    animatedFrames = new Array<>();
+                }
+
+                animatedTiles.add(tile);
+                animatedFrames.add(frames);
+            }
+        }
+
+        if (animatedTiles != null) {
+            for (int i = 0; i < animatedTiles.size; i++) {
+                TiledMapTile data = animatedTiles.get(i);
+                IntArray frames = animatedFrames.get(i);
+
+                Array<StaticTiledMapTile> frameTiles = new Array<>(frames.size / 2);
+                IntArray intervals = new IntArray(frames.size / 2);
+                for (int j = 0; j < frames.size; j += 2) {
+                    frameTiles.add((StaticTiledMapTile) tileSet.getTile(frames.get(j)));
+                    intervals.add(frames.get(j + 1));
+                }
+
+                AnimatedTiledMapTile tile = new AnimatedTiledMapTile(intervals, frameTiles);
+                tile.setId(data.getId());
+                tile.setBlendMode(data.getBlendMode());
+                tile.getProperties().putAll(data.getProperties());
+                for (MapObject object : data.getObjects())
+                    tile.getObjects().add(object);
+
+                tileSet.putTile(tile.getId(), tile);
+            }
+        }
+
+        return tileSet;
+    }
+
+    private TextureRegion readRegion(Array<Texture> textures) {
+        int textureIndex = buffer.getInt();
+        int x = buffer.getInt(), y = buffer.getInt(), width = buffer.getInt(), height = buffer.getInt();
+        if (textureIndex == -1)
+            return null;
+
+        return new TextureRegion(textures.get(textureIndex), x, y, width, height);
+    }
+
+    private void readLayers(TiledMap map, MapLayers layers, MapLayer parent, Array<Texture> textures) {
+        int layersCount = buffer.getInt();
+        for (int i = 0; i < layersCount; i++) {
+            byte type = buffer.get();
+            String name = readString();
+            boolean visible = buffer.get() != 0;
+            float opacity = buffer.getFloat();
+            float offsetX = buffer.getFloat();
+            float offsetY = buffer.getFloat();
+
+            MapLayer layer;
+            switch (type) {
+                case LAYER_TILES:
+                    layer = readTileLayer(map);
+                    break;
+                case LAYER_IMAGE:
+                    TextureRegion region = readRegion(textures);
+                    layer = new TiledMapImageLayer(region, buffer.getFloat(), buffer.getFloat());
+                    break;
+                case LAYER_GROUP:
+                    layer = new MapGroupLayer();
+                    break;
+                default:
+                    layer = new MapLayer();
+                    break;
+            }
+
+            layer.setName(name);
+            layer.setVisible(visible);
+            layer.setOpacity(opacity);
+            layer.setOffsetX(offsetX);
+            layer.setOffsetY(offsetY);
+            layer.setParent(parent);
+            readProperties(layer.getProperties());
+            readObjects(layer.getObjects(), map);
+
+            if (type == LAYER_GROUP)
+                readLayers(map, ((MapGroupLayer) layer).getLayers(), layer, textures);
+
+            layers.add(layer);
+        }
+    }
+
+    private TiledMapTileLayer readTileLayer(TiledMap map) {
+        int width = buffer.getInt(), height = buffer.getInt();
+        int tileWidth = buffer.getInt(), tileHeight = buffer.getInt();
+        TiledMapTileLayer layer = new TiledMapTileLayer(width, height, tileWidth, tileHeight);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int data = buffer.getInt();
+                if (data == 0)
+                    continue;
+
+                TiledMapTile tile = map.getTileSets().getTile(data & TILE_ID_MASK);
+                if (tile == null)
+                    continue;
+
+                TiledMapTileLayer.Cell cell = new TiledMapTileLayer.Cell();
+                cell.setTile(tile);
+                cell.setFlipHorizontally((data & FLAG_FLIP_HORIZONTALLY) != 0);
+                cell.setFlipVertically((data & FLAG_FLIP_VERTICALLY) != 0);
+                cell.setRotation((data >>> ROTATION_SHIFT) & 3);
+                layer.setCell(x, y, cell);
+            }
+        }
+
+        return layer;
+    }
+
+    private void readObjects(MapObjects objects, TiledMap map) {
+        int objectsCount = buffer.getInt();
+        for (int i = 0; i < objectsCount; i++) {
+            byte type = buffer.get();
+            String name = readString();
+            boolean visible = buffer.get() != 0;
+            float opacity = buffer.getFloat();
+            int color = buffer.getInt();
+
+            MapProperties properties = new MapProperties();
+            readProperties(properties);
+
+            MapObject object;
+            switch (type) {
+                case OBJECT_RECTANGLE:
+                    object = new RectangleMapObject(buffer.getFloat(), buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+                    break;
+                case OBJECT_ELLIPSE:
+                    object = new EllipseMapObject(buffer.getFloat(), buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+                    break;
+                case OBJECT_CIRCLE:
+                    object = new CircleMapObject(buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+                    break;
+                case OBJECT_POLYGON: {
+                    Polygon polygon = new Polygon();
+                    polygon.setPosition(buffer.getFloat(), buffer.getFloat());
+                    polygon.setOrigin(buffer.getFloat(), buffer.getFloat());
+                    polygon.setRotation(buffer.getFloat());
+                    polygon.setScale(buffer.getFloat(), buffer.getFloat());
+                    polygon.setVertices(readFloats());
+                    object = new PolygonMapObject(polygon);
+                    break;
+                }
+                case OBJECT_POLYLINE: {
+                    Polyline polyline = new Polyline();
+                    polyline.setPosition(buffer.getFloat(), buffer.getFloat());
+                    polyline.setOrigin(buffer.getFloat(), buffer.getFloat());
+                    polyline.setRotation(buffer.getFloat());
+                    polyline.setScale(buffer.getFloat(), buffer.getFloat());
+                    polyline.setVertices(readFloats());
+                    object = new PolylineMapObject(polyline);
+                    break;
+                }
+                case OBJECT_TILE: {
+                    int tileId = buffer.getInt();
+                    boolean flipHorizontally = buffer.get() != 0;
+                    boolean flipVertically = buffer.get() != 0;
+                    TiledMapTile tile = map != null ? map.getTileSets().getTile(tileId) : null;
+                    if (tile == null) {
+                        buffer.position(buffer.position() + 7 * 4);
+                        object = new MapObject();
+                        break;
+                    }
+
+                    TiledMapTileMapObject tileObject = new TiledMapTileMapObject(tile, flipHorizontally, flipVertically);
+                    tileObject.setX(buffer.getFloat());
+                    tileObject.setY(buffer.getFloat());
+                    tileObject.setOriginX(buffer.getFloat());
+                    tileObject.setOriginY(buffer.getFloat());
+                    tileObject.setScaleX(buffer.getFloat());
+                    tileObject.setScaleY(buffer.getFloat());
+                    tileObject.setRotation(buffer.getFloat());
+                    object = tileObject;
+                    break;
+                }
+                default:
+                    object = new MapObject();
+                    break;
+            }
+
+            object.setName(name);
+            object.setVisible(visible);
+            object.setOpacity(opacity);
+            Color.rgba8888ToColor(object.getColor(), color);
+            object.getProperties().putAll(properties);
+            objects.add(object);
+        }
+    }
+
+    private float[] readFloats() {
+        float[] values = new float[buffer.getInt()];
+        for (int i = 0; i < values.length; i++)
+            values[i] = buffer.getFloat();
+
+        return values;
+    }
+
+    private void readProperties(MapProperties properties) {
+        int propertiesCount = buffer.getInt();
+        for (int i = 0; i < propertiesCount; i++) {
+            String key = readString();
+            byte type = buffer.get();
+
+            Object value;
+            switch (type) {
+                case PROPERTY_INT:
+                    value = buffer.getInt();
+                    break;
+                case PROPERTY_FLOAT:
+                    value = buffer.getFloat();
+                    break;
+                case PROPERTY_BOOLEAN:
+                    value = buffer.get() != 0;
+                    break;
+                case PROPERTY_LONG:
+                    value = buffer.getLong();
+                    break;
+                case PROPERTY_DOUBLE:
+                    value = buffer.getDouble();
+                    break;
+                case PROPERTY_COLOR:
+                    value = new Color(buffer.getInt());
+                    break;
+                default:
+                    value = readString();
+                    break;
+            }
+
+            properties.put(key, value);
+        }
+    }
+
+    private String readString() {
+        int index = buffer.getInt();
+        return index == -1 ? null : strings[index];
+    }
+}
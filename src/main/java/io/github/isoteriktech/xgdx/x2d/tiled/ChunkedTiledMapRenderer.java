@@ -0,0 +1,785 @@
+package io.github.isoteriktech.xgdx.x2d.tiled;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.maps.MapLayer;
+import com.badlogic.gdx.maps.MapLayers;
+import com.badlogic.gdx.maps.MapRenderer;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTile;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.maps.tiled.tiles.AnimatedTiledMapTile;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * A {@link MapRenderer} for very large orthogonal maps. Tile layers are split into square chunks of tiles and every chunk is cached in its own {@link SpriteCache}.
+ * Only the chunks that overlap the view (plus a margin around it) are built, lazily, the first time they are needed.
+ * Chunks that have not been seen recently are evicted once the caches use more memory than the configured budget; their caches are reused for new chunks.
+ * <p>
+ * Unlike {@link com.badlogic.gdx.maps.tiled.renderers.OrthoCachedTiledMapRenderer}, the cost of the first frame and the memory used do not depend on the size of the map.
+ * Only tile layers are rendered. Animated tiles are rendered with the frame they had when their chunk was built unless a batch is set with
+ * {@link #setAnimatedTilesBatch(Batch)}.
+ *
+ * @author isoteriksoftware
+ */
+public class ChunkedTiledMapRenderer implements MapRenderer, Disposable {
+    /* The size of a vertex and of a tile in floats: x, y, color, u, v */
+    private static final int VERTEX_SIZE = 5;
+    private static final int TILE_SIZE = VERTEX_SIZE * 4;
+
+    /* The size of a tile in floats when drawn as two triangles, for caches that do not use indices */
+    private static final int TRIANGLES_TILE_SIZE = VERTEX_SIZE * 6;
+
+    /* Maximum number of sprites of a SpriteCache that uses indices */
+    private static final int MAX_INDEXED_SPRITES = 8191;
+
+    protected final TiledMap map;
+    protected final float unitScale;
+    protected final int chunkSize;
+
+    protected final int horizontalChunksCount, verticalChunksCount;
+    protected final float chunkWorldWidth, chunkWorldHeight;
+
+    // The tile layers of the map and the index of each map layer among the tile layers (-1 for other layers)
+    protected final Array<TiledMapTileLayer> tileLayers = new Array<>();
+    protected final int[] tileLayerIndices;
+
+    protected final int spritesPerChunk;
+    protected final boolean useIndices;
+
+    protected final IntMap<Chunk> chunks = new IntMap<>();
+    protected final Array<SpriteCache> freeCaches = new Array<>();
+    protected int maxCachedChunks;
+
+    // The number of caches created and not disposed, including the free ones
+    protected int cachesCount;
+
+    // Shared by every chunk cache so the shader is compiled once; created with the first cache
+    private CacheShader cacheShader;
+
+    // Chunks visible in the current frame
+    protected final Array<Chunk> visibleChunks = new Array<>(false, 16);
+
+    protected final Matrix4 projection = new Matrix4();
+    protected float viewX, viewY, viewWidth, viewHeight;
+
+    protected int prefetchMargin = 1;
+    protected int maxBuildsPerFrame = 2;
+    protected boolean blending = true;
+
+    protected Batch animatedTilesBatch;
+
+    protected int frame;
+    protected int builtChunksCount, evictedChunksCount;
+
+    private final float[] vertices = new float[TILE_SIZE];
+    private final float[] triangleVertices = new float[TRIANGLES_TILE_SIZE];
+
+    /**
+     * Creates a new instance.
+     * @param map the map
+     * @param unitScale the unit scale (1 / Pixels Per Unit)
+     * @param chunkSize the width and height of a chunk in tiles
+     * @param memoryBudget the maximum number of bytes used by the chunk caches, including the caches kept for reuse. At least the chunks covering the view are always kept
+     */
+    public ChunkedTiledMapRenderer(TiledMap map, float unitScale, int chunkSize, long memoryBudget) {
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException("The chunk size must be greater than zero!");
+
+        this.map = map;
+        this.unitScale = unitScale;
+        this.chunkSize = chunkSize;
+
+        MapLayers layers = map.getLayers();
+        tileLayerIndices = new int[layers.size()];
+        int mapWidth = 0, mapHeight = 0;
+        float tileWidth = 0, tileHeight = 0;
+
+        for (int i = 0; i < layers.size(); i++) {
+            MapLayer layer = layers.get(i);
+            if (layer instanceof TiledMapTileLayer) {
+                TiledMapTileLayer tileLayer = (TiledMapTileLayer) layer;
+                tileLayerIndices[i] = tileLayers.size;
+                tileLayers.add(tileLayer);
+
+                mapWidth = Math.max(mapWidth, tileLayer.getWidth());
+                mapHeight = Math.max(mapHeight, tileLayer.getHeight());
+                tileWidth = Math.max(tileWidth, tileLayer.getTileWidth());
+                tileHeight = Math.max(tileHeight, tileLayer.getTileHeight());
+            }
+            else
+                tileLayerIndices[i] = -1;
+        }
+
+        horizontalChunksCount = (mapWidth + chunkSize - 1) / chunkSize;
+        verticalChunksCount = (mapHeight + chunkSize - 1) / chunkSize;
+        chunkWorldWidth = chunkSize * tileWidth * unitScale;
+        chunkWorldHeight = chunkSize * tileHeight * unitScale;
+
+        spritesPerChunk = Math.max(1, chunkSize * chunkSize * tileLayers.size);
+        useIndices = spritesPerChunk <= MAX_INDEXED_SPRITES;
+
+        setMemoryBudget(memoryBudget);
+    }
+
+    /**
+     * Creates a new instance with chunks of 32x32 tiles and a memory budget of 16MB.
+     * @param map the map
+     * @param unitScale the unit scale (1 / Pixels Per Unit)
+     */
+    public ChunkedTiledMapRenderer(TiledMap map, float unitScale)
+    { this(map, unitScale, 32, 16L * 1024 * 1024); }
+
+    /**
+     *
+     * @return the number of bytes the cache of a single chunk uses
+     */
+    public long getBytesPerChunk() {
+        // Indexed caches store 4 vertices and 6 short indices per sprite, others store 6 vertices
+        if (useIndices)
+            return (long)spritesPerChunk * (4 * VERTEX_SIZE * 4 + 6 * 2);
+
+        return (long)spritesPerChunk * (6 * VERTEX_SIZE * 4);
+    }
+
+    /**
+     * Sets the maximum number of bytes used by the chunk caches. Chunks that are not visible are evicted, least recently seen first, when the budget is exceeded.
+     * The caches of evicted chunks are kept for reuse as long as they fit in the budget, and disposed otherwise.
+     * @param memoryBudget the memory budget in bytes
+     */
+    public void setMemoryBudget(long memoryBudget) {
+        maxCachedChunks = (int)Math.max(1, Math.min(Integer.MAX_VALUE, memoryBudget / getBytesPerChunk()));
+        trimFreeCaches();
+    }
+
+    /**
+     *
+     * @return the maximum number of chunks kept in memory
+     */
+    public int getMaxCachedChunks()
+    { return maxCachedChunks; }
+
+    /**
+     * Sets the number of chunks around the view that are built ahead of time so they are ready when the camera moves. The default is 1.
+     * @param prefetchMargin the margin in chunks
+     */
+    public void setPrefetchMargin(int prefetchMargin)
+    { this.prefetchMargin = Math.max(0, prefetchMargin); }
+
+    /**
+     * Sets the maximum number of chunks outside the view that can be built in a single frame. Chunks in the view are always built immediately.
+     * The default is 2.
+     * @param maxBuildsPerFrame the maximum number of prefetched chunks built per frame
+     */
+    public void setMaxBuildsPerFrame(int maxBuildsPerFrame)
+    { this.maxBuildsPerFrame = Math.max(0, maxBuildsPerFrame); }
+
+    /**
+     * Whether blending should be enabled when rendering. It is enabled by default.
+     * @param blending whether to enable blending
+     */
+    public void setBlending(boolean blending)
+    { this.blending = blending; }
+
+    /**
+     *
+     * @return the number of chunks currently cached
+     */
+    public int getCachedChunksCount()
+    { return chunks.size; }
+
+    /**
+     *
+     * @return the total number of chunks built so far
+     */
+    public int getBuiltChunksCount()
+    { return builtChunksCount; }
+
+    /**
+     *
+     * @return the total number of chunks evicted so far
+     */
+    public int getEvictedChunksCount()
+    { return evictedChunksCount; }
+
+    @Override
+    public void setView(OrthographicCamera camera) {
+        projection.set(camera.combined);
+
+        float width = camera.viewportWidth * camera.zoom;
+        float height = camera.viewportHeight * camera.zoom;
+
+        // Account for the rotation of the camera
+        float w = width * Math.abs(camera.up.y) + height * Math.abs(camera.up.x);
+        float h = height * Math.abs(camera.up.y) + width * Math.abs(camera.up.x);
+
+        viewX = camera.position.x - w / 2;
+        viewY = camera.position.y - h / 2;
+        viewWidth = w;
+        viewHeight = h;
+    }
+
+    @Override
+    public void setView(Matrix4 projectionMatrix, float viewBoundsX, float viewBoundsY, float viewBoundsWidth, float viewBoundsHeight) {
+        projection.set(projectionMatrix);
+        viewX = viewBoundsX;
+        viewY = viewBoundsY;
+        viewWidth = viewBoundsWidth;
+        viewHeight = viewBoundsHeight;
+    }
+
+    @Override
+    public void render() {
+        if (prepareVisibleChunks())
+            renderChunks(null);
+    }
+
+    @Override
+    public void render(int[] layers) {
+        if (prepareVisibleChunks())
+            renderChunks(layers);
+    }
+
+    /* Builds the visible chunks, prefetches the ones around the view and evicts the stale ones */
+    protected boolean prepareVisibleChunks() {
+        frame++;
+        visibleChunks.clear();
+
+        if (tileLayers.size == 0 || horizontalChunksCount == 0 || verticalChunksCount == 0)
+            return false;
+
+        int col1 = Math.max(0, (int)Math.floor(viewX / chunkWorldWidth));
+        int row1 = Math.max(0, (int)Math.floor(viewY / chunkWorldHeight));
+        int col2 = Math.min(horizontalChunksCount - 1, (int)Math.floor((viewX + viewWidth) / chunkWorldWidth));
+        int row2 = Math.min(verticalChunksCount - 1, (int)Math.floor((viewY + viewHeight) / chunkWorldHeight));
+
+        // Visible chunks are always built
+        for (int row = row1; row <= row2; row++) {
+            for (int col = col1; col <= col2; col++) {
+                Chunk chunk = obtainChunk(col, row);
+                chunk.lastSeenFrame = frame;
+                visibleChunks.add(chunk);
+            }
+        }
+
+        // Prefetch the chunks around the view within the frame budget
+        int builds = 0;
+        for (int row = Math.max(0, row1 - prefetchMargin); row <= Math.min(verticalChunksCount - 1, row2 + prefetchMargin) && builds < maxBuildsPerFrame; row++) {
+            for (int col = Math.max(0, col1 - prefetchMargin); col <= Math.min(horizontalChunksCount - 1, col2 + prefetchMargin) && builds < maxBuildsPerFrame; col++) {
+                if (chunks.containsKey(key(col, row)))
+                    continue;
+
+                if (chunks.size >= maxCachedChunks)
+                    break;
+
+                obtainChunk(col, row).lastSeenFrame = frame - 1;
+                builds++;
+            }
+        }
+
+        evictChunks();
+        return visibleChunks.size > 0;
+    }
+
+    /**
+     * Builds the chunks overlapping an area ahead of time, stopping when the time budget is used up. Call this every frame while loading so that the first
+     * frames rendered do not have to build chunks.
+     * @param x the x coordinate of the bottom-left corner of the area in world units
+     * @param y the y coordinate of the bottom-left corner of the area in world units
+     * @param width the width of the area in world units
+     * @param height the height of the area in world units
+     * @param timeBudgetNanos the maximum time to spend building chunks in nanoseconds. At least one chunk is built per call
+     * @return true if every chunk of the area is built or the memory budget does not allow more chunks
+     */
+    public boolean prebuild(float x, float y, float width, float height, long timeBudgetNanos) {
+        if (tileLayers.size == 0 || horizontalChunksCount == 0 || verticalChunksCount == 0)
+            return true;
+
+        long deadline = TimeUtils.nanoTime() + timeBudgetNanos;
+        int built = 0;
+
+        int col1 = Math.max(0, (int)Math.floor(x / chunkWorldWidth));
+        int row1 = Math.max(0, (int)Math.floor(y / chunkWorldHeight));
+        int col2 = Math.min(horizontalChunksCount - 1, (int)Math.floor((x + width) / chunkWorldWidth));
+        int row2 = Math.min(verticalChunksCount - 1, (int)Math.floor((y + height) / chunkWorldHeight));
+
+        for (int row = row1; row <= row2; row++) {
+            for (int col = col1; col <= col2; col++) {
+                if (chunks.containsKey(key(col, row)))
+                    continue;
+
+                if (chunks.size >= maxCachedChunks)
+                    return true;
+
+                if (built > 0 && TimeUtils.nanoTime() > deadline)
+                    return false;
+
+                obtainChunk(col, row).lastSeenFrame = frame;
+                built++;
+            }
+        }
+
+        return true;
+    }
+
+    protected void renderChunks(int[] layers) {
+        if (animatedTilesBatch != null) {
+            renderChunksWithAnimatedTiles(layers);
+            return;
+        }
+
+        if (blending) {
+            Gdx.gl.glEnable(GL20.GL_BLEND);
+            Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+        }
+
+        for (int i = 0; i < visibleChunks.size; i++) {
+            Chunk chunk = visibleChunks.get(i);
+            if (chunk.cache == null)
+                continue;
+
+            SpriteCache cache = chunk.cache;
+            cache.setProjectionMatrix(projection);
+            cache.begin();
+
+            if (layers == null) {
+                for (int j = 0; j < tileLayers.size; j++) {
+                    if (tileLayers.get(j).isVisible())
+                        cache.draw(chunk.cacheIds[j]);
+                }
+            }
+            else {
+                for (int layerIndex : layers) {
+                    int j = tileLayerIndices[layerIndex];
+                    if (j != -1 && tileLayers.get(j).isVisible())
+                        cache.draw(chunk.cacheIds[j]);
+                }
+            }
+
+            cache.end();
+        }
+
+        if (blending)
+            Gdx.gl.glDisable(GL20.GL_BLEND);
+    }
+
+    /* Renders the layers one at a time so the animated tiles of a layer are drawn between the layer and the layers above it */
+    protected void renderChunksWithAnimatedTiles(int[] layers) {
+        Batch batch = animatedTilesBatch;
+        AnimatedTiledMapTile.updateAnimationBaseTime();
+
+        // Draw what was submitted to the batch before the map
+        batch.flush();
+
+        int count = layers == null ? tileLayers.size : layers.length;
+        for (int i = 0; i < count; i++) {
+            int layerIndex = layers == null ? i : tileLayerIndices[layers[i]];
+            if (layerIndex == -1 || !tileLayers.get(layerIndex).isVisible())
+                continue;
+
+            if (blending) {
+                Gdx.gl.glEnable(GL20.GL_BLEND);
+                Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+            }
+
+            boolean hasAnimatedTiles = false;
+            for (int j = 0; j < visibleChunks.size; j++) {
+                Chunk chunk = visibleChunks.get(j);
+                if (chunk.cache == null)
+                    continue;
+
+                hasAnimatedTiles |= chunk.animatedTiles[layerIndex] != null;
+
+                SpriteCache cache = chunk.cache;
+                cache.setProjectionMatrix(projection);
+                cache.begin();
+                cache.draw(chunk.cacheIds[layerIndex]);
+                cache.end();
+            }
+
+            if (blending)
+                Gdx.gl.glDisable(GL20.GL_BLEND);
+
+            if (hasAnimatedTiles)
+                drawAnimatedTiles(batch, layerIndex);
+        }
+    }
+
+    /* Draws the animated tiles of a layer that overlap the view */
+    private void drawAnimatedTiles(Batch batch, int layerIndex) {
+        TiledMapTileLayer layer = tileLayers.get(layerIndex);
+        float layerTileWidth = layer.getTileWidth() * unitScale;
+        float layerTileHeight = layer.getTileHeight() * unitScale;
+
+        // The SpriteCache left its own shader bound; restore the shader of the batch
+        batch.getShader().bind();
+        batch.setProjectionMatrix(batch.getProjectionMatrix());
+
+        for (int i = 0; i < visibleChunks.size; i++) {
+            IntArray tiles = visibleChunks.get(i).animatedTiles[layerIndex];
+            if (tiles == null)
+                continue;
+
+            for (int j = 0; j < tiles.size; j += 2) {
+                int x = tiles.get(j), y = tiles.get(j + 1);
+
+                float tileX = x * layerTileWidth, tileY = y * layerTileHeight;
+                if (tileX > viewX + viewWidth || tileY > viewY + viewHeight || tileX + layerTileWidth < viewX || tileY + layerTileHeight < viewY)
+                    continue;
+
+                TiledMapTileLayer.Cell cell = layer.getCell(x, y);
+                if (cell == null || cell.getTile() == null)
+                    continue;
+
+                Texture texture = computeVertices(layer, cell, cell.getTile(), x, y);
+                batch.draw(texture, vertices, 0, TILE_SIZE);
+            }
+        }
+
+        batch.flush();
+    }
+
+    /**
+     * Enables the hybrid mode for animated tiles. When a batch is set, {@link AnimatedTiledMapTile}s are left out of the chunk caches and the visible ones are
+     * drawn with the batch every frame, so they animate without rebuilding any cache. Layers are then rendered one at a time so the animated tiles keep their
+     * place between the layers.
+     * <p>
+     * The batch must be drawing (between {@link Batch#begin()} and {@link Batch#end()}) when the map is rendered and must use the same projection as the map.
+     * Setting the batch discards the cached chunks.
+     * @param batch the batch to draw animated tiles with or null to cache animated tiles with their current frame
+     */
+    public void setAnimatedTilesBatch(Batch batch) {
+        if (animatedTilesBatch == batch)
+            return;
+
+        animatedTilesBatch = batch;
+        invalidate();
+    }
+
+    /**
+     *
+     * @return the batch animated tiles are drawn with or null if animated tiles are cached
+     */
+    public Batch getAnimatedTilesBatch()
+    { return animatedTilesBatch; }
+
+    private int key(int col, int row)
+    { return row * horizontalChunksCount + col; }
+
+    protected Chunk obtainChunk(int col, int row) {
+        int key = key(col, row);
+        Chunk chunk = chunks.get(key);
+        if (chunk == null) {
+            chunk = buildChunk(col, row);
+            chunks.put(key, chunk);
+            builtChunksCount++;
+        }
+
+        return chunk;
+    }
+
+    protected Chunk buildChunk(int col, int row) {
+        Chunk chunk = new Chunk(col, row, tileLayers.size);
+
+        int startX = col * chunkSize;
+        int startY = row * chunkSize;
+
+        if (!hasTiles(startX, startY))
+            return chunk;
+
+        SpriteCache cache = freeCaches.size > 0 ? freeCaches.pop() : newCache();
+        cache.clear();
+
+        for (int i = 0; i < tileLayers.size; i++) {
+            cache.beginCache();
+            addTiles(cache, tileLayers.get(i), startX, startY, chunk, i);
+            chunk.cacheIds[i] = cache.endCache();
+        }
+
+        chunk.cache = cache;
+        return chunk;
+    }
+
+    private SpriteCache newCache() {
+        if (cacheShader == null)
+            cacheShader = new CacheShader();
+
+        cachesCount++;
+        return new SpriteCache(spritesPerChunk, cacheShader, useIndices);
+    }
+
+    private boolean hasTiles(int startX, int startY) {
+        for (int i = 0; i < tileLayers.size; i++) {
+            TiledMapTileLayer layer = tileLayers.get(i);
+            int endX = Math.min(layer.getWidth(), startX + chunkSize);
+            int endY = Math.min(layer.getHeight(), startY + chunkSize);
+
+            for (int y = startY; y < endY; y++) {
+                for (int x = startX; x < endX; x++) {
+                    TiledMapTileLayer.Cell cell = layer.getCell(x, y);
+                    if (cell != null && cell.getTile() != null)
+                        return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    protected void addTiles(SpriteCache cache, TiledMapTileLayer layer, int startX, int startY, Chunk chunk, int layerIndex) {
+        int endX = Math.min(layer.getWidth(), startX + chunkSize);
+        int endY = Math.min(layer.getHeight(), startY + chunkSize);
+
+        for (int y = startY; y < endY; y++) {
+            for (int x = startX; x < endX; x++) {
+                TiledMapTileLayer.Cell cell = layer.getCell(x, y);
+                if (cell == null)
+                    continue;
+
+                TiledMapTile tile = cell.getTile();
+                if (tile == null)
+                    continue;
+
+                // Animated tiles are drawn every frame instead of being cached
+                if (animatedTilesBatch != null && tile instanceof AnimatedTiledMapTile) {
+                    if (chunk.animatedTiles[layerIndex] == null)
+                        chunk.animatedTiles[layerIndex] = new IntArray();
+
+                    chunk.animatedTiles[layerIndex].add(x, y);
+                    continue;
+                }
+
+                Texture texture = computeVertices(layer, cell, tile, x, y);
+                if (useIndices)
+                    cache.add(texture, vertices, 0, TILE_SIZE);
+                else
+                    cache.add(texture, toTriangles(vertices, triangleVertices), 0, TRIANGLES_TILE_SIZE);
+            }
+        }
+    }
+
+    /* Computes the vertices of a tile and returns its texture */
+    private Texture computeVertices(TiledMapTileLayer layer, TiledMapTileLayer.Cell cell, TiledMapTile tile, int x, int y) {
+        final float color = Color.toFloatBits(1, 1, 1, layer.getOpacity());
+        float[] vertices = this.vertices;
+
+        TextureRegion region = tile.getTextureRegion();
+        Texture texture = region.getTexture();
+
+        float x1 = x * layer.getTileWidth() * unitScale + tile.getOffsetX() * unitScale + layer.getRenderOffsetX() * unitScale;
+        float y1 = y * layer.getTileHeight() * unitScale + tile.getOffsetY() * unitScale - layer.getRenderOffsetY() * unitScale;
+        float x2 = x1 + region.getRegionWidth() * unitScale;
+        float y2 = y1 + region.getRegionHeight() * unitScale;
+
+        // Pull the texture coordinates in by half a texel to avoid bleeding
+        float adjustX = 0.5f / texture.getWidth();
+        float adjustY = 0.5f / texture.getHeight();
+        float u1 = region.getU() + adjustX;
+        float v1 = region.getV2() - adjustY;
+        float u2 = region.getU2() - adjustX;
+        float v2 = region.getV() + adjustY;
+
+        // Bottom-left, top-left, top-right, bottom-right
+        vertices[0] = x1;  vertices[1] = y1;  vertices[2] = color;  vertices[3] = u1;  vertices[4] = v1;
+        vertices[5] = x1;  vertices[6] = y2;  vertices[7] = color;  vertices[8] = u1;  vertices[9] = v2;
+        vertices[10] = x2; vertices[11] = y2; vertices[12] = color; vertices[13] = u2; vertices[14] = v2;
+        vertices[15] = x2; vertices[16] = y1; vertices[17] = color; vertices[18] = u2; vertices[19] = v1;
+
+        if (cell.getFlipHorizontally()) {
+            swap(vertices, 3, 13);
+            swap(vertices, 8, 18);
+        }
+
+        if (cell.getFlipVertically()) {
+            swap(vertices, 4, 14);
+            swap(vertices, 9, 19);
+        }
+
+        switch (cell.getRotation()) {
+            case TiledMapTileLayer.Cell.ROTATE_90:
+                rotateTextureCoordinates(vertices, 3);
+                rotateTextureCoordinates(vertices, 4);
+                break;
+            case TiledMapTileLayer.Cell.ROTATE_180:
+                swap(vertices, 3, 13);
+                swap(vertices, 8, 18);
+                swap(vertices, 4, 14);
+                swap(vertices, 9, 19);
+                break;
+            case TiledMapTileLayer.Cell.ROTATE_270:
+                rotateTextureCoordinatesBack(vertices, 3);
+                rotateTextureCoordinatesBack(vertices, 4);
+                break;
+        }
+
+        return texture;
+    }
+
+    /* Splits the quad of a tile into the triangles (v1, v2, v3) and (v3, v4, v1), the layout of a SpriteCache without indices */
+    private static float[] toTriangles(float[] quad, float[] triangles) {
+        System.arraycopy(quad, 0, triangles, 0, VERTEX_SIZE * 3);
+        System.arraycopy(quad, VERTEX_SIZE * 2, triangles, VERTEX_SIZE * 3, VERTEX_SIZE * 2);
+        System.arraycopy(quad, 0, triangles, VERTEX_SIZE * 5, VERTEX_SIZE);
+        return triangles;
+    }
+
+    private static void swap(float[] vertices, int i, int j) {
+        float temp = vertices[i];
+        vertices[i] = vertices[j];
+        vertices[j] = temp;
+    }
+
+    /* Shifts a texture coordinate of the four corners by one corner: 1 <- 2 <- 3 <- 4 <- 1 */
+    private static void rotateTextureCoordinates(float[] vertices, int offset) {
+        float temp = vertices[offset];
+        vertices[offset] = vertices[offset + VERTEX_SIZE];
+        vertices[offset + VERTEX_SIZE] = vertices[offset + VERTEX_SIZE * 2];
+        vertices[offset + VERTEX_SIZE * 2] = vertices[offset + VERTEX_SIZE * 3];
+        vertices[offset + VERTEX_SIZE * 3] = temp;
+    }
+
+    /* Shifts a texture coordinate of the four corners by one corner: 1 <- 4 <- 3 <- 2 <- 1 */
+    private static void rotateTextureCoordinatesBack(float[] vertices, int offset) {
+        float temp = vertices[offset];
+        vertices[offset] = vertices[offset + VERTEX_SIZE * 3];
+        vertices[offset + VERTEX_SIZE * 3] = vertices[offset + VERTEX_SIZE * 2];
+        vertices[offset + VERTEX_SIZE * 2] = vertices[offset + VERTEX_SIZE];
+        vertices[offset + VERTEX_SIZE] = temp;
+    }
+
+    /* Evicts the least recently seen chunks that are not visible until the budget is respected */
+    protected void evictChunks() {
+        while (chunks.size > maxCachedChunks) {
+            Chunk oldest = null;
+            for (Chunk chunk : chunks.values()) {
+                if (chunk.lastSeenFrame == frame)
+                    continue;
+
+                if (oldest == null || chunk.lastSeenFrame < oldest.lastSeenFrame)
+                    oldest = chunk;
+            }
+
+            // Every cached chunk is visible
+            if (oldest == null)
+                return;
+
+            chunks.remove(key(oldest.col, oldest.row));
+            if (oldest.cache != null)
+                freeCaches.add(oldest.cache);
+
+            evictedChunksCount++;
+        }
+
+        trimFreeCaches();
+    }
+
+    /* Disposes free caches until every cache fits in the budget */
+    protected void trimFreeCaches() {
+        while (freeCaches.size > 0 && cachesCount > maxCachedChunks) {
+            freeCaches.pop().dispose();
+            cachesCount--;
+        }
+    }
+
+    /**
+     * Discards every cached chunk. Call this after modifying the tiles of the map so the chunks are rebuilt.
+     */
+    public void invalidate() {
+        for (Chunk chunk : chunks.values()) {
+            if (chunk.cache != null)
+                freeCaches.add(chunk.cache);
+        }
+
+        chunks.clear();
+    }
+
+    @Override
+    public void dispose() {
+        invalidate();
+        for (SpriteCache cache : freeCaches)
+            cache.dispose();
+
+        freeCaches.clear();
+        cachesCount = 0;
+
+        if (cacheShader != null) {
+            cacheShader.disposeShader();
+            cacheShader = null;
+        }
+    }
+
+    /* The default shader of SpriteCache. A SpriteCache disposes the shader it is given, so this one is only disposed by the renderer */
+    private static class CacheShader extends ShaderProgram {
+        private static final String VERTEX_SHADER = "attribute vec4 " + ShaderProgram.POSITION_ATTRIBUTE + ";\n"
+                + "attribute vec4 " + ShaderProgram.COLOR_ATTRIBUTE + ";\n"
+                + "attribute vec2 " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n"
+                + "uniform mat4 u_projectionViewMatrix;\n"
+                + "varying vec4 v_color;\n"
+                + "varying vec2 v_texCoords;\n"
+                + "\n"
+                + "void main()\n"
+                + "{\n"
+                + "   v_color = " + ShaderProgram.COLOR_ATTRIBUTE + ";\n"
+                + "   v_color.a = v_color.a * (255.0/254.0);\n"
+                + "   v_texCoords = " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n"
+                + "   gl_Position =  u_projectionViewMatrix * " + ShaderProgram.POSITION_ATTRIBUTE + ";\n"
+                + "}\n";
+
+        private static final String FRAGMENT_SHADER = "#ifdef GL_ES\n"
+                + "precision mediump float;\n"
+                + "#endif\n"
+                + "varying vec4 v_color;\n"
+                + "varying vec2 v_texCoords;\n"
+                + "uniform sampler2D u_texture;\n"
+                + "void main()\n"
+                + "{\n"
+                + "  gl_FragColor = v_color * texture2D(u_texture, v_texCoords);\n"
+                + "}";
+
+        CacheShader() {
+            super(VERTEX_SHADER, FRAGMENT_SHADER);
+            if (!isCompiled())
+                throw new IllegalArgumentException("Error compiling shader: " + getLog());
+        }
+
+        @Override
+        public void dispose() {
+            // Called by every SpriteCache that is disposed
+        }
+
+        void disposeShader()
+        { super.dispose(); }
+    }
+
+    protected static class Chunk {
+        final int col, row;
+
+        // The cache holding the tiles of this chunk or null if the chunk is empty
+        SpriteCache cache;
+        final int[] cacheIds;
+
+        // The coordinates (x, y pairs) of the animated tiles of each layer or null if a layer has none
+        final IntArray[] animatedTiles;
+
+        int lastSeenFrame;
+
+        Chunk(int col, int row, int layersCount) {
+            this.col = col;
+            this.row = row;
+            this.cacheIds = new int[layersCount];
+            this.animatedTiles = new IntArray[layersCount];
+        }
+    }
+}
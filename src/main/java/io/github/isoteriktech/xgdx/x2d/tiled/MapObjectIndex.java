@@ -0,0 +1,487 @@
+package io.github.isoteriktech.xgdx.x2d.tiled;
+
+import com.badlogic.gdx.maps.MapLayer;
+import com.badlogic.gdx.maps.MapLayers;
+import com.badlogic.gdx.maps.MapObject;
+import com.badlogic.gdx.maps.MapProperties;
+import com.badlogic.gdx.maps.objects.CircleMapObject;
+import com.badlogic.gdx.maps.objects.EllipseMapObject;
+import com.badlogic.gdx.maps.objects.PolygonMapObject;
+import com.badlogic.gdx.maps.objects.PolylineMapObject;
+import com.badlogic.gdx.maps.objects.RectangleMapObject;
+import com.badlogic.gdx.maps.objects.TextureMapObject;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTile;
+import com.badlogic.gdx.maps.tiled.objects.TiledMapTileMapObject;
+import com.badlogic.gdx.math.Circle;
+import com.badlogic.gdx.math.Ellipse;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IdentityMap;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.reflect.ClassReflection;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * An index of the {@link MapObject}s of a {@link TiledMap}. The objects are indexed once, by type, by layer and by property name and value, so finding objects
+ * does not scan the map. Queries add their results to caller-supplied arrays and do not allocate.
+ * <p>
+ * The default properties of the tiles of {@link TiledMapTileMapObject}s are merged into the properties of the objects once, when the index is built.
+ * Properties set on an object take precedence over the default properties of its tile.
+ * <p>
+ * The index also stores the bounds of every object in world units in a uniform grid for rectangle queries.
+ * The index does not track changes to the map; call {@link #rebuild()} after adding, removing or moving objects.
+ *
+ * @author isoteriksoftware
+ */
+public class MapObjectIndex {
+    /** Use this as the property name to match every object regardless of its properties. */
+    public static final String ANY_PROPERTY = "*";
+
+    protected final TiledMap map;
+    protected final float unitScale;
+    protected final float cellSize;
+
+    // The objects of every layer and the objects of each layer
+    protected final Scope globalScope = new Scope();
+    protected final IdentityMap<MapLayer, Scope> layerScopes = new IdentityMap<>();
+
+    // All the indexed objects and their bounds in world units (x, y, width, height)
+    protected final Array<MapObject> objects = new Array<>();
+    protected float[] bounds = new float[0];
+
+    // The spatial grid: the objects of cell i are cellObjects[cellStarts[i]] to cellObjects[cellStarts[i + 1] - 1]
+    protected int columns, rows;
+    protected float gridX, gridY;
+    protected int[] cellStarts = new int[1];
+    protected int[] cellObjects = new int[0];
+
+    // Query stamps used to report every object once
+    private int[] objectStamps = new int[0];
+    private int stamp;
+
+    private final Rectangle tempRectangle = new Rectangle();
+
+    /**
+     * Creates and builds a new index.
+     * @param map the map
+     * @param unitScale the unit scale (1 / Pixels Per Unit) used to convert the bounds of the objects into world units
+     * @param cellSize the size of the cells of the spatial grid in world units
+     */
+    public MapObjectIndex(TiledMap map, float unitScale, float cellSize) {
+        if (cellSize <= 0)
+            throw new IllegalArgumentException("The cell size must be greater than zero!");
+
+        this.map = map;
+        this.unitScale = unitScale;
+        this.cellSize = cellSize;
+
+        rebuild();
+    }
+
+    /**
+     * Creates and builds a new index whose grid cells are 4x4 tiles.
+     * @param map the map
+     * @param unitScale the unit scale (1 / Pixels Per Unit) used to convert the bounds of the objects into world units
+     */
+    public MapObjectIndex(TiledMap map, float unitScale) {
+        this(map, unitScale, defaultCellSize(map, unitScale));
+    }
+
+    private static float defaultCellSize(TiledMap map, float unitScale) {
+        Integer tileWidth = map.getProperties().get("tilewidth", Integer.class);
+        float cellSize = (tileWidth != null ? tileWidth : 32) * 4 * unitScale;
+        return cellSize > 0 ? cellSize : 1;
+    }
+
+    /**
+     * Rebuilds the index from the current objects of the map.
+     */
+    public void rebuild() {
+        globalScope.clear();
+        layerScopes.clear();
+        objects.clear();
+
+        MapLayers layers = map.getLayers();
+        for (int i = 0; i < layers.size(); i++) {
+            MapLayer layer = layers.get(i);
+            Scope layerScope = new Scope();
+            layerScopes.put(layer, layerScope);
+
+            for (MapObject object : layer.getObjects()) {
+                if (object instanceof TiledMapTileMapObject)
+                    mergeTileProperties((TiledMapTileMapObject) object);
+
+                globalScope.add(object);
+                layerScope.add(object);
+                objects.add(object);
+            }
+        }
+
+        buildGrid();
+    }
+
+    private static void mergeTileProperties(TiledMapTileMapObject object) {
+        TiledMapTile tile = object.getTile();
+        if (tile == null)
+            return;
+
+        MapProperties properties = object.getProperties();
+        MapProperties defaultProperties = tile.getProperties();
+
+        Iterator<String> keys = defaultProperties.getKeys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (!properties.containsKey(key))
+                properties.put(key, defaultProperties.get(key));
+        }
+    }
+
+    private void buildGrid() {
+        int count = objects.size;
+        bounds = new float[count * 4];
+        objectStamps = new int[count];
+        stamp = 0;
+
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+
+        for (int i = 0; i < count; i++) {
+            Rectangle rect = computeBounds(objects.get(i), tempRectangle);
+            bounds[i * 4] = rect.x;
+            bounds[i * 4 + 1] = rect.y;
+            bounds[i * 4 + 2] = rect.width;
+            bounds[i * 4 + 3] = rect.height;
+
+            minX = Math.min(minX, rect.x);
+            minY = Math.min(minY, rect.y);
+            maxX = Math.max(maxX, rect.x + rect.width);
+            maxY = Math.max(maxY, rect.y + rect.height);
+        }
+
+        if (count == 0) {
+            columns = rows = 0;
+            cellStarts = new int[1];
+            cellObjects = new int[0];
+            return;
+        }
+
+        gridX = minX;
+        gridY = minY;
+        columns = Math.max(1, (int)Math.ceil((maxX - minX) / cellSize) + 1);
+        rows = Math.max(1, (int)Math.ceil((maxY - minY) / cellSize) + 1);
+
+        // Count the objects of every cell, then turn the counts into offsets and fill the cells
+        cellStarts = new int[columns * rows + 1];
+        for (int i = 0; i < count; i++) {
+            int col1 = column(bounds[i * 4]), col2 = column(bounds[i * 4] + bounds[i * 4 + 2]);
+            int row1 = row(bounds[i * 4 + 1]), row2 = row(bounds[i * 4 + 1] + bounds[i * 4 + 3]);
+
+            for (int row = row1; row <= row2; row++) {
+                for (int col = col1; col <= col2; col++)
+                    cellStarts[row * columns + col + 1]++;
+            }
+        }
+
+        for (int i = 1; i < cellStarts.length; i++)
+            cellStarts[i] += cellStarts[i - 1];
+
+        cellObjects = new int[cellStarts[cellStarts.length - 1]];
+        int[] fill = new int[columns * rows];
+        for (int i = 0; i < count; i++) {
+            int col1 = column(bounds[i * 4]), col2 = column(bounds[i * 4] + bounds[i * 4 + 2]);
+            int row1 = row(bounds[i * 4 + 1]), row2 = row(bounds[i * 4 + 1] + bounds[i * 4 + 3]);
+
+            for (int row = row1; row <= row2; row++) {
+                for (int col = col1; col <= col2; col++) {
+                    int cell = row * columns + col;
+                    cellObjects[cellStarts[cell] + fill[cell]++] = i;
+                }
+            }
+        }
+    }
+
+    private int column(float x)
+    { return Math.max(0, Math.min(columns - 1, (int)((x - gridX) / cellSize))); }
+
+    private int row(float y)
+    { return Math.max(0, Math.min(rows - 1, (int)((y - gridY) / cellSize))); }
+
+    /**
+     * Computes the bounds of an object in world units.
+     * @param object the object
+     * @param out the rectangle to store the bounds in
+     * @return the given rectangle
+     */
+    protected Rectangle computeBounds(MapObject object, Rectangle out) {
+        if (object instanceof RectangleMapObject)
+            out.set(((RectangleMapObject) object).getRectangle());
+        else if (object instanceof CircleMapObject) {
+            Circle circle = ((CircleMapObject) object).getCircle();
+            out.set(circle.x - circle.radius, circle.y - circle.radius, circle.radius * 2, circle.radius * 2);
+        }
+        else if (object instanceof EllipseMapObject) {
+            Ellipse ellipse = ((EllipseMapObject) object).getEllipse();
+            out.set(ellipse.x, ellipse.y, ellipse.width, ellipse.height);
+        }
+        else if (object instanceof PolygonMapObject)
+            out.set(((PolygonMapObject) object).getPolygon().getBoundingRectangle());
+        else if (object instanceof PolylineMapObject) {
+            float[] vertices = ((PolylineMapObject) object).getPolyline().getTransformedVertices();
+            float minX = vertices[0], minY = vertices[1], maxX = vertices[0], maxY = vertices[1];
+            for (int i = 2; i < vertices.length; i += 2) {
+                minX = Math.min(minX, vertices[i]);
+                minY = Math.min(minY, vertices[i + 1]);
+                maxX = Math.max(maxX, vertices[i]);
+                maxY = Math.max(maxY, vertices[i + 1]);
+            }
+
+            out.set(minX, minY, maxX - minX, maxY - minY);
+        }
+        else if (object instanceof TextureMapObject) {
+            TextureMapObject textureObject = (TextureMapObject) object;
+            float width = 0, height = 0;
+            if (textureObject.getTextureRegion() != null) {
+                width = textureObject.getTextureRegion().getRegionWidth() * textureObject.getScaleX();
+                height = textureObject.getTextureRegion().getRegionHeight() * textureObject.getScaleY();
+            }
+
+            out.set(textureObject.getX(), textureObject.getY(), width, height);
+        }
+        else {
+            MapProperties properties = object.getProperties();
+            out.set(properties.get("x", 0f, Float.class), properties.get("y", 0f, Float.class),
+                    properties.get("width", 0f, Float.class), properties.get("height", 0f, Float.class));
+        }
+
+        out.x *= unitScale;
+        out.y *= unitScale;
+        out.width *= unitScale;
+        out.height *= unitScale;
+        return out;
+    }
+
+    /**
+     * Finds the objects of a given type in a layer whose property matches a value.
+     * @param type the type of the objects. Objects are matched if they are instances of this type
+     * @param layer the layer or null to search every layer
+     * @param propertyName the name of the property or {@link #ANY_PROPERTY} to match every object
+     * @param value the value of the property
+     * @param out the array to add the objects to
+     * @param <T> the type of the objects
+     * @return the given array
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends MapObject> Array<T> query(Class<T> type, MapLayer layer, String propertyName, Object value, Array<T> out) {
+        Scope scope = layer == null ? globalScope : layerScopes.get(layer);
+        if (scope == null)
+            return queryUnindexed(type, layer, propertyName, value, out);
+
+        if (propertyName == null || propertyName.equals(ANY_PROPERTY)) {
+            Array<MapObject> found = scope.byType.get(type);
+            if (found != null)
+                out.addAll((Array<T>) found);
+
+            return out;
+        }
+
+        if (value == null)
+            return out;
+
+        ObjectMap<Object, Array<MapObject>> values = scope.byProperty.get(propertyName);
+        if (values == null)
+            return out;
+
+        Array<MapObject> found = values.get(value);
+        if (found == null)
+            return out;
+
+        for (int i = 0, n = found.size; i < n; i++) {
+            MapObject object = found.get(i);
+            if (ClassReflection.isInstance(type, object))
+                out.add((T) object);
+        }
+
+        return out;
+    }
+
+    /**
+     * Finds the objects of a given type in every layer whose property matches a value.
+     * @param type the type of the objects. Objects are matched if they are instances of this type
+     * @param propertyName the name of the property or {@link #ANY_PROPERTY} to match every object
+     * @param value the value of the property
+     * @param out the array to add the objects to
+     * @param <T> the type of the objects
+     * @return the given array
+     */
+    public <T extends MapObject> Array<T> query(Class<T> type, String propertyName, Object value, Array<T> out)
+    { return query(type, null, propertyName, value, out); }
+
+    /* Scans a layer that is not part of the map */
+    @SuppressWarnings("unchecked")
+    private <T extends MapObject> Array<T> queryUnindexed(Class<T> type, MapLayer layer, String propertyName, Object value, Array<T> out) {
+        boolean anyProperty = propertyName == null || propertyName.equals(ANY_PROPERTY);
+
+        for (MapObject object : layer.getObjects()) {
+            if (!ClassReflection.isInstance(type, object))
+                continue;
+
+            if (anyProperty) {
+                out.add((T) object);
+                continue;
+            }
+
+            Object propertyValue = object.getProperties().get(propertyName);
+            if (propertyValue != null && propertyValue.equals(value))
+                out.add((T) object);
+        }
+
+        return out;
+    }
+
+    /**
+     * Finds the objects of a given type whose bounds overlap a rectangle.
+     * @param type the type of the objects. Objects are matched if they are instances of this type
+     * @param x the x coordinate of the bottom-left corner of the rectangle in world units
+     * @param y the y coordinate of the bottom-left corner of the rectangle in world units
+     * @param width the width of the rectangle in world units
+     * @param height the height of the rectangle in world units
+     * @param out the array to add the objects to
+     * @param <T> the type of the objects
+     * @return the given array
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends MapObject> Array<T> queryRect(Class<T> type, float x, float y, float width, float height, Array<T> out) {
+        if (columns == 0)
+            return out;
+
+        if (x > gridX + columns * cellSize || y > gridY + rows * cellSize || x + width < gridX || y + height < gridY)
+            return out;
+
+        if (++stamp == 0) {
+            Arrays.fill(objectStamps, 0);
+            stamp = 1;
+        }
+
+        int col1 = column(x), col2 = column(x + width);
+        int row1 = row(y), row2 = row(y + height);
+
+        for (int row = row1; row <= row2; row++) {
+            for (int col = col1; col <= col2; col++) {
+                int cell = row * columns + col;
+
+                for (int i = cellStarts[cell], n = cellStarts[cell + 1]; i < n; i++) {
+                    int index = cellObjects[i];
+                    if (objectStamps[index] == stamp)
+                        continue;
+
+                    objectStamps[index] = stamp;
+
+                    float bx = bounds[index * 4], by = bounds[index * 4 + 1];
+                    if (bx > x + width || by > y + height || bx + bounds[index * 4 + 2] < x || by + bounds[index * 4 + 3] < y)
+                        continue;
+
+                    MapObject object = objects.get(index);
+                    if (ClassReflection.isInstance(type, object))
+                        out.add((T) object);
+                }
+            }
+        }
+
+        return out;
+    }
+
+    /**
+     * Finds the objects whose bounds overlap a rectangle.
+     * @param x the x coordinate of the bottom-left corner of the rectangle in world units
+     * @param y the y coordinate of the bottom-left corner of the rectangle in world units
+     * @param width the width of the rectangle in world units
+     * @param height the height of the rectangle in world units
+     * @param out the array to add the objects to
+     * @return the given array
+     */
+    public Array<MapObject> queryRect(float x, float y, float width, float height, Array<MapObject> out)
+    { return queryRect(MapObject.class, x, y, width, height, out); }
+
+    /**
+     * Gets the bounds of an object in world units.
+     * @param object the object
+     * @param out the rectangle to store the bounds in
+     * @return the given rectangle or null if the object is not indexed
+     */
+    public Rectangle getBounds(MapObject object, Rectangle out) {
+        int index = objects.indexOf(object, true);
+        if (index == -1)
+            return null;
+
+        return out.set(bounds[index * 4], bounds[index * 4 + 1], bounds[index * 4 + 2], bounds[index * 4 + 3]);
+    }
+
+    /**
+     *
+     * @return the number of indexed objects
+     */
+    public int size()
+    { return objects.size; }
+
+    /**
+     *
+     * @return the indexed map
+     */
+    public TiledMap getMap()
+    { return map; }
+
+    /* The objects of a layer, or of every layer, grouped by type and by property */
+    protected static class Scope {
+        final ObjectMap<Class<?>, Array<MapObject>> byType = new ObjectMap<>();
+        final ObjectMap<String, ObjectMap<Object, Array<MapObject>>> byProperty = new ObjectMap<>();
+
+        void add(MapObject object) {
+            // Add the object under its class and every super class so queries match instances
+            Class<?> type = object.getClass();
+            while (type != null) {
+                Array<MapObject> found = byType.get(type);
+                if (found == null) {
+                    found = new Array<>();
+                    byType.put(type, found);
+                }
+
+                found.add(object);
+
+                if (type == MapObject.class)
+                    break;
+
+                type = type.getSuperclass();
+            }
+
+            Iterator<String> keys = object.getProperties().getKeys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                Object value = object.getProperties().get(key);
+                if (value == null)
+                    continue;
+
+                ObjectMap<Object, Array<MapObject>> values = byProperty.get(key);
+                if (values == null) {
+                    values = new ObjectMap<>();
+                    byProperty.put(key, values);
+                }
+
+                Array<MapObject> found = values.get(value);
+                if (found == null) {
+                    found = new Array<>();
+                    values.put(value, found);
+                }
+
+                found.add(object);
+            }
+        }
+
+        void clear() {
+            byType.clear();
+            byProperty.clear();
+        }
+    }
+}
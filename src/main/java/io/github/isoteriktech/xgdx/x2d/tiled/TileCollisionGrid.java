@@ -0,0 +1,434 @@
+package io.github.isoteriktech.xgdx.x2d.tiled;
+
+import com.badlogic.gdx.maps.MapLayer;
+import com.badlogic.gdx.maps.MapLayers;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTile;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.math.GridPoint2;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * A grid of solid tiles stored in a packed bitset, one bit per tile. The grid is extracted from the tile layers of a {@link TiledMap}, either from whole layers or
+ * from the tiles that have a given property, and answers collision queries in world units without looking at map objects.
+ * <p>
+ * Tile (0, 0) is the bottom-left tile of the map, as in {@link TiledMapTileLayer}. World coordinates are the map coordinates multiplied by the unit scale.
+ *
+ * @author isoteriksoftware
+ */
+public class TileCollisionGrid {
+    /* Distance used to keep the edges of a box out of the tiles it touches */
+    private static final float EPSILON = 1e-4f;
+
+    protected final int width, height;
+    protected final float tileWidth, tileHeight;
+
+    protected final long[] bits;
+
+    /**
+     * Creates an empty grid.
+     * @param width the number of horizontal tiles
+     * @param height the number of vertical tiles
+     * @param tileWidth the width of a tile in world units
+     * @param tileHeight the height of a tile in world units
+     */
+    public TileCollisionGrid(int width, int height, float tileWidth, float tileHeight) {
+        if (width < 0 || height < 0)
+            throw new IllegalArgumentException("The size of the grid cannot be negative!");
+
+        if (tileWidth <= 0 || tileHeight <= 0)
+            throw new IllegalArgumentException("The size of the tiles must be greater than zero!");
+
+        this.width = width;
+        this.height = height;
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+
+        bits = new long[(width * height + 63) >>> 6];
+    }
+
+    /**
+     * Creates an empty grid with the size of a map.
+     * @param map the map
+     * @param unitScale the unit scale (1 / Pixels Per Unit)
+     */
+    public TileCollisionGrid(TiledMap map, float unitScale) {
+        this((int)map.getProperties().get("width"), (int)map.getProperties().get("height"),
+                (int)map.getProperties().get("tilewidth") * unitScale, (int)map.getProperties().get("tileheight") * unitScale);
+    }
+
+    /**
+     * Extracts a grid from tile layers. Every tile of the given layers is solid.
+     * @param map the map
+     * @param unitScale the unit scale (1 / Pixels Per Unit)
+     * @param layerNames the names of the tile layers
+     * @return a new grid
+     */
+    public static TileCollisionGrid fromLayers(TiledMap map, float unitScale, String... layerNames) {
+        TileCollisionGrid grid = new TileCollisionGrid(map, unitScale);
+        MapLayers layers = map.getLayers();
+
+        for (String layerName : layerNames) {
+            MapLayer layer = layers.get(layerName);
+            if (!(layer instanceof TiledMapTileLayer))
+                throw new IllegalArgumentException("No tile layer named " + layerName + " exists!");
+
+            grid.addLayer((TiledMapTileLayer) layer);
+        }
+
+        return grid;
+    }
+
+    /**
+     * Extracts a grid from the tiles of every tile layer whose tile property matches a value.
+     * @param map the map
+     * @param unitScale the unit scale (1 / Pixels Per Unit)
+     * @param propertyName the name of the tile property
+     * @param value the value of the property
+     * @return a new grid
+     */
+    public static TileCollisionGrid fromProperty(TiledMap map, float unitScale, String propertyName, Object value) {
+        TileCollisionGrid grid = new TileCollisionGrid(map, unitScale);
+
+        for (MapLayer layer : map.getLayers()) {
+            if (layer instanceof TiledMapTileLayer)
+                grid.addTiles((TiledMapTileLayer) layer, propertyName, value);
+        }
+
+        return grid;
+    }
+
+    /**
+     * Marks every tile of a layer as solid.
+     * @param layer the layer
+     */
+    public void addLayer(TiledMapTileLayer layer) {
+        int w = Math.min(width, layer.getWidth());
+        int h = Math.min(height, layer.getHeight());
+
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                TiledMapTileLayer.Cell cell = layer.getCell(x, y);
+                if (cell != null && cell.getTile() != null)
+                    setSolid(x, y, true);
+            }
+        }
+    }
+
+    /**
+     * Marks the tiles of a layer whose property matches a value as solid.
+     * @param layer the layer
+     * @param propertyName the name of the tile property
+     * @param value the value of the property
+     */
+    public void addTiles(TiledMapTileLayer layer, String propertyName, Object value) {
+        int w = Math.min(width, layer.getWidth());
+        int h = Math.min(height, layer.getHeight());
+
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                TiledMapTileLayer.Cell cell = layer.getCell(x, y);
+                if (cell == null)
+                    continue;
+
+                TiledMapTile tile = cell.getTile();
+                if (tile == null)
+                    continue;
+
+                Object tileValue = tile.getProperties().get(propertyName);
+                if (tileValue != null && tileValue.equals(value))
+                    setSolid(x, y, true);
+            }
+        }
+    }
+
+    /**
+     * Marks a tile as solid or empty.
+     * @param x the column of the tile
+     * @param y the row of the tile
+     * @param solid whether the tile is solid
+     */
+    public void setSolid(int x, int y, boolean solid) {
+        if (x < 0 || y < 0 || x >= width || y >= height)
+            throw new IllegalArgumentException("The tile (" + x + ", " + y + ") is outside the grid!");
+
+        int index = y * width + x;
+        if (solid)
+            bits[index >>> 6] |= 1L << index;
+        else
+            bits[index >>> 6] &= ~(1L << index);
+    }
+
+    /**
+     * Tiles outside the grid are empty.
+     * @param x the column of the tile
+     * @param y the row of the tile
+     * @return whether the tile is solid
+     */
+    public boolean isSolid(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height)
+            return false;
+
+        int index = y * width + x;
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     *
+     * @param worldX the x coordinate in world units
+     * @param worldY the y coordinate in world units
+     * @return whether the tile containing the point is solid
+     */
+    public boolean isSolidAt(float worldX, float worldY)
+    { return isSolid(column(worldX), row(worldY)); }
+
+    private int column(float worldX)
+    { return (int)Math.floor(worldX / tileWidth); }
+
+    private int row(float worldY)
+    { return (int)Math.floor(worldY / tileHeight); }
+
+    /**
+     * Checks whether a box overlaps a solid tile. Boxes that only touch the edge of a tile do not overlap it.
+     * @param x the x coordinate of the bottom-left corner of the box in world units
+     * @param y the y coordinate of the bottom-left corner of the box in world units
+     * @param width the width of the box in world units
+     * @param height the height of the box in world units
+     * @return whether the box overlaps a solid tile
+     */
+    public boolean overlaps(float x, float y, float width, float height) {
+        int col1 = column(x + EPSILON), col2 = column(x + width - EPSILON);
+        int row1 = row(y + EPSILON), row2 = row(y + height - EPSILON);
+
+        for (int row = row1; row <= row2; row++) {
+            for (int col = col1; col <= col2; col++) {
+                if (isSolid(col, row))
+                    return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Moves a box by a displacement and stops it against the solid tiles it would enter. The box is moved along the x axis first and then along the y axis,
+     * so it slides along walls. The box must not overlap a solid tile before it moves.
+     * @param x the x coordinate of the bottom-left corner of the box in world units
+     * @param y the y coordinate of the bottom-left corner of the box in world units
+     * @param width the width of the box in world units
+     * @param height the height of the box in world units
+     * @param dx the horizontal displacement in world units
+     * @param dy the vertical displacement in world units
+     * @param out the vector to store the allowed displacement in
+     * @return whether the box was stopped along any axis
+     */
+    public boolean sweep(float x, float y, float width, float height, float dx, float dy, Vector2 out) {
+        float allowedX = sweepX(x, y, width, height, dx);
+        float allowedY = sweepY(x + allowedX, y, width, height, dy);
+
+        out.set(allowedX, allowedY);
+        return allowedX != dx || allowedY != dy;
+    }
+
+    private float sweepX(float x, float y, float width, float height, float dx) {
+        if (dx == 0)
+            return 0;
+
+        int row1 = row(y + EPSILON), row2 = row(y + height - EPSILON);
+
+        if (dx > 0) {
+            float edge = x + width;
+            for (int col = column(edge - EPSILON) + 1, last = column(edge + dx - EPSILON); col <= last; col++) {
+                if (isColumnSolid(col, row1, row2))
+                    return Math.max(0, col * tileWidth - edge);
+            }
+        }
+        else {
+            for (int col = column(x + EPSILON) - 1, last = column(x + dx + EPSILON); col >= last; col--) {
+                if (isColumnSolid(col, row1, row2))
+                    return Math.min(0, (col + 1) * tileWidth - x);
+            }
+        }
+
+        return dx;
+    }
+
+    private float sweepY(float x, float y, float width, float height, float dy) {
+        if (dy == 0)
+            return 0;
+
+        int col1 = column(x + EPSILON), col2 = column(x + width - EPSILON);
+
+        if (dy > 0) {
+            float edge = y + height;
+            for (int row = row(edge - EPSILON) + 1, last = row(edge + dy - EPSILON); row <= last; row++) {
+                if (isRowSolid(row, col1, col2))
+                    return Math.max(0, row * tileHeight - edge);
+            }
+        }
+        else {
+            for (int row = row(y + EPSILON) - 1, last = row(y + dy + EPSILON); row >= last; row--) {
+                if (isRowSolid(row, col1, col2))
+                    return Math.min(0, (row + 1) * tileHeight - y);
+            }
+        }
+
+        return dy;
+    }
+
+    private boolean isColumnSolid(int col, int row1, int row2) {
+        for (int row = row1; row <= row2; row++) {
+            if (isSolid(col, row))
+                return true;
+        }
+
+        return false;
+    }
+
+    private boolean isRowSolid(int row, int col1, int col2) {
+        for (int col = col1; col <= col2; col++) {
+            if (isSolid(col, row))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Casts a ray and finds the first solid tile it hits. The tiles are visited with a DDA walk, so the cost depends on the number of tiles crossed.
+     * @param x1 the x coordinate of the start of the ray in world units
+     * @param y1 the y coordinate of the start of the ray in world units
+     * @param x2 the x coordinate of the end of the ray in world units
+     * @param y2 the y coordinate of the end of the ray in world units
+     * @param outTile if not null, stores the column and row of the tile that was hit
+     * @param outPoint if not null, stores the point where the ray entered the tile that was hit
+     * @return whether the ray hit a solid tile
+     */
+    public boolean raycast(float x1, float y1, float x2, float y2, GridPoint2 outTile, Vector2 outPoint) {
+        int col = column(x1), row = row(y1);
+        int endCol = column(x2), endRow = row(y2);
+
+        float dx = x2 - x1, dy = y2 - y1;
+        int stepX = dx > 0 ? 1 : (dx < 0 ? -1 : 0);
+        int stepY = dy > 0 ? 1 : (dy < 0 ? -1 : 0);
+
+        // The ray parameter needed to cross one tile and to reach the first tile boundary on each axis
+        float deltaX = stepX != 0 ? Math.abs(tileWidth / dx) : Float.MAX_VALUE;
+        float deltaY = stepY != 0 ? Math.abs(tileHeight / dy) : Float.MAX_VALUE;
+        float maxX = stepX > 0 ? ((col + 1) * tileWidth - x1) / dx : (stepX < 0 ? (col * tileWidth - x1) / dx : Float.MAX_VALUE);
+        float maxY = stepY > 0 ? ((row + 1) * tileHeight - y1) / dy : (stepY < 0 ? (row * tileHeight - y1) / dy : Float.MAX_VALUE);
+
+        float t = 0;
+        int steps = Math.abs(endCol - col) + Math.abs(endRow - row);
+
+        for (int i = 0; ; i++) {
+            if (isSolid(col, row)) {
+                if (outTile != null)
+                    outTile.set(col, row);
+
+                if (outPoint != null)
+                    outPoint.set(x1 + dx * t, y1 + dy * t);
+
+                return true;
+            }
+
+            if (i >= steps)
+                return false;
+
+            if (maxX < maxY) {
+                t = maxX;
+                maxX += deltaX;
+                col += stepX;
+            }
+            else {
+                t = maxY;
+                maxY += deltaY;
+                row += stepY;
+            }
+        }
+    }
+
+    /**
+     * Merges the solid tiles into as few rectangles as possible with a greedy pass: runs of solid tiles in a row are extended upwards while the rows above
+     * have the same run. This is useful for creating static bodies for an external physics engine.
+     * @param out the array to add the rectangles, in world units, to
+     * @return the given array
+     */
+    public Array<Rectangle> mergeRectangles(Array<Rectangle> out) {
+        long[] used = new long[bits.length];
+
+        for (int y = 0; y < height; y++) {
+            int x = 0;
+            while (x < width) {
+                if (!isSolid(x, y) || isSet(used, y * width + x)) {
+                    x++;
+                    continue;
+                }
+
+                // Find the run of free solid tiles starting at x
+                int runEnd = x + 1;
+                while (runEnd < width && isSolid(runEnd, y) && !isSet(used, y * width + runEnd))
+                    runEnd++;
+
+                // Extend the run upwards while the whole run is free and solid
+                int top = y + 1;
+                while (top < height && isRunFree(used, x, runEnd, top))
+                    top++;
+
+                for (int row = y; row < top; row++) {
+                    for (int col = x; col < runEnd; col++) {
+                        int index = row * width + col;
+                        used[index >>> 6] |= 1L << index;
+                    }
+                }
+
+                out.add(new Rectangle(x * tileWidth, y * tileHeight, (runEnd - x) * tileWidth, (top - y) * tileHeight));
+                x = runEnd;
+            }
+        }
+
+        return out;
+    }
+
+    private boolean isRunFree(long[] used, int startX, int endX, int y) {
+        for (int x = startX; x < endX; x++) {
+            if (!isSolid(x, y) || isSet(used, y * width + x))
+                return false;
+        }
+
+        return true;
+    }
+
+    private static boolean isSet(long[] bits, int index)
+    { return (bits[index >>> 6] & (1L << index)) != 0; }
+
+    /**
+     *
+     * @return the number of horizontal tiles
+     */
+    public int getWidth()
+    { return width; }
+
+    /**
+     *
+     * @return the number of vertical tiles
+     */
+    public int getHeight()
+    { return height; }
+
+    /**
+     *
+     * @return the width of a tile in world units
+     */
+    public float getTileWidth()
+    { return tileWidth; }
+
+    /**
+     *
+     * @return the height of a tile in world units
+     */
+    public float getTileHeight()
+    { return tileHeight; }
+}
@@ -0,0 +1,449 @@
+package io.github.isoteriktech.xgdx.x2d.tiled;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.TextureData;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.FileTextureData;
+import com.badlogic.gdx.maps.MapGroupLayer;
+import com.badlogic.gdx.maps.MapLayer;
+import com.badlogic.gdx.maps.MapLayers;
+import com.badlogic.gdx.maps.MapObject;
+import com.badlogic.gdx.maps.MapObjects;
+import com.badlogic.gdx.maps.MapProperties;
+import com.badlogic.gdx.maps.objects.CircleMapObject;
+import com.badlogic.gdx.maps.objects.EllipseMapObject;
+import com.badlogic.gdx.maps.objects.PolygonMapObject;
+import com.badlogic.gdx.maps.objects.PolylineMapObject;
+import com.badlogic.gdx.maps.objects.RectangleMapObject;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapImageLayer;
+import com.badlogic.gdx.maps.tiled.TiledMapTile;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.maps.tiled.TiledMapTileSet;
+import com.badlogic.gdx.maps.tiled.TmxMapLoader;
+import com.badlogic.gdx.maps.tiled.objects.TiledMapTileMapObject;
+import com.badlogic.gdx.maps.tiled.tiles.AnimatedTiledMapTile;
+import com.badlogic.gdx.maps.tiled.tiles.StaticTiledMapTile;
+import com.badlogic.gdx.math.Circle;
+import com.badlogic.gdx.math.Ellipse;
+import com.badlogic.gdx.math.Polygon;
+import com.badlogic.gdx.math.Polyline;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.ObjectIntMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+import static io.github.isoteriktech.xgdx.x2d.tiled.BinaryTiledMapLoader.*;
+
+/**
+ * Compiles TMX maps into the compact binary format read by {@link BinaryTiledMapLoader}. Tile layers are stored as packed ints and every string
+ * (names, property keys and values, texture paths) is stored once in a string table.
+ * <p>
+ * The compiler works on a map loaded with {@link TmxMapLoader}, so it needs a GL context (a desktop or headless application). It is meant to be run
+ * offline, as part of the build of a game, not at runtime.
+ *
+ * @author isoteriksoftware
+ */
+public class TiledMapCompiler {
+    private final Array<String> strings = new Array<>();
+    private final ObjectIntMap<String> stringIndices = new ObjectIntMap<>();
+    private final Array<Texture> textures = new Array<>();
+    private final Array<String> texturePaths = new Array<>();
+
+    private FileHandle mapDirectory;
+
+    /**
+     * Loads a TMX map and writes its compiled form.
+     * @param tmxFile the TMX file
+     * @param outputFile the file to write the compiled map to
+     */
+    public static void compile(FileHandle tmxFile, FileHandle outputFile) {
+        TiledMap map = new TmxMapLoader().load(tmxFile.path());
+        try {
+            outputFile.writeBytes(new TiledMapCompiler().compile(map, tmxFile), false);
+        } finally {
+            map.dispose();
+        }
+    }
+
+    /**
+     * Compiles a map.
+     * @param map the map, loaded with {@link TmxMapLoader}
+     * @param tmxFile the file the map was loaded from. The paths of the textures are stored relative to it
+     * @return the compiled map
+     */
+    public byte[] compile(TiledMap map, FileHandle tmxFile) {
+        strings.clear();
+        stringIndices.clear();
+        textures.clear();
+        texturePaths.clear();
+        mapDirectory = tmxFile.parent();
+
+        try {
+            // The body is written first because it collects the strings and the textures
+            ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+            DataOutputStream body = new DataOutputStream(bodyBytes);
+
+            writeProperties(body, map.getProperties());
+
+            int tileSetsCount = 0;
+            for (TiledMapTileSet ignored : map.getTileSets())
+                tileSetsCount++;
+
+            body.writeInt(tileSetsCount);
+            for (TiledMapTileSet tileSet : map.getTileSets())
+                writeTileSet(body, tileSet);
+
+            writeLayers(body, map.getLayers());
+            body.flush();
+
+            ByteArrayOutputStream outputBytes = new ByteArrayOutputStream(bodyBytes.size() + 1024);
+            DataOutputStream output = new DataOutputStream(outputBytes);
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+
+            // Intern the texture paths before writing the string table
+            int[] textureStrings = new int[texturePaths.size];
+            for (int i = 0; i < texturePaths.size; i++)
+                textureStrings[i] = intern(texturePaths.get(i));
+
+            output.writeInt(strings.size);
+            for (String string : strings) {
+                byte[] bytes = string.getBytes("UTF-8");
+                output.writeInt(bytes.length);
+                output.write(bytes);
+            }
+
+            output.writeInt(textureStrings.length);
+            for (int index : textureStrings)
+                output.writeInt(index);
+
+            bodyBytes.writeTo(output);
+            output.flush();
+            return outputBytes.toByteArray();
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Failed to compile the map", e);
+        }
+    }
+
+    private int intern(String string) {
+        if (string == null)
+            return -1;
+
+        int index = stringIndices.get(string, -1);
+        if (index == -1) {
+            index = strings.size;
+            strings.add(string);
+            stringIndices.put(string, index);
+        }
+
+        return index;
+    }
+
+    private void writeString(DataOutputStream out, String string) throws IOException
+    { out.writeInt(intern(string)); }
+
+    private int textureIndex(Texture texture) {
+        int index = textures.indexOf(texture, true);
+        if (index != -1)
+            return index;
+
+        TextureData data = texture.getTextureData();
+        if (!(data instanceof FileTextureData))
+            throw new GdxRuntimeException("Only textures loaded from files can be compiled");
+
+        textures.add(texture);
+        texturePaths.add(relativePath(((FileTextureData) data).getFileHandle()));
+        return textures.size - 1;
+    }
+
+    /* The path of a file relative to the directory of the map */
+    private String relativePath(FileHandle file) {
+        String[] from = mapDirectory.path().replace('\\', '/').split("/");
+        String[] to = file.path().replace('\\', '/').split("/");
+
+        int common = 0;
+        while (common < from.length && common < to.length - 1 && from[common].equals(to[common]))
+            common++;
+
+        StringBuilder path = new StringBuilder();
+        for (int i = common; i < from.length; i++) {
+            if (!from[i].isEmpty())
+                path.append("../");
+        }
+
+        for (int i = common; i < to.length; i++) {
+            path.append(to[i]);
+            if (i < to.length - 1)
+                path.append('/');
+        }
+
+        return path.toString();
+    }
+
+    private void writeRegion(DataOutputStream out, TextureRegion region) throws IOException {
+        if (region == null) {
+            out.writeInt(-1);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeInt(0);
+            return;
+        }
+
+        out.writeInt(textureIndex(region.getTexture()));
+        out.writeInt(region.getRegionX());
+        out.writeInt(region.getRegionY());
+        out.writeInt(region.getRegionWidth());
+        out.writeInt(region.getRegionHeight());
+    }
+
+    private void writeTileSet(DataOutputStream out, TiledMapTileSet tileSet) throws IOException {
+        writeString(out, tileSet.getName());
+        writeProperties(out, tileSet.getProperties());
+
+        out.writeInt(tileSet.size());
+        for (TiledMapTile tile : tileSet) {
+            boolean animated = tile instanceof AnimatedTiledMapTile;
+            if (!animated && !(tile instanceof StaticTiledMapTile))
+                throw new GdxRuntimeException("Unsupported tile type: " + tile.getClass().getName());
+
+            out.writeByte(animated ? TILE_ANIMATED : TILE_STATIC);
+            out.writeInt(tile.getId());
+            out.writeByte(tile.getBlendMode() == TiledMapTile.BlendMode.NONE ? 0 : 1);
+            out.writeFloat(tile.getOffsetX());
+            out.writeFloat(tile.getOffsetY());
+            writeProperties(out, tile.getProperties());
+            writeObjects(out, tile.getObjects());
+
+            if (animated) {
+                AnimatedTiledMapTile animatedTile = (AnimatedTiledMapTile) tile;
+                StaticTiledMapTile[] frames = animatedTile.getFrameTiles();
+                int[] intervals = animatedTile.getAnimationIntervals();
+
+                out.writeInt(frames.length);
+                for (int i = 0; i < frames.length; i++) {
+                    out.writeInt(frames[i].getId());
+                    out.writeInt(intervals[i]);
+                }
+            }
+            else
+                writeRegion(out, tile.getTextureRegion());
+        }
+    }
+
+    private void writeLayers(DataOutputStream out, MapLayers layers) throws IOException {
+        out.writeInt(layers.size());
+        for (MapLayer layer : layers) {
+            byte type = LAYER_OBJECTS;
+            if (layer instanceof TiledMapTileLayer)
+                type = LAYER_TILES;
+            else if (layer instanceof TiledMapImageLayer)
+                type = LAYER_IMAGE;
+            else if (layer instanceof MapGroupLayer)
+                type = LAYER_GROUP;
+
+            out.writeByte(type);
+            writeString(out, layer.getName());
+            out.writeBoolean(layer.isVisible());
+            out.writeFloat(layer.getOpacity());
+            out.writeFloat(layer.getOffsetX());
+            out.writeFloat(layer.getOffsetY());
+
+            if (type == LAYER_TILES)
+                writeTileLayer(out, (TiledMapTileLayer) layer);
+            else if (type == LAYER_IMAGE) {
+                TiledMapImageLayer imageLayer = (TiledMapImageLayer) layer;
+                writeRegion(out, imageLayer.getTextureRegion());
+                out.writeFloat(imageLayer.getX());
+                out.writeFloat(imageLayer.getY());
+            }
+
+            writeProperties(out, layer.getProperties());
+            writeObjects(out, layer.getObjects());
+
+            if (type == LAYER_GROUP)
+                writeLayers(out, ((MapGroupLayer) layer).getLayers());
+        }
+    }
+
+    private void writeTileLayer(DataOutputStream out, TiledMapTileLayer layer) throws IOException {
+        out.writeInt(layer.getWidth());
+        out.writeInt(layer.getHeight());
+        out.writeInt(layer.getTileWidth());
+        out.writeInt(layer.getTileHeight());
+
+        for (int y = 0; y < layer.getHeight(); y++) {
+            for (int x = 0; x < layer.getWidth(); x++) {
+                TiledMapTileLayer.Cell cell = layer.getCell(x, y);
+                if (cell == null || cell.getTile() == null) {
+                    out.writeInt(0);
+                    continue;
+                }
+
+                int id = cell.getTile().getId();
+                if ((id & ~TILE_ID_MASK) != 0)
+                    throw new GdxRuntimeException("Tile id " + id + " is too large to be compiled");
+
+                int data = id | (cell.getRotation() & 3) << ROTATION_SHIFT;
+                if (cell.getFlipHorizontally())
+                    data |= FLAG_FLIP_HORIZONTALLY;
+                if (cell.getFlipVertically())
+                    data |= FLAG_FLIP_VERTICALLY;
+
+                out.writeInt(data);
+            }
+        }
+    }
+
+    private void writeObjects(DataOutputStream out, MapObjects objects) throws IOException {
+        out.writeInt(objects.getCount());
+        for (MapObject object : objects) {
+            byte type = OBJECT_GENERIC;
+            if (object instanceof RectangleMapObject)
+                type = OBJECT_RECTANGLE;
+            else if (object instanceof EllipseMapObject)
+                type = OBJECT_ELLIPSE;
+            else if (object instanceof CircleMapObject)
+                type = OBJECT_CIRCLE;
+            else if (object instanceof PolygonMapObject)
+                type = OBJECT_POLYGON;
+            else if (object instanceof PolylineMapObject)
+                type = OBJECT_POLYLINE;
+            else if (object instanceof TiledMapTileMapObject)
+                type = OBJECT_TILE;
+
+            out.writeByte(type);
+            writeString(out, object.getName());
+            out.writeBoolean(object.isVisible());
+            out.writeFloat(object.getOpacity());
+            out.writeInt(Color.rgba8888(object.getColor()));
+            writeProperties(out, object.getProperties());
+
+            switch (type) {
+                case OBJECT_RECTANGLE: {
+                    Rectangle rectangle = ((RectangleMapObject) object).getRectangle();
+                    out.writeFloat(rectangle.x);
+                    out.writeFloat(rectangle.y);
+                    out.writeFloat(rectangle.width);
+                    out.writeFloat(rectangle.height);
+                    break;
+                }
+                case OBJECT_ELLIPSE: {
+                    Ellipse ellipse = ((EllipseMapObject) object).getEllipse();
+                    out.writeFloat(ellipse.x);
+                    out.writeFloat(ellipse.y);
+                    out.writeFloat(ellipse.width);
+                    out.writeFloat(ellipse.height);
+                    break;
+                }
+                case OBJECT_CIRCLE: {
+                    Circle circle = ((CircleMapObject) object).getCircle();
+                    out.writeFloat(circle.x);
+                    out.writeFloat(circle.y);
+                    out.writeFloat(circle.radius);
+                    break;
+                }
+                case OBJECT_POLYGON: {
+                    Polygon polygon = ((PolygonMapObject) object).getPolygon();
+                    writeTransform(out, polygon.getX(), polygon.getY(), polygon.getOriginX(), polygon.getOriginY(), polygon.getRotation(),
+                            polygon.getScaleX(), polygon.getScaleY());
+                    writeFloats(out, polygon.getVertices());
+                    break;
+                }
+                case OBJECT_POLYLINE: {
+                    Polyline polyline = ((PolylineMapObject) object).getPolyline();
+                    writeTransform(out, polyline.getX(), polyline.getY(), polyline.getOriginX(), polyline.getOriginY(), polyline.getRotation(),
+                            polyline.getScaleX(), polyline.getScaleY());
+                    writeFloats(out, polyline.getVertices());
+                    break;
+                }
+                case OBJECT_TILE: {
+                    TiledMapTileMapObject tileObject = (TiledMapTileMapObject) object;
+                    out.writeInt(tileObject.getTile().getId());
+                    out.writeBoolean(tileObject.isFlipHorizontally());
+                    out.writeBoolean(tileObject.isFlipVertically());
+                    out.writeFloat(tileObject.getX());
+                    out.writeFloat(tileObject.getY());
+                    out.writeFloat(tileObject.getOriginX());
+                    out.writeFloat(tileObject.getOriginY());
+                    out.writeFloat(tileObject.getScaleX());
+                    out.writeFloat(tileObject.getScaleY());
+                    out.writeFloat(tileObject.getRotation());
+                    break;
+                }
+            }
+        }
+    }
+
+    private static void writeTransform(DataOutputStream out, float x, float y, float originX, float originY, float rotation,
+                                       float scaleX, float scaleY) throws IOException {
+        out.writeFloat(x);
+        out.writeFloat(y);
+        out.writeFloat(originX);
+        out.writeFloat(originY);
+        out.writeFloat(rotation);
+        out.writeFloat(scaleX);
+        out.writeFloat(scaleY);
+    }
+
+    private static void writeFloats(DataOutputStream out, float[] values) throws IOException {
+        out.writeInt(values.length);
+        for (float value : values)
+            out.writeFloat(value);
+    }
+
+    private void writeProperties(DataOutputStream out, MapProperties properties) throws IOException {
+        int count = 0;
+        Iterator<String> keys = properties.getKeys();
+        while (keys.hasNext()) {
+            keys.next();
+            count++;
+        }
+
+        out.writeInt(count);
+        keys = properties.getKeys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            Object value = properties.get(key);
+            writeString(out, key);
+
+            if (value instanceof Integer) {
+                out.writeByte(PROPERTY_INT);
+                out.writeInt((Integer) value);
+            }
+            else if (value instanceof Float) {
+                out.writeByte(PROPERTY_FLOAT);
+                out.writeFloat((Float) value);
+            }
+            else if (value instanceof Boolean) {
+                out.writeByte(PROPERTY_BOOLEAN);
+                out.writeBoolean((Boolean) value);
+            }
+            else if (value instanceof Long) {
+                out.writeByte(PROPERTY_LONG);
+                out.writeLong((Long) value);
+            }
+            else if (value instanceof Double) {
+                out.writeByte(PROPERTY_DOUBLE);
+                out.writeDouble((Double) value);
+            }
+            else if (value instanceof Color) {
+                out.writeByte(PROPERTY_COLOR);
+                out.writeInt(Color.rgba8888((Color) value));
+            }
+            else {
+                // Other values are stored as strings
+                out.writeByte(PROPERTY_STRING);
+                writeString(out, value == null ? null : value.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package io.github.isoteriktech.xgdx.x2d.tiled;
+
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.badlogic.gdx.utils.async.AsyncTask;
+import io.github.isoteriktech.xgdx.asset.GameAssetsLoader;
+import io.github.isoteriktech.xgdx.x2d.components.renderer.TiledMapRenderer;
+
+/**
+ * Loads a tiled map without blocking the render thread. The map goes through three stages:
+ * <ol>
+ *     <li>The map file is loaded by {@link GameAssetsLoader}: the XML is parsed on the loader's thread and the tileset textures are uploaded a little every frame</li>
+ *     <li>The {@link MapObjectIndex} and the optional {@link TileCollisionGrid} are built on a background thread</li>
+ *     <li>The {@link ChunkedTiledMapRenderer} is created and the chunks of the initial view are built a little every frame</li>
+ * </ol>
+ * Call {@link #update(int)} once per frame until it returns true, then call {@link #createRenderer()}.
+ * The map stays managed by {@link GameAssetsLoader}; unload it from there when it is no longer needed.
+ *
+ * @author isoteriksoftware
+ */
+public class TiledMapLoadTask {
+    private enum Stage { LOADING, PREPARING, BUILDING, DONE }
+
+    protected final String filePath;
+    protected final float unitScale;
+
+    protected int chunkSize = 32;
+    protected long memoryBudget = 16L * 1024 * 1024;
+
+    protected String[] collisionLayers;
+    protected String collisionPropertyName;
+    protected Object collisionPropertyValue;
+
+    protected boolean hasInitialView;
+    protected float viewX, viewY, viewWidth, viewHeight;
+
+    protected TiledMap map;
+    protected MapObjectIndex objectIndex;
+    protected TileCollisionGrid collisionGrid;
+    protected ChunkedTiledMapRenderer mapRenderer;
+
+    private Stage stage = Stage.LOADING;
+    private AsyncResult<Void> preparation;
+    private boolean enqueued;
+
+    /**
+     * Creates a new task.
+     * @param filePath the path to the TMX file
+     * @param unitScale the unit scale (1 / Pixels Per Unit)
+     */
+    public TiledMapLoadTask(String filePath, float unitScale) {
+        this.filePath = filePath;
+        this.unitScale = unitScale;
+    }
+
+    /**
+     * Sets the chunking of the renderer. The defaults are chunks of 32x32 tiles and a budget of 16MB.
+     * @param chunkSize the width and height of a chunk in tiles
+     * @param memoryBudget the maximum number of bytes used by the chunk caches
+     * @return this task for chaining
+     */
+    public TiledMapLoadTask setChunking(int chunkSize, long memoryBudget) {
+        checkNotStarted();
+        this.chunkSize = chunkSize;
+        this.memoryBudget = memoryBudget;
+        return this;
+    }
+
+    /**
+     * Extracts a collision grid from tile layers on the background thread.
+     * @param layerNames the names of the tile layers
+     * @return this task for chaining
+     * @see TileCollisionGrid#fromLayers(TiledMap, float, String...)
+     */
+    public TiledMapLoadTask setCollisionLayers(String... layerNames) {
+        checkNotStarted();
+        this.collisionLayers = layerNames;
+        this.collisionPropertyName = null;
+        return this;
+    }
+
+    /**
+     * Extracts a collision grid from the tiles whose tile property matches a value on the background thread.
+     * @param propertyName the name of the tile property
+     * @param value the value of the property
+     * @return this task for chaining
+     * @see TileCollisionGrid#fromProperty(TiledMap, float, String, Object)
+     */
+    public TiledMapLoadTask setCollisionProperty(String propertyName, Object value) {
+        checkNotStarted();
+        this.collisionPropertyName = propertyName;
+        this.collisionPropertyValue = value;
+        this.collisionLayers = null;
+        return this;
+    }
+
+    /**
+     * Sets the area that will be visible first. Its chunks are built before the task completes.
+     * @param x the x coordinate of the bottom-left corner of the area in world units
+     * @param y the y coordinate of the bottom-left corner of the area in world units
+     * @param width the width of the area in world units
+     * @param height the height of the area in world units
+     * @return this task for chaining
+     */
+    public TiledMapLoadTask setInitialView(float x, float y, float width, float height) {
+        hasInitialView = true;
+        viewX = x;
+        viewY = y;
+        viewWidth = width;
+        viewHeight = height;
+        return this;
+    }
+
+    private void checkNotStarted() {
+        if (enqueued)
+            throw new IllegalStateException("The task has already started!");
+    }
+
+    /**
+     * Progresses the task. Call this once per frame from the render thread.
+     * @param millis the maximum time to spend on the render thread in milliseconds
+     * @return true when the task is done
+     */
+    public boolean update(int millis) {
+        long start = TimeUtils.nanoTime();
+        long budget = millis * 1000000L;
+
+        switch (stage) {
+            case LOADING:
+                GameAssetsLoader loader = GameAssetsLoader.instance();
+                if (!enqueued) {
+                    loader.enqueueAsset(filePath, TiledMap.class);
+                    enqueued = true;
+                }
+
+                loader.tickLoader(millis);
+                if (!loader.isLoaded(filePath, TiledMap.class))
+                    return false;
+
+                map = loader.getAsset(filePath, TiledMap.class);
+                preparation = loader.submitBackgroundTask(new AsyncTask<Void>() {
+                    @Override
+                    public Void call() {
+                        prepare();
+                        return null;
+                    }
+                });
+
+                stage = Stage.PREPARING;
+                return false;
+
+            case PREPARING:
+                if (!preparation.isDone())
+                    return false;
+
+                // Rethrows the errors of the background thread
+                preparation.get();
+
+                mapRenderer = new ChunkedTiledMapRenderer(map, unitScale, chunkSize, memoryBudget);
+                stage = Stage.BUILDING;
+                return false;
+
+            case BUILDING:
+                long remaining = Math.max(0, budget - (TimeUtils.nanoTime() - start));
+                if (hasInitialView && !mapRenderer.prebuild(viewX, viewY, viewWidth, viewHeight, remaining))
+                    return false;
+
+                stage = Stage.DONE;
+                return true;
+
+            default:
+                return true;
+        }
+    }
+
+    /* Runs on the background thread */
+    protected void prepare() {
+        objectIndex = new MapObjectIndex(map, unitScale);
+
+        if (collisionLayers != null)
+            collisionGrid = TileCollisionGrid.fromLayers(map, unitScale, collisionLayers);
+        else if (collisionPropertyName != null)
+            collisionGrid = TileCollisionGrid.fromProperty(map, unitScale, collisionPropertyName, collisionPropertyValue);
+    }
+
+    /**
+     * Blocks until the task is done.
+     */
+    public void finishNow() {
+        while (!update(Integer.MAX_VALUE)) {
+            // Wait for the background thread instead of spinning
+            if (stage == Stage.PREPARING)
+                preparation.get();
+        }
+    }
+
+    /**
+     *
+     * @return whether the task is done
+     */
+    public boolean isDone()
+    { return stage == Stage.DONE; }
+
+    /**
+     * Creates a component that renders the loaded map with the prepared renderer and object index.
+     * @return a new component
+     * @throws IllegalStateException if the task is not done
+     */
+    public TiledMapRenderer createRenderer() {
+        if (!isDone())
+            throw new IllegalStateException("The map has not finished loading!");
+
+        return new TiledMapRenderer(map, unitScale, mapRenderer, objectIndex);
+    }
+
+    /**
+     *
+     * @return the loaded map or null if it is not loaded yet
+     */
+    public TiledMap getMap()
+    { return map; }
+
+    /**
+     *
+     * @return the object index or null if it is not built yet
+     */
+    public MapObjectIndex getObjectIndex()
+    { return stage == Stage.BUILDING || stage == Stage.DONE ? objectIndex : null; }
+
+    /**
+     *
+     * @return the collision grid or null if none was requested or it is not built yet
+     */
+    public TileCollisionGrid getCollisionGrid()
+    { return stage == Stage.BUILDING || stage == Stage.DONE ? collisionGrid : null; }
+
+    /**
+     *
+     * @return the path to the TMX file
+     */
+    public String getFilePath()
+    { return filePath; }
+}
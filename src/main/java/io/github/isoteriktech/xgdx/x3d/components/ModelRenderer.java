@@ -3,13 +3,10 @@ package io.github.isoteriktech.xgdx.x3d.components;
 import com.badlogic.gdx.graphics.g3d.Environment;
 import com.badlogic.gdx.graphics.g3d.Model;
 import com.badlogic.gdx.graphics.g3d.ModelInstance;
-import com.badlogic.gdx.math.Matrix4;
-import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.utils.Array;
 import io.github.isoteriktech.xgdx.Component;
 import io.github.isoteriktech.xgdx.GameCamera;
 import io.github.isoteriktech.xgdx.GameObject;
-import io.github.isoteriktech.xgdx.Transform;
 import io.github.isoteriktech.xgdx.x3d.GameCamera3d;
 
 public class ModelRenderer extends Component {
@@ -75,11 +72,8 @@ public class ModelRenderer extends Component {
 
     @Override
     public void postUpdate(float deltaTime) {
-        Transform transform = gameObject.transform;
-        Matrix4 matrix = modelInstance.transform;
-
-        matrix.setFromEulerAngles(transform.getRotationZ(), transform.getRotationY(), transform.getRotationX())
-            .trn(transform.position).scl(transform.scale);
+        // The world matrix includes the transformations of the parents of the transform
+        modelInstance.transform.set(gameObject.transform.getWorldMatrix());
     }
 
     @Override
@@ -90,7 +84,7 @@ public class ModelRenderer extends Component {
 
         // Use the default mainCamera if none is provided
         if (gameCamera == null) {
-            GameCamera camera = scene.getMainCamera().getComponent(GameCamera.class);
+            GameCamera camera = scene.getMainCamera();
             if (!(camera instanceof GameCamera3d))
                 return;
 